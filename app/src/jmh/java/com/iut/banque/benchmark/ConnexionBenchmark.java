@@ -0,0 +1,77 @@
+package com.iut.banque.benchmark;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.cryptage.PasswordStorage;
+import com.iut.banque.exceptions.IllegalFormatException;
+import com.iut.banque.facade.LoginManager;
+import com.iut.banque.metrics.OperationMetrics;
+import com.iut.banque.modele.Gestionnaire;
+import com.iut.banque.repository.UtilisateurRepository;
+import com.iut.banque.security.CredentialCache;
+import com.iut.banque.service.PasswordUpgradeService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Connexion répétée d'un même utilisateur avec le vrai encodeur BCrypt : sans
+ * cache (ttl nul, chaque connexion refait la vérification complète) et avec
+ * le cache des identifiants vérifiés. Temps échantillonnés : JMH donne la
+ * moyenne et les percentiles (p0.99) de chaque variante.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConnexionBenchmark {
+
+  LoginManager sansCache;
+  LoginManager avecCache;
+
+  @Setup
+  public void init() throws IllegalFormatException {
+    BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+    Gestionnaire admin = new Gestionnaire("Smith", "Joe", "Rue 1", true, "admin", encoder.encode("Admin123!"));
+    UtilisateurRepository repository = mock(UtilisateurRepository.class);
+    when(repository.findById("admin")).thenReturn(Optional.of(admin));
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    sansCache = loginManager(repository, encoder, new CredentialCache(Duration.ZERO, 100, registry));
+    avecCache = loginManager(repository, encoder, new CredentialCache(Duration.ofMinutes(5), 100, registry));
+  }
+
+  private static LoginManager loginManager(UtilisateurRepository repository, BCryptPasswordEncoder encoder,
+      CredentialCache cache) {
+    return new LoginManager(repository, new PasswordStorage(encoder), cache, mock(PasswordUpgradeService.class),
+        mock(LookupCache.class), mock(OperationMetrics.class));
+  }
+
+  @Benchmark
+  public int connexionSansCache() {
+    return sansCache.tryLogin("admin", "Admin123!");
+  }
+
+  @Benchmark
+  public int connexionAvecCache() {
+    return avecCache.tryLogin("admin", "Admin123!");
+  }
+}
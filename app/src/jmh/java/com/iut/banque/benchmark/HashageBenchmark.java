@@ -0,0 +1,102 @@
+package com.iut.banque.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iut.banque.cryptage.PasswordHasher;
+import com.iut.banque.exceptions.IllegalFormatException;
+import com.iut.banque.modele.Gestionnaire;
+import com.iut.banque.modele.Utilisateur;
+
+/**
+ * Hachage SHA-256 historique et affectation d'un mot de passe à un
+ * utilisateur (clair à hacher, ou valeur déjà encodée reconnue à son
+ * préfixe).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashageBenchmark {
+
+  String motDePasse = "Admin123!";
+  String hashBcrypt = "$2a$10$abcdefghijklmnopqrstuvABCDEFGHIJKLMNOpqrstuvwxyz1234";
+  String hashSha256 = PasswordHasher.hashPassword("Admin123!");
+
+  Utilisateur utilisateur;
+
+  @Setup
+  public void init() throws IllegalFormatException {
+    utilisateur = new Gestionnaire("Smith", "Joe", "Rue 1", true, "admin", hashBcrypt);
+  }
+
+  @Benchmark
+  public String hashPassword() {
+    return PasswordHasher.hashPassword(motDePasse);
+  }
+
+  /**
+   * Implémentation d'origine de hashPassword (getInstance à chaque appel,
+   * Integer.toHexString par octet), pour comparaison.
+   */
+  @Benchmark
+  public String hashPasswordOrigine() throws NoSuchAlgorithmException {
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    byte[] hash = digest.digest(motDePasse.getBytes(StandardCharsets.UTF_8));
+    StringBuilder hexString = new StringBuilder(2 * hash.length);
+    for (byte b : hash) {
+      String hex = Integer.toHexString(0xff & b);
+      if (hex.length() == 1) {
+        hexString.append('0');
+      }
+      hexString.append(hex);
+    }
+    return hexString.toString();
+  }
+
+  @Benchmark
+  public boolean verifyPassword() {
+    return PasswordHasher.verifyPassword(motDePasse, hashSha256);
+  }
+
+  /**
+   * Vérification d'origine : hash puis equalsIgnoreCase.
+   */
+  @Benchmark
+  public boolean verifyPasswordOrigine() throws NoSuchAlgorithmException {
+    return hashPasswordOrigine().equalsIgnoreCase(hashSha256.trim());
+  }
+
+  @Benchmark
+  public String setUserPwdClair() {
+    utilisateur.setUserPwd(motDePasse);
+    return utilisateur.getUserPwd();
+  }
+
+  @Benchmark
+  public String setUserPwdBcrypt() {
+    utilisateur.setUserPwd(hashBcrypt);
+    return utilisateur.getUserPwd();
+  }
+
+  @Benchmark
+  public String setUserPwdSha256() {
+    utilisateur.setUserPwd(hashSha256);
+    return utilisateur.getUserPwd();
+  }
+}
@@ -0,0 +1,50 @@
+package com.iut.banque.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iut.banque.exceptions.TooManyAttemptsException;
+import com.iut.banque.security.InMemoryRateLimitStore;
+import com.iut.banque.security.LoginRateLimiter;
+
+/**
+ * Coût d'une tentative de connexion acceptée par le limiteur (fenêtre par
+ * utilisateur et par adresse), sur 1000 utilisateurs distincts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LimiteurConnexionBenchmark {
+
+  String[] utilisateurs = new String[1000];
+  LoginRateLimiter limiter;
+  int i;
+
+  @Setup
+  public void init() {
+    limiter = new LoginRateLimiter(new InMemoryRateLimitStore(100_000), Duration.ofMinutes(1), Integer.MAX_VALUE,
+        Integer.MAX_VALUE);
+    for (int n = 0; n < utilisateurs.length; n++) {
+      utilisateurs[n] = "u.user" + (n + 1);
+    }
+  }
+
+  @Benchmark
+  public void tentativeAcceptee() throws TooManyAttemptsException {
+    limiter.acquire(utilisateurs[i++ % utilisateurs.length], "10.0.0.1");
+  }
+}
@@ -0,0 +1,107 @@
+package com.iut.banque.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iut.banque.exceptions.IllegalFormatException;
+import com.iut.banque.exceptions.IllegalOperationException;
+import com.iut.banque.exceptions.InsufficientFundsException;
+import com.iut.banque.modele.Client;
+import com.iut.banque.modele.Compte;
+import com.iut.banque.modele.CompteAvecDecouvert;
+import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.modele.Montant;
+
+/**
+ * Validations de format et opérations du modèle appelées à chaque requête
+ * (création de comptes et de clients, débits, contrôle avant suppression).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModeleBenchmark {
+
+  private static final int NB_COMPTES = 10;
+
+  // valeurs lues dans des champs pour que le JIT ne les traite pas comme
+  // des constantes
+  String numeroCompte = "FR0123456789";
+  String numeroCompteInvalide = "FR01234567X9";
+  String userIdClient = "j.dupont12";
+  String numeroClient = "0123456789";
+
+  Montant un = Montant.euros(1);
+  Montant tropEleve = Montant.euros(2_000_000_000_000_000L);
+
+  Client client;
+  CompteAvecDecouvert compte;
+
+  @Setup(Level.Iteration)
+  public void init() throws IllegalFormatException, IllegalOperationException {
+    client = new Client("Dupont", "Jean", "1 rue Test", true, "j.dupont1", "Admin123!", "0123456789");
+    // aucun compte à découvert : possedeComptesADecouvert parcourt tous les comptes
+    for (int i = 0; i < NB_COMPTES; i++) {
+      client.addAccount(new CompteSansDecouvert(String.format("FR%010d", i), Montant.euros(100), client));
+    }
+    compte = new CompteAvecDecouvert("FR9999999999", Montant.euros(1_000_000_000_000_000L), Montant.euros(100),
+        client);
+  }
+
+  @Benchmark
+  public boolean checkFormatNumeroCompte() {
+    return Compte.checkFormatNumeroCompte(numeroCompte);
+  }
+
+  @Benchmark
+  public boolean checkFormatNumeroCompteInvalide() {
+    return Compte.checkFormatNumeroCompte(numeroCompteInvalide);
+  }
+
+  @Benchmark
+  public boolean checkFormatUserIdClient() {
+    return Client.checkFormatUserIdClient(userIdClient);
+  }
+
+  @Benchmark
+  public boolean checkFormatNumeroClient() {
+    return Client.checkFormatNumeroClient(numeroClient);
+  }
+
+  @Benchmark
+  public Montant debiter() throws InsufficientFundsException, IllegalFormatException {
+    compte.debiter(un);
+    return compte.getSolde();
+  }
+
+  /**
+   * Débit refusé : coût de la levée de InsufficientFundsException.
+   */
+  @Benchmark
+  public Exception debiterRefuse() throws IllegalFormatException {
+    try {
+      compte.debiter(tropEleve);
+      return null;
+    } catch (InsufficientFundsException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public boolean possedeComptesADecouvert() {
+    return client.possedeComptesADecouvert();
+  }
+}
@@ -0,0 +1,169 @@
+package com.iut.banque.benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iut.banque.modele.Montant;
+
+/**
+ * Montants en centimes (long, {@link Montant}) comparés à BigDecimal, la
+ * représentation exacte habituelle, sur les opérations des traitements en
+ * boucle : somme, lecture et écriture du texte (import, export), comparaison
+ * (contrôle de provision). Le double, inexact, sert de repère.
+ *
+ * Chaque méthode traite {@link #N} montants ; les temps sont donnés par
+ * montant. À lancer avec -prof gc pour les allocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MontantBenchmark {
+
+  static final int N = 1024;
+
+  long[] centimes = new long[N];
+  Montant[] montants = new Montant[N];
+  BigDecimal[] decimaux = new BigDecimal[N];
+  double[] doubles = new double[N];
+  String[] textes = new String[N];
+
+  StringBuilder tampon = new StringBuilder(32 * N);
+
+  @Setup
+  public void init() {
+    SplittableRandom random = new SplittableRandom(42);
+    for (int i = 0; i < N; i++) {
+      // jusqu'à 10 millions d'euros, au centime
+      long c = random.nextLong(-1_000_000_000L, 1_000_000_000L);
+      centimes[i] = c;
+      montants[i] = Montant.deCentimes(c);
+      decimaux[i] = BigDecimal.valueOf(c, 2);
+      doubles[i] = c / 100.0;
+      textes[i] = montants[i].toString();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public long sommeCentimes() {
+    long somme = 0;
+    for (long c : centimes) {
+      somme = Montant.additionner(somme, c);
+    }
+    return somme;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public Montant sommeMontant() {
+    Montant somme = Montant.ZERO;
+    for (Montant m : montants) {
+      somme = somme.plus(m);
+    }
+    return somme;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public BigDecimal sommeBigDecimal() {
+    BigDecimal somme = BigDecimal.ZERO;
+    for (BigDecimal d : decimaux) {
+      somme = somme.add(d);
+    }
+    return somme;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public double sommeDouble() {
+    double somme = 0;
+    for (double d : doubles) {
+      somme += d;
+    }
+    return somme;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public long lireCentimes() {
+    long somme = 0;
+    for (String t : textes) {
+      somme += Montant.parseCentimes(t);
+    }
+    return somme;
+  }
+
+  /**
+   * Lecture exacte équivalente : refus de plus de deux décimales.
+   */
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public long lireBigDecimal() {
+    long somme = 0;
+    for (String t : textes) {
+      somme += new BigDecimal(t).setScale(2).unscaledValue().longValue();
+    }
+    return somme;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public int ecrireCentimes() throws IOException {
+    tampon.setLength(0);
+    for (long c : centimes) {
+      Montant.ecrire(c, tampon);
+    }
+    return tampon.length();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public int ecrireBigDecimal() {
+    tampon.setLength(0);
+    for (BigDecimal d : decimaux) {
+      tampon.append(d.toPlainString());
+    }
+    return tampon.length();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public int comparerCentimes() {
+    int n = 0;
+    for (int i = 1; i < N; i++) {
+      if (Long.compare(centimes[i], centimes[i - 1]) > 0) {
+        n++;
+      }
+    }
+    return n;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public int comparerBigDecimal() {
+    int n = 0;
+    for (int i = 1; i < N; i++) {
+      if (decimaux[i].compareTo(decimaux[i - 1]) > 0) {
+        n++;
+      }
+    }
+    return n;
+  }
+}
@@ -0,0 +1,80 @@
+package com.iut.banque.benchmark;
+
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iut.banque.engine.TimingWheel;
+
+/**
+ * Planification puis exécution de {@link #N} échéances réparties sur un
+ * horizon de 15 minutes, comme le fil des ordres permanents : roue
+ * temporelle (tick d'une seconde, 64 cases) comparée à une file de priorité.
+ * Les temps sont donnés par échéance.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimingWheelBenchmark {
+
+  static final int N = 1 << 20;
+
+  static final long HORIZON = 15 * 60 * 1000;
+
+  long[] echeances = new long[N];
+  Long[] elements = new Long[N];
+
+  @Setup
+  public void init() {
+    SplittableRandom random = new SplittableRandom(42);
+    for (int i = 0; i < N; i++) {
+      echeances[i] = random.nextLong(HORIZON);
+      elements[i] = (long) i;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public long roue() {
+    TimingWheel<Long> roue = new TimingWheel<>(1000, 64, 0);
+    for (int i = 0; i < N; i++) {
+      roue.ajouter(elements[i], echeances[i]);
+    }
+    long[] somme = new long[1];
+    for (long maintenant = 1000; roue.taille() > 0; maintenant += 1000) {
+      roue.avancer(maintenant, e -> somme[0] += e);
+    }
+    return somme[0];
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public long filePriorite() {
+    PriorityQueue<long[]> file = new PriorityQueue<>(N, (a, b) -> Long.compare(a[0], b[0]));
+    for (int i = 0; i < N; i++) {
+      file.add(new long[] { echeances[i], i });
+    }
+    long somme = 0;
+    for (long maintenant = 1000; !file.isEmpty(); maintenant += 1000) {
+      while (!file.isEmpty() && file.peek()[0] < maintenant) {
+        somme += file.poll()[1];
+      }
+    }
+    return somme;
+  }
+}
@@ -0,0 +1,96 @@
+package com.iut.banque.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iut.banque.util.FormatIdentifiants;
+
+/**
+ * Vérification des formats d'identifiants : Pattern.matches (implémentation
+ * d'origine), Pattern précompilé, et parcours caractère par caractère
+ * (FormatIdentifiants).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidationBenchmark {
+
+  private static final Pattern NUMERO_COMPTE = Pattern.compile("[A-Z]{2}[0-9]{10}");
+  private static final Pattern USER_ID_CLIENT = Pattern.compile("^[a-z]\\.[a-z]+[1-9][0-9]*$");
+  private static final Pattern NUMERO_CLIENT = Pattern.compile("[0-9]{10}");
+
+  @Param({ "valide", "invalide" })
+  String cas;
+
+  String numeroCompte;
+  String userIdClient;
+  String numeroClient;
+
+  @Setup
+  public void init() {
+    boolean valide = "valide".equals(cas);
+    numeroCompte = valide ? "FR0123456789" : "FR01234567X9";
+    userIdClient = valide ? "j.dupont12" : "j.dupont0";
+    numeroClient = valide ? "0123456789" : "01234567890";
+  }
+
+  @Benchmark
+  public boolean numeroCompteRegex() {
+    return Pattern.matches("[A-Z]{2}[0-9]{10}", numeroCompte);
+  }
+
+  @Benchmark
+  public boolean numeroComptePrecompile() {
+    return NUMERO_COMPTE.matcher(numeroCompte).matches();
+  }
+
+  @Benchmark
+  public boolean numeroCompteScanner() {
+    return FormatIdentifiants.isNumeroCompte(numeroCompte);
+  }
+
+  @Benchmark
+  public boolean userIdClientRegex() {
+    return Pattern.matches("^[a-z]\\.[a-z]+[1-9][0-9]*$", userIdClient);
+  }
+
+  @Benchmark
+  public boolean userIdClientPrecompile() {
+    return USER_ID_CLIENT.matcher(userIdClient).matches();
+  }
+
+  @Benchmark
+  public boolean userIdClientScanner() {
+    return FormatIdentifiants.isUserIdClient(userIdClient);
+  }
+
+  @Benchmark
+  public boolean numeroClientRegex() {
+    return Pattern.matches("[0-9]{10}", numeroClient);
+  }
+
+  @Benchmark
+  public boolean numeroClientPrecompile() {
+    return NUMERO_CLIENT.matcher(numeroClient).matches();
+  }
+
+  @Benchmark
+  public boolean numeroClientScanner() {
+    return FormatIdentifiants.isNumeroClient(numeroClient);
+  }
+}
@@ -2,8 +2,12 @@ package com.iut.banque;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableAsync
+@EnableScheduling
 public class BanqueBackendApplication {
   public static void main(String[] args) {
     SpringApplication.run(BanqueBackendApplication.class, args);
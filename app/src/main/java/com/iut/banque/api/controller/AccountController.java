@@ -1,21 +1,39 @@
 package com.iut.banque.api.controller;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iut.banque.api.dto.AccountPage;
 import com.iut.banque.api.dto.AmountRequest;
+import com.iut.banque.api.dto.BatchTransferResult;
 import com.iut.banque.api.dto.CreateAccountRequest;
+import com.iut.banque.api.dto.SnapshotPage;
 import com.iut.banque.api.dto.TransferRequest;
+import com.iut.banque.api.idempotency.IdempotentRequests;
 import com.iut.banque.modele.Compte;
 import com.iut.banque.exceptions.IllegalOperationException;
 import com.iut.banque.exceptions.IllegalFormatException;
 import com.iut.banque.exceptions.InsufficientFundsException;
 import org.springframework.http.HttpStatus;
 import com.iut.banque.service.BanqueService;
+import com.iut.banque.service.BatchTransferService;
+import com.iut.banque.service.SnapshotService;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
 @RestController
@@ -23,15 +41,32 @@ import jakarta.validation.Valid;
 @Validated
 public class AccountController {
 
+  static final String APPLICATION_NDJSON = "application/x-ndjson";
+
   private final BanqueService banqueService;
+  private final BatchTransferService batchTransferService;
+  private final ObjectMapper objectMapper;
+  private final IdempotentRequests idempotentRequests;
+  private final SnapshotService snapshotService;
 
-  public AccountController(BanqueService banqueService) {
+  public AccountController(BanqueService banqueService, BatchTransferService batchTransferService,
+      ObjectMapper objectMapper, IdempotentRequests idempotentRequests, SnapshotService snapshotService) {
     this.banqueService = banqueService;
+    this.batchTransferService = batchTransferService;
+    this.objectMapper = objectMapper;
+    this.idempotentRequests = idempotentRequests;
+    this.snapshotService = snapshotService;
   }
 
+  /**
+   * Liste paginée des comptes (pagination par clé sur le numéro de compte) :
+   * la page suivante s'obtient en repassant le {@code nextAfter} de la réponse
+   * dans le paramètre {@code after}.
+   */
   @GetMapping
-  public List<Compte> list() {
-    return banqueService.listAccounts();
+  public AccountPage list(@RequestParam(required = false) String after,
+      @RequestParam(defaultValue = "100") int limit) {
+    return banqueService.listAccountsPage(after, limit);
   }
 
   @GetMapping("/{accountId}")
@@ -43,6 +78,24 @@ public class AccountController {
     }
   }
 
+  /**
+   * Positions de fin de journée d'un compte entre deux dates incluses
+   * (format ISO, 2024-01-31) ; la page suivante s'obtient en repassant le
+   * {@code nextFrom} de la réponse dans le paramètre {@code from}.
+   */
+  @GetMapping("/{accountId}/snapshots")
+  public ResponseEntity<?> snapshots(@PathVariable String accountId,
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+      @RequestParam(defaultValue = "100") int limit) {
+    try {
+      SnapshotPage page = snapshotService.listSnapshots(accountId, from, to, limit);
+      return ResponseEntity.ok(page);
+    } catch (IllegalFormatException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    }
+  }
+
   @PostMapping
   public ResponseEntity<Compte> create(@Valid @RequestBody CreateAccountRequest req) throws Exception {
     if (req.decouvertAutorise() == null) {
@@ -52,36 +105,105 @@ public class AccountController {
         .ok(banqueService.createAccountAvecDecouvert(req.numeroCompte(), req.clientUserId(), req.decouvertAutorise()));
   }
 
+  /**
+   * Dépôt, retrait et virement acceptent un en-tête Idempotency-Key : une
+   * requête répétée avec la même clé (nouvel essai après un délai dépassé) n'est
+   * appliquée qu'une fois (voir {@link IdempotentRequests}).
+   */
   @PostMapping("/{accountId}/deposit")
-  public ResponseEntity<?> deposit(@PathVariable String accountId, @Valid @RequestBody AmountRequest req) {
-    try {
-      banqueService.crediter(accountId, req.amount());
-      return ResponseEntity.noContent().build();
-    } catch (IllegalOperationException e) {
-      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-    } catch (IllegalFormatException e) {
-      return ResponseEntity.badRequest().body(e.getMessage());
-    }
+  public ResponseEntity<?> deposit(@PathVariable String accountId, @Valid @RequestBody AmountRequest req,
+      @RequestHeader(name = IdempotentRequests.HEADER, required = false) String idempotencyKey,
+      Principal principal) throws Exception {
+    return idempotentRequests.execute(idempotencyKey, principal, "deposit:" + accountId + ":" + req.amount(), () -> {
+      try {
+        banqueService.crediter(accountId, req.amount());
+        return ResponseEntity.noContent().build();
+      } catch (IllegalOperationException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+      } catch (IllegalFormatException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+      }
+    });
   }
 
   @PostMapping("/{accountId}/withdraw")
-  public ResponseEntity<?> withdraw(@PathVariable String accountId, @Valid @RequestBody AmountRequest req) {
-    try {
-      banqueService.debiter(accountId, req.amount());
+  public ResponseEntity<?> withdraw(@PathVariable String accountId, @Valid @RequestBody AmountRequest req,
+      @RequestHeader(name = IdempotentRequests.HEADER, required = false) String idempotencyKey,
+      Principal principal) throws Exception {
+    return idempotentRequests.execute(idempotencyKey, principal, "withdraw:" + accountId + ":" + req.amount(), () -> {
+      try {
+        banqueService.debiter(accountId, req.amount());
+        return ResponseEntity.noContent().build();
+      } catch (IllegalOperationException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+      } catch (IllegalFormatException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+      } catch (InsufficientFundsException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+      }
+    });
+  }
+
+  @PostMapping("/transfer")
+  public ResponseEntity<?> transfer(@Valid @RequestBody TransferRequest req,
+      @RequestHeader(name = IdempotentRequests.HEADER, required = false) String idempotencyKey,
+      Principal principal) throws Exception {
+    String empreinte = "transfer:" + req.fromAccountId() + ":" + req.toAccountId() + ":" + req.amount();
+    return idempotentRequests.execute(idempotencyKey, principal, empreinte, () -> {
+      banqueService.transfer(req.fromAccountId(), req.toAccountId(), req.amount());
       return ResponseEntity.noContent().build();
-    } catch (IllegalOperationException e) {
-      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-    } catch (IllegalFormatException e) {
-      return ResponseEntity.badRequest().body(e.getMessage());
-    } catch (InsufficientFundsException e) {
-      return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    });
+  }
+
+  /**
+   * Lot de virements en un seul appel : un résultat par virement, dans l'ordre
+   * du lot.
+   */
+  @PostMapping(value = "/transfers/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public List<BatchTransferResult> transferBatch(@RequestBody List<TransferRequest> requests)
+      throws IllegalOperationException {
+    return batchTransferService.transferAll(requests);
+  }
+
+  /**
+   * Variante en flux NDJSON (un virement JSON par ligne) : les virements sont
+   * lus et appliqués par paquets, et les résultats de chaque paquet sont écrits
+   * au fur et à mesure, sans charger le flux entier en mémoire.
+   */
+  @PostMapping(value = "/transfers/batch", consumes = APPLICATION_NDJSON)
+  public void transferBatchStream(HttpServletRequest request, HttpServletResponse response)
+      throws IOException, IllegalOperationException {
+    response.setContentType(APPLICATION_NDJSON);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    OutputStream out = response.getOutputStream();
+    BufferedReader reader = request.getReader();
+
+    List<TransferRequest> paquet = new ArrayList<>(batchTransferService.getChunkSize());
+    int index = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.isBlank()) {
+        continue;
+      }
+      paquet.add(objectMapper.readValue(line, TransferRequest.class));
+      if (paquet.size() == batchTransferService.getChunkSize()) {
+        writeResults(out, batchTransferService.transferAll(paquet, index));
+        index += paquet.size();
+        paquet.clear();
+      }
+    }
+    if (!paquet.isEmpty()) {
+      writeResults(out, batchTransferService.transferAll(paquet, index));
     }
+    out.flush();
   }
 
-  @PostMapping("/transfer")
-  public ResponseEntity<?> transfer(@Valid @RequestBody TransferRequest req) throws Exception {
-    banqueService.transfer(req.fromAccountId(), req.toAccountId(), req.amount());
-    return ResponseEntity.noContent().build();
+  private void writeResults(OutputStream out, List<BatchTransferResult> results) throws IOException {
+    for (BatchTransferResult result : results) {
+      out.write(objectMapper.writeValueAsBytes(result));
+      out.write('\n');
+    }
+    out.flush();
   }
 
   @DeleteMapping("/{accountId}")
@@ -3,7 +3,11 @@ package com.iut.banque.api.controller;
 import com.iut.banque.api.dto.LoginRequest;
 import com.iut.banque.api.dto.LoginResponse;
 import com.iut.banque.constants.LoginConstants;
+import com.iut.banque.exceptions.TooManyAttemptsException;
 import com.iut.banque.facade.LoginManager;
+import com.iut.banque.security.LoginRateLimiter;
+import com.iut.banque.security.TokenService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -13,20 +17,27 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
 
   private final LoginManager loginManager;
+  private final TokenService tokenService;
+  private final LoginRateLimiter loginRateLimiter;
 
-  public AuthController(LoginManager loginManager) {
+  public AuthController(LoginManager loginManager, TokenService tokenService, LoginRateLimiter loginRateLimiter) {
     this.loginManager = loginManager;
+    this.tokenService = tokenService;
+    this.loginRateLimiter = loginRateLimiter;
   }
 
   @PostMapping("/login")
-  public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest request) {
+  public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest request, HttpServletRequest http)
+      throws TooManyAttemptsException {
+    loginRateLimiter.acquire(request.userId(), http.getRemoteAddr());
     int code = loginManager.tryLogin(request.userId(), request.password());
-    String msg = switch (code) {
-      case LoginConstants.USER_IS_CONNECTED -> "OK_CLIENT";
-      case LoginConstants.MANAGER_IS_CONNECTED -> "OK_MANAGER";
-      case LoginConstants.LOGIN_FAILED -> "LOGIN_FAILED";
-      default -> "ERROR";
-    };
-    return ResponseEntity.ok(new LoginResponse(code, msg));
+    return ResponseEntity.ok(switch (code) {
+      case LoginConstants.USER_IS_CONNECTED ->
+        new LoginResponse(code, "OK_CLIENT", tokenService.issue(request.userId(), "CLIENT"));
+      case LoginConstants.MANAGER_IS_CONNECTED ->
+        new LoginResponse(code, "OK_MANAGER", tokenService.issue(request.userId(), "GESTIONNAIRE"));
+      case LoginConstants.LOGIN_FAILED -> new LoginResponse(code, "LOGIN_FAILED");
+      default -> new LoginResponse(code, "ERROR");
+    });
   }
 }
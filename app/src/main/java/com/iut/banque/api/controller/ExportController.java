@@ -0,0 +1,66 @@
+package com.iut.banque.api.controller;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.iut.banque.exceptions.IllegalFormatException;
+import com.iut.banque.service.ExportService;
+import com.iut.banque.service.ExportService.Format;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Export complet des comptes et des clients, écrit en flux dans la réponse
+ * ({@code format=csv}, par défaut, ou {@code format=ndjson}).
+ */
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+  static final String TEXT_CSV = "text/csv";
+
+  private final ExportService exportService;
+
+  public ExportController(ExportService exportService) {
+    this.exportService = exportService;
+  }
+
+  @GetMapping("/accounts")
+  public void accounts(@RequestParam(defaultValue = "csv") String format, HttpServletResponse response)
+      throws IOException, IllegalFormatException {
+    Format f = format(format);
+    preparer(response, f, "comptes");
+    exportService.exportAccounts(f, response.getOutputStream());
+  }
+
+  @GetMapping("/clients")
+  public void clients(@RequestParam(defaultValue = "csv") String format, HttpServletResponse response)
+      throws IOException, IllegalFormatException {
+    Format f = format(format);
+    preparer(response, f, "clients");
+    exportService.exportClients(f, response.getOutputStream());
+  }
+
+  private static Format format(String format) throws IllegalFormatException {
+    return switch (format.toLowerCase()) {
+      case "csv" -> Format.CSV;
+      case "ndjson" -> Format.NDJSON;
+      default -> throw new IllegalFormatException("Format d'export inconnu: " + format + " (csv ou ndjson)");
+    };
+  }
+
+  private static void preparer(HttpServletResponse response, Format format, String nom) {
+    boolean csv = format == Format.CSV;
+    response.setContentType(csv ? TEXT_CSV : AccountController.APPLICATION_NDJSON);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+        ContentDisposition.attachment().filename(nom + (csv ? ".csv" : ".ndjson")).build().toString());
+  }
+}
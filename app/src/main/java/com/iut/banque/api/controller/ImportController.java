@@ -0,0 +1,52 @@
+package com.iut.banque.api.controller;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.iut.banque.api.dto.ImportReport;
+import com.iut.banque.service.ImportService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Import en masse de clients et de comptes (réservé aux gestionnaires) : le
+ * corps de la requête est un CSV lu en flux, la réponse le rapport d'import.
+ */
+@RestController
+@RequestMapping("/api/import")
+public class ImportController {
+
+  private final ImportService importService;
+
+  public ImportController(ImportService importService) {
+    this.importService = importService;
+  }
+
+  @PostMapping(path = "/clients", consumes = { ExportController.TEXT_CSV, MediaType.TEXT_PLAIN_VALUE })
+  public ImportReport clients(HttpServletRequest request) throws IOException {
+    return importService.importClients(corps(request));
+  }
+
+  @PostMapping(path = "/accounts", consumes = { ExportController.TEXT_CSV, MediaType.TEXT_PLAIN_VALUE })
+  public ImportReport accounts(HttpServletRequest request) throws IOException {
+    return importService.importAccounts(corps(request));
+  }
+
+  /**
+   * Corps de la requête, en UTF-8 si le client n'a pas précisé d'encodage (et
+   * non ISO-8859-1 comme le voudrait la norme servlet).
+   */
+  private static Reader corps(HttpServletRequest request) throws IOException {
+    String encodage = request.getCharacterEncoding();
+    return new InputStreamReader(request.getInputStream(),
+        encodage == null ? StandardCharsets.UTF_8 : Charset.forName(encodage));
+  }
+}
@@ -0,0 +1,67 @@
+package com.iut.banque.api.controller;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.iut.banque.api.dto.StandingOrderRequest;
+import com.iut.banque.exceptions.IllegalFormatException;
+import com.iut.banque.exceptions.IllegalOperationException;
+import com.iut.banque.modele.OrdrePermanent;
+import com.iut.banque.service.StandingOrderService;
+
+import jakarta.validation.Valid;
+
+/**
+ * Ordres de virement permanents : création, liste par compte débité et
+ * annulation. Les exécutions sont faites par {@link StandingOrderService}.
+ * Un client n'accède qu'aux ordres débitant ses comptes (403 sinon).
+ */
+@RestController
+@RequestMapping("/api/standing-orders")
+@Validated
+public class StandingOrderController {
+
+  private final StandingOrderService standingOrderService;
+
+  public StandingOrderController(StandingOrderService standingOrderService) {
+    this.standingOrderService = standingOrderService;
+  }
+
+  @PostMapping
+  public OrdrePermanent create(@Valid @RequestBody StandingOrderRequest req, Authentication authentication)
+      throws IllegalOperationException, IllegalFormatException {
+    return standingOrderService.creer(req, client(authentication));
+  }
+
+  @GetMapping
+  public List<OrdrePermanent> list(@RequestParam String accountId, Authentication authentication) {
+    return standingOrderService.lister(accountId, client(authentication));
+  }
+
+  @DeleteMapping("/{id}")
+  public ResponseEntity<?> cancel(@PathVariable long id, Authentication authentication)
+      throws IllegalOperationException {
+    standingOrderService.annuler(id, client(authentication));
+    return ResponseEntity.noContent().build();
+  }
+
+  /**
+   * Identifiant du client appelant, null pour un gestionnaire.
+   */
+  private static String client(Authentication authentication) {
+    boolean gestionnaire = authentication.getAuthorities().stream()
+        .anyMatch(a -> "ROLE_GESTIONNAIRE".equals(a.getAuthority()));
+    return gestionnaire ? null : authentication.getName();
+  }
+}
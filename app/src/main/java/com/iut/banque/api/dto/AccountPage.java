@@ -0,0 +1,13 @@
+package com.iut.banque.api.dto;
+
+import java.util.List;
+
+/**
+ * Une page de comptes triés par numéro. {@code nextAfter} est le curseur à
+ * passer en paramètre {@code after} pour obtenir la page suivante ; il vaut
+ * null sur la dernière page.
+ */
+public record AccountPage(
+        List<AccountSummary> items,
+        String nextAfter) {
+}
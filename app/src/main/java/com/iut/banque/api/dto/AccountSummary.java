@@ -0,0 +1,24 @@
+package com.iut.banque.api.dto;
+
+import com.iut.banque.modele.Montant;
+
+/**
+ * Vue d'un compte pour les listes : uniquement les colonnes de la table
+ * Compte, sans charger le propriétaire (seul son identifiant est exposé).
+ */
+public record AccountSummary(
+        String numeroCompte,
+        Montant solde,
+        String className,
+        Montant decouvertAutorise,
+        String ownerUserId) {
+
+    /**
+     * Constructeur utilisé par la projection JPQL, qui fournit la classe
+     * concrète du compte plutôt que son nom.
+     */
+    public AccountSummary(String numeroCompte, Montant solde, Class<?> type, Montant decouvertAutorise,
+            String ownerUserId) {
+        this(numeroCompte, solde, type.getSimpleName(), decouvertAutorise, ownerUserId);
+    }
+}
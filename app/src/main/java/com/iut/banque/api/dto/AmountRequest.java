@@ -1,8 +1,9 @@
 package com.iut.banque.api.dto;
 
+import com.iut.banque.modele.Montant;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 
 public record AmountRequest(
-        @NotNull @Positive Double amount) {
+        @NotNull @Positive Montant amount) {
 }
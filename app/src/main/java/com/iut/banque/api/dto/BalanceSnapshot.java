@@ -0,0 +1,15 @@
+package com.iut.banque.api.dto;
+
+import java.time.LocalDate;
+
+import com.iut.banque.modele.Montant;
+
+/**
+ * Position d'un compte en fin de journée ; {@code decouvertAutorise} est
+ * null pour un compte sans découvert.
+ */
+public record BalanceSnapshot(
+        LocalDate date,
+        Montant solde,
+        Montant decouvertAutorise) {
+}
@@ -0,0 +1,23 @@
+package com.iut.banque.api.dto;
+
+/**
+ * Résultat d'un virement d'un lot : index de l'élément dans la requête,
+ * statut et message éventuel.
+ */
+public record BatchTransferResult(
+        int index,
+        Status status,
+        String message) {
+
+    public enum Status {
+        OK,
+        INVALID,
+        NOT_FOUND,
+        INSUFFICIENT_FUNDS,
+        FAILED
+    }
+
+    public static BatchTransferResult ok(int index) {
+        return new BatchTransferResult(index, Status.OK, null);
+    }
+}
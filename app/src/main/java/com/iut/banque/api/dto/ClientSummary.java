@@ -0,0 +1,14 @@
+package com.iut.banque.api.dto;
+
+/**
+ * Vue d'un client pour les exports : les colonnes de la table Utilisateur,
+ * sans le mot de passe ni les comptes.
+ */
+public record ClientSummary(
+        String userId,
+        String nom,
+        String prenom,
+        String adresse,
+        boolean male,
+        String numeroClient) {
+}
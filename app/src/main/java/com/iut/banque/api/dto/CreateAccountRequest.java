@@ -1,10 +1,11 @@
 package com.iut.banque.api.dto;
 
+import com.iut.banque.modele.Montant;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 
 public record CreateAccountRequest(
                 @NotBlank String numeroCompte,
                 @NotBlank String clientUserId,
-                Double decouvertAutorise) {
+                Montant decouvertAutorise) {
 }
@@ -0,0 +1,23 @@
+package com.iut.banque.api.dto;
+
+import java.util.List;
+
+/**
+ * Bilan d'un import en masse : lignes lues, importées et rejetées, débit, et
+ * détail des premières lignes rejetées.
+ */
+public record ImportReport(
+        long lines,
+        long imported,
+        long rejected,
+        long durationMillis,
+        double rowsPerSecond,
+        List<Reject> rejects) {
+
+    /**
+     * Ligne rejetée : numéro de ligne dans le fichier (en-tête compris) et
+     * motif.
+     */
+    public record Reject(long line, String reason) {
+    }
+}
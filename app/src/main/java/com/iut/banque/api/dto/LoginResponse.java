@@ -1,6 +1,16 @@
 package com.iut.banque.api.dto;
 
+/**
+ * Réponse de connexion. {@code token} est le jeton porteur à envoyer dans
+ * l'en-tête Authorization des appels suivants ; il est null si la connexion
+ * a échoué.
+ */
 public record LoginResponse(
         int code,
-        String message) {
+        String message,
+        String token) {
+
+    public LoginResponse(int code, String message) {
+        this(code, message, null);
+    }
 }
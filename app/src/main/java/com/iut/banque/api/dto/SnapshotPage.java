@@ -0,0 +1,14 @@
+package com.iut.banque.api.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Une page de positions de fin de journée, triées par date. {@code nextFrom}
+ * est la date à passer en paramètre {@code from} pour obtenir la page
+ * suivante ; elle vaut null sur la dernière page.
+ */
+public record SnapshotPage(
+        List<BalanceSnapshot> items,
+        LocalDate nextFrom) {
+}
@@ -0,0 +1,23 @@
+package com.iut.banque.api.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import com.iut.banque.modele.Montant;
+import com.iut.banque.modele.Periodicite;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Création d'un ordre permanent : première exécution en date et heure locales
+ * de la banque, date de fin facultative.
+ */
+public record StandingOrderRequest(
+        @NotBlank String fromAccountId,
+        @NotBlank String toAccountId,
+        @NotNull @Positive Montant amount,
+        @NotNull Periodicite frequency,
+        @NotNull LocalDateTime firstExecution,
+        LocalDate endDate) {
+}
@@ -1,5 +1,6 @@
 package com.iut.banque.api.dto;
 
+import com.iut.banque.modele.Montant;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -7,5 +8,5 @@ import jakarta.validation.constraints.Positive;
 public record TransferRequest(
         @NotBlank String fromAccountId,
         @NotBlank String toAccountId,
-        @NotNull @Positive Double amount) {
+        @NotNull @Positive Montant amount) {
 }
@@ -1,11 +1,15 @@
 package com.iut.banque.api.error;
 
+import com.iut.banque.exceptions.IdempotencyConflictException;
 import com.iut.banque.exceptions.IllegalFormatException;
 import com.iut.banque.exceptions.IllegalOperationException;
 import com.iut.banque.exceptions.InsufficientFundsException;
 import com.iut.banque.exceptions.TechnicalException;
+import com.iut.banque.exceptions.TooManyAttemptsException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
@@ -29,7 +33,7 @@ public class ApiGlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body(ex));
     }
 
-    @ExceptionHandler(InsufficientFundsException.class)
+    @ExceptionHandler({ InsufficientFundsException.class, AccessDeniedException.class })
     public ResponseEntity<Map<String, Object>> forbidden(Exception ex) {
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(body(ex));
     }
@@ -39,6 +43,20 @@ public class ApiGlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(body(ex));
     }
 
+    @ExceptionHandler(TooManyAttemptsException.class)
+    public ResponseEntity<Map<String, Object>> tooManyRequests(TooManyAttemptsException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .body(body(ex));
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<Map<String, Object>> idempotencyConflict(IdempotencyConflictException ex) {
+        // requête d'origine en cours : 409, à réessayer ; clé réutilisée : 422
+        HttpStatus status = ex.isEnCours() ? HttpStatus.CONFLICT : HttpStatus.UNPROCESSABLE_ENTITY;
+        return ResponseEntity.status(status).body(body(ex));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> internal(Exception ex) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(body(ex));
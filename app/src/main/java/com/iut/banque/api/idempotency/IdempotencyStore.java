@@ -0,0 +1,63 @@
+package com.iut.banque.api.idempotency;
+
+import java.time.Duration;
+
+/**
+ * Stockage des clés d'idempotence récentes et des réponses associées, utilisé
+ * par {@link IdempotentRequests}.
+ *
+ * L'implémentation par défaut ({@link InMemoryIdempotencyStore}) est locale au
+ * nœud. Avec banque.idempotency.store=jdbc, les clés sont partagées entre les
+ * nœuds par la table CleIdempotence ({@link JdbcIdempotencyStore}).
+ */
+public interface IdempotencyStore {
+
+  /**
+   * Réponse enregistrée pour une clé.
+   *
+   * @param contentType
+   *                    : type du corps, null sans corps
+   */
+  record StoredResponse(int status, String contentType, String body) {
+  }
+
+  /**
+   * État d'une clé déjà réservée.
+   *
+   * @param fingerprint
+   *                    : empreinte de la requête qui a réservé la clé
+   * @param response
+   *                    : réponse enregistrée, null si la requête est encore
+   *                    en cours
+   */
+  record Existing(String fingerprint, StoredResponse response) {
+  }
+
+  /**
+   * Réserve la clé pour une nouvelle exécution si elle est inconnue (ou
+   * expirée).
+   *
+   * @return null si la clé vient d'être réservée par cet appel, sinon l'état
+   *         de la clé déjà réservée
+   */
+  Existing reserve(String key, String fingerprint);
+
+  /**
+   * Enregistre la réponse d'une clé réservée par {@link #reserve}.
+   */
+  void complete(String key, StoredResponse response);
+
+  /**
+   * Libère une clé réservée par {@link #reserve} sans réponse à enregistrer
+   * (échec de la requête) : elle pourra être réutilisée.
+   */
+  void release(String key);
+
+  /**
+   * Attend au plus {@code timeout} la fin de la requête qui a réservé la clé.
+   *
+   * @return l'état de la clé (réponse null si la requête est toujours en
+   *         cours), null si la clé a été libérée entre-temps
+   */
+  Existing await(String key, Duration timeout) throws InterruptedException;
+}
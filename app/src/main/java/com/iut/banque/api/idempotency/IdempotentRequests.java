@@ -0,0 +1,137 @@
+package com.iut.banque.api.idempotency;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iut.banque.api.idempotency.IdempotencyStore.Existing;
+import com.iut.banque.api.idempotency.IdempotencyStore.StoredResponse;
+import com.iut.banque.exceptions.IdempotencyConflictException;
+import com.iut.banque.exceptions.IllegalFormatException;
+
+/**
+ * Exécution au plus une fois des requêtes de l'API portant un en-tête
+ * {@value #HEADER}.
+ *
+ * La première requête avec une clé réserve la clé, s'exécute et, si elle
+ * réussit (statut 2xx), sa réponse est enregistrée : une requête répétée avec
+ * la même clé reçoit cette réponse, avec l'en-tête {@value #REPLAYED_HEADER},
+ * sans être exécutée de nouveau. Une requête qui échoue libère la clé (rien
+ * n'a été appliqué) et peut être réessayée.
+ *
+ * Une requête répétée pendant que l'originale s'exécute attend sa réponse au
+ * plus banque.idempotency.in-flight-wait, puis reçoit un 409. Une clé réutilisée
+ * pour une requête différente (autre opération, compte ou montant) reçoit un
+ * 422.
+ *
+ * Les clés sont propres à chaque utilisateur authentifié.
+ */
+@Component
+public class IdempotentRequests {
+
+  public static final String HEADER = "Idempotency-Key";
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+  static final int MAX_KEY_LENGTH = 200;
+
+  private final IdempotencyStore store;
+  private final ObjectMapper objectMapper;
+  private final Duration inFlightWait;
+
+  public IdempotentRequests(IdempotencyStore store, ObjectMapper objectMapper,
+      @Value("${banque.idempotency.in-flight-wait:PT10S}") Duration inFlightWait) {
+    this.store = store;
+    this.objectMapper = objectMapper;
+    this.inFlightWait = inFlightWait;
+  }
+
+  /**
+   * Exécute la requête, ou rejoue la réponse déjà enregistrée pour la clé.
+   *
+   * @param key
+   *                    : valeur de l'en-tête Idempotency-Key, null si absent
+   *                    (la requête est alors simplement exécutée)
+   * @param principal
+   *                    : utilisateur authentifié, null si anonyme
+   * @param fingerprint
+   *                    : description de la requête (opération, compte,
+   *                    montant), pour détecter une clé réutilisée
+   */
+  public ResponseEntity<?> execute(String key, Principal principal, String fingerprint,
+      Callable<ResponseEntity<?>> requete) throws Exception {
+    if (key == null) {
+      return requete.call();
+    }
+    if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+      throw new IllegalFormatException("En-tête " + HEADER + " invalide (1 à " + MAX_KEY_LENGTH + " caractères)");
+    }
+    String cle = (principal == null ? "" : principal.getName()) + '|' + key;
+    long limite = System.nanoTime() + inFlightWait.toNanos();
+    while (true) {
+      Existing existante = store.reserve(cle, fingerprint);
+      if (existante == null) {
+        return executer(cle, requete);
+      }
+      if (!existante.fingerprint().equals(fingerprint)) {
+        throw new IdempotencyConflictException(
+            "La clé " + key + " a déjà été utilisée pour une autre requête", false);
+      }
+      if (existante.response() == null) {
+        long restant = limite - System.nanoTime();
+        existante = restant > 0 ? store.await(cle, Duration.ofNanos(restant)) : existante;
+        if (existante == null) {
+          // requête d'origine en échec : la clé est libre
+          continue;
+        }
+        if (existante.response() == null) {
+          throw new IdempotencyConflictException("Une requête avec la clé " + key + " est en cours", true);
+        }
+      }
+      return rejouer(existante.response());
+    }
+  }
+
+  private ResponseEntity<?> executer(String cle, Callable<ResponseEntity<?>> requete) throws Exception {
+    ResponseEntity<?> reponse;
+    try {
+      reponse = requete.call();
+    } catch (Exception | Error e) {
+      store.release(cle);
+      throw e;
+    }
+    if (reponse.getStatusCode().is2xxSuccessful()) {
+      store.complete(cle, enregistrer(reponse));
+    } else {
+      store.release(cle);
+    }
+    return reponse;
+  }
+
+  private StoredResponse enregistrer(ResponseEntity<?> reponse) throws JsonProcessingException {
+    Object corps = reponse.getBody();
+    int statut = reponse.getStatusCode().value();
+    if (corps == null) {
+      return new StoredResponse(statut, null, null);
+    }
+    if (corps instanceof String texte) {
+      return new StoredResponse(statut, MediaType.TEXT_PLAIN_VALUE, texte);
+    }
+    return new StoredResponse(statut, MediaType.APPLICATION_JSON_VALUE, objectMapper.writeValueAsString(corps));
+  }
+
+  private static ResponseEntity<?> rejouer(StoredResponse reponse) {
+    ResponseEntity.BodyBuilder builder = ResponseEntity.status(reponse.status()).header(REPLAYED_HEADER, "true");
+    if (reponse.body() == null) {
+      return builder.build();
+    }
+    return builder.header(HttpHeaders.CONTENT_TYPE, reponse.contentType()).body(reponse.body());
+  }
+}
@@ -0,0 +1,162 @@
+package com.iut.banque.api.idempotency;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Clés d'idempotence en mémoire, bornées en nombre et en durée.
+ *
+ * Les entrées sont aussi rangées dans une file par ordre de création : avec
+ * une durée de vie commune, c'est aussi l'ordre d'expiration. Chaque
+ * réservation retire les entrées expirées en tête de file, et au-delà de
+ * banque.idempotency.max-keys les plus anciennes entrées terminées sont
+ * retirées. Une entrée en cours n'est jamais retirée.
+ */
+@Component
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+  private static final class Entree {
+    final String cle;
+    final String empreinte;
+    final long expiration;
+    /** Terminé avec la réponse, ou avec null si la clé est libérée. */
+    final CompletableFuture<StoredResponse> reponse = new CompletableFuture<>();
+
+    Entree(String cle, String empreinte, long expiration) {
+      this.cle = cle;
+      this.empreinte = empreinte;
+      this.expiration = expiration;
+    }
+
+    boolean terminee() {
+      return reponse.isDone();
+    }
+
+    Existing etat() {
+      return new Existing(empreinte, reponse.getNow(null));
+    }
+  }
+
+  private final ConcurrentHashMap<String, Entree> entrees = new ConcurrentHashMap<>();
+  private final ConcurrentLinkedQueue<Entree> ordre = new ConcurrentLinkedQueue<>();
+  private final LongSupplier horloge;
+  private final long ttlNanos;
+  private final int maxKeys;
+
+  @Autowired
+  public InMemoryIdempotencyStore(@Value("${banque.idempotency.ttl:PT24H}") Duration ttl,
+      @Value("${banque.idempotency.max-keys:100000}") int maxKeys) {
+    this(ttl, maxKeys, System::nanoTime);
+  }
+
+  InMemoryIdempotencyStore(Duration ttl, int maxKeys, LongSupplier horloge) {
+    this.ttlNanos = ttl.toNanos();
+    this.maxKeys = maxKeys;
+    this.horloge = horloge;
+  }
+
+  @Override
+  public Existing reserve(String key, String fingerprint) {
+    long maintenant = horloge.getAsLong();
+    retirerExpirees(maintenant);
+    Entree nouvelle = new Entree(key, fingerprint, maintenant + ttlNanos);
+    while (true) {
+      Entree existante = entrees.putIfAbsent(key, nouvelle);
+      if (existante == null) {
+        ordre.add(nouvelle);
+        if (entrees.size() > maxKeys) {
+          libererPlace();
+        }
+        return null;
+      }
+      if (existante.terminee() && existante.expiration - maintenant <= 0) {
+        entrees.remove(key, existante);
+        continue;
+      }
+      return existante.etat();
+    }
+  }
+
+  @Override
+  public void complete(String key, StoredResponse response) {
+    Entree entree = entrees.get(key);
+    if (entree != null) {
+      entree.reponse.complete(response);
+    }
+  }
+
+  @Override
+  public void release(String key) {
+    Entree entree = entrees.get(key);
+    if (entree != null && !entree.terminee()) {
+      entrees.remove(key, entree);
+      // réveille les requêtes en attente sur cette clé
+      entree.reponse.complete(null);
+    }
+  }
+
+  @Override
+  public Existing await(String key, Duration timeout) throws InterruptedException {
+    Entree entree = entrees.get(key);
+    if (entree == null) {
+      return null;
+    }
+    try {
+      return entree.reponse.get(timeout.toNanos(), TimeUnit.NANOSECONDS) == null ? null : entree.etat();
+    } catch (TimeoutException e) {
+      return entree.etat();
+    } catch (ExecutionException e) {
+      // jamais terminé en erreur
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public int size() {
+    return entrees.size();
+  }
+
+  /**
+   * Retire de la tête de file les entrées expirées, et celles déjà retirées de
+   * la table (clés libérées).
+   */
+  private void retirerExpirees(long maintenant) {
+    for (Entree tete = ordre.peek(); tete != null; tete = ordre.peek()) {
+      boolean expiree = tete.terminee() && tete.expiration - maintenant <= 0;
+      if (!expiree && entrees.get(tete.cle) == tete) {
+        return;
+      }
+      if (ordre.remove(tete)) {
+        entrees.remove(tete.cle, tete);
+      }
+    }
+  }
+
+  /**
+   * Retire les plus anciennes entrées terminées jusqu'à revenir à maxKeys. Une
+   * entrée en cours rencontrée en tête est remise en fin de file.
+   */
+  private void libererPlace() {
+    int restantes = entrees.size();
+    while (entrees.size() > maxKeys && restantes-- > 0) {
+      Entree tete = ordre.poll();
+      if (tete == null) {
+        return;
+      }
+      if (tete.terminee()) {
+        entrees.remove(tete.cle, tete);
+      } else if (entrees.get(tete.cle) == tete) {
+        ordre.add(tete);
+      }
+    }
+  }
+}
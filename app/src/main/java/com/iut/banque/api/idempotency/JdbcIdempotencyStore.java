@@ -0,0 +1,140 @@
+package com.iut.banque.api.idempotency;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Clés d'idempotence dans la table CleIdempotence, partagées entre les nœuds
+ * (banque.idempotency.store=jdbc).
+ *
+ * La réservation est un INSERT : la clé primaire garantit qu'un seul nœud
+ * exécute la requête. Une réservation expire au bout de
+ * banque.idempotency.lease : si le nœud s'arrête, ou si l'enregistrement de
+ * la réponse échoue, la clé est reprise à l'expiration au lieu de rester « en
+ * cours ». Une fois la réponse enregistrée, la clé expire au bout de
+ * banque.idempotency.ttl. Les clés expirées sont supprimées au plus une fois
+ * par minute, lors d'une réservation.
+ *
+ * L'expiration posée par la réservation sert de jeton : une requête dont la
+ * réservation a expiré et a été reprise n'écrase pas la réservation suivante.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(prefix = "banque.idempotency", name = "store", havingValue = "jdbc")
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+  private static final long PERIODE_PURGE_MILLIS = 60_000;
+  private static final long ATTENTE_MIN_MILLIS = 5;
+  private static final long ATTENTE_MAX_MILLIS = 100;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final long ttlMillis;
+  private final long bailMillis;
+  private final AtomicLong prochainePurge = new AtomicLong();
+
+  /**
+   * Expiration des réservations faites par ce nœud et pas encore terminées.
+   */
+  private final Map<String, Long> reservations = new ConcurrentHashMap<>();
+
+  public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate,
+      @Value("${banque.idempotency.ttl:PT24H}") Duration ttl,
+      @Value("${banque.idempotency.lease:PT5M}") Duration bail) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.ttlMillis = ttl.toMillis();
+    this.bailMillis = bail.toMillis();
+  }
+
+  @Override
+  public Existing reserve(String key, String fingerprint) {
+    long maintenant = System.currentTimeMillis();
+    purgerSiNecessaire(maintenant);
+    while (true) {
+      try {
+        jdbcTemplate.update("INSERT INTO CleIdempotence (cle, empreinte, expiration) VALUES (?, ?, ?)",
+            key, fingerprint, maintenant + bailMillis);
+        reservations.put(key, maintenant + bailMillis);
+        return null;
+      } catch (DuplicateKeyException e) {
+        // clé déjà réservée
+      }
+      Existing existante = lire(key);
+      if (existante == null) {
+        // libérée entre-temps
+        continue;
+      }
+      // réponse expirée, ou réservation abandonnée
+      if (jdbcTemplate.update("DELETE FROM CleIdempotence WHERE cle = ? AND expiration <= ?", key, maintenant) == 1) {
+        continue;
+      }
+      return existante;
+    }
+  }
+
+  @Override
+  public void complete(String key, StoredResponse response) {
+    Long reservation = reservations.remove(key);
+    if (reservation != null) {
+      jdbcTemplate.update("UPDATE CleIdempotence SET statut = ?, typeContenu = ?, corps = ?, expiration = ?"
+          + " WHERE cle = ? AND expiration = ? AND statut IS NULL",
+          response.status(), response.contentType(), response.body(), System.currentTimeMillis() + ttlMillis, key,
+          reservation);
+    }
+  }
+
+  @Override
+  public void release(String key) {
+    Long reservation = reservations.remove(key);
+    if (reservation != null) {
+      jdbcTemplate.update("DELETE FROM CleIdempotence WHERE cle = ? AND expiration = ? AND statut IS NULL", key,
+          reservation);
+    }
+  }
+
+  /**
+   * Relit la clé à intervalles croissants (de 5 à 100 ms) jusqu'à la fin de
+   * la requête d'origine ou l'expiration du délai.
+   */
+  @Override
+  public Existing await(String key, Duration timeout) throws InterruptedException {
+    long limite = System.nanoTime() + timeout.toNanos();
+    long attente = ATTENTE_MIN_MILLIS;
+    while (true) {
+      Existing existante = lire(key);
+      if (existante == null || existante.response() != null || System.nanoTime() - limite >= 0) {
+        return existante;
+      }
+      Thread.sleep(attente);
+      attente = Math.min(2 * attente, ATTENTE_MAX_MILLIS);
+    }
+  }
+
+  private Existing lire(String key) {
+    List<Existing> lignes = jdbcTemplate.query(
+        "SELECT empreinte, statut, typeContenu, corps FROM CleIdempotence WHERE cle = ?",
+        (rs, i) -> {
+          int statut = rs.getInt("statut");
+          StoredResponse reponse = rs.wasNull() ? null
+              : new StoredResponse(statut, rs.getString("typeContenu"), rs.getString("corps"));
+          return new Existing(rs.getString("empreinte"), reponse);
+        }, key);
+    return lignes.isEmpty() ? null : lignes.get(0);
+  }
+
+  private void purgerSiNecessaire(long maintenant) {
+    long prevue = prochainePurge.get();
+    if (maintenant >= prevue && prochainePurge.compareAndSet(prevue, maintenant + PERIODE_PURGE_MILLIS)) {
+      jdbcTemplate.update("DELETE FROM CleIdempotence WHERE expiration <= ?", maintenant);
+    }
+  }
+}
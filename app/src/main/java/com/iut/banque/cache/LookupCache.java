@@ -0,0 +1,149 @@
+package com.iut.banque.cache;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.iut.banque.api.dto.AccountSummary;
+import com.iut.banque.modele.Utilisateur;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache local (par nœud) des lectures d'utilisateurs et des vues en lecture
+ * seule des comptes ({@link AccountSummary}), bornés en taille et en durée.
+ *
+ * Les valeurs sont chargées à la demande ; une absence n'est jamais mise en
+ * cache, si bien qu'une création n'a rien à invalider. Toute modification ou
+ * suppression doit appeler la méthode d'invalidation correspondante :
+ * <ul>
+ * <li>l'entrée est retirée tout de suite ;</li>
+ * <li>si une transaction est en cours, elle est retirée une seconde fois à la
+ * fin de la transaction (commit ou rollback), pour écarter une valeur
+ * rechargée par un autre fil avant le commit.</li>
+ * </ul>
+ * Le chargement s'exécute sur le fil appelant, hors de tout verrou : les
+ * lectures simultanées de la même clé attendent son résultat (un
+ * CompletableFuture) sans immobiliser de fil porteur quand les requêtes
+ * tournent sur des fils virtuels. Une invalidation retire aussi un chargement
+ * en cours : son résultat est rendu à l'appelant mais jamais ajouté au cache.
+ * Une valeur lue avant le commit ne peut donc pas y entrer après la seconde
+ * invalidation ; une fois l'écriture validée et la méthode qui l'a faite
+ * terminée, aucune lecture sur ce nœud ne voit l'ancienne valeur.
+ *
+ * Les statistiques (succès, échecs, évictions, taille) sont publiées par
+ * Micrometer sous cache.* avec le tag cache=utilisateurs ou cache=comptes
+ * (/actuator/metrics).
+ */
+@Component
+public class LookupCache implements MeterBinder {
+
+  private final AsyncCache<String, Utilisateur> utilisateurs;
+  private final AsyncCache<String, AccountSummary> comptes;
+
+  public LookupCache(@Value("${banque.cache.users.ttl:PT5M}") Duration usersTtl,
+      @Value("${banque.cache.users.max-size:10000}") long usersMaxSize,
+      @Value("${banque.cache.accounts.ttl:PT1M}") Duration accountsTtl,
+      @Value("${banque.cache.accounts.max-size:50000}") long accountsMaxSize) {
+    this.utilisateurs = Caffeine.newBuilder().maximumSize(usersMaxSize).expireAfterWrite(usersTtl)
+        .recordStats().buildAsync();
+    this.comptes = Caffeine.newBuilder().maximumSize(accountsMaxSize).expireAfterWrite(accountsTtl)
+        .recordStats().buildAsync();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, utilisateurs.synchronous(), "utilisateurs");
+    CaffeineCacheMetrics.monitor(registry, comptes.synchronous(), "comptes");
+  }
+
+  /**
+   * @param chargement
+   *                   : lecture en base, appelée une seule fois pour des
+   *                   lectures simultanées de la même clé ; null si
+   *                   l'utilisateur n'existe pas
+   * @return l'utilisateur, null s'il n'existe pas
+   */
+  public Utilisateur utilisateur(String userId, Function<String, ? extends Utilisateur> chargement) {
+    return userId == null ? null : charger(utilisateurs, userId, chargement);
+  }
+
+  /**
+   * @param chargement
+   *                   : lecture en base, null si le compte n'existe pas
+   * @return la vue du compte, null s'il n'existe pas
+   */
+  public AccountSummary compte(String numeroCompte, Function<String, AccountSummary> chargement) {
+    return numeroCompte == null ? null : charger(comptes, numeroCompte, chargement);
+  }
+
+  public void invalidateUser(String userId) {
+    if (userId != null) {
+      invalider(utilisateurs, userId);
+    }
+  }
+
+  public void invalidateAccount(String numeroCompte) {
+    if (numeroCompte != null) {
+      invalider(comptes, numeroCompte);
+    }
+  }
+
+  /**
+   * Lit la valeur en cache ou la charge. Le calcul de Caffeine (get avec
+   * fonction de chargement) s'exécute sous le verrou d'une case de
+   * ConcurrentHashMap : un fil virtuel qui y ferait une requête SQL resterait
+   * épinglé à son fil porteur. Seul un futur vide est donc ajouté sous ce
+   * verrou ; le fil qui l'a ajouté charge ensuite la valeur et le complète.
+   */
+  private static <V> V charger(AsyncCache<String, V> cache, String cle, Function<String, ? extends V> chargement) {
+    CompletableFuture<V> nouveau = new CompletableFuture<>();
+    CompletableFuture<V> enCache = cache.get(cle, (k, executor) -> nouveau);
+    if (enCache != nouveau) {
+      try {
+        return enCache.join();
+      } catch (CompletionException e) {
+        // échec du chargement d'un autre fil : même exception que lui
+        if (e.getCause() instanceof RuntimeException cause) {
+          throw cause;
+        }
+        throw e;
+      }
+    }
+    try {
+      V valeur = chargement.apply(cle);
+      // null : l'entrée est retirée du cache
+      nouveau.complete(valeur);
+      return valeur;
+    } catch (RuntimeException | Error e) {
+      nouveau.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  private static void invalider(AsyncCache<String, ?> cache, String cle) {
+    cache.synchronous().invalidate(cle);
+    apresTransaction(() -> cache.synchronous().invalidate(cle));
+  }
+
+  private static void apresTransaction(Runnable invalidation) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          invalidation.run();
+        }
+      });
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package com.iut.banque.config;
 
+import com.iut.banque.cache.LookupCache;
 import com.iut.banque.dao.DaoHibernate;
 import com.iut.banque.interfaces.IDao;
 import jakarta.persistence.EntityManagerFactory;
@@ -11,11 +12,12 @@ import org.springframework.context.annotation.Configuration;
 public class DaoConfig {
 
     @Bean
-    public IDao dao(EntityManagerFactory emf) {
+    public IDao dao(EntityManagerFactory emf, LookupCache lookupCache) {
         SessionFactory sessionFactory = emf.unwrap(SessionFactory.class);
 
         DaoHibernate dao = new DaoHibernate();
         dao.setSessionFactory(sessionFactory);
+        dao.setLookupCache(lookupCache);
 
         return dao;
     }
@@ -17,7 +17,6 @@ public class LegacySha256PasswordEncoder implements PasswordEncoder {
   public boolean matches(CharSequence rawPassword, String encodedPassword) {
     if (encodedPassword == null)
       return false;
-    String rawHash = PasswordHasher.hashPassword(Objects.toString(rawPassword, ""));
-    return encodedPassword.equals(rawHash);
+    return PasswordHasher.verifyPassword(Objects.toString(rawPassword, ""), encodedPassword);
   }
 }
@@ -0,0 +1,47 @@
+package com.iut.banque.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Mesures complémentaires à celles publiées par Spring Boot
+ * (hikaricp.connections.active, .pending, .max...).
+ */
+@Configuration
+public class MetricsConfig {
+
+  /**
+   * Saturation du pool de connexions : part des connexions en cours
+   * d'utilisation (1 : toute nouvelle requête attend une connexion, voir
+   * hikaricp.connections.pending).
+   */
+  @Bean
+  MeterBinder poolSaturation(DataSource dataSource) {
+    return registry -> {
+      if (!(dataSource instanceof HikariDataSource hikari)) {
+        return;
+      }
+      Gauge.builder("banque.db.pool.saturation", hikari, MetricsConfig::saturation)
+          .description("Connexions actives / taille maximale du pool")
+          .tag("pool", String.valueOf(hikari.getPoolName()))
+          .register(registry);
+    };
+  }
+
+  private static double saturation(HikariDataSource hikari) {
+    HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+    // pool pas encore démarré
+    if (pool == null) {
+      return 0;
+    }
+    return (double) pool.getActiveConnections() / hikari.getMaximumPoolSize();
+  }
+}
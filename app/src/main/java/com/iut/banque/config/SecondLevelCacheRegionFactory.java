@@ -0,0 +1,30 @@
+package com.iut.banque.config;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.UUID;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+
+/**
+ * Fabrique des régions du cache de second niveau Hibernate (JCache, fourni par
+ * Caffeine).
+ *
+ * Chaque SessionFactory reçoit son propre gestionnaire de caches au lieu du
+ * gestionnaire par défaut, partagé dans la JVM : deux unités de persistance
+ * (contextes de test sur des bases différentes, par exemple) ne se renvoient
+ * jamais leurs entités, et la fermeture de l'une ne ferme pas les régions de
+ * l'autre. Les régions restent configurées par application.conf (clé
+ * caffeine.jcache.&lt;région&gt;).
+ */
+public class SecondLevelCacheRegionFactory extends JCacheRegionFactory {
+
+  private static final long serialVersionUID = 1L;
+
+  @Override
+  protected URI getUri(SessionFactoryOptions settings, Map<String, Object> properties) {
+    // URI sans schéma : Caffeine lit alors la configuration par défaut
+    return URI.create(SecondLevelCacheRegionFactory.class.getName() + "/" + UUID.randomUUID());
+  }
+}
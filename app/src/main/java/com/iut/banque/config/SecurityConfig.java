@@ -2,32 +2,58 @@ package com.iut.banque.config;
 
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import com.iut.banque.security.BearerTokenFilter;
+import com.iut.banque.security.ScrapeTokenFilter;
+import com.iut.banque.security.TokenService;
+
 @Configuration
 public class SecurityConfig {
 
+  /**
+   * L'API est authentifiée par jeton porteur (voir {@link TokenService}) :
+   * chaque requête est authentifiée indépendamment, sans session, ce qui
+   * permet de répartir les appels sur plusieurs nœuds sans affinité. Les pages
+   * web gardent leur propre session.
+   *
+   * /actuator/prometheus accepte aussi le jeton fixe du collecteur
+   * Prometheus (voir {@link ScrapeTokenFilter}).
+   */
   @Bean
-  SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+  SecurityFilterChain securityFilterChain(HttpSecurity http, TokenService tokenService,
+      @Value("${banque.metrics.scrape-token:}") String scrapeToken) throws Exception {
     http
         .csrf(csrf -> csrf.disable())
         .cors(Customizer.withDefaults())
         .authorizeHttpRequests(auth -> auth
             .requestMatchers("/login", "/register", "/", "/css/**", "/js/**", "/images/**").permitAll()
             .requestMatchers("/h2-console/**").permitAll()
-            .requestMatchers("/api/**").permitAll()
+            .requestMatchers("/api/auth/**").permitAll()
+            .requestMatchers("/api/import/**").hasRole("GESTIONNAIRE")
+            .requestMatchers("/api/export/**").hasRole("GESTIONNAIRE")
+            .requestMatchers("/actuator/health").permitAll()
+            .requestMatchers(ScrapeTokenFilter.CHEMIN).hasAnyRole("GESTIONNAIRE", ScrapeTokenFilter.ROLE)
+            .requestMatchers("/actuator/**").hasRole("GESTIONNAIRE")
+            .requestMatchers("/api/**").authenticated()
             .anyRequest().permitAll())
         .headers(headers -> headers.frameOptions(frame -> frame.disable()))
-        .httpBasic(Customizer.withDefaults());
+        .addFilterBefore(new BearerTokenFilter(tokenService), UsernamePasswordAuthenticationFilter.class)
+        .addFilterBefore(new ScrapeTokenFilter(scrapeToken), UsernamePasswordAuthenticationFilter.class)
+        .exceptionHandling(ex -> ex.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)));
 
     return http.build();
   }
@@ -0,0 +1,21 @@
+package com.iut.banque.converter;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+import com.iut.banque.modele.Montant;
+
+/**
+ * Lecture d'un {@link Montant} dans les paramètres de requête. Nécessaire
+ * car Montant étend Number : sans ce convertisseur, Spring applique sa
+ * conversion générique vers Number, qui ne connaît pas ce type.
+ */
+@Component
+public class AmountConverter implements Converter<String, Montant> {
+
+	@Override
+	public Montant convert(String source) {
+		String texte = source.trim();
+		return texte.isEmpty() ? null : Montant.valueOf(texte);
+	}
+}
@@ -7,6 +7,7 @@ import org.springframework.core.convert.converter.GenericConverter;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.stereotype.Component;
 
+import com.iut.banque.cache.LookupCache;
 import com.iut.banque.interfaces.IDao;
 import com.iut.banque.modele.Client;
 
@@ -14,9 +15,11 @@ import com.iut.banque.modele.Client;
 public class ClientConverter implements GenericConverter {
 
 	private final IDao dao;
+	private final LookupCache lookupCache;
 
-	public ClientConverter(IDao dao) {
+	public ClientConverter(IDao dao, LookupCache lookupCache) {
 		this.dao = dao;
+		this.lookupCache = lookupCache;
 	}
 
 	@Override
@@ -34,7 +37,7 @@ public class ClientConverter implements GenericConverter {
 		Class<?> src = (source instanceof String) ? String.class : source.getClass();
 		Class<?> tgt = (Class<?>) targetType.getType();
 		if (String.class.equals(src) && Client.class.equals(tgt)) {
-			return dao.getUserById((String) source);
+			return lookupCache.utilisateur((String) source, dao::getUserById);
 		}
 		if (Client.class.isAssignableFrom(src) && String.class.equals(tgt)) {
 			return ((Client) source).getIdentity();
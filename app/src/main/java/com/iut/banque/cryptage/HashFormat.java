@@ -0,0 +1,60 @@
+package com.iut.banque.cryptage;
+
+/**
+ * Format d'un mot de passe stocké, reconnu à son préfixe (sans expression
+ * régulière ni essai d'un encodeur).
+ */
+public enum HashFormat {
+
+    /** BCrypt natif : $2a$, $2b$ ou $2y$ suivi du coût. */
+    BCRYPT,
+    /** Ancien format : SHA-256 en hexadécimal minuscule (64 caractères). */
+    SHA256,
+    /** Format préfixé par l'identifiant de l'encodeur, ex. {bcrypt}... */
+    DELEGATING,
+    /** Aucun format connu : vraisemblablement un mot de passe en clair. */
+    UNKNOWN;
+
+    private static final int LONGUEUR_SHA256 = 64;
+
+    public static HashFormat of(String stored) {
+        if (stored == null || stored.isEmpty()) {
+            return UNKNOWN;
+        }
+        if (stored.length() > 7 && stored.charAt(0) == '$' && stored.charAt(1) == '2'
+                && (stored.charAt(2) == 'a' || stored.charAt(2) == 'b' || stored.charAt(2) == 'y')
+                && stored.charAt(3) == '$' && isDigit(stored.charAt(4)) && isDigit(stored.charAt(5))
+                && stored.charAt(6) == '$') {
+            return BCRYPT;
+        }
+        if (stored.charAt(0) == '{' && stored.indexOf('}') > 1) {
+            return DELEGATING;
+        }
+        if (stored.length() == LONGUEUR_SHA256 && isLowerHex(stored)) {
+            return SHA256;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Vrai si la valeur est déjà un mot de passe encodé (quel que soit le
+     * format), faux si c'est vraisemblablement du clair.
+     */
+    public static boolean isEncoded(String stored) {
+        return of(stored) != UNKNOWN;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLowerHex(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c) && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -4,35 +4,86 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
+/**
+ * Hash SHA-256 historique des mots de passe (64 caractères hexadécimaux en
+ * minuscules).
+ *
+ * Le MessageDigest est obtenu une fois puis cloné à chaque appel : le clone
+ * évite la recherche du fournisseur faite par getInstance, et chaque appel a
+ * sa propre instance (un MessageDigest n'est pas utilisable par plusieurs
+ * threads à la fois). Un clone plutôt qu'un ThreadLocal, pour ne pas garder
+ * une instance par thread virtuel.
+ */
 public class PasswordHasher {
 
-    // Hash en SHA-256 et renvoie une chaîne hexadécimale (64 caractères)
-    public static String hashPassword(String password) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(password.getBytes(StandardCharsets.UTF_8));
-
-            StringBuilder hexString = new StringBuilder(2 * hash.length);
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            return hexString.toString();
+    private static final String ALGORITHME = "SHA-256";
+    private static final int LONGUEUR_HASH = 32;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
 
+    private static final MessageDigest PROTOTYPE = nouveauDigest();
+
+    private static MessageDigest nouveauDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHME);
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("Erreur de hashage SHA-256", e);
         }
     }
 
-    // Vérifie si un mot de passe correspond à un hash attendu
+    private static byte[] digest(String password) {
+        MessageDigest digest;
+        try {
+            digest = (MessageDigest) PROTOTYPE.clone();
+        } catch (CloneNotSupportedException e) {
+            // fournisseur sans clone : une instance neuve par appel
+            digest = nouveauDigest();
+        }
+        return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Hash en SHA-256 et renvoie une chaîne hexadécimale (64 caractères)
+    public static String hashPassword(String password) {
+        byte[] hash = digest(password);
+        byte[] hex = new byte[2 * hash.length];
+        for (int i = 0; i < hash.length; i++) {
+            hex[2 * i] = HEX[(hash[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(hex, StandardCharsets.ISO_8859_1);
+    }
+
+    // Vérifie si un mot de passe correspond à un hash attendu (hexadécimal,
+    // majuscules ou minuscules), en temps constant : la durée ne dépend pas de
+    // la position du premier caractère différent
     public static boolean verifyPassword(String rawPassword, String expectedHash) {
-        if (expectedHash == null) {
+        if (rawPassword == null || expectedHash == null) {
             return false;
         }
-        String hashedInput = hashPassword(rawPassword);
-        return hashedInput.equalsIgnoreCase(expectedHash.trim());
+        String expected = expectedHash.trim();
+        if (expected.length() != 2 * LONGUEUR_HASH) {
+            return false;
+        }
+        byte[] hash = digest(rawPassword);
+        int difference = 0;
+        for (int i = 0; i < LONGUEUR_HASH; i++) {
+            int haut = valeurHex(expected.charAt(2 * i));
+            int bas = valeurHex(expected.charAt(2 * i + 1));
+            // un caractère invalide vaut -1 : positionne des bits hors de l'octet
+            difference |= ((haut << 4) | bas) ^ (hash[i] & 0xFF);
+        }
+        return difference == 0;
+    }
+
+    private static int valeurHex(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
     }
 }
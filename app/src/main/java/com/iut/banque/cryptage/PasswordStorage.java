@@ -0,0 +1,67 @@
+package com.iut.banque.cryptage;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stockage des mots de passe : vérifie un mot de passe avec l'encodeur qui
+ * correspond au format du hash stocké (détecté par {@link HashFormat}) et
+ * indique les hash à migrer vers l'encodeur courant (BCrypt).
+ *
+ * Un seul algorithme est exécuté par vérification : un hash SHA-256 n'est
+ * jamais soumis à BCrypt, et un échec BCrypt ne déclenche pas de second
+ * calcul SHA-256.
+ */
+@Component
+public class PasswordStorage {
+
+    private static final String PREFIXE_BCRYPT = "{bcrypt}";
+    private static final String PREFIXE_SHA256 = "{sha256}";
+
+    private final PasswordEncoder passwordEncoder;
+
+    public PasswordStorage(PasswordEncoder passwordEncoder) {
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    public boolean matches(String rawPassword, String stored) {
+        if (rawPassword == null) {
+            return false;
+        }
+        return switch (HashFormat.of(stored)) {
+            case BCRYPT -> passwordEncoder.matches(rawPassword, stored);
+            case SHA256 -> sha256Matches(rawPassword, stored);
+            case DELEGATING -> delegatingMatches(rawPassword, stored);
+            case UNKNOWN -> false;
+        };
+    }
+
+    /**
+     * Vrai si le hash stocké n'est pas dans le format de l'encodeur courant et
+     * doit être recalculé à la prochaine connexion réussie.
+     */
+    public boolean needsUpgrade(String stored) {
+        HashFormat format = HashFormat.of(stored);
+        return format == HashFormat.SHA256
+                || (format == HashFormat.DELEGATING && !stored.startsWith(PREFIXE_BCRYPT));
+    }
+
+    public String encode(String rawPassword) {
+        return passwordEncoder.encode(rawPassword);
+    }
+
+    private boolean delegatingMatches(String rawPassword, String stored) {
+        if (stored.startsWith(PREFIXE_BCRYPT)) {
+            return passwordEncoder.matches(rawPassword, stored.substring(PREFIXE_BCRYPT.length()));
+        }
+        if (stored.startsWith(PREFIXE_SHA256)) {
+            return sha256Matches(rawPassword, stored.substring(PREFIXE_SHA256.length()));
+        }
+        return false;
+    }
+
+    private static boolean sha256Matches(String rawPassword, String hex) {
+        // comparaison en temps constant
+        return PasswordHasher.verifyPassword(rawPassword, hex);
+    }
+}
@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.iut.banque.cache.LookupCache;
 import com.iut.banque.cryptage.PasswordHasher;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
@@ -22,6 +23,7 @@ import com.iut.banque.modele.Compte;
 import com.iut.banque.modele.CompteAvecDecouvert;
 import com.iut.banque.modele.CompteSansDecouvert;
 import com.iut.banque.modele.Gestionnaire;
+import com.iut.banque.modele.Montant;
 import com.iut.banque.modele.Utilisateur;
 
 @Repository
@@ -32,6 +34,8 @@ public class DaoHibernate implements IDao {
 
 	private SessionFactory sessionFactory;
 
+	private LookupCache lookupCache;
+
 	public DaoHibernate() {
 		LOGGER.debug("Création de la Dao");
 	}
@@ -40,8 +44,15 @@ public class DaoHibernate implements IDao {
 		this.sessionFactory = sessionFactory;
 	}
 
+	/**
+	 * Cache des lectures, invalidé à chaque modification faite par la DAO.
+	 */
+	public void setLookupCache(LookupCache lookupCache) {
+		this.lookupCache = lookupCache;
+	}
+
 	@Override
-	public CompteAvecDecouvert createCompteAvecDecouvert(double solde, String numeroCompte, double decouvertAutorise,
+	public CompteAvecDecouvert createCompteAvecDecouvert(Montant solde, String numeroCompte, Montant decouvertAutorise,
 			Client client)
 			throws TechnicalException, IllegalFormatException, IllegalOperationException {
 		Session session = sessionFactory.getCurrentSession();
@@ -57,7 +68,7 @@ public class DaoHibernate implements IDao {
 	}
 
 	@Override
-	public CompteSansDecouvert createCompteSansDecouvert(double solde, String numeroCompte, Client client)
+	public CompteSansDecouvert createCompteSansDecouvert(Montant solde, String numeroCompte, Client client)
 			throws TechnicalException, IllegalFormatException {
 		Session session = sessionFactory.getCurrentSession();
 		CompteSansDecouvert compte = session.get(CompteSansDecouvert.class, numeroCompte);
@@ -74,6 +85,7 @@ public class DaoHibernate implements IDao {
 	@Override
 	public void updateAccount(Compte c) {
 		sessionFactory.getCurrentSession().update(c);
+		lookupCache.invalidateAccount(c.getNumeroCompte());
 	}
 
 	@Override
@@ -83,12 +95,17 @@ public class DaoHibernate implements IDao {
 			throw new TechnicalException("Ce compte n'existe plus");
 		}
 		session.delete(c);
+		lookupCache.invalidateAccount(c.getNumeroCompte());
 	}
 
 	@Override
 	public Map<String, Compte> getAccountsByClientId(String id) {
-		Session session = sessionFactory.getCurrentSession();
-		Client client = session.get(Client.class, id);
+		// les comptes sont paresseux : ils sont chargés ici avec le client, en
+		// une requête, pour rester lisibles après la fin de la transaction
+		Client client = sessionFactory.getCurrentSession()
+				.createQuery("select c from Client c left join fetch c.accounts where c.userId = :id", Client.class)
+				.setParameter("id", id)
+				.uniqueResult();
 		return (client != null) ? client.getAccounts() : Collections.emptyMap();
 	}
 
@@ -123,11 +140,13 @@ public class DaoHibernate implements IDao {
 			throw new TechnicalException("Cet utilisateur n'existe plus");
 		}
 		session.delete(u);
+		lookupCache.invalidateUser(u.getUserId());
 	}
 
 	@Override
 	public void updateUser(Utilisateur u) {
 		sessionFactory.getCurrentSession().update(u);
+		lookupCache.invalidateUser(u.getUserId());
 	}
 
 	@Override
@@ -147,7 +166,7 @@ public class DaoHibernate implements IDao {
 			if (user == null) {
 				return false;
 			}
-			return PasswordHasher.hashPassword(userPwd).equals(user.getUserPwd().trim());
+			return PasswordHasher.verifyPassword(userPwd, user.getUserPwd());
 		} finally {
 			session.close();
 		}
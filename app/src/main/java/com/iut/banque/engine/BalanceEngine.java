@@ -0,0 +1,599 @@
+package com.iut.banque.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import com.iut.banque.api.dto.AccountSummary;
+import com.iut.banque.engine.WriteAheadLog.Enregistrement;
+import com.iut.banque.exceptions.IllegalOperationException;
+import com.iut.banque.exceptions.InsufficientFundsException;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.modele.Operation;
+import com.iut.banque.modele.PointDeReprise;
+import com.iut.banque.modele.TypeOperation;
+import com.iut.banque.repository.CompteRepository;
+import com.iut.banque.repository.OperationRepository;
+import com.iut.banque.repository.PointDeRepriseRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Moteur de soldes en mémoire avec écriture différée (activé par
+ * banque.engine.write-behind.enabled).
+ *
+ * Les dépôts, retraits et virements de {@link com.iut.banque.service.BanqueService}
+ * sont appliqués à des soldes tenus en mémoire, sous un verrou par groupe de
+ * comptes, et ajoutés au journal d'écriture anticipée ({@link WriteAheadLog})
+ * : une opération n'est acquittée qu'une fois son enregistrement sur
+ * stockage durable. Les opérations sont ensuite reportées en base par lots,
+ * toutes les flush-interval, en une transaction :
+ * <ul>
+ * <li>un UPDATE {@code solde = solde + delta} par compte modifié, en lot JDBC
+ * : le report s'ajoute aux modifications faites par les autres chemins
+ * (virements de masse...) au lieu de les écraser ; un compte introuvable fait
+ * échouer le lot, qui reste en attente ;</li>
+ * <li>les lignes du journal des opérations ;</li>
+ * <li>la séquence du dernier enregistrement reporté ({@link PointDeReprise}).</li>
+ * </ul>
+ * Au démarrage, les enregistrements postérieurs au point de reprise sont
+ * rejoués en base : aucune opération acquittée n'est perdue après un arrêt
+ * brutal, et aucune n'est appliquée deux fois.
+ *
+ * Après chaque report, le solde en mémoire des comptes reportés est relu en
+ * base à leur prochaine opération. Un autre chemin qui écrit les soldes en
+ * base passe par {@link #ecrireEnBase} : sinon le moteur vérifierait la
+ * provision sur un solde périmé. Les lectures (écrans, API) voient les soldes en base, en retard
+ * d'au plus flush-interval sur le moteur.
+ */
+@Service
+@ConditionalOnProperty(prefix = "banque.engine.write-behind", name = "enabled", havingValue = "true")
+public class BalanceEngine {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BalanceEngine.class);
+
+  static final String NOM_POINT_DE_REPRISE = "soldes";
+
+  private static final char CREDIT = 'C';
+  private static final char DEBIT = 'D';
+  private static final char VIREMENT = 'V';
+
+  /**
+   * Nombre d'enregistrements reportés par transaction lors du rejeu.
+   */
+  private static final int LOT_REJEU = 10_000;
+
+  /**
+   * État en mémoire d'un compte, protégé par le verrou de son groupe. Les
+   * montants sont en centimes.
+   */
+  private static final class EtatCompte {
+    /** Solde courant, opérations non reportées comprises. */
+    long solde;
+    long decouvert;
+    /** Mouvements appliqués en mémoire et pas encore pris par un report. */
+    long enAttente;
+    /** Mouvements du report en cours. */
+    long enVol;
+    /** Le solde doit être relu en base (un report vient d'aboutir). */
+    boolean perime;
+  }
+
+  private final CompteRepository compteRepository;
+  private final OperationRepository operationRepository;
+  private final PointDeRepriseRepository pointDeRepriseRepository;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final Path repertoire;
+  private final boolean fsync;
+  private final Duration flushInterval;
+  private final long tailleSegment;
+
+  private final ConcurrentHashMap<String, EtatCompte> comptes = new ConcurrentHashMap<>();
+  private final ReentrantLock[] verrous;
+  private final ReentrantLock verrouReport = new ReentrantLock();
+  private final ConcurrentLinkedQueue<Enregistrement> aReporter = new ConcurrentLinkedQueue<>();
+
+  private WriteAheadLog wal;
+  private ScheduledExecutorService planificateur;
+
+  public BalanceEngine(CompteRepository compteRepository,
+      OperationRepository operationRepository,
+      PointDeRepriseRepository pointDeRepriseRepository,
+      JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      @Value("${banque.engine.write-behind.wal-dir:data/wal}") Path repertoire,
+      @Value("${banque.engine.write-behind.fsync:true}") boolean fsync,
+      @Value("${banque.engine.write-behind.flush-interval:PT0.2S}") Duration flushInterval,
+      @Value("${banque.engine.write-behind.segment-size:64MB}") DataSize tailleSegment,
+      @Value("${banque.engine.write-behind.stripes:64}") int groupes) {
+    this.compteRepository = compteRepository;
+    this.operationRepository = operationRepository;
+    this.pointDeRepriseRepository = pointDeRepriseRepository;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.repertoire = repertoire;
+    this.fsync = fsync;
+    this.flushInterval = flushInterval;
+    this.tailleSegment = tailleSegment.toBytes();
+    this.verrous = new ReentrantLock[groupes];
+    for (int i = 0; i < groupes; i++) {
+      verrous[i] = new ReentrantLock();
+    }
+  }
+
+  /**
+   * Rejoue en base les opérations du journal postérieures au point de
+   * reprise, puis lance le report périodique.
+   */
+  @PostConstruct
+  public void demarrer() throws IOException {
+    long pointDeReprise = pointDeRepriseRepository.findById(NOM_POINT_DE_REPRISE)
+        .map(PointDeReprise::getSequence).orElse(0L);
+    wal = new WriteAheadLog(repertoire, tailleSegment, fsync, pointDeReprise);
+
+    List<Enregistrement> lot = new ArrayList<>();
+    long[] rejoues = { 0 };
+    wal.relire(pointDeReprise, e -> {
+      lot.add(e);
+      if (lot.size() == LOT_REJEU) {
+        rejoues[0] += reporterEnBase(lot);
+        lot.clear();
+      }
+    });
+    rejoues[0] += reporterEnBase(lot);
+    if (rejoues[0] > 0) {
+      LOGGER.warn("{} opérations du journal rejouées en base (point de reprise {})", rejoues[0], pointDeReprise);
+    }
+    wal.purger(wal.derniereSequence());
+
+    planificateur = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "report-soldes");
+      t.setDaemon(true);
+      return t;
+    });
+    long periode = flushInterval.toMillis();
+    planificateur.scheduleWithFixedDelay(this::reporterSansErreur, periode, periode, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Arrêt propre : dernier report puis fermeture du journal.
+   */
+  @PreDestroy
+  public void arreter() throws IOException, InterruptedException {
+    planificateur.shutdown();
+    planificateur.awaitTermination(30, TimeUnit.SECONDS);
+    reporter();
+    wal.close();
+  }
+
+  /**
+   * Arrêt sans report en base, comme un arrêt brutal du processus : les
+   * opérations acquittées ne sont que dans le journal. Utilisé par les tests.
+   */
+  void arreterSansReport() throws IOException, InterruptedException {
+    planificateur.shutdownNow();
+    planificateur.awaitTermination(30, TimeUnit.SECONDS);
+    wal.close();
+  }
+
+  public void crediter(String numeroCompte, Montant montant) throws IllegalOperationException {
+    long centimes = montant.getCentimes();
+    long sequence;
+    ReentrantLock verrou = verrou(numeroCompte);
+    verrou.lock();
+    try {
+      EtatCompte compte = charger(numeroCompte);
+      verifierCapacite(numeroCompte, compte, centimes);
+      sequence = journaliser(CREDIT, numeroCompte, null, centimes, null);
+      appliquer(compte, centimes);
+    } finally {
+      verrou.unlock();
+    }
+    attendreDurable(sequence);
+  }
+
+  public void debiter(String numeroCompte, Montant montant)
+      throws IllegalOperationException, InsufficientFundsException {
+    long centimes = montant.getCentimes();
+    long sequence;
+    ReentrantLock verrou = verrou(numeroCompte);
+    verrou.lock();
+    try {
+      EtatCompte compte = charger(numeroCompte);
+      verifierProvision(numeroCompte, compte, centimes);
+      sequence = journaliser(DEBIT, numeroCompte, null, centimes, null);
+      appliquer(compte, Montant.opposer(centimes));
+    } finally {
+      verrou.unlock();
+    }
+    attendreDurable(sequence);
+  }
+
+  public void transfer(String fromAccountId, String toAccountId, Montant montant)
+      throws IllegalOperationException, InsufficientFundsException {
+    long centimes = montant.getCentimes();
+    // verrous des deux groupes pris dans l'ordre de leur indice
+    int i = indice(fromAccountId);
+    int j = indice(toAccountId);
+    ReentrantLock premier = verrous[Math.min(i, j)];
+    ReentrantLock second = verrous[Math.max(i, j)];
+    long sequence;
+    premier.lock();
+    second.lock();
+    try {
+      EtatCompte from = charger(fromAccountId);
+      EtatCompte to = charger(toAccountId);
+      verifierProvision(fromAccountId, from, centimes);
+      verifierCapacite(toAccountId, to, centimes);
+      sequence = journaliser(VIREMENT, fromAccountId, toAccountId, centimes, UUID.randomUUID());
+      appliquer(from, Montant.opposer(centimes));
+      appliquer(to, centimes);
+    } finally {
+      second.unlock();
+      premier.unlock();
+    }
+    attendreDurable(sequence);
+  }
+
+  /**
+   * Solde courant d'un compte tel que le voit le moteur, opérations non
+   * encore reportées comprises.
+   */
+  public Montant solde(String numeroCompte) throws IllegalOperationException {
+    ReentrantLock verrou = verrou(numeroCompte);
+    verrou.lock();
+    try {
+      return Montant.deCentimes(charger(numeroCompte).solde);
+    } finally {
+      verrou.unlock();
+    }
+  }
+
+  /**
+   * Exécute une écriture faite directement en base sur les comptes donnés
+   * (virements de masse), sans mouvement du moteur en cours sur ces comptes :
+   * les mouvements en attente sont d'abord reportés, les comptes restent
+   * verrouillés dans le moteur pendant l'écriture, puis sont relus en base à
+   * leur prochaine opération. L'écriture doit valider sa propre transaction
+   * avant de rendre la main.
+   */
+  public void ecrireEnBase(Collection<String> numerosCompte, Runnable ecriture) throws IOException {
+    int[] indices = numerosCompte.stream().mapToInt(this::indice).distinct().sorted().toArray();
+    // pas de report périodique pendant l'écriture : aucun mouvement en vol
+    verrouReport.lock();
+    try {
+      while (true) {
+        reporter();
+        for (int i : indices) {
+          verrous[i].lock();
+        }
+        if (aucunEnAttente(numerosCompte)) {
+          break;
+        }
+        // mouvement appliqué entre le report et les verrous : nouveau report
+        deverrouiller(indices);
+      }
+      try {
+        ecriture.run();
+      } finally {
+        for (String numeroCompte : numerosCompte) {
+          EtatCompte compte = comptes.get(numeroCompte);
+          if (compte != null) {
+            compte.perime = true;
+          }
+        }
+        deverrouiller(indices);
+      }
+    } finally {
+      verrouReport.unlock();
+    }
+  }
+
+  /**
+   * Supprime un compte en base par {@link #ecrireEnBase} : ses mouvements en
+   * attente sont reportés avant la suppression, puis son état en mémoire est
+   * abandonné. La suppression doit valider sa propre transaction.
+   */
+  public void supprimer(String numeroCompte, Runnable suppression) throws IOException {
+    ecrireEnBase(List.of(numeroCompte), suppression);
+    ReentrantLock verrou = verrou(numeroCompte);
+    verrou.lock();
+    try {
+      // une opération arrivée entre-temps a relu la base sans y trouver le
+      // compte : rien n'a pu être mis en attente
+      EtatCompte compte = comptes.get(numeroCompte);
+      if (compte != null && compte.enAttente == 0 && compte.enVol == 0) {
+        comptes.remove(numeroCompte);
+      }
+    } finally {
+      verrou.unlock();
+    }
+  }
+
+  private boolean aucunEnAttente(Collection<String> numerosCompte) {
+    for (String numeroCompte : numerosCompte) {
+      EtatCompte compte = comptes.get(numeroCompte);
+      if (compte != null && compte.enAttente != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void deverrouiller(int[] indices) {
+    for (int i = indices.length - 1; i >= 0; i--) {
+      verrous[indices[i]].unlock();
+    }
+  }
+
+  /**
+   * Reporte en base les opérations journalisées depuis le dernier report.
+   *
+   * @return le nombre d'opérations reportées
+   */
+  public int reporter() throws IOException {
+    verrouReport.lock();
+    try {
+      List<Enregistrement> lot = new ArrayList<>();
+      Map<String, Long> deltas;
+      long sequence;
+      // aucune opération en cours : tout enregistrement journalisé est dans
+      // aReporter et appliqué en mémoire
+      verrouillerTout();
+      try {
+        sequence = wal.derniereSequence();
+        for (Enregistrement e = aReporter.poll(); e != null; e = aReporter.poll()) {
+          lot.add(e);
+        }
+        deltas = deltas(lot);
+        deltas.forEach((numero, delta) -> {
+          EtatCompte compte = comptes.get(numero);
+          compte.enAttente -= delta;
+          compte.enVol += delta;
+        });
+      } finally {
+        deverrouillerTout();
+      }
+      if (lot.isEmpty()) {
+        return 0;
+      }
+
+      try {
+        wal.sync(sequence);
+        ecrire(lot, deltas, sequence);
+      } catch (IOException | RuntimeException e) {
+        // remis en attente pour le prochain report
+        verrouillerTout();
+        try {
+          deltas.forEach((numero, delta) -> {
+            EtatCompte compte = comptes.get(numero);
+            compte.enVol -= delta;
+            compte.enAttente += delta;
+          });
+          aReporter.addAll(lot);
+        } finally {
+          deverrouillerTout();
+        }
+        throw e;
+      }
+
+      for (Map.Entry<String, Long> d : deltas.entrySet()) {
+        ReentrantLock verrou = verrou(d.getKey());
+        verrou.lock();
+        try {
+          EtatCompte compte = comptes.get(d.getKey());
+          compte.enVol -= d.getValue();
+          compte.perime = true;
+        } finally {
+          verrou.unlock();
+        }
+      }
+      wal.purger(sequence);
+      return lot.size();
+    } finally {
+      verrouReport.unlock();
+    }
+  }
+
+  private void reporterSansErreur() {
+    try {
+      int n = reporter();
+      if (n > 0) {
+        LOGGER.debug("{} opérations reportées en base", n);
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.error("Échec du report des soldes en base, nouvel essai au prochain report", e);
+    }
+  }
+
+  private int reporterEnBase(List<Enregistrement> lot) {
+    if (lot.isEmpty()) {
+      return 0;
+    }
+    ecrire(lot, deltas(lot), lot.get(lot.size() - 1).sequence());
+    return lot.size();
+  }
+
+  /**
+   * Écrit un lot en une transaction : soldes, journal des opérations et point
+   * de reprise.
+   */
+  private void ecrire(List<Enregistrement> lot, Map<String, Long> deltas, long sequence) {
+    transactionTemplate.executeWithoutResult(status -> {
+      // comptes mis à jour dans l'ordre des numéros, comme les virements
+      List<Object[]> parametres = new ArrayList<>(deltas.size());
+      deltas.forEach((numero, delta) -> parametres.add(new Object[] { delta, numero }));
+      int[] modifies = jdbcTemplate.batchUpdate("UPDATE Compte SET solde = solde + ? WHERE numeroCompte = ?",
+          parametres);
+      for (int i = 0; i < modifies.length; i++) {
+        // compte supprimé hors du moteur : le lot est annulé et reste en
+        // attente plutôt que de perdre le mouvement
+        if (modifies[i] == 0) {
+          throw new IllegalStateException("Compte introuvable lors du report: " + parametres.get(i)[1]);
+        }
+      }
+
+      List<Operation> operations = new ArrayList<>(lot.size() + 8);
+      for (Enregistrement e : lot) {
+        Instant date = Instant.ofEpochMilli(e.horodatage());
+        Montant montant = Montant.deCentimes(e.montant());
+        switch (e.type()) {
+          case CREDIT -> operations.add(
+              new Operation(e.numeroCompte(), montant, TypeOperation.CREDIT, null, date));
+          case DEBIT -> operations.add(
+              new Operation(e.numeroCompte(), montant.oppose(), TypeOperation.DEBIT, null, date));
+          case VIREMENT -> {
+            String idVirement = e.idVirement().toString();
+            operations.add(new Operation(e.numeroCompte(), montant.oppose(), TypeOperation.VIREMENT_EMIS,
+                idVirement, date));
+            operations.add(new Operation(e.contrepartie(), montant, TypeOperation.VIREMENT_RECU, idVirement,
+                date));
+          }
+          default -> throw new IllegalStateException("Type d'enregistrement inconnu: " + e.type());
+        }
+      }
+      operationRepository.saveAll(operations);
+
+      PointDeReprise point = pointDeRepriseRepository.findById(NOM_POINT_DE_REPRISE)
+          .orElseGet(() -> new PointDeReprise(NOM_POINT_DE_REPRISE, 0));
+      point.setSequence(sequence);
+      pointDeRepriseRepository.save(point);
+    });
+  }
+
+  private static Map<String, Long> deltas(List<Enregistrement> lot) {
+    Map<String, Long> deltas = new TreeMap<>();
+    for (Enregistrement e : lot) {
+      switch (e.type()) {
+        case CREDIT -> deltas.merge(e.numeroCompte(), e.montant(), Montant::additionner);
+        case DEBIT -> deltas.merge(e.numeroCompte(), Montant.opposer(e.montant()), Montant::additionner);
+        case VIREMENT -> {
+          deltas.merge(e.numeroCompte(), Montant.opposer(e.montant()), Montant::additionner);
+          deltas.merge(e.contrepartie(), e.montant(), Montant::additionner);
+        }
+        default -> throw new IllegalStateException("Type d'enregistrement inconnu: " + e.type());
+      }
+    }
+    return deltas;
+  }
+
+  /**
+   * État en mémoire du compte, lu en base s'il est absent ou périmé. Appelé
+   * sous le verrou du groupe du compte.
+   */
+  private EtatCompte charger(String numeroCompte) throws IllegalOperationException {
+    EtatCompte compte = comptes.get(numeroCompte);
+    // pendant un report, la base peut contenir ou non les mouvements en vol :
+    // le compte n'est relu qu'une fois le report terminé
+    if (compte != null && (!compte.perime || compte.enVol != 0)) {
+      return compte;
+    }
+    AccountSummary enBase = compteRepository.findSummaryById(numeroCompte)
+        .orElseThrow(() -> new IllegalOperationException("Compte introuvable: " + numeroCompte));
+    if (compte == null) {
+      compte = new EtatCompte();
+      comptes.put(numeroCompte, compte);
+    }
+    // enVol est nul ici (voir plus haut), et un report ne peut pas commencer
+    // pendant qu'on tient le verrou
+    compte.solde = Montant.additionner(enBase.solde().getCentimes(), compte.enAttente);
+    compte.decouvert = enBase.decouvertAutorise() == null ? 0 : enBase.decouvertAutorise().getCentimes();
+    compte.perime = false;
+    return compte;
+  }
+
+  private static void verifierProvision(String numeroCompte, EtatCompte compte, long montant)
+      throws InsufficientFundsException {
+    if (Montant.additionner(compte.solde, compte.decouvert) < montant) {
+      throw new InsufficientFundsException("Le solde du compte " + numeroCompte + " est insuffisant.");
+    }
+  }
+
+  /**
+   * Vérifie, avant la journalisation, que le crédit ne fait pas dépasser au
+   * solde la capacité d'un montant.
+   */
+  private static void verifierCapacite(String numeroCompte, EtatCompte compte, long montant)
+      throws IllegalOperationException {
+    try {
+      Montant.additionner(compte.solde, montant);
+    } catch (ArithmeticException e) {
+      throw new IllegalOperationException("Le solde du compte " + numeroCompte + " dépasserait le maximum autorisé.");
+    }
+  }
+
+  private static void appliquer(EtatCompte compte, long delta) {
+    compte.solde += delta;
+    compte.enAttente += delta;
+  }
+
+  /**
+   * Ajoute l'opération au journal et à la file des opérations à reporter.
+   * Appelé sous le verrou du ou des comptes concernés.
+   */
+  private long journaliser(char type, String numeroCompte, String contrepartie, long montant, UUID idVirement) {
+    long horodatage = System.currentTimeMillis();
+    try {
+      long sequence = wal.append(type, numeroCompte, contrepartie, montant, horodatage, idVirement);
+      aReporter.add(new Enregistrement(sequence, type, numeroCompte, contrepartie, montant, horodatage,
+          idVirement));
+      return sequence;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Écriture impossible dans le journal des soldes", e);
+    }
+  }
+
+  private void attendreDurable(long sequence) {
+    try {
+      wal.sync(sequence);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Écriture impossible dans le journal des soldes", e);
+    }
+  }
+
+  private int indice(String numeroCompte) {
+    return Math.floorMod(numeroCompte.hashCode(), verrous.length);
+  }
+
+  private ReentrantLock verrou(String numeroCompte) {
+    return verrous[indice(numeroCompte)];
+  }
+
+  private void verrouillerTout() {
+    for (ReentrantLock v : verrous) {
+      v.lock();
+    }
+  }
+
+  private void deverrouillerTout() {
+    for (int i = verrous.length - 1; i >= 0; i--) {
+      verrous[i].unlock();
+    }
+  }
+}
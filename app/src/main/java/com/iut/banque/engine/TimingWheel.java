@@ -0,0 +1,149 @@
+package com.iut.banque.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Roue temporelle hiérarchique : planification d'éléments à une échéance (en
+ * millisecondes) en temps constant, quel que soit le nombre d'éléments
+ * planifiés.
+ *
+ * Le niveau 0 compte {@code taille} cases d'un tick chacune ; chaque niveau
+ * supérieur compte autant de cases, chacune de la durée d'un tour complet du
+ * niveau inférieur. Un élément est rangé dans le niveau le plus bas qui couvre
+ * son échéance ; quand le temps atteint une case d'un niveau supérieur, ses
+ * éléments redescendent d'un ou plusieurs niveaux. Les niveaux sont créés à
+ * la demande, selon l'échéance la plus lointaine.
+ *
+ * Un élément est rendu par {@link #avancer} à la fin du tick qui contient son
+ * échéance : jamais en avance, en retard d'au plus un tick. La roue n'est pas
+ * synchronisée, elle est destinée à un seul fil.
+ */
+public final class TimingWheel<T> {
+
+  private final long tick;
+  private final int taille;
+  private final List<Niveau<T>> niveaux = new ArrayList<>();
+
+  /**
+   * Début du tick courant du niveau 0 (multiple du tick).
+   */
+  private long courant;
+  private int elements;
+
+  /**
+   * @param tick
+   *                 : durée d'une case du niveau 0, en millisecondes
+   * @param taille
+   *                 : nombre de cases de chaque niveau
+   * @param debut
+   *                 : instant de départ, en millisecondes
+   */
+  public TimingWheel(long tick, int taille, long debut) {
+    if (tick <= 0 || taille < 2) {
+      throw new IllegalArgumentException("Tick ou nombre de cases invalide");
+    }
+    this.tick = tick;
+    this.taille = taille;
+    this.courant = Math.floorDiv(debut, tick) * tick;
+    this.niveaux.add(new Niveau<>(tick, taille));
+  }
+
+  /**
+   * Planifie un élément.
+   *
+   * @return false si l'échéance est antérieure au tick courant : l'élément
+   *         est déjà échu et n'est pas ajouté
+   */
+  public boolean ajouter(T element, long echeance) {
+    if (echeance < courant) {
+      return false;
+    }
+    ranger(new Entree<>(element, echeance));
+    elements++;
+    return true;
+  }
+
+  private void ranger(Entree<T> entree) {
+    for (int i = 0;; i++) {
+      if (i == niveaux.size()) {
+        niveaux.add(new Niveau<>(niveaux.get(i - 1).portee, taille));
+      }
+      Niveau<T> niveau = niveaux.get(i);
+      // le niveau couvre les cases qui suivent la sienne jusqu'à un tour complet
+      // (le tick courant lui-même pour le niveau 0)
+      long origine = Math.floorDiv(courant, niveau.duree) * niveau.duree;
+      if (entree.echeance < origine + niveau.portee) {
+        niveau.caseDe(entree.echeance).add(entree);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Avance jusqu'à l'instant donné et rend les éléments dont le tick est
+   * écoulé, dans l'ordre des ticks.
+   */
+  public void avancer(long maintenant, Consumer<? super T> echus) {
+    while (courant + tick <= maintenant) {
+      ArrayDeque<Entree<T>> ecoule = niveaux.get(0).caseDe(courant);
+      Entree<T> entree;
+      while ((entree = ecoule.poll()) != null) {
+        elements--;
+        echus.accept(entree.element);
+      }
+      courant += tick;
+      // à chaque tour complet d'un niveau, la case suivante du niveau supérieur
+      // redescend (ses échéances sont toutes postérieures au tick courant)
+      for (int i = 1; i < niveaux.size() && Math.floorMod(courant, niveaux.get(i).duree) == 0; i++) {
+        ArrayDeque<Entree<T>> superieure = niveaux.get(i).caseDe(courant);
+        while ((entree = superieure.poll()) != null) {
+          ranger(entree);
+        }
+      }
+    }
+  }
+
+  /**
+   * Nombre d'éléments planifiés.
+   */
+  public int taille() {
+    return elements;
+  }
+
+  /**
+   * Début du tick courant.
+   */
+  public long courant() {
+    return courant;
+  }
+
+  private record Entree<T>(T element, long echeance) {
+  }
+
+  private static final class Niveau<T> {
+
+    /**
+     * Durée d'une case, et durée d'un tour complet.
+     */
+    final long duree;
+    final long portee;
+    final ArrayDeque<Entree<T>>[] cases;
+
+    @SuppressWarnings("unchecked")
+    Niveau(long duree, int taille) {
+      this.duree = duree;
+      this.portee = Math.multiplyExact(duree, taille);
+      this.cases = new ArrayDeque[taille];
+      for (int i = 0; i < taille; i++) {
+        cases[i] = new ArrayDeque<>();
+      }
+    }
+
+    ArrayDeque<Entree<T>> caseDe(long echeance) {
+      return cases[(int) Math.floorMod(Math.floorDiv(echeance, duree), (long) cases.length)];
+    }
+  }
+}
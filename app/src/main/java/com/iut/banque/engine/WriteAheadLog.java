@@ -0,0 +1,330 @@
+package com.iut.banque.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Journal d'écriture anticipée (WAL) des mouvements de solde.
+ *
+ * Le journal est une suite de segments {@code wal-<première séquence>.log}
+ * d'enregistrements de taille fixe, chacun protégé par un CRC32C : un
+ * enregistrement incomplet en fin de journal (arrêt pendant l'écriture) est
+ * détecté et ignoré à la relecture.
+ *
+ * Les écritures sont séparées de leur mise en stockage durable
+ * ({@link #sync}) : plusieurs threads qui attendent la durabilité de leurs
+ * enregistrements partagent le même fsync (validation groupée).
+ */
+class WriteAheadLog implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WriteAheadLog.class);
+
+  private static final String PREFIXE = "wal-";
+  private static final String SUFFIXE = ".log";
+  private static final int LONGUEUR_COMPTE = 12;
+
+  /**
+   * seq (8) + type (1) + compte (12) + contrepartie (12) + montant en
+   * centimes (8) + horodatage (8) + idVirement (16) + crc (4)
+   */
+  static final int TAILLE_ENREGISTREMENT = 8 + 1 + 2 * LONGUEUR_COMPTE + 8 + 8 + 16 + 4;
+
+  /**
+   * Un mouvement du journal.
+   *
+   * @param type
+   *                     : 'C' dépôt, 'D' retrait, 'V' virement de
+   *                     numeroCompte vers contrepartie
+   * @param contrepartie
+   *                     : compte crédité d'un virement, null sinon
+   * @param montant
+   *                     : montant en centimes
+   * @param idVirement
+   *                     : identifiant du virement, null sinon
+   * @param horodatage
+   *                     : date de l'opération, en millisecondes
+   */
+  record Enregistrement(long sequence, char type, String numeroCompte, String contrepartie, long montant,
+      long horodatage, UUID idVirement) {
+  }
+
+  private final Path repertoire;
+  private final long tailleSegment;
+  private final boolean fsync;
+
+  private final ReentrantLock verrouEcriture = new ReentrantLock();
+  private final ReentrantLock verrouSync = new ReentrantLock();
+  private final ByteBuffer tampon = ByteBuffer.allocate(TAILLE_ENREGISTREMENT);
+  private final CRC32C crc = new CRC32C();
+
+  // protégés par verrouEcriture
+  private volatile FileChannel segment;
+  private long tailleCourante;
+  private long derniereSequence;
+
+  private volatile long derniereEcrite;
+  private volatile long derniereDurable;
+
+  /**
+   * Ouvre le journal : relit les segments existants pour retrouver la
+   * dernière séquence, tronque un éventuel enregistrement incomplet en fin de
+   * journal, puis ouvre un nouveau segment pour les écritures.
+   *
+   * @param sequenceMinimale
+   *                         : séquence à partir de laquelle reprendre si le
+   *                         journal est vide (dernière séquence déjà reportée
+   *                         en base), pour que les nouveaux enregistrements ne
+   *                         soient pas pris pour des enregistrements reportés
+   */
+  WriteAheadLog(Path repertoire, long tailleSegment, boolean fsync, long sequenceMinimale) throws IOException {
+    this.repertoire = repertoire;
+    this.tailleSegment = tailleSegment;
+    this.fsync = fsync;
+    Files.createDirectories(repertoire);
+    long derniere = sequenceMinimale;
+    for (Path p : segments()) {
+      derniere = Math.max(derniere, relire(p, Long.MIN_VALUE, null, true));
+    }
+    this.derniereSequence = derniere;
+    this.derniereEcrite = derniere;
+    this.derniereDurable = derniere;
+    ouvrirSegment(derniere + 1);
+  }
+
+  /**
+   * Ajoute un mouvement au journal (sans attendre qu'il soit durable).
+   *
+   * @return la séquence de l'enregistrement, à passer à {@link #sync}
+   */
+  long append(char type, String numeroCompte, String contrepartie, long montant, long horodatage,
+      UUID idVirement) throws IOException {
+    verrouEcriture.lock();
+    try {
+      if (tailleCourante + TAILLE_ENREGISTREMENT > tailleSegment) {
+        changerSegment();
+      }
+      long sequence = derniereSequence + 1;
+      tampon.clear();
+      tampon.putLong(sequence);
+      tampon.put((byte) type);
+      putCompte(numeroCompte);
+      putCompte(contrepartie);
+      tampon.putLong(montant);
+      tampon.putLong(horodatage);
+      tampon.putLong(idVirement == null ? 0 : idVirement.getMostSignificantBits());
+      tampon.putLong(idVirement == null ? 0 : idVirement.getLeastSignificantBits());
+      crc.reset();
+      crc.update(tampon.array(), 0, TAILLE_ENREGISTREMENT - 4);
+      tampon.putInt((int) crc.getValue());
+      tampon.flip();
+      while (tampon.hasRemaining()) {
+        segment.write(tampon);
+      }
+      tailleCourante += TAILLE_ENREGISTREMENT;
+      derniereSequence = sequence;
+      derniereEcrite = sequence;
+      return sequence;
+    } finally {
+      verrouEcriture.unlock();
+    }
+  }
+
+  /**
+   * Attend que tous les enregistrements jusqu'à {@code sequence} inclus soient
+   * sur stockage durable. Un seul fsync couvre tous les enregistrements écrits
+   * avant lui : les threads en attente au même moment n'en font qu'un.
+   */
+  void sync(long sequence) throws IOException {
+    if (!fsync || derniereDurable >= sequence) {
+      return;
+    }
+    verrouSync.lock();
+    try {
+      while (derniereDurable < sequence) {
+        FileChannel aForcer;
+        long cible;
+        verrouEcriture.lock();
+        try {
+          aForcer = segment;
+          cible = derniereEcrite;
+        } finally {
+          verrouEcriture.unlock();
+        }
+        try {
+          aForcer.force(false);
+        } catch (ClosedChannelException e) {
+          if (aForcer == segment) {
+            throw e;
+          }
+          // changement de segment entre-temps : il a été forcé avant sa fermeture
+          continue;
+        }
+        derniereDurable = Math.max(derniereDurable, cible);
+      }
+    } finally {
+      verrouSync.unlock();
+    }
+  }
+
+  long derniereSequence() {
+    return derniereEcrite;
+  }
+
+  /**
+   * Relit les enregistrements de séquence strictement supérieure à
+   * {@code apres}, dans l'ordre.
+   */
+  void relire(long apres, Consumer<Enregistrement> consommateur) throws IOException {
+    for (Path p : segments()) {
+      relire(p, apres, consommateur, false);
+    }
+  }
+
+  /**
+   * Supprime les segments dont tous les enregistrements ont une séquence
+   * inférieure ou égale à {@code sequence} (déjà reportés en base). Le
+   * segment en cours d'écriture n'est jamais supprimé.
+   */
+  void purger(long sequence) throws IOException {
+    List<Path> segments = segments();
+    // le dernier segment (celui en cours d'écriture) n'est jamais candidat
+    for (int i = 0; i + 1 < segments.size(); i++) {
+      // le segment suivant commence au plus tard juste après la séquence
+      // reportée : celui-ci ne contient que des enregistrements reportés
+      if (premiereSequence(segments.get(i + 1)) <= sequence + 1) {
+        Files.deleteIfExists(segments.get(i));
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    verrouEcriture.lock();
+    try {
+      if (segment.isOpen()) {
+        if (fsync) {
+          segment.force(false);
+        }
+        segment.close();
+      }
+      derniereDurable = derniereEcrite;
+    } finally {
+      verrouEcriture.unlock();
+    }
+  }
+
+  private void putCompte(String numeroCompte) {
+    byte[] octets = new byte[LONGUEUR_COMPTE];
+    if (numeroCompte != null) {
+      byte[] valeur = numeroCompte.getBytes(StandardCharsets.US_ASCII);
+      if (valeur.length != LONGUEUR_COMPTE) {
+        throw new IllegalArgumentException("Numéro de compte invalide: " + numeroCompte);
+      }
+      octets = valeur;
+    }
+    tampon.put(octets);
+  }
+
+  private static String getCompte(ByteBuffer b) {
+    byte[] octets = new byte[LONGUEUR_COMPTE];
+    b.get(octets);
+    return octets[0] == 0 ? null : new String(octets, StandardCharsets.US_ASCII);
+  }
+
+  private void changerSegment() throws IOException {
+    if (fsync) {
+      segment.force(false);
+    }
+    segment.close();
+    derniereDurable = Math.max(derniereDurable, derniereEcrite);
+    ouvrirSegment(derniereSequence + 1);
+  }
+
+  private void ouvrirSegment(long premiereSequence) throws IOException {
+    Path p = repertoire.resolve(PREFIXE + String.format("%020d", premiereSequence) + SUFFIXE);
+    segment = FileChannel.open(p, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    tailleCourante = segment.size();
+    segment.position(tailleCourante);
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> fichiers = Files.list(repertoire)) {
+      return fichiers
+          .filter(p -> p.getFileName().toString().startsWith(PREFIXE) && p.getFileName().toString().endsWith(SUFFIXE))
+          .sorted()
+          .toList();
+    }
+  }
+
+  private static long premiereSequence(Path segment) {
+    String nom = segment.getFileName().toString();
+    return Long.parseLong(nom.substring(PREFIXE.length(), nom.length() - SUFFIXE.length()));
+  }
+
+  /**
+   * Relit un segment.
+   *
+   * @param tronquer
+   *                 : tronque le segment après le dernier enregistrement
+   *                 valide (à l'ouverture du journal)
+   * @return la séquence du dernier enregistrement valide
+   */
+  private static long relire(Path p, long apres, Consumer<Enregistrement> consommateur, boolean tronquer)
+      throws IOException {
+    long derniere = 0;
+    CRC32C controle = new CRC32C();
+    ByteBuffer b = ByteBuffer.allocate(TAILLE_ENREGISTREMENT);
+    try (FileChannel canal = FileChannel.open(p, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long position = 0;
+      long taille = canal.size();
+      while (position + TAILLE_ENREGISTREMENT <= taille) {
+        b.clear();
+        while (b.hasRemaining() && canal.read(b, position + b.position()) >= 0) {
+          // lecture complète de l'enregistrement
+        }
+        controle.reset();
+        controle.update(b.array(), 0, TAILLE_ENREGISTREMENT - 4);
+        b.flip();
+        long sequence = b.getLong();
+        if (b.getInt(TAILLE_ENREGISTREMENT - 4) != (int) controle.getValue()) {
+          LOGGER.warn("Enregistrement invalide dans {} à la position {} : fin du journal", p, position);
+          break;
+        }
+        char type = (char) b.get();
+        String compte = getCompte(b);
+        String contrepartie = getCompte(b);
+        long montant = b.getLong();
+        long horodatage = b.getLong();
+        long msb = b.getLong();
+        long lsb = b.getLong();
+        if (sequence > apres && consommateur != null) {
+          consommateur.accept(new Enregistrement(sequence, type, compte, contrepartie, montant, horodatage,
+              msb == 0 && lsb == 0 ? null : new UUID(msb, lsb)));
+        }
+        derniere = sequence;
+        position += TAILLE_ENREGISTREMENT;
+      }
+      if (tronquer && position < taille) {
+        LOGGER.warn("Troncature de {} octets en fin de {}", taille - position, p);
+        canal.truncate(position);
+        canal.force(true);
+      }
+    }
+    return derniere;
+  }
+}
@@ -0,0 +1,26 @@
+package com.iut.banque.exceptions;
+
+/**
+ * Exception utilisée pour signaler qu'une requête portant un en-tête
+ * Idempotency-Key ne peut pas être traitée : la même clé est encore en cours
+ * d'exécution, ou a déjà été utilisée pour une requête différente.
+ */
+public class IdempotencyConflictException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	private final boolean enCours;
+
+	public IdempotencyConflictException(String message, boolean enCours) {
+		super(message);
+		this.enCours = enCours;
+	}
+
+	/**
+	 * Vrai si la requête d'origine est encore en cours (la requête peut être
+	 * réessayée telle quelle), faux si la clé a servi à une autre requête.
+	 */
+	public boolean isEnCours() {
+		return enCours;
+	}
+}
@@ -0,0 +1,35 @@
+package com.iut.banque.exceptions;
+
+import java.time.Duration;
+
+/**
+ * Exception utilisée pour signaler qu'une tentative de connexion est refusée
+ * car trop de tentatives ont été faites récemment pour cet identifiant ou
+ * depuis cette adresse.
+ */
+public class TooManyAttemptsException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Duration retryAfter;
+
+	public TooManyAttemptsException(String message, Duration retryAfter) {
+		super(message);
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * Délai après lequel une nouvelle tentative sera acceptée.
+	 */
+	public Duration getRetryAfter() {
+		return retryAfter;
+	}
+
+	/**
+	 * Délai en secondes entières (au moins 1), pour l'en-tête Retry-After.
+	 */
+	public long getRetryAfterSeconds() {
+		long secondes = retryAfter.getSeconds() + (retryAfter.getNano() > 0 ? 1 : 0);
+		return Math.max(1, secondes);
+	}
+}
@@ -1,6 +1,11 @@
 package com.iut.banque.facade;
 
 import java.util.List;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
 import com.iut.banque.constants.LoginConstants;
 import com.iut.banque.exceptions.IllegalFormatException;
 import com.iut.banque.exceptions.IllegalOperationException;
@@ -9,7 +14,7 @@ import com.iut.banque.exceptions.TechnicalException;
 import com.iut.banque.modele.Client;
 import com.iut.banque.modele.Compte;
 import com.iut.banque.modele.CompteAvecDecouvert;
-import com.iut.banque.modele.Gestionnaire;
+import com.iut.banque.modele.Montant;
 import com.iut.banque.modele.Utilisateur;
 
 public class BanqueFacade {
@@ -29,12 +34,29 @@ public class BanqueFacade {
 	}
 
 	/**
-	 * Getter de l'utilisateur actuellement connecté à l'application
+	 * Getter de l'utilisateur connecté pour la requête en cours (celui du jeton
+	 * porté par la requête, voir TokenService).
 	 * 
-	 * @return Utilisateur : celui qui est connecté
+	 * @return Utilisateur : celui qui est connecté, null si la requête est
+	 *         anonyme
 	 */
 	public Utilisateur getConnectedUser() {
-		return loginManager.getConnectedUser();
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		if (authentication == null || !authentication.isAuthenticated()
+				|| authentication instanceof AnonymousAuthenticationToken) {
+			return null;
+		}
+		return banqueManager.getUserById(authentication.getName());
+	}
+
+	/**
+	 * Vrai si l'utilisateur de la requête en cours est un gestionnaire. Le rôle
+	 * est lu dans le contexte de sécurité, sans accès à la base.
+	 */
+	private static boolean isGestionnaireConnecte() {
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		return authentication != null && authentication.isAuthenticated() && authentication.getAuthorities()
+				.stream().anyMatch(a -> "ROLE_GESTIONNAIRE".equals(a.getAuthority()));
 	}
 
 	/**
@@ -62,11 +84,13 @@ public class BanqueFacade {
 	 *                : un objet de type Compte correspondant au compte qu'on veut
 	 *                créditer
 	 * @param montant
-	 *                : un double correspondant au montant qu'on veut créditer
+	 *                : le montant qu'on veut créditer
 	 * @throws IllegalFormatException
 	 *                                si le param montant est négatif
+	 * @throws IllegalOperationException
+	 *                                si le compte n'existe pas
 	 */
-	public void crediter(Compte compte, double montant) throws IllegalFormatException {
+	public void crediter(Compte compte, Montant montant) throws IllegalFormatException, IllegalOperationException {
 		this.banqueManager.crediter(compte, montant);
 	}
 
@@ -77,15 +101,18 @@ public class BanqueFacade {
 	 *                : un objet de type Compte correspondant au compte qu'on veut
 	 *                débiter
 	 * @param montant
-	 *                : un double correspondant au montant qu'on veut débiter
+	 *                : le montant qu'on veut débiter
 	 * @throws InsufficientFundsException
 	 *                                    dans le cas où le retrait n'est pas
 	 *                                    autorisé (dépassement de
 	 *                                    découvert autorisé par exemple)
 	 * @throws IllegalFormatException
 	 *                                    : si le param montant est négatif
+	 * @throws IllegalOperationException
+	 *                                    si le compte n'existe pas
 	 */
-	public void debiter(Compte compte, double montant) throws InsufficientFundsException, IllegalFormatException {
+	public void debiter(Compte compte, Montant montant)
+			throws InsufficientFundsException, IllegalFormatException, IllegalOperationException {
 		this.banqueManager.debiter(compte, montant);
 	}
 
@@ -100,10 +127,11 @@ public class BanqueFacade {
 	}
 
 	/**
-	 * Méthode pour déconnecter l'utilisateur.
+	 * Méthode pour déconnecter l'utilisateur de la requête en cours. Les jetons
+	 * étant sans état, un jeton déjà émis reste valable jusqu'à son expiration.
 	 */
 	public void logout() {
-		loginManager.logout();
+		SecurityContextHolder.clearContext();
 	}
 
 	/**
@@ -122,7 +150,7 @@ public class BanqueFacade {
 	 *                                : si le numeroCompte n'est pas du bon format
 	 */
 	public void createAccount(String numeroCompte, Client client) throws TechnicalException, IllegalFormatException {
-		if (loginManager.getConnectedUser() instanceof Gestionnaire) {
+		if (isGestionnaireConnecte()) {
 			banqueManager.createAccount(numeroCompte, client);
 		}
 	}
@@ -146,9 +174,9 @@ public class BanqueFacade {
 	 *                                   format
 	 * @throws IllegalOperationException
 	 */
-	public void createAccount(String numeroCompte, Client client, double decouvertAutorise)
+	public void createAccount(String numeroCompte, Client client, Montant decouvertAutorise)
 			throws TechnicalException, IllegalFormatException, IllegalOperationException {
-		if (loginManager.getConnectedUser() instanceof Gestionnaire) {
+		if (isGestionnaireConnecte()) {
 			banqueManager.createAccount(numeroCompte, client, decouvertAutorise);
 		}
 	}
@@ -166,7 +194,7 @@ public class BanqueFacade {
 	 *                                   persistant.
 	 */
 	public void deleteAccount(Compte compte) throws IllegalOperationException, TechnicalException {
-		if (loginManager.getConnectedUser() instanceof Gestionnaire) {
+		if (isGestionnaireConnecte()) {
 			banqueManager.deleteAccount(compte);
 		}
 	}
@@ -189,7 +217,7 @@ public class BanqueFacade {
 	 */
 	public void createManager(String nom, String prenom, String adresse, boolean male, String userId, String userPwd)
 			throws TechnicalException, IllegalArgumentException, IllegalFormatException {
-		if (loginManager.getConnectedUser() instanceof Gestionnaire) {
+		if (isGestionnaireConnecte()) {
 			banqueManager.createManager(nom, prenom, adresse, male, userId, userPwd);
 		}
 	}
@@ -219,7 +247,7 @@ public class BanqueFacade {
 	public void createClient(String nom, String prenom, String adresse, boolean male, String userId, String userPwd,
 			String numeroClient)
 			throws IllegalOperationException, TechnicalException, IllegalArgumentException, IllegalFormatException {
-		if (loginManager.getConnectedUser() instanceof Gestionnaire) {
+		if (isGestionnaireConnecte()) {
 			banqueManager.createClient(nom, prenom, adresse, male, userId, userPwd, numeroClient);
 		}
 	}
@@ -238,7 +266,7 @@ public class BanqueFacade {
 	 *                                   dans la base
 	 */
 	public void deleteUser(String userId) throws IllegalOperationException, TechnicalException {
-		if (loginManager.getConnectedUser() instanceof Gestionnaire) {
+		if (isGestionnaireConnecte()) {
 			banqueManager.deleteUser(userId);
 		}
 	}
@@ -249,7 +277,7 @@ public class BanqueFacade {
 	 * Charge la banqueManager avec une map de tous les clients
 	 */
 	public void loadClients() {
-		if (loginManager.getConnectedUser() instanceof Gestionnaire) {
+		if (isGestionnaireConnecte()) {
 			banqueManager.loadAllClients();
 		}
 	}
@@ -275,15 +303,15 @@ public class BanqueFacade {
 	 *                         veut
 	 *                         modifier
 	 * @param nouveauDecouvert
-	 *                         : double correspondant au nouveau montant de
+	 *                         : Montant correspondant au nouveau montant de
 	 *                         découvert qu'on
 	 *                         veut assigner
 	 * @throws IllegalFormatException
 	 * @throws IllegalOperationException
 	 */
-	public void changeDecouvert(CompteAvecDecouvert compte, double nouveauDecouvert)
+	public void changeDecouvert(CompteAvecDecouvert compte, Montant nouveauDecouvert)
 			throws IllegalFormatException, IllegalOperationException {
-		if (loginManager.getConnectedUser() instanceof Gestionnaire) {
+		if (isGestionnaireConnecte()) {
 			banqueManager.changeDecouvert(compte, nouveauDecouvert);
 		}
 	}
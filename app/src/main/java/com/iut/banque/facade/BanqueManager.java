@@ -1,21 +1,34 @@
 package com.iut.banque.facade;
 
-import com.iut.banque.cryptage.PasswordHasher;
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.cryptage.PasswordStorage;
+import com.iut.banque.engine.BalanceEngine;
 import com.iut.banque.exceptions.IllegalFormatException;
 import com.iut.banque.exceptions.IllegalOperationException;
 import com.iut.banque.exceptions.InsufficientFundsException;
 import com.iut.banque.exceptions.TechnicalException;
+import com.iut.banque.metrics.OperationMetrics;
+import com.iut.banque.metrics.OperationMetrics.AccountType;
+import com.iut.banque.metrics.OperationMetrics.Kind;
 import com.iut.banque.modele.Client;
 import com.iut.banque.modele.Compte;
 import com.iut.banque.modele.CompteAvecDecouvert;
 import com.iut.banque.modele.Gestionnaire;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.modele.Operation;
 import com.iut.banque.modele.Utilisateur;
 import com.iut.banque.repository.ClientRepository;
 import com.iut.banque.repository.CompteRepository;
+import com.iut.banque.repository.OperationRepository;
 import com.iut.banque.repository.UtilisateurRepository;
+import com.iut.banque.security.CredentialCache;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,13 +39,37 @@ public class BanqueManager {
   private final ClientRepository clientRepository;
   private final CompteRepository compteRepository;
   private final UtilisateurRepository utilisateurRepository;
+  private final OperationRepository operationRepository;
+  private final CredentialCache credentialCache;
+  private final PasswordStorage passwordStorage;
+  private final LookupCache lookupCache;
+  private final OperationMetrics operationMetrics;
+  private final BalanceEngine balanceEngine;
 
+  /**
+   * @param balanceEngine
+   *                      : moteur de soldes à écriture différée, null s'il
+   *                      n'est pas activé ; les dépôts et retraits passent
+   *                      alors par lui, comme dans BanqueService
+   */
   public BanqueManager(ClientRepository clientRepository,
       CompteRepository compteRepository,
-      UtilisateurRepository utilisateurRepository) {
+      UtilisateurRepository utilisateurRepository,
+      OperationRepository operationRepository,
+      CredentialCache credentialCache,
+      PasswordStorage passwordStorage,
+      LookupCache lookupCache,
+      OperationMetrics operationMetrics,
+      @Nullable BalanceEngine balanceEngine) {
     this.clientRepository = clientRepository;
     this.compteRepository = compteRepository;
     this.utilisateurRepository = utilisateurRepository;
+    this.operationRepository = operationRepository;
+    this.credentialCache = credentialCache;
+    this.passwordStorage = passwordStorage;
+    this.lookupCache = lookupCache;
+    this.operationMetrics = operationMetrics;
+    this.balanceEngine = balanceEngine;
   }
 
   /** Méthode utilisée pour les tests unitaires (historique). */
@@ -41,10 +78,13 @@ public class BanqueManager {
     return compteRepository.findById(id).orElse(null);
   }
 
-  /** Méthode utilisée pour les tests unitaires (historique). */
+  /**
+   * Utilisateur servi par le {@link LookupCache} (objet partagé, à ne pas
+   * modifier).
+   */
   @Transactional(readOnly = true)
   public Utilisateur getUserById(String userId) {
-    return utilisateurRepository.findById(userId).orElse(null);
+    return lookupCache.utilisateur(userId, id -> utilisateurRepository.findById(id).orElse(null));
   }
 
   @Transactional(readOnly = true)
@@ -88,33 +128,71 @@ public class BanqueManager {
   }
 
   public void createAccount(String numeroCompte, Client client) throws TechnicalException, IllegalFormatException {
+    long debut = System.nanoTime();
+    try {
+      creerCompte(numeroCompte, client);
+    } catch (TechnicalException | IllegalFormatException | RuntimeException e) {
+      operationMetrics.failure(Kind.CREATE_ACCOUNT, AccountType.SANS_DECOUVERT, debut, e);
+      throw e;
+    }
+    operationMetrics.success(Kind.CREATE_ACCOUNT, AccountType.SANS_DECOUVERT, debut);
+  }
+
+  private void creerCompte(String numeroCompte, Client client) throws TechnicalException, IllegalFormatException {
     if (compteRepository.existsById(numeroCompte)) {
       throw new TechnicalException("Numéro de compte déjà utilisé.");
     }
     // solde initial = 0
-    Compte compte = new com.iut.banque.modele.CompteSansDecouvert(numeroCompte, 0, client);
+    Compte compte = new com.iut.banque.modele.CompteSansDecouvert(numeroCompte, Montant.ZERO, client);
     client.addAccount(compte);
     clientRepository.save(client);
     compteRepository.save(compte);
   }
 
-  public void createAccount(String numeroCompte, Client client, double decouvertAutorise)
+  public void createAccount(String numeroCompte, Client client, Montant decouvertAutorise)
       throws TechnicalException, IllegalFormatException, IllegalOperationException {
+    long debut = System.nanoTime();
+    try {
+      creerCompte(numeroCompte, client, decouvertAutorise);
+    } catch (TechnicalException | IllegalFormatException | IllegalOperationException | RuntimeException e) {
+      operationMetrics.failure(Kind.CREATE_ACCOUNT, AccountType.AVEC_DECOUVERT, debut, e);
+      throw e;
+    }
+    operationMetrics.success(Kind.CREATE_ACCOUNT, AccountType.AVEC_DECOUVERT, debut);
+  }
 
+  private void creerCompte(String numeroCompte, Client client, Montant decouvertAutorise)
+      throws TechnicalException, IllegalFormatException, IllegalOperationException {
     if (compteRepository.existsById(numeroCompte)) {
       throw new TechnicalException("Numéro de compte déjà utilisé.");
     }
-    CompteAvecDecouvert compte = new CompteAvecDecouvert(numeroCompte, 0, decouvertAutorise, client);
+    CompteAvecDecouvert compte = new CompteAvecDecouvert(numeroCompte, Montant.ZERO, decouvertAutorise, client);
     client.addAccount(compte);
     clientRepository.save(client);
     compteRepository.save(compte);
   }
 
+  /**
+   * Supprime le compte hors de toute transaction englobante : avec le moteur
+   * à écriture différée, la suppression doit être validée avant que le moteur
+   * ne rende la main (voir {@link BalanceEngine#supprimer}).
+   */
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
   public void deleteAccount(Compte c) throws IllegalOperationException {
     if (c == null) {
       return;
     }
-    compteRepository.deleteById(c.getNumeroCompte());
+    String numeroCompte = c.getNumeroCompte();
+    if (balanceEngine != null) {
+      try {
+        balanceEngine.supprimer(numeroCompte, () -> compteRepository.deleteById(numeroCompte));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    } else {
+      compteRepository.deleteById(numeroCompte);
+    }
+    lookupCache.invalidateAccount(numeroCompte);
   }
 
   public void deleteUser(String userId) throws IllegalOperationException {
@@ -122,29 +200,124 @@ public class BanqueManager {
       return;
     }
     utilisateurRepository.deleteById(userId);
+    lookupCache.invalidateUser(userId);
   }
 
-  public void debiter(Compte compte, double montant) throws InsufficientFundsException, IllegalFormatException {
-    compte.debiter(montant);
-    compteRepository.save(compte);
+  /**
+   * Débite le compte par une requête UPDATE conditionnelle (par le moteur de
+   * soldes s'il est activé), sans relire ni réécrire l'entité. L'objet passé
+   * en paramètre n'est pas modifié : il faut recharger le compte pour obtenir
+   * le nouveau solde.
+   *
+   * @throws IllegalOperationException
+   *           si le compte n'existe pas en base
+   */
+  public void debiter(Compte compte, Montant montant)
+      throws InsufficientFundsException, IllegalFormatException, IllegalOperationException {
+    long debut = System.nanoTime();
+    try {
+      debiterCompte(compte, montant);
+    } catch (InsufficientFundsException | IllegalFormatException | IllegalOperationException | RuntimeException e) {
+      operationMetrics.failure(Kind.DEBIT, AccountType.of(compte), debut, e);
+      throw e;
+    }
+    operationMetrics.success(Kind.DEBIT, AccountType.of(compte), debut);
   }
 
-  public void crediter(Compte compte, double montant) throws IllegalFormatException {
-    compte.crediter(montant);
-    compteRepository.save(compte);
+  private void debiterCompte(Compte compte, Montant montant)
+      throws InsufficientFundsException, IllegalFormatException, IllegalOperationException {
+    checkMontant(montant);
+    lookupCache.invalidateAccount(compte.getNumeroCompte());
+    if (balanceEngine != null) {
+      balanceEngine.debiter(compte.getNumeroCompte(), montant);
+      return;
+    }
+    if (compteRepository.debiter(compte.getNumeroCompte(), montant) == 0) {
+      if (!compteRepository.existsById(compte.getNumeroCompte())) {
+        throw new IllegalOperationException("Compte introuvable: " + compte.getNumeroCompte());
+      }
+      throw new InsufficientFundsException("Le solde du compte " + compte.getNumeroCompte() + " est insuffisant.");
+    }
+    operationRepository.save(Operation.debit(compte.getNumeroCompte(), montant));
   }
 
-  public void changeDecouvert(CompteAvecDecouvert compte, double nouveauDecouvert)
+  /**
+   * Crédite le compte par une requête UPDATE (par le moteur de soldes s'il
+   * est activé), sans relire ni réécrire l'entité. L'objet passé en paramètre
+   * n'est pas modifié.
+   *
+   * @throws IllegalOperationException
+   *           si le compte n'existe pas en base
+   */
+  public void crediter(Compte compte, Montant montant) throws IllegalFormatException, IllegalOperationException {
+    long debut = System.nanoTime();
+    try {
+      crediterCompte(compte, montant);
+    } catch (IllegalFormatException | IllegalOperationException | RuntimeException e) {
+      operationMetrics.failure(Kind.CREDIT, AccountType.of(compte), debut, e);
+      throw e;
+    }
+    operationMetrics.success(Kind.CREDIT, AccountType.of(compte), debut);
+  }
+
+  private void crediterCompte(Compte compte, Montant montant)
       throws IllegalFormatException, IllegalOperationException {
-    compte.setDecouverAutorise(nouveauDecouvert);
-    compteRepository.save(compte);
+    checkMontant(montant);
+    lookupCache.invalidateAccount(compte.getNumeroCompte());
+    if (balanceEngine != null) {
+      balanceEngine.crediter(compte.getNumeroCompte(), montant);
+      return;
+    }
+    if (compteRepository.crediter(compte.getNumeroCompte(), montant) == 0) {
+      throw new IllegalOperationException("Compte introuvable: " + compte.getNumeroCompte());
+    }
+    operationRepository.save(Operation.credit(compte.getNumeroCompte(), montant));
+  }
+
+  private static void checkMontant(Montant montant) throws IllegalFormatException {
+    if (montant == null || montant.estNegatif()) {
+      throw new IllegalFormatException("Le montant ne peux être négatif");
+    }
+  }
+
+  /**
+   * Change le découvert par un UPDATE conditionnel sur la seule colonne du
+   * découvert : le solde de l'entité reçue, peut-être périmé, n'est pas
+   * réécrit, et la base vérifie le découvert sur le solde actuel. Avec le
+   * moteur à écriture différée, l'UPDATE passe par
+   * {@link BalanceEngine#ecrireEnBase}, hors de toute transaction englobante.
+   */
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public void changeDecouvert(CompteAvecDecouvert compte, Montant nouveauDecouvert)
+      throws IllegalFormatException, IllegalOperationException {
+    if (nouveauDecouvert == null || nouveauDecouvert.estNegatif()) {
+      throw new IllegalFormatException("Un découvert doit forcement être positif.");
+    }
+    String numeroCompte = compte.getNumeroCompte();
+    int[] modifies = new int[1];
+    if (balanceEngine != null) {
+      try {
+        balanceEngine.ecrireEnBase(List.of(numeroCompte),
+            () -> modifies[0] = compteRepository.changerDecouvert(numeroCompte, nouveauDecouvert));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    } else {
+      modifies[0] = compteRepository.changerDecouvert(numeroCompte, nouveauDecouvert);
+    }
+    lookupCache.invalidateAccount(numeroCompte);
+    if (modifies[0] == 0) {
+      throw new IllegalOperationException("Le nouveau découvert est incompatible avec le solde actuel");
+    }
   }
 
   public void updatePassword(String userId, String newPassword) throws TechnicalException {
     Utilisateur user = utilisateurRepository.findById(userId)
         .orElseThrow(() -> new TechnicalException("Utilisateur introuvable."));
-    user.setUserPwd(PasswordHasher.hashPassword(newPassword));
+    user.setUserPwd(passwordStorage.encode(newPassword));
     utilisateurRepository.save(user);
+    credentialCache.invalidate(userId);
+    lookupCache.invalidateUser(userId);
   }
 
   @Transactional(readOnly = true)
@@ -1,12 +1,18 @@
 package com.iut.banque.facade;
 
+import com.iut.banque.cache.LookupCache;
 import com.iut.banque.constants.LoginConstants;
-import com.iut.banque.cryptage.PasswordHasher;
+import com.iut.banque.cryptage.PasswordStorage;
 import com.iut.banque.exceptions.IllegalOperationException;
+import com.iut.banque.metrics.OperationMetrics;
+import com.iut.banque.metrics.OperationMetrics.AccountType;
+import com.iut.banque.metrics.OperationMetrics.Kind;
+import com.iut.banque.metrics.OperationMetrics.Outcome;
 import com.iut.banque.modele.Gestionnaire;
 import com.iut.banque.modele.Utilisateur;
 import com.iut.banque.repository.UtilisateurRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.iut.banque.security.CredentialCache;
+import com.iut.banque.service.PasswordUpgradeService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,16 +30,36 @@ import org.springframework.transaction.annotation.Transactional;
 public class LoginManager {
 
   private final UtilisateurRepository utilisateurRepository;
-  private final PasswordEncoder passwordEncoder;
-  // utilisateur connecté en mémoire (simple compatibilité avec l'existant)
-  private Utilisateur connectedUser;
+  private final PasswordStorage passwordStorage;
+  private final CredentialCache credentialCache;
+  private final PasswordUpgradeService passwordUpgradeService;
+  private final LookupCache lookupCache;
+  private final OperationMetrics operationMetrics;
 
-  public LoginManager(UtilisateurRepository utilisateurRepository, PasswordEncoder passwordEncoder) {
+  public LoginManager(UtilisateurRepository utilisateurRepository, PasswordStorage passwordStorage,
+      CredentialCache credentialCache, PasswordUpgradeService passwordUpgradeService, LookupCache lookupCache,
+      OperationMetrics operationMetrics) {
     this.utilisateurRepository = utilisateurRepository;
-    this.passwordEncoder = passwordEncoder;
+    this.passwordStorage = passwordStorage;
+    this.credentialCache = credentialCache;
+    this.passwordUpgradeService = passwordUpgradeService;
+    this.lookupCache = lookupCache;
+    this.operationMetrics = operationMetrics;
   }
 
+  /**
+   * Connexion mesurée dans banque.operations (operation=login) : succès,
+   * refus (identifiants invalides) ou erreur.
+   */
   public int tryLogin(String userCde, String userPwd) {
+    long debut = System.nanoTime();
+    int code = connecter(userCde, userPwd);
+    operationMetrics.record(Kind.LOGIN, AccountType.NONE, debut, code > 0 ? Outcome.SUCCESS
+        : code == LoginConstants.LOGIN_FAILED ? Outcome.REJECTED : Outcome.ERROR);
+    return code;
+  }
+
+  private int connecter(String userCde, String userPwd) {
     try {
       if (userCde == null || userPwd == null) {
         return LoginConstants.ERROR;
@@ -43,11 +69,16 @@ public class LoginManager {
         return LoginConstants.LOGIN_FAILED;
       }
 
-      if (!passwordMatches(userPwd, user.getUserPwd())) {
+      String stored = user.getUserPwd();
+      if (!passwordMatches(userCde, userPwd, stored)) {
         return LoginConstants.LOGIN_FAILED;
       }
-      // mémoriser l'utilisateur connecté
-      this.connectedUser = user;
+      if (passwordStorage.needsUpgrade(stored)) {
+        // ancien hash : réencodé en arrière-plan avec l'encodeur courant
+        passwordUpgradeService.upgrade(userCde, stored, userPwd);
+      }
+      // aucun état n'est conservé ici : la session (pages web) ou le jeton
+      // (API) porte l'utilisateur connecté
       return (user instanceof Gestionnaire)
           ? LoginConstants.MANAGER_IS_CONNECTED
           : LoginConstants.USER_IS_CONNECTED;
@@ -56,14 +87,6 @@ public class LoginManager {
     }
   }
 
-  public Utilisateur getConnectedUser() {
-    return this.connectedUser;
-  }
-
-  public void logout() {
-    this.connectedUser = null;
-  }
-
   @Transactional
   public void changePassword(String userId, String currentPassword, String newPassword) throws IllegalOperationException {
     if (userId == null || userId.isBlank()) {
@@ -79,31 +102,32 @@ public class LoginManager {
     Utilisateur user = utilisateurRepository.findById(userId)
         .orElseThrow(() -> new IllegalOperationException("Utilisateur introuvable"));
 
-    if (!passwordMatches(currentPassword, user.getUserPwd())) {
+    if (!passwordMatches(userId, currentPassword, user.getUserPwd())) {
       throw new IllegalOperationException("Mot de passe actuel incorrect");
     }
 
-    user.setUserPwd(passwordEncoder.encode(newPassword));
+    user.setUserPwd(passwordStorage.encode(newPassword));
     utilisateurRepository.save(user);
+    credentialCache.invalidate(userId);
+    lookupCache.invalidateUser(userId);
   }
 
-  private boolean passwordMatches(String rawPassword, String storedHash) {
+  /**
+   * Vérifie le mot de passe. Une vérification réussie est mémorisée dans le
+   * {@link CredentialCache} : les connexions suivantes du même utilisateur
+   * avec le même mot de passe évitent le calcul BCrypt.
+   */
+  private boolean passwordMatches(String userId, String rawPassword, String storedHash) {
     if (storedHash == null) {
       return false;
     }
-
-    // Compatibilité migration:
-    // 1) hash moderne (bcrypt / autre impl PasswordEncoder)
-    try {
-      if (passwordEncoder.matches(rawPassword, storedHash)) {
-        return true;
-      }
-    } catch (RuntimeException ignored) {
-      // format inconnu pour l'encodeur courant => fallback legacy SHA-256
+    if (credentialCache.isVerified(userId, rawPassword, storedHash)) {
+      return true;
     }
-
-    // 2) hash legacy présent dans les scripts SQL
-    String actualLegacyHash = PasswordHasher.hashPassword(rawPassword);
-    return actualLegacyHash.equals(storedHash);
+    if (passwordStorage.matches(rawPassword, storedHash)) {
+      credentialCache.put(userId, rawPassword, storedHash);
+      return true;
+    }
+    return false;
   }
 }
@@ -10,6 +10,7 @@ import com.iut.banque.modele.Compte;
 import com.iut.banque.modele.CompteAvecDecouvert;
 import com.iut.banque.modele.CompteSansDecouvert;
 import com.iut.banque.modele.Gestionnaire;
+import com.iut.banque.modele.Montant;
 import com.iut.banque.modele.Utilisateur;
 
 public interface IDao {
@@ -29,8 +30,8 @@ public interface IDao {
 	 *                                   CompteSansDecouvert échoue
 	 * @throws IllegalOperationException
 	 */
-	CompteAvecDecouvert createCompteAvecDecouvert(double solde,
-			String numeroCompte, double decouvertAutorise, Client client)
+	CompteAvecDecouvert createCompteAvecDecouvert(Montant solde,
+			String numeroCompte, Montant decouvertAutorise, Client client)
 			throws TechnicalException, IllegalFormatException, IllegalOperationException;
 
 	/**
@@ -47,7 +48,7 @@ public interface IDao {
 	 *                            l'appel du constructeur du CompteSansDecouvert
 	 *                            échoue
 	 */
-	CompteSansDecouvert createCompteSansDecouvert(double solde,
+	CompteSansDecouvert createCompteSansDecouvert(Montant solde,
 			String numeroCompte, Client client) throws TechnicalException,
 			IllegalFormatException;
 
@@ -0,0 +1,211 @@
+package com.iut.banque.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.iut.banque.exceptions.IllegalFormatException;
+import com.iut.banque.exceptions.IllegalOperationException;
+import com.iut.banque.exceptions.InsufficientFundsException;
+import com.iut.banque.modele.Compte;
+import com.iut.banque.modele.CompteAvecDecouvert;
+import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.repository.CompteRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Mesures des opérations bancaires : virement, crédit, débit, connexion et
+ * création de compte, publiées sur /actuator/prometheus.
+ * <ul>
+ * <li>banque.operations : timer avec histogramme (percentiles calculés par
+ * Prometheus, agrégeables entre nœuds), tags operation, account_type
+ * (CompteAvecDecouvert, CompteSansDecouvert, none) et outcome (success,
+ * rejected, error) ;</li>
+ * <li>banque.operations.rejected : compteur des refus, tag exception
+ * (InsufficientFundsException, IllegalOperationException,
+ * IllegalFormatException).</li>
+ * </ul>
+ * Toutes les combinaisons de tags sont enregistrées au démarrage et rangées
+ * dans des tableaux indexés par les énumérations : une mesure ne construit
+ * ni tags ni objet, elle n'alloue rien. La durée mesurée est celle de la
+ * méthode de service, sans le commit ; la durée bout en bout de chaque
+ * endpoint est dans http.server.requests.
+ *
+ * Le type d'un compte connu par son seul numéro (crédit, débit, virement)
+ * est lu une fois en base puis gardé en cache : il ne change jamais.
+ */
+@Component
+public class OperationMetrics {
+
+  public enum Kind {
+    TRANSFER("transfer"),
+    CREDIT("credit"),
+    DEBIT("debit"),
+    LOGIN("login"),
+    CREATE_ACCOUNT("create_account");
+
+    private final String tag;
+
+    Kind(String tag) {
+      this.tag = tag;
+    }
+  }
+
+  public enum AccountType {
+    AVEC_DECOUVERT(CompteAvecDecouvert.class.getSimpleName()),
+    SANS_DECOUVERT(CompteSansDecouvert.class.getSimpleName()),
+    /**
+     * Compte inconnu, ou opération sans compte (connexion).
+     */
+    NONE("none");
+
+    private final String tag;
+
+    AccountType(String tag) {
+      this.tag = tag;
+    }
+
+    public static AccountType of(Compte compte) {
+      return of(compte == null ? null : compte.getClass());
+    }
+
+    static AccountType of(Class<?> type) {
+      if (type == null) {
+        return NONE;
+      }
+      return CompteAvecDecouvert.class.isAssignableFrom(type) ? AVEC_DECOUVERT : SANS_DECOUVERT;
+    }
+  }
+
+  public enum Outcome {
+    SUCCESS("success"),
+    REJECTED("rejected"),
+    ERROR("error");
+
+    private final String tag;
+
+    Outcome(String tag) {
+      this.tag = tag;
+    }
+  }
+
+  /**
+   * Exceptions métier comptées dans banque.operations.rejected.
+   */
+  private static final Class<?>[] REFUS = { InsufficientFundsException.class, IllegalOperationException.class,
+      IllegalFormatException.class };
+
+  private final Timer[][][] timers;
+  private final Counter[][][] refus;
+  private final Cache<String, AccountType> types;
+  private final CompteRepository compteRepository;
+
+  public OperationMetrics(MeterRegistry meterRegistry, CompteRepository compteRepository,
+      @Value("${banque.metrics.account-types.max-size:100000}") long typesMaxSize) {
+    Kind[] kinds = Kind.values();
+    AccountType[] accountTypes = AccountType.values();
+    Outcome[] outcomes = Outcome.values();
+    this.timers = new Timer[kinds.length][accountTypes.length][outcomes.length];
+    this.refus = new Counter[kinds.length][accountTypes.length][REFUS.length];
+    for (Kind kind : kinds) {
+      for (AccountType type : accountTypes) {
+        for (Outcome outcome : outcomes) {
+          timers[kind.ordinal()][type.ordinal()][outcome.ordinal()] = Timer.builder("banque.operations")
+              .description("Durée des opérations bancaires")
+              .tag("operation", kind.tag).tag("account_type", type.tag).tag("outcome", outcome.tag)
+              .publishPercentileHistogram()
+              // de 0,1 ms (moteur en mémoire) à 10 s
+              .minimumExpectedValue(Duration.ofNanos(100_000))
+              .maximumExpectedValue(Duration.ofSeconds(10))
+              .register(meterRegistry);
+        }
+        for (int i = 0; i < REFUS.length; i++) {
+          refus[kind.ordinal()][type.ordinal()][i] = Counter.builder("banque.operations.rejected")
+              .description("Opérations refusées, par exception métier")
+              .tag("operation", kind.tag).tag("account_type", type.tag)
+              .tag("exception", REFUS[i].getSimpleName())
+              .register(meterRegistry);
+        }
+      }
+    }
+    this.types = Caffeine.newBuilder().maximumSize(typesMaxSize).build();
+    this.compteRepository = compteRepository;
+  }
+
+  /**
+   * Type d'un compte, NONE s'il n'existe pas ou si la lecture échoue (non
+   * mis en cache) : une mesure ne fait jamais échouer l'opération mesurée.
+   */
+  public AccountType accountType(String numeroCompte) {
+    if (numeroCompte == null) {
+      return AccountType.NONE;
+    }
+    AccountType type = types.getIfPresent(numeroCompte);
+    if (type == null) {
+      try {
+        type = AccountType.of(compteRepository.findTypeById(numeroCompte).orElse(null));
+      } catch (RuntimeException e) {
+        return AccountType.NONE;
+      }
+      if (type != AccountType.NONE) {
+        types.put(numeroCompte, type);
+      }
+    }
+    return type;
+  }
+
+  /**
+   * Enregistre une opération commencée à {@code debut} (System.nanoTime()).
+   */
+  public void record(Kind kind, AccountType type, long debut, Outcome outcome) {
+    enregistrer(kind, type, outcome, System.nanoTime() - debut);
+  }
+
+  public void success(Kind kind, AccountType type, long debut) {
+    enregistrer(kind, type, Outcome.SUCCESS, System.nanoTime() - debut);
+  }
+
+  /**
+   * Succès d'une opération sur un compte connu par son numéro ; la durée est
+   * arrêtée avant la lecture éventuelle du type.
+   */
+  public void success(Kind kind, String numeroCompte, long debut) {
+    long duree = System.nanoTime() - debut;
+    enregistrer(kind, accountType(numeroCompte), Outcome.SUCCESS, duree);
+  }
+
+  /**
+   * Échec d'une opération : refus si l'exception est une exception métier
+   * (comptée par type d'exception), erreur sinon.
+   */
+  public void failure(Kind kind, AccountType type, long debut, Throwable echec) {
+    echec(kind, type, System.nanoTime() - debut, echec);
+  }
+
+  public void failure(Kind kind, String numeroCompte, long debut, Throwable echec) {
+    long duree = System.nanoTime() - debut;
+    echec(kind, accountType(numeroCompte), duree, echec);
+  }
+
+  private void echec(Kind kind, AccountType type, long duree, Throwable echec) {
+    for (int i = 0; i < REFUS.length; i++) {
+      if (REFUS[i].isInstance(echec)) {
+        refus[kind.ordinal()][type.ordinal()][i].increment();
+        enregistrer(kind, type, Outcome.REJECTED, duree);
+        return;
+      }
+    }
+    enregistrer(kind, type, Outcome.ERROR, duree);
+  }
+
+  private void enregistrer(Kind kind, AccountType type, Outcome outcome, long duree) {
+    timers[kind.ordinal()][type.ordinal()][outcome.ordinal()].record(duree, TimeUnit.NANOSECONDS);
+  }
+}
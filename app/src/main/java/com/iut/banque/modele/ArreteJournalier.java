@@ -0,0 +1,84 @@
+package com.iut.banque.modele;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Avancement de l'arrêté d'une journée : calcul et application des intérêts
+ * et des agios de tous les comptes pour cette date.
+ *
+ * {@code dernierCompte} est le point de reprise : tous les comptes de numéro
+ * inférieur ou égal ont été traités. Il est mis à jour dans la même
+ * transaction que les soldes, ce qui rend l'arrêté reprenable après un arrêt
+ * brutal sans appliquer deux fois les intérêts d'un compte. La table est lue
+ * et écrite en SQL par AccrualService, l'entité décrit son schéma.
+ */
+@Entity
+@Table(name = "ArreteJournalier")
+public class ArreteJournalier {
+
+	@Id
+	@Column(name = "dateArrete")
+	private LocalDate dateArrete;
+
+	/**
+	 * Dernier compte traité, chaîne vide avant le premier.
+	 */
+	@Column(name = "dernierCompte", nullable = false, length = 50)
+	private String dernierCompte;
+
+	@Column(name = "termine", nullable = false)
+	private boolean termine;
+
+	@Column(name = "comptes", nullable = false)
+	private long comptes;
+
+	/**
+	 * Total des intérêts crédités.
+	 */
+	@Column(name = "interets", nullable = false)
+	private Montant interets;
+
+	/**
+	 * Total des agios débités (positif).
+	 */
+	@Column(name = "agios", nullable = false)
+	private Montant agios;
+
+	/**
+	 * Constructeur sans paramètre.
+	 *
+	 * Nécessaire pour Hibernate.
+	 */
+	protected ArreteJournalier() {
+		super();
+	}
+
+	public LocalDate getDateArrete() {
+		return dateArrete;
+	}
+
+	public String getDernierCompte() {
+		return dernierCompte;
+	}
+
+	public boolean isTermine() {
+		return termine;
+	}
+
+	public long getComptes() {
+		return comptes;
+	}
+
+	public Montant getInterets() {
+		return interets;
+	}
+
+	public Montant getAgios() {
+		return agios;
+	}
+}
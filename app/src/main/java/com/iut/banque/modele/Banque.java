@@ -74,11 +74,11 @@ public class Banque {
 		this.accounts = accounts;
 	}
 
-	public void debiter(Compte compte, double montant) throws InsufficientFundsException, IllegalFormatException {
+	public void debiter(Compte compte, Montant montant) throws InsufficientFundsException, IllegalFormatException {
 		compte.debiter(montant);
 	}
 
-	public void crediter(Compte compte, double montant) throws IllegalFormatException {
+	public void crediter(Compte compte, Montant montant) throws IllegalFormatException {
 		compte.crediter(montant);
 	}
 
@@ -86,7 +86,7 @@ public class Banque {
 		clients.remove(userId);
 	}
 
-	public void changeDecouvert(CompteAvecDecouvert compte, double nouveauDecouvert)
+	public void changeDecouvert(CompteAvecDecouvert compte, Montant nouveauDecouvert)
 			throws IllegalFormatException, IllegalOperationException {
 		compte.setDecouverAutorise(nouveauDecouvert);
 	}
@@ -0,0 +1,77 @@
+package com.iut.banque.modele;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Clé d'idempotence d'une requête de l'API (en-tête Idempotency-Key) et la
+ * réponse renvoyée, pour rejouer cette réponse si la requête est répétée.
+ *
+ * Utilisée seulement avec banque.idempotency.store=jdbc ; la table est lue et
+ * écrite en SQL par JdbcIdempotencyStore, l'entité décrit son schéma.
+ */
+@Entity
+@Table(name = "CleIdempotence", indexes = @Index(name = "idx_cleidempotence_expiration", columnList = "expiration"))
+public class CleIdempotence {
+
+	@Id
+	@Column(name = "cle", length = 255)
+	private String cle;
+
+	@Column(name = "empreinte", length = 255, nullable = false)
+	private String empreinte;
+
+	/**
+	 * Statut HTTP de la réponse, null tant que la requête est en cours.
+	 */
+	@Column(name = "statut")
+	private Integer statut;
+
+	@Column(name = "typeContenu", length = 100)
+	private String typeContenu;
+
+	@Column(name = "corps", length = 4000)
+	private String corps;
+
+	/**
+	 * Date d'expiration, en millisecondes depuis l'epoch.
+	 */
+	@Column(name = "expiration", nullable = false)
+	private long expiration;
+
+	/**
+	 * Constructeur sans paramètre.
+	 *
+	 * Nécessaire pour Hibernate.
+	 */
+	protected CleIdempotence() {
+		super();
+	}
+
+	public String getCle() {
+		return cle;
+	}
+
+	public String getEmpreinte() {
+		return empreinte;
+	}
+
+	public Integer getStatut() {
+		return statut;
+	}
+
+	public String getTypeContenu() {
+		return typeContenu;
+	}
+
+	public String getCorps() {
+		return corps;
+	}
+
+	public long getExpiration() {
+		return expiration;
+	}
+}
@@ -2,7 +2,6 @@ package com.iut.banque.modele;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.DiscriminatorValue;
@@ -11,9 +10,12 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.MapKey;
 import jakarta.persistence.OneToMany;
 
+import org.hibernate.Hibernate;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import com.iut.banque.exceptions.IllegalFormatException;
+import com.iut.banque.util.FormatIdentifiants;
 
 /**
  * Cette classe représente un client quelconque de l'entreprise.
@@ -37,12 +39,14 @@ public class Client extends Utilisateur {
 	 * L'association "one-to-many" signifie que chaque client possède plusieurs
 	 * comptes mais que chaque compte a un unique propriétaire.
 	 * 
-	 * FetchType.EAGER signifie que le chargment des comptes n'est pas
-	 * paresseux. Ce n'est pas optimal si il y a beaucoup de comptes, mais cela
-	 * permet de travailler avec les objets Clients en dehors d'une session.
+	 * Le chargement est paresseux : charger un client (connexion, liste des
+	 * clients, propriétaire d'un compte) ne charge pas ses comptes. Les cas
+	 * d'usage qui en ont besoin les chargent explicitement (graphe d'entité ou
+	 * "join fetch"), et les collections chargées à la demande le sont par lots
+	 * (hibernate.default_batch_fetch_size).
 	 */
 	@JsonIgnore
-	@OneToMany(fetch = FetchType.EAGER, mappedBy = "owner")
+	@OneToMany(fetch = FetchType.LAZY, mappedBy = "owner")
 	@MapKey(name = "numeroCompte")
 	private Map<String, Compte> accounts;
 
@@ -127,7 +131,7 @@ public class Client extends Utilisateur {
 	public String toString() {
 		return "Client [userId=" + getUserId() + ", nom=" + getNom() + ", prenom=" + getPrenom() + ", adresse="
 				+ getAdresse() + ", male=" + isMale() + ", userPwd=" + getUserPwd() + ", numeroClient=" + numeroClient
-				+ ", accounts=" + accounts.size() + "]";
+				+ ", accounts=" + (Hibernate.isInitialized(accounts) ? accounts.size() : "?") + "]";
 	}
 
 	/**
@@ -164,11 +168,17 @@ public class Client extends Utilisateur {
 	/**
 	 * Ajoute un compte parmis la liste de ceux du client.
 	 * 
+	 * Si les comptes du client n'ont pas été chargés, la map n'est pas
+	 * modifiée : c'est le propriétaire du compte (Compte.owner) qui porte
+	 * l'association en base, et la map sera lue à jour à son chargement.
+	 * 
 	 * @param compte
 	 *               : le compte à ajouter
 	 */
 	public void addAccount(Compte compte) {
-		this.accounts.put(compte.getNumeroCompte(), compte);
+		if (Hibernate.isInitialized(this.accounts)) {
+			this.accounts.put(compte.getNumeroCompte(), compte);
+		}
 	}
 
 	/**
@@ -184,7 +194,7 @@ public class Client extends Utilisateur {
 	 *         correct, false sinon
 	 */
 	public static boolean checkFormatUserIdClient(String s) {
-		return Pattern.matches("^[a-z]\\.[a-z]+[1-9][0-9]*$", s);
+		return FormatIdentifiants.isUserIdClient(s);
 	}
 
 	/**
@@ -198,7 +208,7 @@ public class Client extends Utilisateur {
 	 *         correct, false sinon
 	 */
 	public static boolean checkFormatNumeroClient(String s) {
-		return Pattern.matches("[0-9]{10}", s);
+		return FormatIdentifiants.isNumeroClient(s);
 	}
 
 	/**
@@ -210,7 +220,7 @@ public class Client extends Utilisateur {
 	public boolean possedeComptesADecouvert() {
 		boolean result = false;
 		for (Compte value : accounts.values()) {
-			if (!result && value.getSolde() < 0) {
+			if (!result && value.getSolde().estNegatif()) {
 				result = true;
 				break;
 			}
@@ -224,11 +234,12 @@ public class Client extends Utilisateur {
 	 * @return Map<String, Compte> une map des comptes (key = id du compte,
 	 *         value = compte)
 	 */
+	@JsonIgnore
 	public Map<String, Compte> getComptesAvecSoldeNonNul() {
 		Map<String, Compte> comptes = this.getAccounts();
 		Map<String, Compte> res = new HashMap<String, Compte>();
 		for (Map.Entry<String, Compte> entry : comptes.entrySet()) {
-			if (entry.getValue().getSolde() != 0) {
+			if (entry.getValue().getSolde().signum() != 0) {
 				res.put(entry.getKey(), entry.getValue());
 			}
 		}
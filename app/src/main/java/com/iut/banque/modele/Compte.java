@@ -1,7 +1,5 @@
 package com.iut.banque.modele;
 
-import java.util.regex.Pattern;
-
 import jakarta.persistence.Column;
 import jakarta.persistence.DiscriminatorColumn;
 import jakarta.persistence.DiscriminatorType;
@@ -17,6 +15,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import com.iut.banque.exceptions.IllegalFormatException;
 import com.iut.banque.exceptions.InsufficientFundsException;
+import com.iut.banque.util.FormatIdentifiants;
 
 /**
  * Classe repr�sentant un compte quelconque.
@@ -49,7 +48,7 @@ public abstract class Compte {
 	 * Le solde du compte.
 	 */
 	@Column(name = "solde")
-	protected double solde;
+	protected Montant solde = Montant.ZERO;
 
 	/**
 	 * Le propriétaire du compte.
@@ -64,9 +63,9 @@ public abstract class Compte {
 	/**
 	 * Getter du solde.
 	 * 
-	 * @return double, le solde du compte
+	 * @return Montant, le solde du compte
 	 */
-	public double getSolde() {
+	public Montant getSolde() {
 		return solde;
 	}
 
@@ -76,7 +75,7 @@ public abstract class Compte {
 	 * @param solde
 	 *              : le solde à changer
 	 */
-	private void setSolde(double solde) {
+	private void setSolde(Montant solde) {
 		this.solde = solde;
 	}
 
@@ -124,7 +123,7 @@ public abstract class Compte {
 	 * Il est préférable d'utiliser une classe implémentant IDao pour créer un
 	 * objet au lieu d'appeler ce constructeur.
 	 */
-	public Compte(String numeroCompte, double solde, Client client) throws IllegalFormatException {
+	public Compte(String numeroCompte, Montant solde, Client client) throws IllegalFormatException {
 		super();
 		this.setSolde(solde);
 		this.setNumeroCompte(numeroCompte);
@@ -151,7 +150,7 @@ public abstract class Compte {
 	 * @throws InsufficientFundsException
 	 *                                    : dans le cas où le montant est trop élevé
 	 */
-	public abstract void debiter(double montant) throws InsufficientFundsException, IllegalFormatException;
+	public abstract void debiter(Montant montant) throws InsufficientFundsException, IllegalFormatException;
 
 	/**
 	 * Crédite sur le compte le montant passé en paramètre.
@@ -161,11 +160,11 @@ public abstract class Compte {
 	 * @throws IllegalFormatException
 	 *                                : si le montant est négatif
 	 */
-	public void crediter(double montant) throws IllegalFormatException {
-		if (montant < 0) {
+	public void crediter(Montant montant) throws IllegalFormatException {
+		if (montant.estNegatif()) {
 			throw new IllegalFormatException("Le montant ne peux être négatif");
 		}
-		solde += montant;
+		solde = solde.plus(montant);
 	}
 
 	/**
@@ -200,6 +199,6 @@ public abstract class Compte {
 	 *         correct, false sinon
 	 */
 	public static boolean checkFormatNumeroCompte(String s) {
-		return Pattern.matches("[A-Z]{2}[0-9]{10}", s);
+		return FormatIdentifiants.isNumeroCompte(s);
 	}
 }
@@ -23,14 +23,14 @@ public class CompteAvecDecouvert extends Compte {
 	 * dire que la somme du decouvert et du solde doit être positive.
 	 */
 	@Column(name = "decouvertAutorise")
-	private double decouvertAutorise;
+	private Montant decouvertAutorise = Montant.ZERO;
 
 	/**
 	 * Getter du découvert autorisé du compte.
 	 * 
-	 * @return double, le découvert autorisé du compte
+	 * @return Montant, le découvert autorisé du compte
 	 */
-	public double getDecouvertAutorise() {
+	public Montant getDecouvertAutorise() {
 		return decouvertAutorise;
 	}
 
@@ -39,13 +39,14 @@ public class CompteAvecDecouvert extends Compte {
 	 * 
 	 * @return decouvertAutorise : le découvert à changer
 	 * @throws IllegalFormatException
-	 *                                   : si le découvert est inférieur à 0
+	 *                                   : si le découvert est nul ou inférieur à
+	 *                                   0
 	 * @throws IllegalOperationException
 	 */
-	public void setDecouverAutorise(double decouvertAutorise) throws IllegalFormatException, IllegalOperationException {
-		if (decouvertAutorise < 0) {
+	public void setDecouverAutorise(Montant decouvertAutorise) throws IllegalFormatException, IllegalOperationException {
+		if (decouvertAutorise == null || decouvertAutorise.estNegatif()) {
 			throw new IllegalFormatException("Un découvert doit forcement être positif.");
-		} else if (this.solde < 0 && decouvertAutorise < Math.abs(this.solde)) {
+		} else if (this.solde.estNegatif() && decouvertAutorise.compareTo(this.solde.oppose()) < 0) {
 			throw new IllegalOperationException("Le nouveau découvert est incompatible avec le solde actuel");
 		}
 		this.decouvertAutorise = decouvertAutorise;
@@ -66,7 +67,7 @@ public class CompteAvecDecouvert extends Compte {
 	 *                                   format
 	 * @throws IllegalOperationException
 	 */
-	public CompteAvecDecouvert(String numeroCompte, double solde, double decouvertAutorise, Client client)
+	public CompteAvecDecouvert(String numeroCompte, Montant solde, Montant decouvertAutorise, Client client)
 			throws IllegalFormatException, IllegalOperationException {
 		super(numeroCompte, solde, client);
 		this.setDecouverAutorise(decouvertAutorise);
@@ -90,13 +91,13 @@ public class CompteAvecDecouvert extends Compte {
 	 * Cette méthode tient en compte du découvert possible.
 	 */
 	@Override
-	public void debiter(double montant) throws InsufficientFundsException, IllegalFormatException {
-		if (montant < 0) {
+	public void debiter(Montant montant) throws InsufficientFundsException, IllegalFormatException {
+		if (montant.estNegatif()) {
 			throw new IllegalFormatException("Le montant ne peux être négatif");
-		} else if (montant > this.solde + this.decouvertAutorise) {
+		} else if (montant.compareTo(this.solde.plus(this.decouvertAutorise)) > 0) {
 			throw new InsufficientFundsException("Le solde du compte " + this.numeroCompte + " est insuffisant.");
 		} else {
-			this.solde -= montant;
+			this.solde = this.solde.moins(montant);
 		}
 	}
 
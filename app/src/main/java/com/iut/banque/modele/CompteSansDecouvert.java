@@ -20,7 +20,7 @@ public class CompteSansDecouvert extends Compte {
 	 * Il est préférable d'utiliser une classe implémentant IDao pour créer un
 	 * objet au lieu d'appeler ce constructeur.
 	 */
-	public CompteSansDecouvert(String numeroCompte, double solde, Client client) throws IllegalFormatException {
+	public CompteSansDecouvert(String numeroCompte, Montant solde, Client client) throws IllegalFormatException {
 		super(numeroCompte, solde, client);
 	}
 
@@ -40,13 +40,13 @@ public class CompteSansDecouvert extends Compte {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void debiter(double montant) throws InsufficientFundsException, IllegalFormatException {
-		if (montant < 0) {
+	public void debiter(Montant montant) throws InsufficientFundsException, IllegalFormatException {
+		if (montant.estNegatif()) {
 			throw new IllegalFormatException("Le montant ne peux être négatif");
-		} else if (montant > this.solde) {
+		} else if (montant.compareTo(this.solde) > 0) {
 			throw new InsufficientFundsException("Le solde du compte " + this.numeroCompte + " est insuffisant.");
 		} else {
-			this.solde -= montant;
+			this.solde = this.solde.moins(montant);
 		}
 	}
 
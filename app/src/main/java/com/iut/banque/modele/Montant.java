@@ -0,0 +1,312 @@
+package com.iut.banque.modele;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * Montant en euros, en virgule fixe : un nombre entier de centimes dans un
+ * long.
+ *
+ * Contrairement à un double, un montant à deux décimales est représenté
+ * exactement : les sommes et les comparaisons sont exactes, sans tolérance.
+ * Les calculs ne perdent jamais d'information en silence :
+ * <ul>
+ * <li>un dépassement de capacité (plus de 92 millions de milliards d'euros)
+ * lève ArithmeticException ;</li>
+ * <li>une valeur avec plus de deux décimales est refusée
+ * (NumberFormatException), pas arrondie.</li>
+ * </ul>
+ *
+ * Les traitements en boucle (moteur de soldes, import, export) calculent
+ * directement sur les centimes avec les méthodes statiques
+ * ({@link #additionner}, {@link #parseCentimes}, {@link #ecrire}...), qui ne
+ * créent aucun objet. Les objets Montant, immuables, servent aux frontières :
+ * entités (colonne BIGINT en centimes, {@link MontantConverter}), JSON
+ * ({@link MontantJson}) et paramètres des formulaires ({@link #valueOf}).
+ *
+ * La classe étend Number pour les validations (@Positive) et le formatage
+ * des pages (#numbers.formatDecimal).
+ */
+@JsonSerialize(using = MontantJson.Serialiseur.class)
+@JsonDeserialize(using = MontantJson.Deserialiseur.class)
+public final class Montant extends Number implements Comparable<Montant> {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Nombre de décimales d'un montant.
+	 */
+	public static final int DECIMALES = 2;
+
+	private static final long CENTIMES_PAR_EURO = 100;
+
+	public static final Montant ZERO = new Montant(0);
+
+	private final long centimes;
+
+	private Montant(long centimes) {
+		this.centimes = centimes;
+	}
+
+	/**
+	 * @param centimes
+	 *                 : le montant en centimes (1234 pour 12,34 €)
+	 */
+	public static Montant deCentimes(long centimes) {
+		return centimes == 0 ? ZERO : new Montant(centimes);
+	}
+
+	/**
+	 * @param euros
+	 *              : un montant entier en euros
+	 * @throws ArithmeticException
+	 *                             : si le montant dépasse la capacité
+	 */
+	public static Montant euros(long euros) {
+		return deCentimes(Math.multiplyExact(euros, CENTIMES_PAR_EURO));
+	}
+
+	/**
+	 * Montant écrit en notation décimale ("12.34", "-5", "0.5"). Nom reconnu
+	 * par Spring pour convertir les paramètres de requête.
+	 *
+	 * @throws NumberFormatException
+	 *                               : si le texte n'est pas un nombre, a plus
+	 *                               de deux décimales ou dépasse la capacité
+	 */
+	public static Montant valueOf(String texte) {
+		return deCentimes(parseCentimes(texte));
+	}
+
+	/**
+	 * @throws ArithmeticException
+	 *                             : si la valeur a plus de deux décimales non
+	 *                             nulles ou dépasse la capacité
+	 */
+	public static Montant valueOf(BigDecimal valeur) {
+		return deCentimes(valeur.movePointRight(DECIMALES).longValueExact());
+	}
+
+	public long getCentimes() {
+		return centimes;
+	}
+
+	public Montant plus(Montant autre) {
+		return deCentimes(additionner(centimes, autre.centimes));
+	}
+
+	public Montant moins(Montant autre) {
+		return deCentimes(soustraire(centimes, autre.centimes));
+	}
+
+	public Montant oppose() {
+		return deCentimes(opposer(centimes));
+	}
+
+	public boolean estNegatif() {
+		return centimes < 0;
+	}
+
+	public boolean estPositif() {
+		return centimes > 0;
+	}
+
+	/**
+	 * @return -1, 0 ou 1 selon que le montant est négatif, nul ou positif
+	 */
+	public int signum() {
+		return Long.signum(centimes);
+	}
+
+	public BigDecimal toBigDecimal() {
+		return BigDecimal.valueOf(centimes, DECIMALES);
+	}
+
+	@Override
+	public int compareTo(Montant autre) {
+		return Long.compare(centimes, autre.centimes);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof Montant autre && autre.centimes == centimes;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(centimes);
+	}
+
+	/**
+	 * @return le montant en notation décimale, toujours avec deux décimales
+	 *         ("12.30", "-0.05")
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(24);
+		try {
+			ecrire(centimes, sb);
+		} catch (IOException e) {
+			// StringBuilder ne lève pas d'IOException
+			throw new IllegalStateException(e);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Partie entière en euros (tronquée vers zéro).
+	 */
+	@Override
+	public long longValue() {
+		return centimes / CENTIMES_PAR_EURO;
+	}
+
+	@Override
+	public int intValue() {
+		return (int) longValue();
+	}
+
+	/**
+	 * Valeur approchée, pour l'affichage uniquement.
+	 */
+	@Override
+	public double doubleValue() {
+		return centimes / (double) CENTIMES_PAR_EURO;
+	}
+
+	@Override
+	public float floatValue() {
+		return (float) doubleValue();
+	}
+
+	// ---------------------------------------------------------------------
+	// Calculs sur les centimes, sans allocation
+	// ---------------------------------------------------------------------
+
+	/**
+	 * @throws ArithmeticException
+	 *                             : en cas de dépassement de capacité
+	 */
+	public static long additionner(long centimes, long autres) {
+		return Math.addExact(centimes, autres);
+	}
+
+	/**
+	 * @throws ArithmeticException
+	 *                             : en cas de dépassement de capacité
+	 */
+	public static long soustraire(long centimes, long autres) {
+		return Math.subtractExact(centimes, autres);
+	}
+
+	/**
+	 * @throws ArithmeticException
+	 *                             : pour Long.MIN_VALUE
+	 */
+	public static long opposer(long centimes) {
+		return Math.negateExact(centimes);
+	}
+
+	/**
+	 * Lit un montant en notation décimale : signe facultatif, chiffres, puis
+	 * au plus deux décimales significatives après un point. Une notation scientifique
+	 * ("1.5E+3", possible en JSON) est acceptée si sa valeur tient en
+	 * centimes.
+	 *
+	 * @return le montant en centimes
+	 * @throws NumberFormatException
+	 *                               : si le texte n'est pas un montant valide
+	 */
+	public static long parseCentimes(CharSequence texte) {
+		int n = texte == null ? 0 : texte.length();
+		if (n == 0) {
+			throw new NumberFormatException("Montant vide");
+		}
+		int i = 0;
+		boolean negatif = false;
+		char c = texte.charAt(0);
+		if (c == '-' || c == '+') {
+			negatif = c == '-';
+			i++;
+		}
+		long centimes = 0;
+		int chiffres = 0;
+		int decimales = -1;
+		try {
+			for (; i < n; i++) {
+				c = texte.charAt(i);
+				if (c >= '0' && c <= '9') {
+					chiffres++;
+					if (decimales >= 0 && ++decimales > DECIMALES) {
+						// zéros superflus acceptés ("1.500"), pas les fractions de centime
+						if (c != '0') {
+							throw new NumberFormatException("Plus de " + DECIMALES + " décimales: " + texte);
+						}
+						continue;
+					}
+					centimes = Math.addExact(Math.multiplyExact(centimes, 10), c - '0');
+				} else if (c == '.' && decimales < 0) {
+					decimales = 0;
+				} else if ((c == 'e' || c == 'E') && chiffres > 0) {
+					return parseScientifique(texte);
+				} else {
+					throw new NumberFormatException("Montant invalide: " + texte);
+				}
+			}
+			if (chiffres == 0) {
+				throw new NumberFormatException("Montant invalide: " + texte);
+			}
+			for (int d = Math.max(decimales, 0); d < DECIMALES; d++) {
+				centimes = Math.multiplyExact(centimes, 10);
+			}
+		} catch (ArithmeticException e) {
+			throw new NumberFormatException("Montant hors limites: " + texte);
+		}
+		return negatif ? -centimes : centimes;
+	}
+
+	private static long parseScientifique(CharSequence texte) {
+		try {
+			return new BigDecimal(texte.toString()).movePointRight(DECIMALES).longValueExact();
+		} catch (ArithmeticException e) {
+			throw new NumberFormatException("Montant hors limites ou plus de " + DECIMALES + " décimales: " + texte);
+		}
+	}
+
+	/**
+	 * Écrit un montant en notation décimale avec deux décimales ("-12.05"),
+	 * sans chaîne intermédiaire.
+	 */
+	public static void ecrire(long centimes, Appendable sortie) throws IOException {
+		// division avant changement de signe : Long.MIN_VALUE n'a pas d'opposé
+		long euros = Math.abs(centimes / CENTIMES_PAR_EURO);
+		int reste = (int) Math.abs(centimes % CENTIMES_PAR_EURO);
+		if (centimes < 0) {
+			sortie.append('-');
+		}
+		if (sortie instanceof StringBuilder sb) {
+			// conversion directe dans le tampon, bien plus rapide que chiffre par chiffre
+			sb.append(euros);
+		} else {
+			ecrireEntier(euros, sortie);
+		}
+		sortie.append('.');
+		sortie.append((char) ('0' + reste / 10));
+		sortie.append((char) ('0' + reste % 10));
+	}
+
+	private static void ecrireEntier(long n, Appendable sortie) throws IOException {
+		long puissance = 1;
+		long limite = n / 10;
+		while (puissance <= limite) {
+			puissance *= 10;
+		}
+		for (; puissance != 0; puissance /= 10) {
+			sortie.append((char) ('0' + n / puissance));
+			n %= puissance;
+		}
+	}
+}
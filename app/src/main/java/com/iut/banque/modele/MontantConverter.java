@@ -0,0 +1,23 @@
+package com.iut.banque.modele;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stockage d'un {@link Montant} en base : un BIGINT en centimes (voir
+ * db/init/06_montants_en_centimes.sql). Appliqué automatiquement à tous les
+ * attributs de type Montant.
+ */
+@Converter(autoApply = true)
+public class MontantConverter implements AttributeConverter<Montant, Long> {
+
+	@Override
+	public Long convertToDatabaseColumn(Montant montant) {
+		return montant == null ? null : montant.getCentimes();
+	}
+
+	@Override
+	public Montant convertToEntityAttribute(Long centimes) {
+		return centimes == null ? null : Montant.deCentimes(centimes);
+	}
+}
@@ -0,0 +1,54 @@
+package com.iut.banque.modele;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+/**
+ * Représentation JSON d'un {@link Montant} : un nombre décimal exact
+ * (12.30), comme l'ancien champ double, pour ne pas changer le contrat de
+ * l'API.
+ *
+ * En lecture, le texte du nombre est converti directement en centimes, sans
+ * passer par un double : 0.1 vaut exactement 10 centimes, et une valeur avec
+ * plus de deux décimales est refusée. Un montant entre guillemets ("12.30")
+ * est aussi accepté.
+ */
+public final class MontantJson {
+
+	private MontantJson() {
+	}
+
+	public static class Serialiseur extends JsonSerializer<Montant> {
+
+		@Override
+		public void serialize(Montant montant, JsonGenerator gen, SerializerProvider serializers)
+				throws IOException {
+			gen.writeNumber(montant.toString());
+		}
+	}
+
+	public static class Deserialiseur extends JsonDeserializer<Montant> {
+
+		@Override
+		public Montant deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+			JsonToken token = p.currentToken();
+			if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT
+					&& token != JsonToken.VALUE_STRING) {
+				return (Montant) ctxt.handleUnexpectedToken(Montant.class, p);
+			}
+			String texte = p.getText().trim();
+			try {
+				return Montant.valueOf(texte);
+			} catch (NumberFormatException e) {
+				return (Montant) ctxt.handleWeirdStringValue(Montant.class, texte, e.getMessage());
+			}
+		}
+	}
+}
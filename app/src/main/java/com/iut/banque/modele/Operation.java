@@ -0,0 +1,159 @@
+package com.iut.banque.modele;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.hibernate.annotations.Immutable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+/**
+ * Ligne du journal des opérations : chaque mouvement de solde d'un compte y
+ * est ajouté dans la même transaction que la modification du solde.
+ * 
+ * Le journal est en ajout seul (les lignes ne sont jamais modifiées ni
+ * supprimées) et il est conçu pour le débit en écriture :
+ * <ul>
+ * <li>clé technique croissante tirée d'une séquence par blocs, ce qui permet
+ * à Hibernate de regrouper les INSERT en lots JDBC (ce n'est pas le cas d'une
+ * colonne AUTO_INCREMENT) ;</li>
+ * <li>pas de clé étrangère vers Compte : l'insertion ne pose aucun verrou sur
+ * la table des comptes ;</li>
+ * <li>pas d'index secondaire à maintenir à chaque insertion.</li>
+ * </ul>
+ */
+@Entity
+@Immutable
+@Table(name = "`Operation`")
+public class Operation {
+
+	/**
+	 * Taille des blocs d'identifiants réservés en une fois dans la séquence.
+	 */
+	private static final int ALLOCATION = 50;
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "operation_seq")
+	@SequenceGenerator(name = "operation_seq", sequenceName = "Operation_seq", allocationSize = ALLOCATION)
+	@Column(name = "id")
+	private Long id;
+
+	/**
+	 * Le compte concerné.
+	 */
+	@Column(name = "numeroCompte", nullable = false, length = 50)
+	private String numeroCompte;
+
+	/**
+	 * Le montant signé du mouvement : positif pour un crédit, négatif pour un
+	 * débit.
+	 */
+	@Column(name = "montant", nullable = false)
+	private Montant montant;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "type", nullable = false, length = 20)
+	private TypeOperation type;
+
+	@Column(name = "dateOperation", nullable = false)
+	private Instant dateOperation;
+
+	/**
+	 * Identifiant commun aux deux lignes d'un même virement (null pour un dépôt
+	 * ou un retrait).
+	 */
+	@Column(name = "idVirement", length = 36)
+	private String idVirement;
+
+	/**
+	 * Constructeur sans paramètre.
+	 * 
+	 * Nécessaire pour Hibernate.
+	 */
+	protected Operation() {
+		super();
+	}
+
+	public Operation(String numeroCompte, Montant montant, TypeOperation type, String idVirement) {
+		this(numeroCompte, montant, type, idVirement, Instant.now());
+	}
+
+	/**
+	 * Ligne d'une opération déjà effectuée (rejouée depuis un journal), datée
+	 * du moment où elle a eu lieu.
+	 */
+	public Operation(String numeroCompte, Montant montant, TypeOperation type, String idVirement,
+			Instant dateOperation) {
+		this.numeroCompte = numeroCompte;
+		this.montant = montant;
+		this.type = type;
+		this.idVirement = idVirement;
+		this.dateOperation = dateOperation;
+	}
+
+	/**
+	 * Ligne d'un dépôt sur un compte.
+	 */
+	public static Operation credit(String numeroCompte, Montant montant) {
+		return new Operation(numeroCompte, montant, TypeOperation.CREDIT, null);
+	}
+
+	/**
+	 * Ligne d'un retrait sur un compte (montant enregistré en négatif).
+	 */
+	public static Operation debit(String numeroCompte, Montant montant) {
+		return new Operation(numeroCompte, montant.oppose(), TypeOperation.DEBIT, null);
+	}
+
+	/**
+	 * Les deux lignes d'un virement, reliées par un même identifiant de
+	 * virement.
+	 * 
+	 * @return Operation[] : la ligne du compte débité puis celle du compte
+	 *         crédité
+	 */
+	public static Operation[] virement(String fromAccountId, String toAccountId, Montant montant) {
+		String idVirement = UUID.randomUUID().toString();
+		return new Operation[] {
+				new Operation(fromAccountId, montant.oppose(), TypeOperation.VIREMENT_EMIS, idVirement),
+				new Operation(toAccountId, montant, TypeOperation.VIREMENT_RECU, idVirement) };
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getNumeroCompte() {
+		return numeroCompte;
+	}
+
+	public Montant getMontant() {
+		return montant;
+	}
+
+	public TypeOperation getType() {
+		return type;
+	}
+
+	public Instant getDateOperation() {
+		return dateOperation;
+	}
+
+	public String getIdVirement() {
+		return idVirement;
+	}
+
+	@Override
+	public String toString() {
+		return "Operation [id=" + id + ", numeroCompte=" + numeroCompte + ", montant=" + montant + ", type=" + type
+				+ ", dateOperation=" + dateOperation + ", idVirement=" + idVirement + "]";
+	}
+}
@@ -0,0 +1,143 @@
+package com.iut.banque.modele;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+/**
+ * Ordre de virement permanent (loyer, épargne...) : un montant fixe viré d'un
+ * compte à un autre à chaque échéance, depuis la première exécution et
+ * jusqu'à la date de fin éventuelle.
+ *
+ * {@code rang} est le nombre d'échéances déjà passées et
+ * {@code prochaineExecution} l'instant de la suivante. Les deux colonnes sont
+ * avancées en SQL par StandingOrderService, dans la même transaction que le
+ * virement et à condition que {@code rang} n'ait pas changé : une échéance
+ * n'est exécutée qu'une fois, même après un redémarrage ou sur plusieurs
+ * nœuds.
+ */
+@Entity
+@Table(name = "OrdrePermanent", indexes = {
+		@Index(name = "idx_ordrepermanent_execution", columnList = "prochaineExecution"),
+		@Index(name = "idx_ordrepermanent_debit", columnList = "compteDebit") })
+public class OrdrePermanent {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ordre_permanent_seq")
+	@SequenceGenerator(name = "ordre_permanent_seq", sequenceName = "OrdrePermanent_seq", allocationSize = 50)
+	@Column(name = "id")
+	private Long id;
+
+	@Column(name = "compteDebit", nullable = false, length = 50)
+	private String compteDebit;
+
+	@Column(name = "compteCredit", nullable = false, length = 50)
+	private String compteCredit;
+
+	@Column(name = "montant", nullable = false)
+	private Montant montant;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "periodicite", nullable = false, length = 20)
+	private Periodicite periodicite;
+
+	/**
+	 * Date et heure locales (fuseau banque.standing-orders.zone) de la première
+	 * exécution, base du calcul des suivantes.
+	 */
+	@Column(name = "premiereExecution", nullable = false)
+	private LocalDateTime premiereExecution;
+
+	/**
+	 * Dernier jour d'exécution possible, null pour un ordre sans fin.
+	 */
+	@Column(name = "dateFin")
+	private LocalDate dateFin;
+
+	@Column(name = "rang", nullable = false)
+	private long rang;
+
+	/**
+	 * Prochaine exécution, en millisecondes depuis l'epoch ; null pour un ordre
+	 * terminé ou annulé.
+	 */
+	@Column(name = "prochaineExecution")
+	private Long prochaineExecution;
+
+	/**
+	 * Résultat de la dernière exécution (OK, INSUFFICIENT_FUNDS...).
+	 */
+	@Column(name = "dernierStatut", length = 20)
+	private String dernierStatut;
+
+	/**
+	 * Constructeur sans paramètre.
+	 *
+	 * Nécessaire pour Hibernate.
+	 */
+	protected OrdrePermanent() {
+		super();
+	}
+
+	public OrdrePermanent(String compteDebit, String compteCredit, Montant montant, Periodicite periodicite,
+			LocalDateTime premiereExecution, LocalDate dateFin, Instant prochaineExecution) {
+		this.compteDebit = compteDebit;
+		this.compteCredit = compteCredit;
+		this.montant = montant;
+		this.periodicite = periodicite;
+		this.premiereExecution = premiereExecution;
+		this.dateFin = dateFin;
+		this.prochaineExecution = prochaineExecution.toEpochMilli();
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getCompteDebit() {
+		return compteDebit;
+	}
+
+	public String getCompteCredit() {
+		return compteCredit;
+	}
+
+	public Montant getMontant() {
+		return montant;
+	}
+
+	public Periodicite getPeriodicite() {
+		return periodicite;
+	}
+
+	public LocalDateTime getPremiereExecution() {
+		return premiereExecution;
+	}
+
+	public LocalDate getDateFin() {
+		return dateFin;
+	}
+
+	public long getRang() {
+		return rang;
+	}
+
+	public Instant getProchaineExecution() {
+		return prochaineExecution == null ? null : Instant.ofEpochMilli(prochaineExecution);
+	}
+
+	public String getDernierStatut() {
+		return dernierStatut;
+	}
+}
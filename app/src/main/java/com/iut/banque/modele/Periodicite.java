@@ -0,0 +1,34 @@
+package com.iut.banque.modele;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fréquence d'exécution d'un ordre permanent.
+ */
+public enum Periodicite {
+	QUOTIDIEN,
+	HEBDOMADAIRE,
+	MENSUEL,
+	TRIMESTRIEL,
+	ANNUEL;
+
+	/**
+	 * Date et heure de l'exécution de rang donné (0 pour la première), calculée
+	 * depuis la première exécution et non depuis la précédente : un ordre du 31
+	 * passe le 30 avril puis de nouveau le 31 mai.
+	 */
+	public LocalDateTime occurrence(LocalDateTime premiere, long rang) {
+		switch (this) {
+		case QUOTIDIEN:
+			return premiere.plusDays(rang);
+		case HEBDOMADAIRE:
+			return premiere.plusWeeks(rang);
+		case MENSUEL:
+			return premiere.plusMonths(rang);
+		case TRIMESTRIEL:
+			return premiere.plusMonths(3 * rang);
+		default:
+			return premiere.plusYears(rang);
+		}
+	}
+}
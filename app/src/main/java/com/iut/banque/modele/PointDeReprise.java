@@ -0,0 +1,53 @@
+package com.iut.banque.modele;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Position d'un journal d'écriture anticipée (WAL) déjà reportée en base :
+ * toutes les opérations de numéro de séquence inférieur ou égal à
+ * {@code sequence} sont dans les tables métier.
+ *
+ * Mis à jour dans la même transaction que le report des opérations, ce qui
+ * permet de rejouer le journal après un arrêt brutal sans appliquer deux fois
+ * une opération.
+ */
+@Entity
+@Table(name = "PointDeReprise")
+public class PointDeReprise {
+
+	@Id
+	@Column(name = "nom", length = 50)
+	private String nom;
+
+	@Column(name = "sequence", nullable = false)
+	private long sequence;
+
+	/**
+	 * Constructeur sans paramètre.
+	 * 
+	 * Nécessaire pour Hibernate.
+	 */
+	protected PointDeReprise() {
+		super();
+	}
+
+	public PointDeReprise(String nom, long sequence) {
+		this.nom = nom;
+		this.sequence = sequence;
+	}
+
+	public String getNom() {
+		return nom;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public void setSequence(long sequence) {
+		this.sequence = sequence;
+	}
+}
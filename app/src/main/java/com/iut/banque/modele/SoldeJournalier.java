@@ -0,0 +1,109 @@
+package com.iut.banque.modele;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+import org.hibernate.annotations.Immutable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Position de fin de journée d'un compte : solde et découvert autorisé
+ * relevés par SnapshotService pour les déclarations réglementaires.
+ *
+ * La table est partitionnée par mois sur la date (voir
+ * db/init/07_soldes_journaliers.sql) ; les lignes y sont écrites en SQL par
+ * paquets (INSERT ... SELECT depuis Compte), l'entité décrit son schéma et
+ * sert à la lecture. Pas de clé étrangère vers Compte : les positions d'un
+ * compte clôturé sont conservées.
+ */
+@Entity
+@Immutable
+@Table(name = "SoldeJournalier",
+		indexes = @Index(name = "idx_soldejournalier_compte", columnList = "numeroCompte, dateSolde"))
+public class SoldeJournalier {
+
+	/**
+	 * Clé composée de la date puis du numéro de compte : les lignes d'une
+	 * journée sont insérées dans l'ordre de la clé, et la date (clé de
+	 * partitionnement) fait partie de la clé primaire comme l'exige MySQL.
+	 */
+	@Embeddable
+	public static class Cle implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		@Column(name = "dateSolde", nullable = false)
+		private LocalDate dateSolde;
+
+		@Column(name = "numeroCompte", nullable = false, length = 50)
+		private String numeroCompte;
+
+		protected Cle() {
+			super();
+		}
+
+		public Cle(LocalDate dateSolde, String numeroCompte) {
+			this.dateSolde = dateSolde;
+			this.numeroCompte = numeroCompte;
+		}
+
+		public LocalDate getDateSolde() {
+			return dateSolde;
+		}
+
+		public String getNumeroCompte() {
+			return numeroCompte;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Cle autre && dateSolde.equals(autre.dateSolde)
+					&& numeroCompte.equals(autre.numeroCompte);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(dateSolde, numeroCompte);
+		}
+	}
+
+	@EmbeddedId
+	private Cle id;
+
+	@Column(name = "solde", nullable = false)
+	private Montant solde;
+
+	/**
+	 * Null pour un compte sans découvert.
+	 */
+	@Column(name = "decouvertAutorise")
+	private Montant decouvertAutorise;
+
+	/**
+	 * Constructeur sans paramètre.
+	 *
+	 * Nécessaire pour Hibernate.
+	 */
+	protected SoldeJournalier() {
+		super();
+	}
+
+	public Cle getId() {
+		return id;
+	}
+
+	public Montant getSolde() {
+		return solde;
+	}
+
+	public Montant getDecouvertAutorise() {
+		return decouvertAutorise;
+	}
+}
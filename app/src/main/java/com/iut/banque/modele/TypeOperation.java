@@ -0,0 +1,15 @@
+package com.iut.banque.modele;
+
+/**
+ * Nature d'une ligne du journal des opérations.
+ */
+public enum TypeOperation {
+	CREDIT,
+	DEBIT,
+	VIREMENT_EMIS,
+	VIREMENT_RECU,
+	/** Intérêts créditeurs du jour (arrêté journalier). */
+	INTERETS,
+	/** Agios du jour sur un solde débiteur (arrêté journalier). */
+	AGIOS
+}
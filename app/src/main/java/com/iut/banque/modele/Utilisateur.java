@@ -2,14 +2,25 @@ package com.iut.banque.modele;
 
 import jakarta.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.iut.banque.cryptage.HashFormat;
 import com.iut.banque.cryptage.PasswordHasher;
 // keep the throws on setUserId for subclasses (e.g., Client) that validate the format
 import com.iut.banque.exceptions.IllegalFormatException;
 
 /**
  * Classe représentant un utilisateur quelconque.
+ *
+ * Les utilisateurs (clients et gestionnaires) sont lus à chaque connexion et à
+ * chaque page mais rarement modifiés : ils sont gardés dans le cache de second
+ * niveau (région utilisateurs), en lecture-écriture pour qu'une modification
+ * validée ne laisse jamais lire l'ancienne version.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "utilisateurs")
 @Table(name = "`Utilisateur`")
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "type", discriminatorType = DiscriminatorType.STRING, length = 15)
@@ -89,30 +100,17 @@ public abstract class Utilisateur {
 			return;
 		}
 
-		// Compatible migration:
-		// - ancien format: SHA-256 hex (64 chars)
-		// - nouveau format recommandé: {bcrypt}... (DelegatingPasswordEncoder) ou
-		// {sha256}...
-		if (userPwd.startsWith("{") && userPwd.contains("}")) {
-			this.userPwd = userPwd;
-			return;
-		}
-
-		// BCrypt natif (ex: $2a$10$..., $2b$10$...)
-		if (userPwd.matches("^\\$2[aby]\\$\\d\\d\\$.*$")) {
-			this.userPwd = userPwd;
-			return;
-		}
-
-		if (userPwd.length() == 64 && userPwd.matches("[0-9a-f]{64}")) {
+		// Valeur déjà encodée (BCrypt, {id}..., ancien SHA-256) : format reconnu à
+		// son préfixe par HashFormat, sans expression régulière.
+		if (HashFormat.isEncoded(userPwd)) {
 			this.userPwd = userPwd;
 			return;
 		}
 
 		// Par défaut on conserve le comportement legacy (SHA-256) pour éviter de
-		// stocker du clair.
-		// Dans la migration, privilégier un encodage côté service via PasswordEncoder
-		// (BCrypt).
+		// stocker du clair ; le hash sera migré vers BCrypt à la première
+		// connexion (PasswordUpgradeService). Privilégier un encodage côté
+		// service via PasswordStorage.
 		this.userPwd = PasswordHasher.hashPassword(userPwd);
 	}
 
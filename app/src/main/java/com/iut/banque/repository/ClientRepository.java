@@ -1,10 +1,52 @@
 package com.iut.banque.repository;
 
+import com.iut.banque.api.dto.ClientSummary;
 import com.iut.banque.modele.Client;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ClientRepository extends JpaRepository<Client, String> {
   Optional<Client> findByNumeroClient(String numeroClient);
+
+  /**
+   * Tous les clients (filtre de la page des comptes, liste des gestionnaires),
+   * servis par le cache de requêtes : les identifiants sont relus tant
+   * qu'aucun utilisateur n'a été ajouté, modifié ou supprimé, et les clients
+   * eux-mêmes viennent du cache de second niveau.
+   */
+  @Override
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+  List<Client> findAll();
+
+  /**
+   * Tous les clients, triés par identifiant, lus au fil de l'eau par un
+   * curseur (voir {@link CompteRepository#streamSummaries()}).
+   */
+  @QueryHints({
+      @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = CompteRepository.EXPORT_FETCH_SIZE),
+      @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+  @Query("select new com.iut.banque.api.dto.ClientSummary(c.userId, c.nom, c.prenom, c.adresse, c.male,"
+      + " c.numeroClient) from Client c order by c.userId")
+  Stream<ClientSummary> streamSummaries();
+
+  /**
+   * Parmi les identifiants donnés, ceux des clients existants.
+   */
+  @Query("select c.userId from Client c where c.userId in :userIds")
+  List<String> findExistingUserIds(@Param("userIds") Collection<String> userIds);
+
+  /**
+   * Parmi les numéros de client donnés, ceux déjà attribués.
+   */
+  @Query("select c.numeroClient from Client c where c.numeroClient in :numeros")
+  List<String> findExistingNumerosClient(@Param("numeros") Collection<String> numeros);
 }
@@ -1,10 +1,161 @@
 package com.iut.banque.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import com.iut.banque.api.dto.AccountSummary;
 import com.iut.banque.modele.Compte;
+import com.iut.banque.modele.Montant;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface CompteRepository extends JpaRepository<Compte, String> {
 
-    // Retourne tous les comptes appartenant à l'utilisateur identifié par userId
-    java.util.List<Compte> findByOwnerUserId(String userId);
+    /**
+     * Tous les comptes, avec leur propriétaire chargé dans la même requête.
+     */
+    @Override
+    @EntityGraph(attributePaths = "owner")
+    List<Compte> findAll();
+
+    // Retourne tous les comptes appartenant à l'utilisateur identifié par userId,
+    // avec leur propriétaire chargé dans la même requête
+    @EntityGraph(attributePaths = "owner")
+    List<Compte> findByOwnerUserId(String userId);
+
+    String SUMMARY = "select new com.iut.banque.api.dto.AccountSummary(c.numeroCompte, c.solde, type(c),"
+            + " treat(c as CompteAvecDecouvert).decouvertAutorise, c.owner.userId) from Compte c ";
+
+    /**
+     * Première page de la liste des comptes, triée par numéro de compte.
+     *
+     * Projection sur les seules colonnes de Compte : ni entité gérée, ni
+     * chargement du propriétaire.
+     */
+    @Query(SUMMARY + "order by c.numeroCompte")
+    List<AccountSummary> findSummaries(Limit limit);
+
+    /**
+     * Page suivante de la liste des comptes (pagination par clé) : les comptes
+     * dont le numéro suit strictement {@code after}. La requête parcourt
+     * l'index de la clé primaire à partir de {@code after}, son coût ne dépend
+     * donc pas de la position de la page dans la liste.
+     */
+    @Query(SUMMARY + "where c.numeroCompte > :after order by c.numeroCompte")
+    List<AccountSummary> findSummariesAfter(@Param("after") String after, Limit limit);
+
+    /**
+     * Taille des paquets de lignes lus par les curseurs d'export.
+     */
+    String EXPORT_FETCH_SIZE = "1000";
+
+    /**
+     * Tous les comptes, triés par numéro, lus au fil de l'eau par un curseur
+     * (lignes demandées à la base par paquets de {@link #EXPORT_FETCH_SIZE}) :
+     * la mémoire utilisée ne dépend pas du nombre de comptes. À consommer dans
+     * une transaction, puis à fermer.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    @Query(SUMMARY + "order by c.numeroCompte")
+    Stream<AccountSummary> streamSummaries();
+
+    /**
+     * Parmi les numéros de compte donnés, ceux déjà attribués.
+     */
+    @Query("select c.numeroCompte from Compte c where c.numeroCompte in :numeros")
+    List<String> findExistingNumerosCompte(@Param("numeros") Collection<String> numeros);
+
+    /**
+     * Solde et découvert d'un compte, sans charger l'entité ni son
+     * propriétaire.
+     */
+    @Query(SUMMARY + "where c.numeroCompte = :numeroCompte")
+    Optional<AccountSummary> findSummaryById(@Param("numeroCompte") String numeroCompte);
+
+    /**
+     * Identifiant du titulaire d'un compte, sans charger l'entité.
+     */
+    @Query("select c.owner.userId from Compte c where c.numeroCompte = :numeroCompte")
+    Optional<String> findOwnerUserIdById(@Param("numeroCompte") String numeroCompte);
+
+    /**
+     * Classe concrète d'un compte (lue dans la colonne discriminante).
+     */
+    @Query("select type(c) from Compte c where c.numeroCompte = :numeroCompte")
+    Optional<Class<? extends Compte>> findTypeById(@Param("numeroCompte") String numeroCompte);
+
+    /**
+     * Charge les comptes demandés en posant un verrou exclusif sur leurs lignes
+     * (SELECT ... FOR UPDATE) jusqu'à la fin de la transaction courante.
+     *
+     * Les lignes sont parcourues et verrouillées dans l'ordre croissant des
+     * numéros de compte, ce qui évite les interblocages entre deux transactions
+     * qui verrouillent les mêmes comptes. Les verrous sont pris en une seule
+     * requête : les comptes sont donc lus sous verrou avant que le graphe du
+     * propriétaire ne soit chargé dans le contexte de persistance.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Compte c where c.numeroCompte in :numerosCompte order by c.numeroCompte")
+    List<Compte> findAllByIdForUpdate(@Param("numerosCompte") Collection<String> numerosCompte);
+
+    /**
+     * Crédite un compte en une seule instruction UPDATE, sans charger l'entité.
+     *
+     * En JPQL plutôt qu'en SQL natif : Hibernate sait ainsi que seule la table
+     * Compte est modifiée et ne vide pas le cache de second niveau des
+     * utilisateurs (une requête native le viderait entièrement). Le calcul est
+     * fait par la base sur la colonne en centimes.
+     *
+     * @return le nombre de lignes modifiées : 0 si le compte n'existe pas
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Compte c set c.solde = c.solde + :montant where c.numeroCompte = :numeroCompte")
+    int crediter(@Param("numeroCompte") String numeroCompte, @Param("montant") Montant montant);
+
+    /**
+     * Débite un compte en une seule instruction UPDATE conditionnelle, sans
+     * charger l'entité : la ligne n'est modifiée que si le solde augmenté du
+     * découvert autorisé (comptes AVEC découvert uniquement) couvre le montant.
+     *
+     * La condition est évaluée par la base sur la ligne verrouillée par l'UPDATE,
+     * il n'y a donc pas de fenêtre entre la lecture du solde et son écriture.
+     * En JPQL, comme {@link #crediter}.
+     *
+     * @return le nombre de lignes modifiées : 0 si le compte n'existe pas ou si
+     *         la provision est insuffisante
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Compte c set c.solde = c.solde - :montant where c.numeroCompte = :numeroCompte"
+            + " and c.solde + (case when type(c) = CompteAvecDecouvert"
+            + " then coalesce(treat(c as CompteAvecDecouvert).decouvertAutorise, 0) else 0 end) >= :montant")
+    int debiter(@Param("numeroCompte") String numeroCompte, @Param("montant") Montant montant);
+
+    /**
+     * Change le découvert autorisé d'un compte AVEC découvert en une seule
+     * instruction UPDATE conditionnelle, sans charger l'entité ni réécrire son
+     * solde : la ligne n'est modifiée que si le nouveau découvert couvre le
+     * solde actuel. Dans sa propre transaction si l'appelant n'en a pas.
+     *
+     * @return le nombre de lignes modifiées : 0 si le compte n'existe pas, est
+     *         sans découvert, ou si son solde est inférieur au nouveau découvert
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update CompteAvecDecouvert c set c.decouvertAutorise = :decouvert"
+            + " where c.numeroCompte = :numeroCompte and c.solde + :decouvert >= 0")
+    int changerDecouvert(@Param("numeroCompte") String numeroCompte, @Param("decouvert") Montant decouvert);
 }
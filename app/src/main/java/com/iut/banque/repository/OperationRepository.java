@@ -0,0 +1,12 @@
+package com.iut.banque.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.iut.banque.modele.Operation;
+
+/**
+ * Journal des opérations, en ajout seul : seuls save / saveAll sont utilisés
+ * sur le chemin d'écriture.
+ */
+public interface OperationRepository extends JpaRepository<Operation, Long> {
+}
@@ -0,0 +1,15 @@
+package com.iut.banque.repository;
+
+import java.util.List;
+
+import com.iut.banque.modele.OrdrePermanent;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Ordres permanents : création et lecture ; les exécutions sont enregistrées
+ * en SQL par StandingOrderService.
+ */
+public interface OrdrePermanentRepository extends JpaRepository<OrdrePermanent, Long> {
+
+    List<OrdrePermanent> findByCompteDebitOrderById(String compteDebit);
+}
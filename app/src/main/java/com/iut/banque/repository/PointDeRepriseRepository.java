@@ -0,0 +1,8 @@
+package com.iut.banque.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.iut.banque.modele.PointDeReprise;
+
+public interface PointDeRepriseRepository extends JpaRepository<PointDeReprise, String> {
+}
@@ -0,0 +1,29 @@
+package com.iut.banque.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.iut.banque.api.dto.BalanceSnapshot;
+import com.iut.banque.modele.SoldeJournalier;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * Positions de fin de journée, en lecture seule : les lignes sont écrites en
+ * SQL par SnapshotService.
+ */
+public interface SoldeJournalierRepository extends JpaRepository<SoldeJournalier, SoldeJournalier.Cle> {
+
+    /**
+     * Positions d'un compte entre deux dates incluses, triées par date. La
+     * requête ne lit que les partitions des mois demandés, par l'index
+     * (numeroCompte, dateSolde).
+     */
+    @Query("select new com.iut.banque.api.dto.BalanceSnapshot(s.id.dateSolde, s.solde, s.decouvertAutorise)"
+            + " from SoldeJournalier s where s.id.numeroCompte = :numeroCompte"
+            + " and s.id.dateSolde between :from and :to order by s.id.dateSolde")
+    List<BalanceSnapshot> findByCompte(@Param("numeroCompte") String numeroCompte, @Param("from") LocalDate from,
+            @Param("to") LocalDate to, Limit limit);
+}
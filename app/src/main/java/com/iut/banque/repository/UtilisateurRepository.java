@@ -2,6 +2,32 @@ package com.iut.banque.repository;
 
 import com.iut.banque.modele.Utilisateur;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface UtilisateurRepository extends JpaRepository<Utilisateur, String> {
+
+    /**
+     * Remplace le hash du mot de passe seulement s'il n'a pas changé depuis sa
+     * lecture (mise à jour conditionnelle, sans charger l'entité). En JPQL :
+     * Hibernate retire alors les utilisateurs du cache de second niveau.
+     *
+     * @return 1 si le hash a été remplacé, 0 si l'utilisateur n'existe pas ou
+     *         si son mot de passe a été modifié entre-temps
+     */
+    @Modifying
+    @Query("update Utilisateur u set u.userPwd = :nouveau where u.userId = :userId and u.userPwd = :ancien")
+    int updatePasswordIfUnchanged(@Param("userId") String userId, @Param("ancien") String ancien,
+            @Param("nouveau") String nouveau);
+
+    /**
+     * Parmi les identifiants donnés, ceux déjà utilisés (clients et
+     * gestionnaires).
+     */
+    @Query("select u.userId from Utilisateur u where u.userId in :userIds")
+    List<String> findExistingUserIds(@Param("userIds") Collection<String> userIds);
 }
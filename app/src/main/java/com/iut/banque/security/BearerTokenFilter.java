@@ -0,0 +1,58 @@
+package com.iut.banque.security;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.iut.banque.security.TokenService.AuthenticatedUser;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Authentifie la requête à partir de l'en-tête {@code Authorization: Bearer
+ * <jeton>}. L'authentification n'est portée que par la requête (contexte de
+ * sécurité du thread courant) : rien n'est stocké en session ni en base.
+ *
+ * Une requête sans jeton ou avec un jeton invalide reste anonyme ; ce sont les
+ * règles d'autorisation de {@link com.iut.banque.config.SecurityConfig} qui
+ * décident de la refuser.
+ *
+ * Ce filtre n'est pas un @Component : il est créé par SecurityConfig, pour ne
+ * pas être enregistré une seconde fois comme filtre de servlet.
+ */
+public class BearerTokenFilter extends OncePerRequestFilter {
+
+  private static final String PREFIXE = "Bearer ";
+
+  private final TokenService tokenService;
+
+  public BearerTokenFilter(TokenService tokenService) {
+    this.tokenService = tokenService;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+    if (header != null && header.regionMatches(true, 0, PREFIXE, 0, PREFIXE.length())) {
+      AuthenticatedUser user = tokenService.verify(header.substring(PREFIXE.length()).trim());
+      if (user != null) {
+        UsernamePasswordAuthenticationToken authentication = UsernamePasswordAuthenticationToken.authenticated(
+            user.userId(), null, List.of(new SimpleGrantedAuthority("ROLE_" + user.role())));
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authentication);
+        SecurityContextHolder.setContext(context);
+      }
+    }
+    chain.doFilter(request, response);
+  }
+}
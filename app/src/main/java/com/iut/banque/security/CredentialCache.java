@@ -0,0 +1,134 @@
+package com.iut.banque.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cache des identifiants récemment vérifiés, pour ne pas refaire un calcul
+ * BCrypt (volontairement coûteux) à chaque connexion d'un même utilisateur.
+ *
+ * Pour chaque utilisateur, le cache garde une empreinte HMAC-SHA256 de
+ * (userId, mot de passe saisi, hash stocké) calculée avec une clé aléatoire
+ * propre au processus : le mot de passe en clair n'est jamais conservé, et
+ * l'empreinte ne permet pas de le retrouver sans la clé. Le hash stocké fait
+ * partie de l'empreinte, donc un changement de mot de passe rend l'entrée
+ * caduque même s'il n'est pas passé par {@link #invalidate}.
+ *
+ * Les entrées expirent après banque.security.credential-cache.ttl et le cache
+ * est borné à banque.security.credential-cache.max-size utilisateurs.
+ */
+@Component
+public class CredentialCache {
+
+  private static final String ALGORITHME = "HmacSHA256";
+
+  private record Entree(byte[] empreinte, long expiration) {
+  }
+
+  private final ConcurrentHashMap<String, Entree> entrees = new ConcurrentHashMap<>();
+  private final Mac prototype;
+  private final long ttlNanos;
+  private final int maxSize;
+  private final Counter hits;
+  private final Counter misses;
+
+  public CredentialCache(@Value("${banque.security.credential-cache.ttl:PT5M}") Duration ttl,
+      @Value("${banque.security.credential-cache.max-size:10000}") int maxSize,
+      MeterRegistry meterRegistry) {
+    this.ttlNanos = ttl.toNanos();
+    this.maxSize = maxSize;
+    byte[] cle = new byte[32];
+    new SecureRandom().nextBytes(cle);
+    try {
+      this.prototype = Mac.getInstance(ALGORITHME);
+      this.prototype.init(new SecretKeySpec(cle, ALGORITHME));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("HMAC-SHA256 indisponible", e);
+    }
+    this.hits = Counter.builder("banque.credentials.cache").tag("result", "hit")
+        .description("Connexions vérifiées sans recalcul du hash").register(meterRegistry);
+    this.misses = Counter.builder("banque.credentials.cache").tag("result", "miss")
+        .description("Connexions nécessitant la vérification complète du hash").register(meterRegistry);
+    Gauge.builder("banque.credentials.cache.size", entrees, ConcurrentHashMap::size).register(meterRegistry);
+  }
+
+  /**
+   * Vrai si ce mot de passe a déjà été vérifié pour cet utilisateur, avec ce
+   * hash stocké, il y a moins de ttl.
+   */
+  public boolean isVerified(String userId, String rawPassword, String storedHash) {
+    Entree entree = entrees.get(userId);
+    if (entree != null && entree.expiration() - System.nanoTime() > 0
+        && MessageDigest.isEqual(entree.empreinte(), empreinte(userId, rawPassword, storedHash))) {
+      hits.increment();
+      return true;
+    }
+    misses.increment();
+    return false;
+  }
+
+  /**
+   * Mémorise une vérification réussie.
+   */
+  public void put(String userId, String rawPassword, String storedHash) {
+    if (entrees.size() >= maxSize && !entrees.containsKey(userId)) {
+      libererPlace();
+    }
+    entrees.put(userId, new Entree(empreinte(userId, rawPassword, storedHash), System.nanoTime() + ttlNanos));
+  }
+
+  /**
+   * Oublie les vérifications de cet utilisateur (changement de mot de passe).
+   */
+  public void invalidate(String userId) {
+    entrees.remove(userId);
+  }
+
+  public int size() {
+    return entrees.size();
+  }
+
+  /**
+   * Retire les entrées expirées ; si le cache reste plein, retire une entrée
+   * quelconque. Le cache est une optimisation : une entrée retirée coûte au
+   * pire une vérification complète.
+   */
+  private void libererPlace() {
+    long maintenant = System.nanoTime();
+    entrees.values().removeIf(e -> e.expiration() - maintenant <= 0);
+    Iterator<String> it = entrees.keySet().iterator();
+    while (entrees.size() >= maxSize && it.hasNext()) {
+      it.next();
+      it.remove();
+    }
+  }
+
+  private byte[] empreinte(String userId, String rawPassword, String storedHash) {
+    Mac mac;
+    try {
+      mac = (Mac) prototype.clone();
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException("HMAC-SHA256 non clonable", e);
+    }
+    mac.update(userId.getBytes(StandardCharsets.UTF_8));
+    mac.update((byte) 0);
+    mac.update(rawPassword.getBytes(StandardCharsets.UTF_8));
+    mac.update((byte) 0);
+    return mac.doFinal(storedHash.getBytes(StandardCharsets.UTF_8));
+  }
+}
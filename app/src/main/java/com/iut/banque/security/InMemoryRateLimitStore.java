@@ -0,0 +1,132 @@
+package com.iut.banque.security;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compteurs de tentatives en mémoire, par fenêtre glissante approchée : le
+ * nombre de tentatives de la fenêtre précédente est pondéré par la part de
+ * cette fenêtre encore couverte par la fenêtre glissante.
+ *
+ * L'état d'une clé (numéro de fenêtre, compteurs de la fenêtre courante et de
+ * la précédente) tient dans un seul long mis à jour par compare-and-set : pas
+ * de verrou ni d'allocation pour une clé déjà connue.
+ */
+@Component
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+  private static final long MAX_COMPTEUR = 0xFFFF;
+
+  private final ConcurrentHashMap<String, AtomicLong> etats = new ConcurrentHashMap<>();
+  private final LongSupplier horloge;
+  private final int maxKeys;
+
+  @Autowired
+  public InMemoryRateLimitStore(@Value("${banque.security.login-rate-limit.max-keys:100000}") int maxKeys) {
+    this(maxKeys, System::nanoTime);
+  }
+
+  InMemoryRateLimitStore(int maxKeys, LongSupplier horloge) {
+    this.maxKeys = maxKeys;
+    this.horloge = horloge;
+  }
+
+  @Override
+  public long tryAcquire(String key, int limit, long windowNanos) {
+    long maintenant = horloge.getAsLong();
+    long fenetre = Math.floorDiv(maintenant, windowNanos);
+    long ecoule = maintenant - fenetre * windowNanos;
+
+    AtomicLong etat = etats.get(key);
+    if (etat == null) {
+      if (etats.size() >= maxKeys) {
+        purger(fenetre);
+      }
+      etat = etats.computeIfAbsent(key, k -> new AtomicLong(pack(fenetre, 0, 0)));
+    }
+
+    while (true) {
+      long courant = etat.get();
+      long precedent;
+      long compteur;
+      long index = fenetreDe(courant);
+      if (index == (fenetre & 0xFFFFFFFFL)) {
+        precedent = precedentDe(courant);
+        compteur = compteurDe(courant);
+      } else if (index == ((fenetre - 1) & 0xFFFFFFFFL)) {
+        precedent = compteurDe(courant);
+        compteur = 0;
+      } else {
+        precedent = 0;
+        compteur = 0;
+      }
+
+      // tentatives sur la fenêtre glissante [maintenant - window, maintenant]
+      double estimation = precedent * (double) (windowNanos - ecoule) / windowNanos + compteur;
+      if (estimation >= limit) {
+        return attente(limit, windowNanos, ecoule, precedent, compteur);
+      }
+      if (etat.compareAndSet(courant, pack(fenetre, precedent, Math.min(compteur + 1, MAX_COMPTEUR)))) {
+        return 0;
+      }
+    }
+  }
+
+  public int size() {
+    return etats.size();
+  }
+
+  /**
+   * Délai avant que l'estimation repasse sous la limite, les compteurs ne
+   * changeant plus.
+   */
+  private static long attente(int limit, long windowNanos, long ecoule, long precedent, long compteur) {
+    if (compteur < limit) {
+      // precedent * (1 - f) + compteur < limit
+      double f = 1 - (double) (limit - compteur) / precedent;
+      return Math.max(1, (long) Math.ceil(f * windowNanos) - ecoule + 1);
+    }
+    // attendre la fenêtre suivante, où compteur devient precedent
+    double f = 1 - (double) limit / compteur;
+    return (windowNanos - ecoule) + (long) Math.ceil(f * windowNanos) + 1;
+  }
+
+  /**
+   * Retire les clés sans tentative sur les deux dernières fenêtres ; si la
+   * table reste pleine, la vide. Perdre des compteurs ne fait qu'accorder
+   * quelques tentatives de plus.
+   */
+  private void purger(long fenetre) {
+    long precedente = (fenetre - 1) & 0xFFFFFFFFL;
+    long courante = fenetre & 0xFFFFFFFFL;
+    etats.values().removeIf(e -> {
+      long index = fenetreDe(e.get());
+      return index != courante && index != precedente;
+    });
+    if (etats.size() >= maxKeys) {
+      etats.clear();
+    }
+  }
+
+  // [fenêtre : 32 bits][précédent : 16 bits][courant : 16 bits]
+  private static long pack(long fenetre, long precedent, long compteur) {
+    return (fenetre << 32) | (precedent << 16) | compteur;
+  }
+
+  private static long fenetreDe(long etat) {
+    return etat >>> 32;
+  }
+
+  private static long precedentDe(long etat) {
+    return (etat >>> 16) & MAX_COMPTEUR;
+  }
+
+  private static long compteurDe(long etat) {
+    return etat & MAX_COMPTEUR;
+  }
+}
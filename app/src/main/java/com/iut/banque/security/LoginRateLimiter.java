@@ -0,0 +1,67 @@
+package com.iut.banque.security;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.iut.banque.exceptions.TooManyAttemptsException;
+
+/**
+ * Limitation des tentatives de connexion, par identifiant et par adresse du
+ * client, appliquée avant la vérification du mot de passe : un attaquant ne
+ * peut pas faire calculer plus de hash BCrypt que la limite ne le permet.
+ *
+ * Toutes les tentatives sont comptées, réussies ou non : c'est le coût de la
+ * vérification que l'on borne. Les limites sont lues dans
+ * banque.security.login-rate-limit.
+ */
+@Component
+public class LoginRateLimiter {
+
+  private static final String PREFIXE_UTILISATEUR = "u:";
+  private static final String PREFIXE_ADRESSE = "ip:";
+
+  private final RateLimitStore store;
+  private final long windowNanos;
+  private final int perUser;
+  private final int perAddress;
+
+  public LoginRateLimiter(RateLimitStore store,
+      @Value("${banque.security.login-rate-limit.window:PT1M}") Duration window,
+      @Value("${banque.security.login-rate-limit.per-user:10}") int perUser,
+      @Value("${banque.security.login-rate-limit.per-address:100}") int perAddress) {
+    this.store = store;
+    this.windowNanos = window.toNanos();
+    this.perUser = perUser;
+    this.perAddress = perAddress;
+  }
+
+  /**
+   * Enregistre une tentative de connexion.
+   *
+   * @param userId
+   *                      : l'identifiant saisi
+   * @param remoteAddress
+   *                      : l'adresse du client
+   * @throws TooManyAttemptsException
+   *                                  : si la limite est atteinte pour
+   *                                  l'adresse ou pour l'identifiant
+   */
+  public void acquire(String userId, String remoteAddress) throws TooManyAttemptsException {
+    if (remoteAddress != null) {
+      long attente = store.tryAcquire(PREFIXE_ADRESSE + remoteAddress, perAddress, windowNanos);
+      if (attente > 0) {
+        throw new TooManyAttemptsException("Trop de tentatives de connexion depuis cette adresse",
+            Duration.ofNanos(attente));
+      }
+    }
+    if (userId != null) {
+      long attente = store.tryAcquire(PREFIXE_UTILISATEUR + userId, perUser, windowNanos);
+      if (attente > 0) {
+        throw new TooManyAttemptsException("Trop de tentatives de connexion pour cet identifiant",
+            Duration.ofNanos(attente));
+      }
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package com.iut.banque.security;
+
+/**
+ * Stockage des compteurs de tentatives utilisés par {@link LoginRateLimiter}.
+ *
+ * L'implémentation par défaut ({@link InMemoryRateLimitStore}) est locale au
+ * nœud. Pour partager les compteurs entre plusieurs nœuds, déclarer une autre
+ * implémentation comme bean {@code @Primary} (Redis, Hazelcast...).
+ */
+public interface RateLimitStore {
+
+  /**
+   * Enregistre une tentative pour la clé si moins de {@code limit} tentatives
+   * ont été enregistrées sur la dernière fenêtre glissante.
+   *
+   * @param key
+   *                      : la clé limitée (utilisateur, adresse...)
+   * @param limit
+   *                      : nombre de tentatives autorisées par fenêtre
+   * @param windowNanos
+   *                      : durée de la fenêtre, en nanosecondes
+   * @return 0 si la tentative est acceptée, sinon le délai en nanosecondes
+   *         avant qu'une tentative soit de nouveau acceptée
+   */
+  long tryAcquire(String key, int limit, long windowNanos);
+}
@@ -0,0 +1,64 @@
+package com.iut.banque.security;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Authentifie le collecteur Prometheus sur {@code /actuator/prometheus} par
+ * un jeton fixe ({@code banque.metrics.scrape-token}) : les jetons de l'API
+ * expirent au bout d'une heure et ne conviennent pas à une collecte sans
+ * intervention.
+ *
+ * Le jeton n'est accepté que sur ce chemin, et ne donne que le rôle METRICS :
+ * il n'ouvre ni l'API ni les autres endpoints de l'actuator. Sans jeton
+ * configuré, le filtre ne fait rien.
+ *
+ * Comme {@link BearerTokenFilter}, ce filtre est créé par SecurityConfig.
+ */
+public class ScrapeTokenFilter extends OncePerRequestFilter {
+
+  public static final String CHEMIN = "/actuator/prometheus";
+  public static final String ROLE = "METRICS";
+
+  private static final String PREFIXE = "Bearer ";
+
+  private final byte[] jeton;
+
+  public ScrapeTokenFilter(String jeton) {
+    this.jeton = jeton.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return jeton.length == 0 || !(request.getContextPath() + CHEMIN).equals(request.getRequestURI());
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+    if (header != null && header.regionMatches(true, 0, PREFIXE, 0, PREFIXE.length())
+        && MessageDigest.isEqual(jeton, header.substring(PREFIXE.length()).trim().getBytes(StandardCharsets.UTF_8))) {
+      UsernamePasswordAuthenticationToken authentication = UsernamePasswordAuthenticationToken.authenticated(
+          "prometheus", null, List.of(new SimpleGrantedAuthority("ROLE_" + ROLE)));
+      SecurityContext context = SecurityContextHolder.createEmptyContext();
+      context.setAuthentication(authentication);
+      SecurityContextHolder.setContext(context);
+    }
+    chain.doFilter(request, response);
+  }
+}
@@ -0,0 +1,148 @@
+package com.iut.banque.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Émission et vérification des jetons d'authentification de l'API.
+ *
+ * Un jeton a la forme {@code base64url(userId|role|expiration).base64url(hmac)}
+ * où hmac est le HMAC-SHA256 de la première partie avec la clé secrète de
+ * l'application. Il est vérifié localement, sans accès à la base ni état
+ * partagé : tous les nœuds configurés avec la même clé acceptent les mêmes
+ * jetons.
+ */
+@Service
+public class TokenService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TokenService.class);
+
+  private static final String ALGORITHME = "HmacSHA256";
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  /**
+   * Utilisateur authentifié par un jeton valide.
+   */
+  public record AuthenticatedUser(String userId, String role) {
+  }
+
+  /**
+   * Mac initialisé avec la clé, cloné à chaque utilisation : un Mac n'est pas
+   * utilisable par plusieurs threads à la fois, et le clone évite de repasser
+   * par la recherche du fournisseur et l'initialisation de la clé.
+   */
+  private final Mac prototype;
+  private final SecretKeySpec cle;
+  private final Duration ttl;
+  private final Clock clock;
+
+  @Autowired
+  public TokenService(@Value("${banque.security.token.secret:}") String secret,
+      @Value("${banque.security.token.ttl:PT1H}") Duration ttl) {
+    this(secret, ttl, Clock.systemUTC());
+  }
+
+  TokenService(String secret, Duration ttl, Clock clock) {
+    this.cle = new SecretKeySpec(lireCle(secret), ALGORITHME);
+    this.prototype = initMac(this.cle);
+    this.ttl = ttl;
+    this.clock = clock;
+  }
+
+  private static byte[] lireCle(String secret) {
+    if (secret == null || secret.isBlank()) {
+      LOGGER.warn("banque.security.token.secret n'est pas défini : clé aléatoire, les jetons ne seront"
+          + " valides que sur ce nœud et jusqu'à son redémarrage");
+      byte[] cle = new byte[32];
+      new SecureRandom().nextBytes(cle);
+      return cle;
+    }
+    return Base64.getDecoder().decode(secret);
+  }
+
+  private static Mac initMac(SecretKeySpec cle) {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHME);
+      mac.init(cle);
+      return mac;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("HMAC-SHA256 indisponible", e);
+    }
+  }
+
+  private byte[] signer(byte[] donnees) {
+    Mac mac;
+    try {
+      mac = (Mac) prototype.clone();
+    } catch (CloneNotSupportedException e) {
+      // fournisseur sans clone : un Mac neuf par signature
+      mac = initMac(cle);
+    }
+    return mac.doFinal(donnees);
+  }
+
+  /**
+   * Émet un jeton pour l'utilisateur, valable pendant la durée configurée
+   * (banque.security.token.ttl).
+   */
+  public String issue(String userId, String role) {
+    long expiration = clock.instant().plus(ttl).getEpochSecond();
+    byte[] contenu = (userId + '|' + role + '|' + expiration).getBytes(StandardCharsets.UTF_8);
+    return ENCODER.encodeToString(contenu) + '.' + ENCODER.encodeToString(signer(contenu));
+  }
+
+  /**
+   * Vérifie un jeton.
+   *
+   * @return l'utilisateur authentifié, ou null si le jeton est mal formé, a été
+   *         modifié ou a expiré
+   */
+  public AuthenticatedUser verify(String token) {
+    if (token == null) {
+      return null;
+    }
+    int point = token.indexOf('.');
+    if (point <= 0 || point != token.lastIndexOf('.')) {
+      return null;
+    }
+    byte[] contenu;
+    byte[] signature;
+    try {
+      contenu = DECODER.decode(token.substring(0, point));
+      signature = DECODER.decode(token.substring(point + 1));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+    // comparaison en temps constant
+    if (!MessageDigest.isEqual(signer(contenu), signature)) {
+      return null;
+    }
+    String[] champs = new String(contenu, StandardCharsets.UTF_8).split("\\|");
+    if (champs.length != 3) {
+      return null;
+    }
+    try {
+      if (Long.parseLong(champs[2]) <= clock.instant().getEpochSecond()) {
+        return null;
+      }
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    return new AuthenticatedUser(champs[0], champs[1]);
+  }
+}
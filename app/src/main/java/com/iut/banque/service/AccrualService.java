@@ -0,0 +1,396 @@
+package com.iut.banque.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.engine.BalanceEngine;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.modele.Operation;
+import com.iut.banque.modele.TypeOperation;
+import com.iut.banque.repository.OperationRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Arrêté journalier : intérêts créditeurs sur les soldes positifs et agios
+ * sur les soldes débiteurs, calculés chaque nuit ({@code banque.accrual.cron})
+ * sur les positions de fin de journée de la veille (voir
+ * {@link SnapshotService}).
+ *
+ * Pour un solde S en centimes et un taux annuel T, le montant du jour est
+ * S × T / 365, arrondi au centime (au pair en cas d'égalité). Les positions
+ * sont lues par tranches de {@code banque.accrual.chunk-size} numéros de
+ * compte consécutifs ; pour chaque tranche :
+ * <ul>
+ * <li>les montants sont calculés en parallèle sur un pool fork-join de
+ * {@code banque.accrual.parallelism} fils, sur des tableaux de centimes ;</li>
+ * <li>ils sont appliqués en une transaction : un UPDATE
+ * {@code solde = solde + montant} par compte concerné, en lot JDBC, les
+ * lignes du journal des opérations (INTERETS, AGIOS) et le point de reprise
+ * de l'arrêté ({@link com.iut.banque.modele.ArreteJournalier}). Avec le
+ * moteur de soldes à écriture différée, la transaction est exécutée par
+ * {@link BalanceEngine#ecrireEnBase} sur les comptes de la tranche.</li>
+ * </ul>
+ * Un arrêté interrompu reprend après le dernier compte traité ; un arrêté
+ * terminé n'est jamais rejoué. Le point de reprise est mis à jour en tête de
+ * transaction, à condition qu'il n'ait pas bougé : deux nœuds lancés sur la
+ * même date ne traitent jamais la même tranche.
+ */
+@Service
+public class AccrualService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AccrualService.class);
+
+  static final int JOURS_PAR_AN = 365;
+
+  /**
+   * Nombre minimal de comptes calculés par tâche du pool.
+   */
+  private static final int SEUIL_TACHE = 256;
+
+  /**
+   * Bilan d'un arrêté (ou de la partie faite par cet appel).
+   *
+   * @param interets
+   *                 : total des intérêts crédités
+   * @param agios
+   *                 : total des agios débités, positif
+   */
+  public record Report(LocalDate date, long comptes, Montant interets, Montant agios, long dureeMillis) {
+
+    public long comptesParSeconde() {
+      return comptes * 1000 / Math.max(1, dureeMillis);
+    }
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final OperationRepository operationRepository;
+  private final SnapshotService snapshotService;
+  private final LookupCache lookupCache;
+  private final BalanceEngine balanceEngine;
+  private final ZoneId zone;
+  private final ForkJoinPool pool;
+  private final Taux tauxInterets;
+  private final Taux tauxAgios;
+  private final String lecture;
+
+  /**
+   * @param parallelism
+   *                     : nombre de fils du calcul (0 : un par processeur)
+   * @param interestRate
+   *                     : taux annuel des intérêts créditeurs (0.01 pour 1 %)
+   * @param overdraftRate
+   *                     : taux annuel des agios sur un solde débiteur
+   */
+  public AccrualService(JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      OperationRepository operationRepository,
+      SnapshotService snapshotService,
+      LookupCache lookupCache,
+      @Nullable BalanceEngine balanceEngine,
+      @Value("${banque.snapshots.zone:Europe/Paris}") ZoneId zone,
+      @Value("${banque.accrual.chunk-size:10000}") int chunkSize,
+      @Value("${banque.accrual.parallelism:0}") int parallelism,
+      @Value("${banque.accrual.interest-rate:0}") BigDecimal interestRate,
+      @Value("${banque.accrual.overdraft-rate:0}") BigDecimal overdraftRate) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    this.operationRepository = operationRepository;
+    this.snapshotService = snapshotService;
+    this.lookupCache = lookupCache;
+    this.balanceEngine = balanceEngine;
+    this.zone = zone;
+    this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    this.tauxInterets = Taux.annuel(interestRate);
+    this.tauxAgios = Taux.annuel(overdraftRate);
+    this.lecture = "SELECT numeroCompte, solde FROM SoldeJournalier WHERE dateSolde = ? AND numeroCompte > ?"
+        + " ORDER BY numeroCompte LIMIT " + Math.max(1, chunkSize);
+  }
+
+  @PreDestroy
+  public void arreter() {
+    pool.shutdownNow();
+  }
+
+  public int getParallelism() {
+    return pool.getParallelism();
+  }
+
+  /**
+   * Arrêté de la veille ; "-" dans banque.accrual.cron désactive la tâche.
+   */
+  @Scheduled(cron = "${banque.accrual.cron:0 30 0 * * *}", zone = "${banque.snapshots.zone:Europe/Paris}")
+  public void accruePreviousDay() {
+    accrue(LocalDate.now(zone).minusDays(1));
+  }
+
+  /**
+   * Calcule et applique les intérêts et agios de la journée donnée, ou
+   * reprend l'arrêté là où il s'est arrêté.
+   */
+  public Report accrue(LocalDate date) {
+    long debut = System.nanoTime();
+    // positions de la journée, complétées si leur copie a été interrompue
+    snapshotService.snapshot(date);
+    try {
+      jdbcTemplate.update("INSERT INTO ArreteJournalier"
+          + " (dateArrete, dernierCompte, termine, comptes, interets, agios) VALUES (?, '', FALSE, 0, 0, 0)", date);
+    } catch (DuplicateKeyException e) {
+      // arrêté déjà commencé : reprise
+    }
+    Boolean termine = jdbcTemplate.queryForObject(
+        "SELECT termine FROM ArreteJournalier WHERE dateArrete = ?", Boolean.class, date);
+    if (Boolean.TRUE.equals(termine)) {
+      LOGGER.info("Arrêté du {} déjà effectué", date);
+      return new Report(date, 0, Montant.ZERO, Montant.ZERO, 0);
+    }
+    String dernier = jdbcTemplate.queryForObject(
+        "SELECT dernierCompte FROM ArreteJournalier WHERE dateArrete = ?", String.class, date);
+
+    Tranche total = new Tranche();
+    while (true) {
+      Tranche tranche = lire(date, dernier);
+      if (tranche.taille == 0) {
+        break;
+      }
+      pool.invoke(new Calcul(tranche, 0, tranche.taille));
+      if (!appliquer(date, dernier, tranche)) {
+        LOGGER.warn("Arrêté du {} : poursuivi par un autre nœud, arrêt après le compte {}", date, dernier);
+        return bilan(date, total, debut);
+      }
+      total.cumuler(tranche);
+      dernier = tranche.numeros.get(tranche.taille - 1);
+    }
+    jdbcTemplate.update("UPDATE ArreteJournalier SET termine = TRUE WHERE dateArrete = ?", date);
+    Report report = bilan(date, total, debut);
+    LOGGER.info("Arrêté du {} : {} comptes en {} ms ({} comptes/s, {} fils), intérêts {}, agios {}", date,
+        report.comptes(), report.dureeMillis(), report.comptesParSeconde(), pool.getParallelism(),
+        report.interets(), report.agios());
+    return report;
+  }
+
+  private static Report bilan(LocalDate date, Tranche total, long debut) {
+    return new Report(date, total.taille, Montant.deCentimes(total.interets), Montant.deCentimes(total.agios),
+        (System.nanoTime() - debut) / 1_000_000);
+  }
+
+  private Tranche lire(LocalDate date, String apres) {
+    Tranche tranche = new Tranche();
+    jdbcTemplate.query(lecture, rs -> {
+      tranche.ajouter(rs.getString(1), rs.getLong(2));
+    }, date, apres);
+    tranche.montants = new long[tranche.taille];
+    return tranche;
+  }
+
+  /**
+   * Applique une tranche calculée en une transaction.
+   *
+   * @return false si le point de reprise a été déplacé par un autre nœud
+   */
+  private boolean appliquer(LocalDate date, String apres, Tranche tranche) {
+    if (balanceEngine == null) {
+      return appliquerEnTransaction(date, apres, tranche);
+    }
+    boolean[] applique = new boolean[1];
+    try {
+      balanceEngine.ecrireEnBase(tranche.numeros,
+          () -> applique[0] = appliquerEnTransaction(date, apres, tranche));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return applique[0];
+  }
+
+  private boolean appliquerEnTransaction(LocalDate date, String apres, Tranche tranche) {
+    Boolean applique = transactionTemplate.execute(status -> {
+      // en premier : verrouille la ligne de l'arrêté jusqu'à la fin de la
+      // transaction, un autre nœud attend puis ne trouve plus la valeur attendue
+      String jusqua = tranche.numeros.get(tranche.taille - 1);
+      if (jdbcTemplate.update("UPDATE ArreteJournalier SET dernierCompte = ?"
+          + " WHERE dateArrete = ? AND dernierCompte = ? AND termine = FALSE", jusqua, date, apres) == 0) {
+        status.setRollbackOnly();
+        return false;
+      }
+      List<Object[]> parametres = new ArrayList<>();
+      List<Integer> indices = new ArrayList<>();
+      for (int i = 0; i < tranche.taille; i++) {
+        if (tranche.montants[i] != 0) {
+          parametres.add(new Object[] { tranche.montants[i], tranche.numeros.get(i) });
+          indices.add(i);
+        }
+      }
+      int[] lignes = jdbcTemplate.batchUpdate("UPDATE Compte SET solde = solde + ? WHERE numeroCompte = ?",
+          parametres);
+      List<Operation> operations = new ArrayList<>(indices.size());
+      for (int k = 0; k < lignes.length; k++) {
+        int i = indices.get(k);
+        String numero = tranche.numeros.get(i);
+        long montant = tranche.montants[i];
+        if (lignes[k] == 0) {
+          // compte clôturé depuis la fin de la journée
+          tranche.montants[i] = 0;
+          continue;
+        }
+        operations.add(new Operation(numero, Montant.deCentimes(montant),
+            montant > 0 ? TypeOperation.INTERETS : TypeOperation.AGIOS, null));
+        lookupCache.invalidateAccount(numero);
+      }
+      operationRepository.saveAll(operations);
+      tranche.totaliser();
+      jdbcTemplate.update("UPDATE ArreteJournalier SET comptes = comptes + ?, interets = interets + ?,"
+          + " agios = agios + ? WHERE dateArrete = ?", tranche.taille, tranche.interets, tranche.agios, date);
+      return true;
+    });
+    return Boolean.TRUE.equals(applique);
+  }
+
+  /**
+   * Positions d'une tranche (centimes) et montants calculés, positifs pour
+   * des intérêts, négatifs pour des agios.
+   */
+  private static final class Tranche {
+    final List<String> numeros = new ArrayList<>();
+    long[] soldes = new long[64];
+    long[] montants;
+    int taille;
+    long interets;
+    long agios;
+
+    void ajouter(String numero, long solde) {
+      if (taille == soldes.length) {
+        soldes = Arrays.copyOf(soldes, 2 * taille);
+      }
+      numeros.add(numero);
+      soldes[taille++] = solde;
+    }
+
+    void totaliser() {
+      for (long montant : montants) {
+        if (montant > 0) {
+          interets = Montant.additionner(interets, montant);
+        } else {
+          agios = Montant.soustraire(agios, montant);
+        }
+      }
+    }
+
+    void cumuler(Tranche tranche) {
+      taille += tranche.taille;
+      interets = Montant.additionner(interets, tranche.interets);
+      agios = Montant.additionner(agios, tranche.agios);
+    }
+  }
+
+  /**
+   * Calcul des montants d'une partie de tranche, découpée en deux tant
+   * qu'elle dépasse {@link #SEUIL_TACHE} comptes par fil.
+   */
+  private final class Calcul extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Tranche tranche;
+    private final int debut;
+    private final int fin;
+
+    Calcul(Tranche tranche, int debut, int fin) {
+      this.tranche = tranche;
+      this.debut = debut;
+      this.fin = fin;
+    }
+
+    @Override
+    protected void compute() {
+      int taille = fin - debut;
+      if (taille > SEUIL_TACHE && taille > tranche.taille / (4 * pool.getParallelism())) {
+        int milieu = (debut + fin) >>> 1;
+        invokeAll(new Calcul(tranche, debut, milieu), new Calcul(tranche, milieu, fin));
+        return;
+      }
+      for (int i = debut; i < fin; i++) {
+        tranche.montants[i] = montantDuJour(tranche.soldes[i]);
+      }
+    }
+  }
+
+  /**
+   * Intérêts (positif) ou agios (négatif) d'une journée pour un solde en
+   * centimes.
+   */
+  long montantDuJour(long solde) {
+    if (solde > 0) {
+      return tauxInterets.appliquer(solde);
+    }
+    if (solde < 0) {
+      return Montant.opposer(tauxAgios.appliquer(Montant.opposer(solde)));
+    }
+    return 0;
+  }
+
+  /**
+   * Taux annuel T exprimé en fraction journalière numerateur / diviseur
+   * (T / 365), pour un calcul exact sur des centimes.
+   */
+  record Taux(long numerateur, long diviseur) {
+
+    static Taux annuel(BigDecimal taux) {
+      if (taux.signum() < 0) {
+        throw new IllegalArgumentException("Taux négatif: " + taux);
+      }
+      BigDecimal t = taux.stripTrailingZeros();
+      if (t.scale() < 0) {
+        t = t.setScale(0);
+      }
+      return new Taux(t.unscaledValue().longValueExact(),
+          Math.multiplyExact(JOURS_PAR_AN, BigDecimal.TEN.pow(t.scale()).longValueExact()));
+    }
+
+    /**
+     * Montant pour une somme positive, arrondi au centime le plus proche
+     * (au pair en cas d'égalité).
+     */
+    long appliquer(long centimes) {
+      if (numerateur == 0) {
+        return 0;
+      }
+      long produit;
+      try {
+        produit = Math.multiplyExact(centimes, numerateur);
+      } catch (ArithmeticException e) {
+        return BigDecimal.valueOf(centimes).multiply(BigDecimal.valueOf(numerateur))
+            .divide(BigDecimal.valueOf(diviseur), 0, RoundingMode.HALF_EVEN).longValueExact();
+      }
+      long quotient = produit / diviseur;
+      long reste = produit % diviseur;
+      if (reste > diviseur - reste || (reste == diviseur - reste && (quotient & 1) == 1)) {
+        quotient++;
+      }
+      return quotient;
+    }
+  }
+}
@@ -2,9 +2,9 @@ package com.iut.banque.service;
 
 import java.util.Optional;
 
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import com.iut.banque.cryptage.PasswordStorage;
 import com.iut.banque.exceptions.IllegalOperationException;
 import com.iut.banque.modele.Client;
 import com.iut.banque.modele.Gestionnaire;
@@ -15,11 +15,11 @@ import com.iut.banque.repository.UtilisateurRepository;
 public class AuthService {
 
   private final UtilisateurRepository utilisateurRepository;
-  private final PasswordEncoder passwordEncoder;
+  private final PasswordStorage passwordStorage;
 
-  public AuthService(UtilisateurRepository utilisateurRepository, PasswordEncoder passwordEncoder) {
+  public AuthService(UtilisateurRepository utilisateurRepository, PasswordStorage passwordStorage) {
     this.utilisateurRepository = utilisateurRepository;
-    this.passwordEncoder = passwordEncoder;
+    this.passwordStorage = passwordStorage;
   }
 
   public Utilisateur authenticate(String userId, String rawPassword) throws IllegalOperationException {
@@ -29,7 +29,7 @@ public class AuthService {
     }
     Utilisateur user = userOpt.get();
     String stored = user.getUserPwd();
-    if (stored == null || !passwordEncoder.matches(rawPassword, stored)) {
+    if (!passwordStorage.matches(rawPassword, stored)) {
       throw new IllegalOperationException("Identifiants invalides");
     }
     return user;
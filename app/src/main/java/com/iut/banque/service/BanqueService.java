@@ -1,51 +1,98 @@
 package com.iut.banque.service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.lang.Nullable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.iut.banque.api.dto.AccountPage;
+import com.iut.banque.api.dto.AccountSummary;
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.engine.BalanceEngine;
 import com.iut.banque.exceptions.IllegalFormatException;
 import com.iut.banque.exceptions.IllegalOperationException;
 import com.iut.banque.exceptions.InsufficientFundsException;
 import com.iut.banque.exceptions.TechnicalException;
+import com.iut.banque.metrics.OperationMetrics;
+import com.iut.banque.metrics.OperationMetrics.AccountType;
+import com.iut.banque.metrics.OperationMetrics.Kind;
 import com.iut.banque.modele.Client;
 import com.iut.banque.modele.Compte;
 import com.iut.banque.modele.CompteAvecDecouvert;
 import com.iut.banque.modele.CompteSansDecouvert;
 import com.iut.banque.modele.Gestionnaire;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.modele.Operation;
 import com.iut.banque.modele.Utilisateur;
 import com.iut.banque.repository.ClientRepository;
 import com.iut.banque.repository.CompteRepository;
 import com.iut.banque.repository.GestionnaireRepository;
+import com.iut.banque.repository.OperationRepository;
 import com.iut.banque.repository.UtilisateurRepository;
 
 @Service
 public class BanqueService {
 
+  /**
+   * Taille maximale d'une page de {@link #listAccountsPage}.
+   */
+  public static final int MAX_PAGE_SIZE = 500;
+
   private final UtilisateurRepository utilisateurRepository;
   private final ClientRepository clientRepository;
   private final GestionnaireRepository gestionnaireRepository;
   private final CompteRepository compteRepository;
+  private final OperationRepository operationRepository;
   private final PasswordEncoder passwordEncoder;
+  private final LookupCache lookupCache;
+  private final OperationMetrics operationMetrics;
+  private final BalanceEngine balanceEngine;
 
+  /**
+   * @param balanceEngine
+   *                      : moteur de soldes à écriture différée, null s'il
+   *                      n'est pas activé (banque.engine.write-behind.enabled)
+   */
   public BanqueService(
       UtilisateurRepository utilisateurRepository,
       ClientRepository clientRepository,
       GestionnaireRepository gestionnaireRepository,
       CompteRepository compteRepository,
-      PasswordEncoder passwordEncoder) {
+      OperationRepository operationRepository,
+      PasswordEncoder passwordEncoder,
+      LookupCache lookupCache,
+      OperationMetrics operationMetrics,
+      @Nullable BalanceEngine balanceEngine) {
     this.utilisateurRepository = utilisateurRepository;
     this.clientRepository = clientRepository;
     this.gestionnaireRepository = gestionnaireRepository;
     this.compteRepository = compteRepository;
+    this.operationRepository = operationRepository;
     this.passwordEncoder = passwordEncoder;
+    this.lookupCache = lookupCache;
+    this.operationMetrics = operationMetrics;
+    this.balanceEngine = balanceEngine;
   }
 
+  /**
+   * Utilisateur servi par le {@link LookupCache} : l'objet est partagé et ne
+   * doit pas être modifié (recharger l'entité pour une mise à jour).
+   */
   public Utilisateur getUserById(String userId) throws IllegalOperationException {
-    return utilisateurRepository.findById(userId)
-        .orElseThrow(() -> new IllegalOperationException("Utilisateur introuvable: " + userId));
+    Utilisateur user = lookupCache.utilisateur(userId, id -> utilisateurRepository.findById(id).orElse(null));
+    if (user == null) {
+      throw new IllegalOperationException("Utilisateur introuvable: " + userId);
+    }
+    return user;
   }
 
   public Compte getAccountById(String accountId) throws IllegalOperationException {
@@ -53,10 +100,61 @@ public class BanqueService {
         .orElseThrow(() -> new IllegalOperationException("Compte introuvable: " + accountId));
   }
 
+  /**
+   * Vue en lecture seule d'un compte, servie par le {@link LookupCache} (le
+   * solde est toujours celui de la dernière écriture validée sur ce nœud).
+   */
+  public AccountSummary getAccountSummary(String accountId) throws IllegalOperationException {
+    AccountSummary compte = lookupCache.compte(accountId, id -> compteRepository.findSummaryById(id).orElse(null));
+    if (compte == null) {
+      throw new IllegalOperationException("Compte introuvable: " + accountId);
+    }
+    if (balanceEngine != null) {
+      // le moteur tient le solde à jour, la base n'en a que le dernier report
+      return new AccountSummary(compte.numeroCompte(), balanceEngine.solde(accountId), compte.className(),
+          compte.decouvertAutorise(), compte.ownerUserId());
+    }
+    return compte;
+  }
+
+  private static Compte lockedAccount(Map<String, Compte> verrouilles, String accountId)
+      throws IllegalOperationException {
+    Compte c = verrouilles.get(accountId);
+    if (c == null) {
+      throw new IllegalOperationException("Compte introuvable: " + accountId);
+    }
+    return c;
+  }
+
   public List<Compte> listAccounts() {
     return compteRepository.findAll();
   }
 
+  /**
+   * Page de la liste des comptes, triée par numéro de compte.
+   *
+   * @param after
+   *              : numéro du dernier compte de la page précédente, null pour
+   *              la première page
+   * @param limit
+   *              : nombre de comptes demandés, ramené entre 1 et
+   *              {@link #MAX_PAGE_SIZE}
+   */
+  @Transactional(readOnly = true)
+  public AccountPage listAccountsPage(String after, int limit) {
+    int taille = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    // une ligne de plus que demandé pour savoir s'il existe une page suivante
+    Limit requete = Limit.of(taille + 1);
+    List<AccountSummary> lignes = after == null || after.isEmpty()
+        ? compteRepository.findSummaries(requete)
+        : compteRepository.findSummariesAfter(after, requete);
+    if (lignes.size() <= taille) {
+      return new AccountPage(lignes, null);
+    }
+    List<AccountSummary> page = new ArrayList<>(lignes.subList(0, taille));
+    return new AccountPage(page, page.get(taille - 1).numeroCompte());
+  }
+
   /**
    * Liste des comptes appartenant à un utilisateur donné (userId).
    */
@@ -96,18 +194,44 @@ public class BanqueService {
   @Transactional
   public Compte createAccountSansDecouvert(String numeroCompte, String clientUserId)
       throws TechnicalException, IllegalFormatException, IllegalOperationException {
+    long debut = System.nanoTime();
+    try {
+      Compte compte = creerCompteSansDecouvert(numeroCompte, clientUserId);
+      operationMetrics.success(Kind.CREATE_ACCOUNT, AccountType.SANS_DECOUVERT, debut);
+      return compte;
+    } catch (TechnicalException | IllegalFormatException | IllegalOperationException | RuntimeException e) {
+      operationMetrics.failure(Kind.CREATE_ACCOUNT, AccountType.SANS_DECOUVERT, debut, e);
+      throw e;
+    }
+  }
+
+  private Compte creerCompteSansDecouvert(String numeroCompte, String clientUserId)
+      throws TechnicalException, IllegalFormatException, IllegalOperationException {
     if (compteRepository.existsById(numeroCompte)) {
       throw new TechnicalException("Le numéro de compte existe déjà: " + numeroCompte);
     }
     Client client = clientRepository.findById(clientUserId)
         .orElseThrow(() -> new IllegalOperationException("Client introuvable: " + clientUserId));
 
-    CompteSansDecouvert c = new CompteSansDecouvert(numeroCompte, 0, client);
+    CompteSansDecouvert c = new CompteSansDecouvert(numeroCompte, Montant.ZERO, client);
     return compteRepository.save(c);
   }
 
   @Transactional
-  public Compte createAccountAvecDecouvert(String numeroCompte, String clientUserId, double decouvertAutorise)
+  public Compte createAccountAvecDecouvert(String numeroCompte, String clientUserId, Montant decouvertAutorise)
+      throws TechnicalException, IllegalFormatException, IllegalOperationException {
+    long debut = System.nanoTime();
+    try {
+      Compte compte = creerCompteAvecDecouvert(numeroCompte, clientUserId, decouvertAutorise);
+      operationMetrics.success(Kind.CREATE_ACCOUNT, AccountType.AVEC_DECOUVERT, debut);
+      return compte;
+    } catch (TechnicalException | IllegalFormatException | IllegalOperationException | RuntimeException e) {
+      operationMetrics.failure(Kind.CREATE_ACCOUNT, AccountType.AVEC_DECOUVERT, debut, e);
+      throw e;
+    }
+  }
+
+  private Compte creerCompteAvecDecouvert(String numeroCompte, String clientUserId, Montant decouvertAutorise)
       throws TechnicalException, IllegalFormatException, IllegalOperationException {
     if (compteRepository.existsById(numeroCompte)) {
       throw new TechnicalException("Le numéro de compte existe déjà: " + numeroCompte);
@@ -115,46 +239,146 @@ public class BanqueService {
     Client client = clientRepository.findById(clientUserId)
         .orElseThrow(() -> new IllegalOperationException("Client introuvable: " + clientUserId));
 
-    CompteAvecDecouvert c = new CompteAvecDecouvert(numeroCompte, 0, decouvertAutorise, client);
+    CompteAvecDecouvert c = new CompteAvecDecouvert(numeroCompte, Montant.ZERO, decouvertAutorise, client);
     return compteRepository.save(c);
   }
 
+  /**
+   * Crédite le compte en une seule requête UPDATE : le compte n'est pas chargé
+   * et le solde est calculé par la base. Avec le moteur à écriture différée,
+   * le crédit est appliqué en mémoire et journalisé, puis reporté en base.
+   */
   @Transactional
-  public void crediter(String numeroCompte, double montant) throws IllegalOperationException, IllegalFormatException {
-    Compte c = getAccountById(numeroCompte);
-    c.crediter(montant);
-    compteRepository.save(c);
+  public void crediter(String numeroCompte, Montant montant) throws IllegalOperationException, IllegalFormatException {
+    long debut = System.nanoTime();
+    try {
+      crediterCompte(numeroCompte, montant);
+    } catch (IllegalOperationException | IllegalFormatException | RuntimeException e) {
+      operationMetrics.failure(Kind.CREDIT, numeroCompte, debut, e);
+      throw e;
+    }
+    operationMetrics.success(Kind.CREDIT, numeroCompte, debut);
+  }
+
+  private void crediterCompte(String numeroCompte, Montant montant)
+      throws IllegalOperationException, IllegalFormatException {
+    checkMontant(montant);
+    lookupCache.invalidateAccount(numeroCompte);
+    if (balanceEngine != null) {
+      balanceEngine.crediter(numeroCompte, montant);
+      return;
+    }
+    if (compteRepository.crediter(numeroCompte, montant) == 0) {
+      throw new IllegalOperationException("Compte introuvable: " + numeroCompte);
+    }
+    operationRepository.save(Operation.credit(numeroCompte, montant));
   }
 
+  /**
+   * Débite le compte en une seule requête UPDATE conditionnelle. Ce n'est
+   * qu'en cas d'échec que l'existence du compte est vérifiée, pour distinguer
+   * un compte inconnu d'une provision insuffisante.
+   */
   @Transactional
-  public void debiter(String numeroCompte, double montant)
+  public void debiter(String numeroCompte, Montant montant)
       throws IllegalOperationException, InsufficientFundsException, IllegalFormatException {
-    Compte c = getAccountById(numeroCompte);
-    c.debiter(montant);
-    compteRepository.save(c);
+    long debut = System.nanoTime();
+    try {
+      debiterCompte(numeroCompte, montant);
+    } catch (IllegalOperationException | InsufficientFundsException | IllegalFormatException | RuntimeException e) {
+      operationMetrics.failure(Kind.DEBIT, numeroCompte, debut, e);
+      throw e;
+    }
+    operationMetrics.success(Kind.DEBIT, numeroCompte, debut);
+  }
+
+  private void debiterCompte(String numeroCompte, Montant montant)
+      throws IllegalOperationException, InsufficientFundsException, IllegalFormatException {
+    checkMontant(montant);
+    lookupCache.invalidateAccount(numeroCompte);
+    if (balanceEngine != null) {
+      balanceEngine.debiter(numeroCompte, montant);
+      return;
+    }
+    if (compteRepository.debiter(numeroCompte, montant) == 0) {
+      if (!compteRepository.existsById(numeroCompte)) {
+        throw new IllegalOperationException("Compte introuvable: " + numeroCompte);
+      }
+      throw new InsufficientFundsException("Le solde du compte " + numeroCompte + " est insuffisant.");
+    }
+    operationRepository.save(Operation.debit(numeroCompte, montant));
+  }
+
+  private static void checkMontant(Montant montant) throws IllegalFormatException {
+    if (montant == null || montant.estNegatif()) {
+      throw new IllegalFormatException("Le montant ne peux être négatif");
+    }
   }
 
   @Transactional
-  public void transfer(String fromAccountId, String toAccountId, double montant)
+  public void transfer(String fromAccountId, String toAccountId, Montant montant)
+      throws IllegalOperationException, InsufficientFundsException, IllegalFormatException {
+    long debut = System.nanoTime();
+    try {
+      virer(fromAccountId, toAccountId, montant);
+    } catch (IllegalOperationException | InsufficientFundsException | IllegalFormatException | RuntimeException e) {
+      operationMetrics.failure(Kind.TRANSFER, fromAccountId, debut, e);
+      throw e;
+    }
+    // tag account_type : type du compte débité
+    operationMetrics.success(Kind.TRANSFER, fromAccountId, debut);
+  }
+
+  private void virer(String fromAccountId, String toAccountId, Montant montant)
       throws IllegalOperationException, InsufficientFundsException, IllegalFormatException {
     if (fromAccountId.equals(toAccountId)) {
       throw new IllegalOperationException("Compte source et destination identiques");
     }
-    Compte from = getAccountById(fromAccountId);
-    Compte to = getAccountById(toAccountId);
+    lookupCache.invalidateAccount(fromAccountId);
+    lookupCache.invalidateAccount(toAccountId);
+    if (balanceEngine != null) {
+      checkMontant(montant);
+      balanceEngine.transfer(fromAccountId, toAccountId, montant);
+      return;
+    }
+    // Les deux lignes sont verrouillées en une requête, dans l'ordre croissant
+    // des numéros de compte : deux virements croisés (A -> B et B -> A)
+    // attendent alors le même verrou au lieu de s'interbloquer, et aucune mise
+    // à jour n'est perdue.
+    Map<String, Compte> verrouilles = new HashMap<>();
+    for (Compte c : compteRepository.findAllByIdForUpdate(List.of(fromAccountId, toAccountId))) {
+      verrouilles.put(c.getNumeroCompte(), c);
+    }
+    Compte from = lockedAccount(verrouilles, fromAccountId);
+    Compte to = lockedAccount(verrouilles, toAccountId);
 
     from.debiter(montant);
     to.crediter(montant);
 
     compteRepository.save(from);
     compteRepository.save(to);
+    operationRepository.saveAll(List.of(Operation.virement(fromAccountId, toAccountId, montant)));
   }
 
-  @Transactional
+  /**
+   * Supprime le compte. Avec le moteur à écriture différée, la suppression
+   * passe par le moteur et valide sa propre transaction : les mouvements en
+   * attente sont reportés avant, et aucun ne peut être accepté après.
+   */
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
   public void deleteAccount(String accountId) {
     if (!compteRepository.existsById(accountId))
       return;
-    compteRepository.deleteById(accountId);
+    if (balanceEngine != null) {
+      try {
+        balanceEngine.supprimer(accountId, () -> compteRepository.deleteById(accountId));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    } else {
+      compteRepository.deleteById(accountId);
+    }
+    lookupCache.invalidateAccount(accountId);
   }
 
   @Transactional
@@ -162,5 +386,6 @@ public class BanqueService {
     if (!utilisateurRepository.existsById(userId))
       return;
     utilisateurRepository.deleteById(userId);
+    lookupCache.invalidateUser(userId);
   }
 }
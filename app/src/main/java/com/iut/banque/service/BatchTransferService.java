@@ -0,0 +1,216 @@
+package com.iut.banque.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.iut.banque.api.dto.BatchTransferResult;
+import com.iut.banque.api.dto.BatchTransferResult.Status;
+import com.iut.banque.api.dto.TransferRequest;
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.engine.BalanceEngine;
+import com.iut.banque.exceptions.IllegalFormatException;
+import com.iut.banque.exceptions.IllegalOperationException;
+import com.iut.banque.exceptions.InsufficientFundsException;
+import com.iut.banque.modele.Compte;
+import com.iut.banque.modele.Operation;
+import com.iut.banque.repository.CompteRepository;
+import com.iut.banque.repository.OperationRepository;
+
+/**
+ * Exécution de lots de virements (virements de masse, paie...).
+ *
+ * Le lot est d'abord validé en entier, puis les virements valides sont
+ * appliqués par paquets, chaque paquet dans sa propre transaction :
+ * <ul>
+ * <li>tous les comptes du paquet sont verrouillés en une requête, dans l'ordre
+ * des numéros de compte (même ordre que {@link BanqueService#transfer}) ;</li>
+ * <li>les virements sont appliqués en mémoire dans l'ordre du lot ;</li>
+ * <li>au commit, chaque compte modifié n'est écrit qu'une fois, les UPDATE
+ * et les lignes du journal des opérations étant envoyés par lots JDBC
+ * (hibernate.jdbc.batch_size).</li>
+ * </ul>
+ * Un virement refusé (provision insuffisante, compte inconnu) n'empêche pas
+ * les autres virements du paquet d'être appliqués.
+ *
+ * Avec le moteur de soldes à écriture différée, chaque paquet est écrit par
+ * {@link BalanceEngine#ecrireEnBase} : les mouvements du moteur sur ses
+ * comptes sont reportés avant, et aucun ne peut s'intercaler avant le commit.
+ * Un appelant qui exécute le lot dans sa propre transaction coordonne
+ * lui-même ses écritures avec le moteur (voir {@link StandingOrderService}).
+ */
+@Service
+public class BatchTransferService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchTransferService.class);
+
+  private final CompteRepository compteRepository;
+  private final OperationRepository operationRepository;
+  private final LookupCache lookupCache;
+  private final TransactionTemplate transactionTemplate;
+  private final BalanceEngine balanceEngine;
+  private final int chunkSize;
+  private final int maxSize;
+
+  /**
+   * @param balanceEngine
+   *                      : moteur de soldes à écriture différée, null s'il
+   *                      n'est pas activé
+   */
+  public BatchTransferService(CompteRepository compteRepository,
+      OperationRepository operationRepository,
+      LookupCache lookupCache,
+      PlatformTransactionManager transactionManager,
+      @Nullable BalanceEngine balanceEngine,
+      @Value("${banque.transfers.batch.chunk-size:500}") int chunkSize,
+      @Value("${banque.transfers.batch.max-size:100000}") int maxSize) {
+    this.compteRepository = compteRepository;
+    this.operationRepository = operationRepository;
+    this.lookupCache = lookupCache;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.balanceEngine = balanceEngine;
+    this.chunkSize = chunkSize;
+    this.maxSize = maxSize;
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  public List<BatchTransferResult> transferAll(List<TransferRequest> requests) throws IllegalOperationException {
+    return transferAll(requests, 0);
+  }
+
+  /**
+   * Exécute un lot de virements.
+   *
+   * @param requests
+   *                   : les virements, dans leur ordre d'application
+   * @param firstIndex
+   *                   : index du premier virement dans le flux d'origine (pour
+   *                   les résultats d'un flux découpé en plusieurs lots)
+   * @return un résultat par virement, dans l'ordre du lot
+   * @throws IllegalOperationException
+   *                                   : si le lot dépasse la taille maximale
+   */
+  public List<BatchTransferResult> transferAll(List<TransferRequest> requests, int firstIndex)
+      throws IllegalOperationException {
+    if (requests.size() > maxSize) {
+      throw new IllegalOperationException("Le lot dépasse la taille maximale de " + maxSize + " virements");
+    }
+    long start = System.nanoTime();
+    BatchTransferResult[] results = new BatchTransferResult[requests.size()];
+
+    List<Integer> valides = new ArrayList<>(requests.size());
+    for (int i = 0; i < requests.size(); i++) {
+      String erreur = validate(requests.get(i));
+      if (erreur == null) {
+        valides.add(i);
+      } else {
+        results[i] = new BatchTransferResult(firstIndex + i, Status.INVALID, erreur);
+      }
+    }
+
+    // dans la transaction d'un appelant, les paquets ne sont validés qu'après
+    // le retour : ecrireEnBase ne couvrirait pas le commit
+    boolean viaMoteur = balanceEngine != null && !TransactionSynchronizationManager.isActualTransactionActive();
+    for (int from = 0; from < valides.size(); from += chunkSize) {
+      List<Integer> paquet = valides.subList(from, Math.min(from + chunkSize, valides.size()));
+      Runnable ecriture = () -> transactionTemplate
+          .executeWithoutResult(status -> applyChunk(requests, paquet, firstIndex, results));
+      try {
+        if (viaMoteur) {
+          balanceEngine.ecrireEnBase(comptes(requests, paquet), ecriture);
+        } else {
+          ecriture.run();
+        }
+      } catch (IOException | RuntimeException e) {
+        // le paquet a été annulé en entier : aucun de ses virements n'est appliqué
+        LOGGER.warn("Échec d'un paquet de {} virements", paquet.size(), e);
+        for (int i : paquet) {
+          results[i] = new BatchTransferResult(firstIndex + i, Status.FAILED, e.getMessage());
+        }
+      }
+    }
+
+    LOGGER.debug("Lot de {} virements traité en {} ms", requests.size(), (System.nanoTime() - start) / 1_000_000);
+    return Arrays.asList(results);
+  }
+
+  /**
+   * Numéros des comptes d'un paquet, dans l'ordre de verrouillage.
+   */
+  private static Set<String> comptes(List<TransferRequest> requests, List<Integer> paquet) {
+    Set<String> numeros = new TreeSet<>();
+    for (int i : paquet) {
+      numeros.add(requests.get(i).fromAccountId());
+      numeros.add(requests.get(i).toAccountId());
+    }
+    return numeros;
+  }
+
+  private void applyChunk(List<TransferRequest> requests, List<Integer> paquet, int firstIndex,
+      BatchTransferResult[] results) {
+    Map<String, Compte> comptes = new HashMap<>();
+    for (Compte c : compteRepository.findAllByIdForUpdate(comptes(requests, paquet))) {
+      comptes.put(c.getNumeroCompte(), c);
+      lookupCache.invalidateAccount(c.getNumeroCompte());
+    }
+
+    List<Operation> journal = new ArrayList<>(2 * paquet.size());
+    for (int i : paquet) {
+      TransferRequest req = requests.get(i);
+      Compte from = comptes.get(req.fromAccountId());
+      Compte to = comptes.get(req.toAccountId());
+      if (from == null || to == null) {
+        String manquant = from == null ? req.fromAccountId() : req.toAccountId();
+        results[i] = new BatchTransferResult(firstIndex + i, Status.NOT_FOUND, "Compte introuvable: " + manquant);
+        continue;
+      }
+      try {
+        from.debiter(req.amount());
+        to.crediter(req.amount());
+        journal.addAll(Arrays.asList(Operation.virement(req.fromAccountId(), req.toAccountId(), req.amount())));
+        results[i] = BatchTransferResult.ok(firstIndex + i);
+      } catch (InsufficientFundsException e) {
+        results[i] = new BatchTransferResult(firstIndex + i, Status.INSUFFICIENT_FUNDS, e.getMessage());
+      } catch (IllegalFormatException e) {
+        results[i] = new BatchTransferResult(firstIndex + i, Status.INVALID, e.getMessage());
+      }
+    }
+    operationRepository.saveAll(journal);
+    // pas de save explicite des comptes : ils sont gérés, le flush du commit
+    // n'écrit qu'une ligne par compte modifié
+  }
+
+  private static String validate(TransferRequest req) {
+    if (req == null) {
+      return "Virement vide";
+    }
+    if (req.fromAccountId() == null || req.fromAccountId().isBlank()
+        || req.toAccountId() == null || req.toAccountId().isBlank()) {
+      return "Compte source et destination requis";
+    }
+    if (req.fromAccountId().equals(req.toAccountId())) {
+      return "Compte source et destination identiques";
+    }
+    if (req.amount() == null || !req.amount().estPositif()) {
+      return "Le montant doit être positif";
+    }
+    return null;
+  }
+}
@@ -0,0 +1,167 @@
+package com.iut.banque.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.iut.banque.api.dto.AccountSummary;
+import com.iut.banque.api.dto.ClientSummary;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.repository.ClientRepository;
+import com.iut.banque.repository.CompteRepository;
+
+/**
+ * Export complet des comptes et des clients (rapprochements des
+ * gestionnaires), en CSV ou en NDJSON (un objet JSON par ligne).
+ *
+ * Les lignes sont lues par un curseur de la base et écrites une à une dans le
+ * flux de sortie, à travers un tampon de taille fixe : ni la liste des lignes
+ * ni le document complet ne sont construits en mémoire, et la mémoire utilisée
+ * ne dépend pas de la taille de l'export.
+ */
+@Service
+public class ExportService {
+
+  public enum Format {
+    CSV, NDJSON
+  }
+
+  private static final int TAILLE_TAMPON = 64 * 1024;
+
+  static final String ENTETE_COMPTES = "numeroCompte,solde,className,decouvertAutorise,ownerUserId";
+  static final String ENTETE_CLIENTS = "userId,nom,prenom,adresse,male,numeroClient";
+
+  private final CompteRepository compteRepository;
+  private final ClientRepository clientRepository;
+  private final ObjectMapper objectMapper;
+
+  public ExportService(CompteRepository compteRepository, ClientRepository clientRepository,
+      ObjectMapper objectMapper) {
+    this.compteRepository = compteRepository;
+    this.clientRepository = clientRepository;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Écrit tous les comptes, triés par numéro.
+   *
+   * @return le nombre de comptes exportés
+   */
+  @Transactional(readOnly = true)
+  public long exportAccounts(Format format, OutputStream out) throws IOException {
+    try (Stream<AccountSummary> comptes = compteRepository.streamSummaries()) {
+      if (format == Format.NDJSON) {
+        return ecrireNdjson(comptes.iterator(), out);
+      }
+      Writer w = writer(out);
+      w.write(ENTETE_COMPTES);
+      w.write('\n');
+      long n = 0;
+      for (Iterator<AccountSummary> it = comptes.iterator(); it.hasNext(); n++) {
+        AccountSummary c = it.next();
+        champ(w, c.numeroCompte()).write(',');
+        Montant.ecrire(c.solde().getCentimes(), w);
+        w.write(',');
+        champ(w, c.className()).write(',');
+        if (c.decouvertAutorise() != null) {
+          Montant.ecrire(c.decouvertAutorise().getCentimes(), w);
+        }
+        w.write(',');
+        champ(w, c.ownerUserId()).write('\n');
+      }
+      w.flush();
+      return n;
+    }
+  }
+
+  /**
+   * Écrit tous les clients (sans mot de passe), triés par identifiant.
+   *
+   * @return le nombre de clients exportés
+   */
+  @Transactional(readOnly = true)
+  public long exportClients(Format format, OutputStream out) throws IOException {
+    try (Stream<ClientSummary> clients = clientRepository.streamSummaries()) {
+      if (format == Format.NDJSON) {
+        return ecrireNdjson(clients.iterator(), out);
+      }
+      Writer w = writer(out);
+      w.write(ENTETE_CLIENTS);
+      w.write('\n');
+      long n = 0;
+      for (Iterator<ClientSummary> it = clients.iterator(); it.hasNext(); n++) {
+        ClientSummary c = it.next();
+        champ(w, c.userId()).write(',');
+        champ(w, c.nom()).write(',');
+        champ(w, c.prenom()).write(',');
+        champ(w, c.adresse()).write(',');
+        w.write(Boolean.toString(c.male()));
+        w.write(',');
+        champ(w, c.numeroClient()).write('\n');
+      }
+      w.flush();
+      return n;
+    }
+  }
+
+  private long ecrireNdjson(Iterator<?> lignes, OutputStream out) throws IOException {
+    Writer w = writer(out);
+    long n = 0;
+    // le SequenceWriter ne ferme pas le flux de la réponse
+    SequenceWriter sequence = objectMapper.writer().withRootValueSeparator("\n").writeValues(w);
+    while (lignes.hasNext()) {
+      sequence.write(lignes.next());
+      n++;
+    }
+    sequence.flush();
+    if (n > 0) {
+      w.write('\n');
+    }
+    w.flush();
+    return n;
+  }
+
+  private static Writer writer(OutputStream out) {
+    return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), TAILLE_TAMPON);
+  }
+
+  /**
+   * Écrit un champ CSV (RFC 4180) : entre guillemets, guillemets doublés, s'il
+   * contient une virgule, un guillemet ou un saut de ligne. Un champ null est
+   * écrit vide.
+   */
+  static Writer champ(Writer w, String valeur) throws IOException {
+    if (valeur == null) {
+      return w;
+    }
+    boolean aProteger = false;
+    for (int i = 0; i < valeur.length() && !aProteger; i++) {
+      char c = valeur.charAt(i);
+      aProteger = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (!aProteger) {
+      w.write(valeur);
+      return w;
+    }
+    w.write('"');
+    for (int i = 0; i < valeur.length(); i++) {
+      char c = valeur.charAt(i);
+      if (c == '"') {
+        w.write('"');
+      }
+      w.write(c);
+    }
+    w.write('"');
+    return w;
+  }
+}
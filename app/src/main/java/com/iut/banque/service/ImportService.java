@@ -0,0 +1,524 @@
+package com.iut.banque.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.iut.banque.api.dto.ImportReport;
+import com.iut.banque.api.dto.ImportReport.Reject;
+import com.iut.banque.exceptions.IllegalFormatException;
+import com.iut.banque.exceptions.IllegalOperationException;
+import com.iut.banque.modele.Client;
+import com.iut.banque.modele.Compte;
+import com.iut.banque.modele.CompteAvecDecouvert;
+import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.repository.ClientRepository;
+import com.iut.banque.repository.CompteRepository;
+import com.iut.banque.repository.UtilisateurRepository;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Import en masse de clients et de comptes depuis un fichier CSV (reprise du
+ * portefeuille d'une banque partenaire).
+ *
+ * Le fichier est lu ligne à ligne, sans être chargé en mémoire, et traité par
+ * paquets de {@code banque.import.chunk-size} lignes :
+ * <ul>
+ * <li>chaque ligne est validée par les règles de format du modèle (identifiant,
+ * numéro de client, numéro de compte, découvert) ;</li>
+ * <li>les doublons sont écartés en mémoire pour le fichier, puis par une
+ * requête par paquet pour ce qui existe déjà en base ;</li>
+ * <li>les mots de passe sont hachés (BCrypt) en parallèle sur un pool borné,
+ * pendant que le paquet précédent est inséré ;</li>
+ * <li>chaque paquet est inséré dans sa propre transaction, par des INSERT
+ * envoyés en lots JDBC (hibernate.jdbc.batch_size, order_inserts), sans la
+ * lecture préalable que ferait {@code save} sur un identifiant déjà
+ * attribué.</li>
+ * </ul>
+ * Une ligne invalide est rejetée sans interrompre l'import ; si un paquet
+ * échoue à l'insertion, toutes ses lignes sont rejetées.
+ */
+@Service
+public class ImportService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ImportService.class);
+
+  private static final int TAILLE_TAMPON = 64 * 1024;
+
+  static final String ENTETE_CLIENTS = "userId,nom,prenom,adresse,male,numeroClient,password";
+  static final String ENTETE_COMPTES = "numeroCompte,clientUserId,solde,decouvertAutorise";
+
+  private final EntityManager entityManager;
+  private final TransactionTemplate transactionTemplate;
+  private final PasswordEncoder passwordEncoder;
+  private final UtilisateurRepository utilisateurRepository;
+  private final ClientRepository clientRepository;
+  private final CompteRepository compteRepository;
+  private final int chunkSize;
+  private final int maxRejects;
+  private final ThreadPoolExecutor hashPool;
+
+  /**
+   * @param hashThreads
+   *                    : nombre de fils de hachage des mots de passe (0 : un
+   *                    par processeur)
+   * @param maxRejects
+   *                    : nombre maximal de lignes rejetées détaillées dans le
+   *                    rapport (elles sont toutes comptées)
+   */
+  public ImportService(EntityManager entityManager,
+      PlatformTransactionManager transactionManager,
+      PasswordEncoder passwordEncoder,
+      UtilisateurRepository utilisateurRepository,
+      ClientRepository clientRepository,
+      CompteRepository compteRepository,
+      @Value("${banque.import.chunk-size:1000}") int chunkSize,
+      @Value("${banque.import.hash-threads:0}") int hashThreads,
+      @Value("${banque.import.max-rejects:1000}") int maxRejects) {
+    this.entityManager = entityManager;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.passwordEncoder = passwordEncoder;
+    this.utilisateurRepository = utilisateurRepository;
+    this.clientRepository = clientRepository;
+    this.compteRepository = compteRepository;
+    this.chunkSize = chunkSize;
+    this.maxRejects = maxRejects;
+    int fils = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+    AtomicInteger numero = new AtomicInteger();
+    // deux paquets au plus en attente de hachage ; au-delà, le fil de l'import
+    // hache lui-même, ce qui le freine
+    this.hashPool = new ThreadPoolExecutor(fils, fils, 30, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(2 * chunkSize), r -> {
+          Thread t = new Thread(r, "import-hash-" + numero.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    this.hashPool.allowCoreThreadTimeOut(true);
+  }
+
+  @PreDestroy
+  public void arreter() {
+    hashPool.shutdownNow();
+  }
+
+  /**
+   * Importe des clients, une ligne par client :
+   * {@value #ENTETE_CLIENTS} (ligne d'en-tête facultative, male à true ou
+   * false, mot de passe en clair).
+   */
+  public ImportReport importClients(Reader source) throws IOException {
+    long debut = System.nanoTime();
+    Bilan bilan = new Bilan();
+    LecteurCsv csv = new LecteurCsv(source);
+    Set<String> userIds = new HashSet<>();
+    Set<String> numerosClient = new HashSet<>();
+    List<LigneClient> paquet = new ArrayList<>(chunkSize);
+    List<LigneClient> enAttente = List.of();
+
+    List<String> champs;
+    while ((champs = csv.suivant()) != null) {
+      if (csv.ligne() == 1 && estEntete(champs, "userId")) {
+        continue;
+      }
+      bilan.lignes++;
+      LigneClient ligne = lireClient(csv.ligne(), champs, userIds, numerosClient, bilan);
+      if (ligne != null) {
+        paquet.add(ligne);
+      }
+      if (paquet.size() == chunkSize) {
+        // le hachage de ce paquet avance pendant l'insertion du précédent
+        List<LigneClient> haches = hacher(filtrerClients(paquet, bilan));
+        insererClients(enAttente, bilan);
+        enAttente = haches;
+        paquet = new ArrayList<>(chunkSize);
+      }
+    }
+    List<LigneClient> haches = hacher(filtrerClients(paquet, bilan));
+    insererClients(enAttente, bilan);
+    insererClients(haches, bilan);
+    return bilan.rapport("clients", System.nanoTime() - debut);
+  }
+
+  /**
+   * Importe des comptes, une ligne par compte :
+   * {@value #ENTETE_COMPTES} (ligne d'en-tête facultative ; compte sans
+   * découvert si decouvertAutorise est vide). Le client doit exister.
+   */
+  public ImportReport importAccounts(Reader source) throws IOException {
+    long debut = System.nanoTime();
+    Bilan bilan = new Bilan();
+    LecteurCsv csv = new LecteurCsv(source);
+    Set<String> numerosCompte = new HashSet<>();
+    List<LigneCompte> paquet = new ArrayList<>(chunkSize);
+
+    List<String> champs;
+    while ((champs = csv.suivant()) != null) {
+      if (csv.ligne() == 1 && estEntete(champs, "numeroCompte")) {
+        continue;
+      }
+      bilan.lignes++;
+      LigneCompte ligne = lireCompte(csv.ligne(), champs, numerosCompte, bilan);
+      if (ligne != null) {
+        paquet.add(ligne);
+      }
+      if (paquet.size() == chunkSize) {
+        insererComptes(filtrerComptes(paquet, bilan), bilan);
+        paquet = new ArrayList<>(chunkSize);
+      }
+    }
+    insererComptes(filtrerComptes(paquet, bilan), bilan);
+    return bilan.rapport("comptes", System.nanoTime() - debut);
+  }
+
+  private record LigneClient(long numero, Client client, String motDePasse, Future<String> hash) {
+  }
+
+  private record LigneCompte(long numero, String numeroCompte, String clientUserId, Montant solde,
+      Montant decouvertAutorise) {
+  }
+
+  private static LigneClient lireClient(long numero, List<String> champs, Set<String> userIds,
+      Set<String> numerosClient, Bilan bilan) {
+    if (champs.size() != 7) {
+      bilan.rejeter(numero, "7 champs attendus (" + ENTETE_CLIENTS + "), " + champs.size() + " trouvés");
+      return null;
+    }
+    String male = champs.get(4).trim();
+    if (!"true".equalsIgnoreCase(male) && !"false".equalsIgnoreCase(male)) {
+      bilan.rejeter(numero, "male doit valoir true ou false: " + male);
+      return null;
+    }
+    String motDePasse = champs.get(6);
+    if (motDePasse.isBlank()) {
+      bilan.rejeter(numero, "Mot de passe vide");
+      return null;
+    }
+    Client client;
+    try {
+      client = new Client(champs.get(1), champs.get(2), champs.get(3), Boolean.parseBoolean(male),
+          champs.get(0).trim(), null, champs.get(5).trim());
+    } catch (IllegalArgumentException | IllegalFormatException e) {
+      bilan.rejeter(numero, e.getMessage());
+      return null;
+    }
+    if (userIds.contains(client.getUserId())) {
+      bilan.rejeter(numero, "Identifiant en double dans le fichier: " + client.getUserId());
+      return null;
+    }
+    if (!numerosClient.add(client.getNumeroClient())) {
+      bilan.rejeter(numero, "Numéro de client en double dans le fichier: " + client.getNumeroClient());
+      return null;
+    }
+    userIds.add(client.getUserId());
+    return new LigneClient(numero, client, motDePasse, null);
+  }
+
+  private static LigneCompte lireCompte(long numero, List<String> champs, Set<String> numerosCompte,
+      Bilan bilan) {
+    if (champs.size() != 4) {
+      bilan.rejeter(numero, "4 champs attendus (" + ENTETE_COMPTES + "), " + champs.size() + " trouvés");
+      return null;
+    }
+    LigneCompte ligne;
+    try {
+      String decouvert = champs.get(3).trim();
+      ligne = new LigneCompte(numero, champs.get(0).trim(), champs.get(1).trim(),
+          Montant.valueOf(champs.get(2).trim()), decouvert.isEmpty() ? null : Montant.valueOf(decouvert));
+    } catch (NumberFormatException e) {
+      bilan.rejeter(numero, e.getMessage());
+      return null;
+    }
+    try {
+      // mêmes contrôles qu'à la création, sans le client
+      nouveauCompte(ligne, null);
+    } catch (IllegalFormatException | IllegalOperationException e) {
+      bilan.rejeter(numero, e.getMessage());
+      return null;
+    }
+    if (!numerosCompte.add(ligne.numeroCompte())) {
+      bilan.rejeter(numero, "Numéro de compte en double dans le fichier: " + ligne.numeroCompte());
+      return null;
+    }
+    return ligne;
+  }
+
+  private static Compte nouveauCompte(LigneCompte ligne, Client client)
+      throws IllegalFormatException, IllegalOperationException {
+    return ligne.decouvertAutorise() == null
+        ? new CompteSansDecouvert(ligne.numeroCompte(), ligne.solde(), client)
+        : new CompteAvecDecouvert(ligne.numeroCompte(), ligne.solde(), ligne.decouvertAutorise(), client);
+  }
+
+  /**
+   * Écarte les clients dont l'identifiant ou le numéro est déjà pris en base
+   * (deux requêtes pour tout le paquet).
+   */
+  private List<LigneClient> filtrerClients(List<LigneClient> paquet, Bilan bilan) {
+    if (paquet.isEmpty()) {
+      return paquet;
+    }
+    List<String> ids = new ArrayList<>(paquet.size());
+    List<String> numeros = new ArrayList<>(paquet.size());
+    for (LigneClient l : paquet) {
+      ids.add(l.client().getUserId());
+      numeros.add(l.client().getNumeroClient());
+    }
+    Set<String> idsPris = new HashSet<>(utilisateurRepository.findExistingUserIds(ids));
+    Set<String> numerosPris = new HashSet<>(clientRepository.findExistingNumerosClient(numeros));
+    if (idsPris.isEmpty() && numerosPris.isEmpty()) {
+      return paquet;
+    }
+    List<LigneClient> restants = new ArrayList<>(paquet.size());
+    for (LigneClient l : paquet) {
+      if (idsPris.contains(l.client().getUserId())) {
+        bilan.rejeter(l.numero(), "Identifiant déjà utilisé: " + l.client().getUserId());
+      } else if (numerosPris.contains(l.client().getNumeroClient())) {
+        bilan.rejeter(l.numero(), "Numéro de client déjà utilisé: " + l.client().getNumeroClient());
+      } else {
+        restants.add(l);
+      }
+    }
+    return restants;
+  }
+
+  /**
+   * Écarte les comptes dont le numéro est déjà pris ou dont le client n'existe
+   * pas (deux requêtes pour tout le paquet).
+   */
+  private List<LigneCompte> filtrerComptes(List<LigneCompte> paquet, Bilan bilan) {
+    if (paquet.isEmpty()) {
+      return paquet;
+    }
+    Set<String> numeros = new HashSet<>(paquet.size() * 2);
+    Set<String> clients = new HashSet<>();
+    for (LigneCompte l : paquet) {
+      numeros.add(l.numeroCompte());
+      clients.add(l.clientUserId());
+    }
+    Set<String> numerosPris = new HashSet<>(compteRepository.findExistingNumerosCompte(numeros));
+    Set<String> clientsExistants = new HashSet<>(clientRepository.findExistingUserIds(clients));
+    List<LigneCompte> restants = new ArrayList<>(paquet.size());
+    for (LigneCompte l : paquet) {
+      if (numerosPris.contains(l.numeroCompte())) {
+        bilan.rejeter(l.numero(), "Le numéro de compte existe déjà: " + l.numeroCompte());
+      } else if (!clientsExistants.contains(l.clientUserId())) {
+        bilan.rejeter(l.numero(), "Client introuvable: " + l.clientUserId());
+      } else {
+        restants.add(l);
+      }
+    }
+    return restants;
+  }
+
+  /**
+   * Confie le hachage des mots de passe du paquet au pool ; le mot de passe en
+   * clair n'est plus conservé dans la ligne.
+   */
+  private List<LigneClient> hacher(List<LigneClient> paquet) {
+    List<LigneClient> haches = new ArrayList<>(paquet.size());
+    for (LigneClient l : paquet) {
+      String motDePasse = l.motDePasse();
+      haches.add(new LigneClient(l.numero(), l.client(), null,
+          hashPool.submit(() -> passwordEncoder.encode(motDePasse))));
+    }
+    return haches;
+  }
+
+  private void insererClients(List<LigneClient> paquet, Bilan bilan) {
+    if (paquet.isEmpty()) {
+      return;
+    }
+    List<Long> numeros = new ArrayList<>(paquet.size());
+    try {
+      // attente des hachages avant d'ouvrir la transaction
+      for (LigneClient l : paquet) {
+        l.client().setUserPwd(l.hash().get());
+        numeros.add(l.numero());
+      }
+    } catch (ExecutionException e) {
+      rejeterPaquet(paquet.stream().map(LigneClient::numero).toList(), e.getCause(), bilan);
+      return;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Import interrompu", e);
+    }
+    enregistrer(numeros, em -> paquet.forEach(l -> em.persist(l.client())), bilan);
+  }
+
+  private void insererComptes(List<LigneCompte> paquet, Bilan bilan) {
+    if (paquet.isEmpty()) {
+      return;
+    }
+    enregistrer(paquet.stream().map(LigneCompte::numero).toList(), em -> {
+      for (LigneCompte l : paquet) {
+        try {
+          em.persist(nouveauCompte(l, em.getReference(Client.class, l.clientUserId())));
+        } catch (IllegalFormatException | IllegalOperationException e) {
+          // ligne déjà validée par lireCompte
+          throw new IllegalStateException(e);
+        }
+      }
+    }, bilan);
+  }
+
+  /**
+   * Insère un paquet dans sa propre transaction : persist de chaque entité puis
+   * flush, pour que Hibernate regroupe les INSERT en lots JDBC.
+   */
+  private void enregistrer(List<Long> numeros, Consumer<EntityManager> persistance, Bilan bilan) {
+    try {
+      transactionTemplate.executeWithoutResult(status -> {
+        persistance.accept(entityManager);
+        entityManager.flush();
+        entityManager.clear();
+      });
+      bilan.importees += numeros.size();
+    } catch (RuntimeException e) {
+      rejeterPaquet(numeros, e, bilan);
+    }
+  }
+
+  private static void rejeterPaquet(List<Long> numeros, Throwable cause, Bilan bilan) {
+    LOGGER.warn("Échec d'un paquet de {} lignes importées", numeros.size(), cause);
+    for (long numero : numeros) {
+      bilan.rejeter(numero, "Paquet annulé: " + cause.getMessage());
+    }
+  }
+
+  private static boolean estEntete(List<String> champs, String premierChamp) {
+    return premierChamp.equalsIgnoreCase(champs.get(0).trim());
+  }
+
+  /**
+   * Compteurs et lignes rejetées d'un import.
+   */
+  private final class Bilan {
+
+    long lignes;
+    long importees;
+    long rejetees;
+    final List<Reject> rejets = new ArrayList<>();
+
+    void rejeter(long ligne, String raison) {
+      rejetees++;
+      if (rejets.size() < maxRejects) {
+        rejets.add(new Reject(ligne, raison));
+      }
+    }
+
+    ImportReport rapport(String quoi, long dureeNanos) {
+      long dureeMillis = dureeNanos / 1_000_000;
+      double parSeconde = importees * 1e9 / Math.max(dureeNanos, 1);
+      LOGGER.info("Import de {} : {} lignes, {} importées, {} rejetées en {} ms ({} lignes/s)",
+          quoi, lignes, importees, rejetees, dureeMillis, Math.round(parSeconde));
+      rejets.sort((a, b) -> Long.compare(a.line(), b.line()));
+      return new ImportReport(lignes, importees, rejetees, dureeMillis, parSeconde, rejets);
+    }
+  }
+
+  /**
+   * Lecture en flux d'un CSV (RFC 4180) : champs séparés par des virgules,
+   * éventuellement entre guillemets (guillemets doublés, virgules et sauts de
+   * ligne permis). Les lignes vides sont ignorées.
+   */
+  static final class LecteurCsv {
+
+    private final BufferedReader in;
+    private long lues;
+    private long debut;
+
+    LecteurCsv(Reader source) {
+      this.in = source instanceof BufferedReader b ? b : new BufferedReader(source, TAILLE_TAMPON);
+    }
+
+    /**
+     * Numéro, dans le fichier, de la première ligne du dernier enregistrement
+     * lu.
+     */
+    long ligne() {
+      return debut;
+    }
+
+    /**
+     * @return les champs de l'enregistrement suivant, null en fin de fichier
+     */
+    List<String> suivant() throws IOException {
+      String l;
+      do {
+        l = in.readLine();
+        if (l == null) {
+          return null;
+        }
+        lues++;
+      } while (l.isEmpty());
+      debut = lues;
+
+      List<String> champs = new ArrayList<>();
+      StringBuilder champ = new StringBuilder();
+      boolean entreGuillemets = false;
+      boolean protege = false;
+      int i = 0;
+      while (true) {
+        if (i == l.length()) {
+          if (!entreGuillemets) {
+            break;
+          }
+          String suite = in.readLine();
+          if (suite == null) {
+            // guillemet jamais fermé : le champ s'arrête à la fin du fichier
+            break;
+          }
+          lues++;
+          champ.append('\n');
+          l = suite;
+          i = 0;
+          continue;
+        }
+        char c = l.charAt(i++);
+        if (entreGuillemets) {
+          if (c != '"') {
+            champ.append(c);
+          } else if (i < l.length() && l.charAt(i) == '"') {
+            champ.append('"');
+            i++;
+          } else {
+            entreGuillemets = false;
+          }
+        } else if (c == ',') {
+          champs.add(champ.toString());
+          champ.setLength(0);
+          protege = false;
+        } else if (c == '"' && champ.isEmpty() && !protege) {
+          entreGuillemets = true;
+          protege = true;
+        } else {
+          champ.append(c);
+        }
+      }
+      champs.add(champ.toString());
+      return champs;
+    }
+  }
+}
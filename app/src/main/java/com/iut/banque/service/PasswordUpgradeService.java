@@ -0,0 +1,57 @@
+package com.iut.banque.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.cryptage.PasswordStorage;
+import com.iut.banque.repository.UtilisateurRepository;
+
+/**
+ * Migration progressive des anciens hash (SHA-256) vers l'encodeur courant :
+ * après une connexion réussie avec un ancien hash, le mot de passe saisi est
+ * réencodé en arrière-plan, hors du temps de réponse de la connexion.
+ */
+@Service
+public class PasswordUpgradeService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PasswordUpgradeService.class);
+
+  private final UtilisateurRepository utilisateurRepository;
+  private final PasswordStorage passwordStorage;
+  private final LookupCache lookupCache;
+
+  public PasswordUpgradeService(UtilisateurRepository utilisateurRepository, PasswordStorage passwordStorage,
+      LookupCache lookupCache) {
+    this.utilisateurRepository = utilisateurRepository;
+    this.passwordStorage = passwordStorage;
+    this.lookupCache = lookupCache;
+  }
+
+  /**
+   * Réencode le mot de passe de l'utilisateur. La mise à jour est
+   * conditionnelle : si le mot de passe a changé entre la connexion et la
+   * migration, le nouveau mot de passe est conservé.
+   *
+   * @param legacyHash
+   *                    : le hash lu lors de la connexion
+   * @param rawPassword
+   *                    : le mot de passe qui vient d'être vérifié contre ce
+   *                    hash
+   */
+  @Async
+  @Transactional
+  public void upgrade(String userId, String legacyHash, String rawPassword) {
+    int modifies = utilisateurRepository.updatePasswordIfUnchanged(userId, legacyHash,
+        passwordStorage.encode(rawPassword));
+    if (modifies == 1) {
+      lookupCache.invalidateUser(userId);
+      LOGGER.info("Mot de passe de {} migré vers l'encodeur courant", userId);
+    } else {
+      LOGGER.debug("Migration du mot de passe de {} ignorée : il a changé entre-temps", userId);
+    }
+  }
+}
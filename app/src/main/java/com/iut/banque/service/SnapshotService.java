@@ -0,0 +1,209 @@
+package com.iut.banque.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.iut.banque.api.dto.BalanceSnapshot;
+import com.iut.banque.api.dto.SnapshotPage;
+import com.iut.banque.engine.BalanceEngine;
+import com.iut.banque.exceptions.IllegalFormatException;
+import com.iut.banque.repository.SoldeJournalierRepository;
+
+/**
+ * Positions de fin de journée de tous les comptes (table SoldeJournalier),
+ * pour les déclarations réglementaires.
+ *
+ * Chaque nuit ({@code banque.snapshots.cron}), les soldes et découverts de la
+ * veille sont recopiés de Compte par des INSERT ... SELECT, un par tranche de
+ * {@code banque.snapshots.chunk-size} numéros de compte consécutifs :
+ * <ul>
+ * <li>les lignes ne transitent pas par l'application ;</li>
+ * <li>chaque tranche est une courte transaction en READ COMMITTED : la lecture
+ * de Compte ne pose aucun verrou (lecture cohérente d'InnoDB), les dépôts et
+ * virements continuent pendant la copie ;</li>
+ * <li>les bornes des tranches sont lues dans l'index de la clé primaire de
+ * Compte, le coût d'une tranche ne dépend pas de sa position.</li>
+ * </ul>
+ * Chaque compte est relevé au moment où sa tranche est copiée, quelques
+ * minutes au plus après minuit. Une copie interrompue reprend après le dernier
+ * compte copié pour la date ; une copie déjà faite n'ajoute que les comptes
+ * ouverts depuis.
+ */
+@Service
+public class SnapshotService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotService.class);
+
+  /**
+   * Taille maximale d'une page de {@link #listSnapshots}.
+   */
+  public static final int MAX_PAGE_SIZE = 500;
+
+  private static final DateTimeFormatter NOM_PARTITION = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+  private static final String INSERTION = "INSERT INTO SoldeJournalier"
+      + " (dateSolde, numeroCompte, solde, decouvertAutorise)"
+      + " SELECT CAST(? AS DATE), numeroCompte, solde,"
+      + " CASE WHEN avecDecouvert = 'AVEC' THEN decouvertAutorise END FROM Compte"
+      + " WHERE numeroCompte > ?";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final SoldeJournalierRepository soldeJournalierRepository;
+  private final BalanceEngine balanceEngine;
+  private final ZoneId zone;
+  private final boolean managePartitions;
+  private final String borneTranche;
+
+  /**
+   * @param balanceEngine
+   *                         : moteur de soldes à écriture différée, null s'il
+   *                         n'est pas activé ; son journal est reporté en
+   *                         base avant la copie
+   * @param managePartitions
+   *                         : crée les partitions mensuelles de la table
+   *                         (MySQL uniquement)
+   */
+  public SnapshotService(JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      SoldeJournalierRepository soldeJournalierRepository,
+      @Nullable BalanceEngine balanceEngine,
+      @Value("${banque.snapshots.zone:Europe/Paris}") ZoneId zone,
+      @Value("${banque.snapshots.chunk-size:10000}") int chunkSize,
+      @Value("${banque.snapshots.manage-partitions:false}") boolean managePartitions) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    this.soldeJournalierRepository = soldeJournalierRepository;
+    this.balanceEngine = balanceEngine;
+    this.zone = zone;
+    this.managePartitions = managePartitions;
+    // dernier numéro de la tranche qui commence après le numéro donné
+    this.borneTranche = "SELECT numeroCompte FROM Compte WHERE numeroCompte > ? ORDER BY numeroCompte"
+        + " LIMIT 1 OFFSET " + (Math.max(1, chunkSize) - 1);
+  }
+
+  /**
+   * Relève les positions de la veille ; "-" dans banque.snapshots.cron
+   * désactive la tâche (par exemple sur tous les nœuds sauf un).
+   */
+  @Scheduled(cron = "${banque.snapshots.cron:0 5 0 * * *}", zone = "${banque.snapshots.zone:Europe/Paris}")
+  public void snapshotPreviousDay() {
+    snapshot(LocalDate.now(zone).minusDays(1));
+  }
+
+  /**
+   * Recopie le solde et le découvert de chaque compte à la date donnée.
+   *
+   * @return le nombre de positions ajoutées
+   */
+  public long snapshot(LocalDate date) {
+    long debut = System.nanoTime();
+    if (balanceEngine != null) {
+      try {
+        balanceEngine.reporter();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    if (managePartitions) {
+      creerPartitions(date);
+    }
+    String dernier = jdbcTemplate.queryForObject(
+        "SELECT MAX(numeroCompte) FROM SoldeJournalier WHERE dateSolde = ?", String.class, date);
+    if (dernier == null) {
+      // avant tout numéro de compte
+      dernier = "";
+    }
+    long total = 0;
+    int tranches = 0;
+    try {
+      while (true) {
+        List<String> bornes = jdbcTemplate.queryForList(borneTranche, String.class, dernier);
+        String borne = bornes.isEmpty() ? null : bornes.get(0);
+        total += copier(date, dernier, borne);
+        tranches++;
+        if (borne == null) {
+          break;
+        }
+        dernier = borne;
+      }
+    } catch (DuplicateKeyException e) {
+      LOGGER.warn("Positions du {} : copie déjà en cours sur un autre nœud, arrêt après {} tranches", date,
+          tranches);
+      return total;
+    }
+    LOGGER.info("Positions du {} : {} comptes en {} tranches, {} ms", date, total, tranches,
+        (System.nanoTime() - debut) / 1_000_000);
+    return total;
+  }
+
+  private int copier(LocalDate date, String apres, String jusqua) {
+    Integer lignes = transactionTemplate.execute(status -> jusqua == null
+        ? jdbcTemplate.update(INSERTION, date, apres)
+        : jdbcTemplate.update(INSERTION + " AND numeroCompte <= ?", date, apres, jusqua));
+    return lignes == null ? 0 : lignes;
+  }
+
+  /**
+   * Ajoute les partitions du mois de la date et du mois suivant si elles
+   * n'existent pas, en découpant la partition pmax (toujours vide : aucune
+   * position n'est écrite au-delà du mois suivant, l'opération est donc
+   * immédiate).
+   */
+  private void creerPartitions(LocalDate date) {
+    Set<String> existantes = new HashSet<>(jdbcTemplate.queryForList(
+        "SELECT PARTITION_NAME FROM information_schema.PARTITIONS"
+            + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'SoldeJournalier'",
+        String.class));
+    LocalDate mois = date.withDayOfMonth(1);
+    for (LocalDate m : List.of(mois, mois.plusMonths(1))) {
+      String nom = m.format(NOM_PARTITION);
+      if (!existantes.contains(nom)) {
+        jdbcTemplate.execute("ALTER TABLE SoldeJournalier REORGANIZE PARTITION pmax INTO ("
+            + "PARTITION " + nom + " VALUES LESS THAN ('" + m.plusMonths(1) + "'),"
+            + " PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+        LOGGER.info("Partition {} de SoldeJournalier créée", nom);
+      }
+    }
+  }
+
+  /**
+   * Positions d'un compte entre deux dates incluses, triées par date, par
+   * pages d'au plus {@value #MAX_PAGE_SIZE}.
+   */
+  public SnapshotPage listSnapshots(String numeroCompte, LocalDate from, LocalDate to, int limit)
+      throws IllegalFormatException {
+    if (from.isAfter(to)) {
+      throw new IllegalFormatException("La date de début est postérieure à la date de fin.");
+    }
+    int taille = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    // une ligne de plus que demandé : sa date est le début de la page suivante
+    List<BalanceSnapshot> lignes = soldeJournalierRepository.findByCompte(numeroCompte, from, to,
+        Limit.of(taille + 1));
+    if (lignes.size() <= taille) {
+      return new SnapshotPage(lignes, null);
+    }
+    return new SnapshotPage(new ArrayList<>(lignes.subList(0, taille)), lignes.get(taille).date());
+  }
+}
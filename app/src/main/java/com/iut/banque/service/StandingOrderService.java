@@ -0,0 +1,529 @@
+package com.iut.banque.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.iut.banque.api.dto.BatchTransferResult;
+import com.iut.banque.api.dto.StandingOrderRequest;
+import com.iut.banque.api.dto.TransferRequest;
+import com.iut.banque.engine.BalanceEngine;
+import com.iut.banque.engine.TimingWheel;
+import com.iut.banque.exceptions.IllegalFormatException;
+import com.iut.banque.exceptions.IllegalOperationException;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.modele.OrdrePermanent;
+import com.iut.banque.modele.Periodicite;
+import com.iut.banque.repository.CompteRepository;
+import com.iut.banque.repository.OrdrePermanentRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Ordres de virement permanents et leur exécution.
+ *
+ * Les échéances à venir sont tenues en mémoire dans une roue temporelle
+ * hiérarchique ({@link TimingWheel}), avancée chaque tick par un fil dédié :
+ * <ul>
+ * <li>la table n'est lue que par plages de prochaineExecution, par l'index,
+ * jusqu'à {@code banque.standing-orders.horizon} en avance et une fois par
+ * demi-horizon, au lieu d'être interrogée à chaque tick ;</li>
+ * <li>les échéances arrivées sont exécutées par lots de
+ * {@code banque.standing-orders.batch-size}, chaque lot en une transaction
+ * : avancement de rang et prochaineExecution à condition que rang n'ait pas
+ * changé, puis virements par {@link BatchTransferService}, puis statut de
+ * chaque ordre.</li>
+ * </ul>
+ * Une échéance n'est donc exécutée qu'une fois : après un redémarrage (la roue
+ * est rechargée depuis la base, échéances en retard comprises), sur plusieurs
+ * nœuds (un seul avance le rang), ou si la roue contient la même échéance deux
+ * fois. Une échéance manquée pendant un arrêt est exécutée au redémarrage,
+ * ainsi que les suivantes déjà passées. Un virement refusé (provision
+ * insuffisante, compte inconnu) consomme l'échéance, son statut est conservé
+ * sur l'ordre ; un lot en échec est annulé en entier et retenté une minute
+ * plus tard.
+ *
+ * Un ordre vire entre deux comptes d'un même titulaire. Un client ne crée,
+ * ne liste et n'annule que les ordres débitant ses propres comptes ; un
+ * gestionnaire (client null) accède à tous les ordres.
+ */
+@Service
+public class StandingOrderService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StandingOrderService.class);
+
+  /**
+   * Cases par niveau de la roue.
+   */
+  private static final int CASES = 64;
+
+  /**
+   * Échéances lues par requête de chargement.
+   */
+  private static final int PAGE_CHARGEMENT = 10_000;
+
+  private static final long DELAI_NOUVEL_ESSAI = 60_000;
+
+  private static final String AVANCEMENT = "UPDATE OrdrePermanent SET rang = ?, prochaineExecution = ?"
+      + " WHERE id = ? AND rang = ?";
+
+  /**
+   * Échéance planifiée d'un ordre : identifiant, rang de l'exécution et
+   * instant prévu (millisecondes depuis l'epoch).
+   */
+  record Echeance(long id, long rang, long quand) {
+  }
+
+  private record Ordre(long id, String compteDebit, String compteCredit, Montant montant,
+      Periodicite periodicite, LocalDateTime premiereExecution, LocalDate dateFin, long rang,
+      Long prochaineExecution) {
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final OrdrePermanentRepository ordrePermanentRepository;
+  private final CompteRepository compteRepository;
+  private final BatchTransferService batchTransferService;
+  private final BalanceEngine balanceEngine;
+  private final ZoneId zone;
+  private final boolean enabled;
+  private final long tick;
+  private final long horizon;
+  private final int batchSize;
+
+  /**
+   * Échéances ajoutées par les autres fils (création d'un ordre), à
+   * planifier au prochain tick.
+   */
+  private final ConcurrentLinkedQueue<Echeance> ajouts = new ConcurrentLinkedQueue<>();
+
+  // état du fil d'exécution
+  private TimingWheel<Echeance> roue;
+  private final ArrayDeque<Echeance> echues = new ArrayDeque<>();
+
+  /**
+   * Fin de la plage déjà chargée dans la roue (exclue) ; Long.MIN_VALUE avant
+   * le premier chargement.
+   */
+  private volatile long chargeJusqua = Long.MIN_VALUE;
+
+  private ScheduledExecutorService planificateur;
+
+  /**
+   * @param balanceEngine
+   *                      : moteur de soldes à écriture différée, null s'il
+   *                      n'est pas activé ; chaque lot est exécuté par
+   *                      {@link BalanceEngine#ecrireEnBase} sur les comptes
+   *                      de ses ordres
+   */
+  public StandingOrderService(JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      OrdrePermanentRepository ordrePermanentRepository,
+      CompteRepository compteRepository,
+      BatchTransferService batchTransferService,
+      @Nullable BalanceEngine balanceEngine,
+      @Value("${banque.standing-orders.zone:Europe/Paris}") ZoneId zone,
+      @Value("${banque.standing-orders.enabled:false}") boolean enabled,
+      @Value("${banque.standing-orders.tick:PT1S}") Duration tick,
+      @Value("${banque.standing-orders.horizon:PT15M}") Duration horizon,
+      @Value("${banque.standing-orders.batch-size:500}") int batchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.ordrePermanentRepository = ordrePermanentRepository;
+    this.compteRepository = compteRepository;
+    this.batchTransferService = batchTransferService;
+    this.balanceEngine = balanceEngine;
+    this.zone = zone;
+    this.enabled = enabled;
+    this.tick = Math.max(1, tick.toMillis());
+    this.horizon = Math.max(this.tick, horizon.toMillis());
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  /**
+   * Démarre le fil d'exécution si banque.standing-orders.enabled (à ne garder
+   * que sur un nœud : les autres n'exécuteraient rien de plus, mais liraient
+   * les mêmes plages).
+   */
+  @PostConstruct
+  public void demarrer() {
+    if (!enabled) {
+      return;
+    }
+    initialiser(System.currentTimeMillis());
+    planificateur = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "ordres-permanents");
+      t.setDaemon(true);
+      return t;
+    });
+    planificateur.scheduleWithFixedDelay(this::tournerSansErreur, 0, tick, TimeUnit.MILLISECONDS);
+    LOGGER.info("Exécution des ordres permanents démarrée (tick {} ms, horizon {} ms)", tick, horizon);
+  }
+
+  @PreDestroy
+  public void arreter() throws InterruptedException {
+    if (planificateur != null) {
+      planificateur.shutdown();
+      planificateur.awaitTermination(30, TimeUnit.SECONDS);
+    }
+  }
+
+  void initialiser(long maintenant) {
+    roue = new TimingWheel<>(tick, CASES, maintenant);
+    echues.clear();
+    ajouts.clear();
+    chargeJusqua = Long.MIN_VALUE;
+  }
+
+  private void tournerSansErreur() {
+    try {
+      tourner(System.currentTimeMillis());
+    } catch (RuntimeException e) {
+      LOGGER.error("Échec du tour des ordres permanents", e);
+    }
+  }
+
+  /**
+   * Un tick : chargement de la plage suivante si la moitié de l'horizon est
+   * consommée, planification des ordres créés depuis le tick précédent, puis
+   * exécution des échéances arrivées.
+   *
+   * @return le nombre de virements exécutés
+   */
+  int tourner(long maintenant) {
+    if (maintenant + horizon / 2 >= chargeJusqua) {
+      charger(maintenant);
+    }
+    Echeance ajout;
+    while ((ajout = ajouts.poll()) != null) {
+      planifier(ajout);
+    }
+    roue.avancer(maintenant, echues::add);
+
+    int executes = 0;
+    while (!echues.isEmpty()) {
+      List<Echeance> lot = new ArrayList<>(Math.min(batchSize, echues.size()));
+      while (lot.size() < batchSize && !echues.isEmpty()) {
+        lot.add(echues.poll());
+      }
+      try {
+        List<Echeance> suivantes = new ArrayList<>(lot.size());
+        executes += executer(lot, suivantes);
+        for (Echeance suivante : suivantes) {
+          // les échéances au-delà de la plage chargée seront lues avec elle
+          if (suivante.quand() < chargeJusqua) {
+            planifier(suivante);
+          }
+        }
+      } catch (RuntimeException e) {
+        LOGGER.warn("Échec d'un lot de {} ordres permanents, nouvel essai dans {} ms", lot.size(),
+            DELAI_NOUVEL_ESSAI, e);
+        for (Echeance echeance : lot) {
+          roue.ajouter(new Echeance(echeance.id(), echeance.rang(), maintenant + DELAI_NOUVEL_ESSAI),
+              maintenant + DELAI_NOUVEL_ESSAI);
+        }
+      }
+    }
+    return executes;
+  }
+
+  private void planifier(Echeance echeance) {
+    if (!roue.ajouter(echeance, echeance.quand())) {
+      echues.add(echeance);
+    }
+  }
+
+  /**
+   * Charge les échéances de la plage suivante, jusqu'à maintenant + horizon.
+   * Le premier chargement lit aussi les échéances en retard (arrêt,
+   * redémarrage) ; les suivants relisent celles en retard de plus d'un
+   * horizon, laissées par un autre nœud arrêté.
+   */
+  private void charger(long maintenant) {
+    long debut = chargeJusqua;
+    long fin = maintenant + horizon;
+    // publié avant la lecture : un ordre créé pendant le chargement est lu ici
+    // ou planifié par creer(), au pire les deux
+    chargeJusqua = fin;
+    long lues = chargerPlage(debut, fin);
+    if (debut != Long.MIN_VALUE) {
+      lues += chargerPlage(Long.MIN_VALUE, maintenant - horizon);
+    }
+    if (lues > 0) {
+      LOGGER.debug("{} échéances d'ordres permanents chargées, {} planifiées", lues, roue.taille());
+    }
+  }
+
+  private long chargerPlage(long debut, long fin) {
+    long lues = 0;
+    long apresQuand = debut;
+    long apresId = Long.MIN_VALUE;
+    while (true) {
+      List<Echeance> page = jdbcTemplate.query(
+          "SELECT id, rang, prochaineExecution FROM OrdrePermanent"
+              + " WHERE prochaineExecution < ? AND (prochaineExecution > ? OR (prochaineExecution = ? AND id > ?))"
+              + " ORDER BY prochaineExecution, id LIMIT " + PAGE_CHARGEMENT,
+          (rs, i) -> new Echeance(rs.getLong(1), rs.getLong(2), rs.getLong(3)),
+          fin, apresQuand, apresQuand, apresId);
+      for (Echeance echeance : page) {
+        planifier(echeance);
+      }
+      lues += page.size();
+      if (page.size() < PAGE_CHARGEMENT) {
+        return lues;
+      }
+      Echeance derniere = page.get(page.size() - 1);
+      apresQuand = derniere.quand();
+      apresId = derniere.id();
+    }
+  }
+
+  /**
+   * Exécute un lot d'échéances en une transaction.
+   *
+   * @param suivantes
+   *                  : reçoit l'échéance suivante de chaque ordre exécuté qui
+   *                  n'est pas terminé
+   * @return le nombre d'échéances exécutées (virement accepté ou non)
+   */
+  private int executer(List<Echeance> lot, List<Echeance> suivantes) {
+    if (balanceEngine == null) {
+      return executerEnTransaction(lot, suivantes);
+    }
+    // les comptes d'un ordre ne changent pas : lus avant la transaction
+    Set<String> comptes = new HashSet<>();
+    for (Ordre ordre : lire(lot).values()) {
+      comptes.add(ordre.compteDebit());
+      comptes.add(ordre.compteCredit());
+    }
+    int[] executes = new int[1];
+    try {
+      balanceEngine.ecrireEnBase(comptes, () -> executes[0] = executerEnTransaction(lot, suivantes));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return executes[0];
+  }
+
+  private int executerEnTransaction(List<Echeance> lot, List<Echeance> suivantes) {
+    Integer executes = transactionTemplate.execute(status -> {
+      Map<Long, Ordre> ordres = lire(lot);
+      List<Ordre> retenus = new ArrayList<>(lot.size());
+      List<Object[]> avancements = new ArrayList<>(lot.size());
+      List<Echeance> prochaines = new ArrayList<>(lot.size());
+      for (Echeance echeance : lot) {
+        Ordre ordre = ordres.remove(echeance.id());
+        // ordre annulé, ou échéance déjà exécutée (doublon, autre nœud)
+        if (ordre == null || ordre.rang() != echeance.rang() || ordre.prochaineExecution() == null) {
+          continue;
+        }
+        Long prochaine = prochaineExecution(ordre, ordre.rang() + 1);
+        retenus.add(ordre);
+        avancements.add(new Object[] { ordre.rang() + 1, prochaine, ordre.id(), ordre.rang() });
+        prochaines.add(prochaine == null ? null : new Echeance(ordre.id(), ordre.rang() + 1, prochaine));
+      }
+      int[] avances = jdbcTemplate.batchUpdate(AVANCEMENT, avancements);
+
+      List<TransferRequest> virements = new ArrayList<>(retenus.size());
+      List<Ordre> vires = new ArrayList<>(retenus.size());
+      for (int i = 0; i < retenus.size(); i++) {
+        // 0 : rang avancé entre-temps par un autre nœud
+        if (avances[i] != 0) {
+          Ordre ordre = retenus.get(i);
+          virements.add(new TransferRequest(ordre.compteDebit(), ordre.compteCredit(), ordre.montant()));
+          vires.add(ordre);
+          if (prochaines.get(i) != null) {
+            suivantes.add(prochaines.get(i));
+          }
+        }
+      }
+      if (vires.isEmpty()) {
+        return 0;
+      }
+      List<BatchTransferResult> resultats;
+      try {
+        // même transaction : les paquets de BatchTransferService y participent
+        resultats = batchTransferService.transferAll(virements);
+      } catch (IllegalOperationException e) {
+        throw new IllegalStateException(e);
+      }
+      List<Object[]> statuts = new ArrayList<>(vires.size());
+      for (int i = 0; i < vires.size(); i++) {
+        Ordre ordre = vires.get(i);
+        statuts.add(new Object[] { resultats.get(i).status().name(), ordre.id() });
+      }
+      jdbcTemplate.batchUpdate("UPDATE OrdrePermanent SET dernierStatut = ? WHERE id = ?", statuts);
+      return vires.size();
+    });
+    return executes == null ? 0 : executes;
+  }
+
+  private Map<Long, Ordre> lire(List<Echeance> lot) {
+    Object[] ids = lot.stream().map(Echeance::id).distinct().toArray();
+    String marques = String.join(",", Collections.nCopies(ids.length, "?"));
+    Map<Long, Ordre> ordres = new HashMap<>();
+    jdbcTemplate.query("SELECT id, compteDebit, compteCredit, montant, periodicite, premiereExecution, dateFin,"
+        + " rang, prochaineExecution FROM OrdrePermanent WHERE id IN (" + marques + ")",
+        rs -> {
+          Ordre ordre = ordre(rs);
+          ordres.put(ordre.id(), ordre);
+        }, ids);
+    return ordres;
+  }
+
+  private static Ordre ordre(ResultSet rs) throws SQLException {
+    long prochaine = rs.getLong("prochaineExecution");
+    return new Ordre(rs.getLong("id"), rs.getString("compteDebit"), rs.getString("compteCredit"),
+        Montant.deCentimes(rs.getLong("montant")), Periodicite.valueOf(rs.getString("periodicite")),
+        rs.getObject("premiereExecution", LocalDateTime.class), rs.getObject("dateFin", LocalDate.class),
+        rs.getLong("rang"), rs.wasNull() ? null : prochaine);
+  }
+
+  /**
+   * Instant de l'exécution de rang donné, null si elle tombe après la date
+   * de fin.
+   */
+  private Long prochaineExecution(Ordre ordre, long rang) {
+    LocalDateTime occurrence = ordre.periodicite().occurrence(ordre.premiereExecution(), rang);
+    if (ordre.dateFin() != null && occurrence.toLocalDate().isAfter(ordre.dateFin())) {
+      return null;
+    }
+    return occurrence.atZone(zone).toInstant().toEpochMilli();
+  }
+
+  /**
+   * Crée un ordre permanent ; sa première exécution est planifiée
+   * immédiatement si elle tombe dans la plage déjà chargée.
+   *
+   * @param client
+   *                                   : identifiant du client appelant, null
+   *                                   pour un gestionnaire
+   * @throws IllegalOperationException
+   *                                   : si un des comptes n'existe pas
+   * @throws IllegalFormatException
+   *                                   : si les comptes sont identiques, ou si
+   *                                   la première exécution est passée ou
+   *                                   postérieure à la date de fin
+   * @throws AccessDeniedException
+   *                                   : si le compte débité n'appartient pas
+   *                                   au client, ou si les deux comptes n'ont
+   *                                   pas le même titulaire
+   */
+  public OrdrePermanent creer(StandingOrderRequest req, @Nullable String client)
+      throws IllegalOperationException, IllegalFormatException {
+    if (req.fromAccountId().equals(req.toAccountId())) {
+      throw new IllegalFormatException("Compte source et destination identiques");
+    }
+    if (req.endDate() != null && req.firstExecution().toLocalDate().isAfter(req.endDate())) {
+      throw new IllegalFormatException("La première exécution est postérieure à la date de fin.");
+    }
+    Instant premiere = req.firstExecution().atZone(zone).toInstant();
+    if (premiere.isBefore(Instant.now())) {
+      throw new IllegalFormatException("La première exécution est passée.");
+    }
+    String titulaire = titulaire(req.fromAccountId());
+    if (client != null && !client.equals(titulaire)) {
+      throw new AccessDeniedException("Compte débité d'un autre client: " + req.fromAccountId());
+    }
+    if (!titulaire.equals(titulaire(req.toAccountId()))) {
+      throw new AccessDeniedException("Le compte crédité n'appartient pas au titulaire du compte débité: "
+          + req.toAccountId());
+    }
+    OrdrePermanent ordre = ordrePermanentRepository.save(new OrdrePermanent(req.fromAccountId(),
+        req.toAccountId(), req.amount(), req.frequency(), req.firstExecution(), req.endDate(), premiere));
+    if (premiere.toEpochMilli() < chargeJusqua) {
+      ajouts.add(new Echeance(ordre.getId(), 0, premiere.toEpochMilli()));
+    }
+    return ordre;
+  }
+
+  private String titulaire(String numeroCompte) throws IllegalOperationException {
+    return compteRepository.findOwnerUserIdById(numeroCompte)
+        .orElseThrow(() -> new IllegalOperationException("Compte introuvable: " + numeroCompte));
+  }
+
+  /**
+   * Vérifie qu'un compte appartient au client appelant (rien à vérifier pour
+   * un gestionnaire). Un compte inconnu est refusé de la même façon qu'un
+   * compte d'un autre client.
+   */
+  private void verifierTitulaire(String numeroCompte, @Nullable String client) {
+    if (client != null && !compteRepository.findOwnerUserIdById(numeroCompte).filter(client::equals).isPresent()) {
+      throw new AccessDeniedException("Compte d'un autre client: " + numeroCompte);
+    }
+  }
+
+  /**
+   * Ordres permanents débitant un compte, terminés compris.
+   *
+   * @param client
+   *               : identifiant du client appelant, null pour un gestionnaire
+   * @throws AccessDeniedException
+   *                               : si le compte n'appartient pas au client
+   */
+  public List<OrdrePermanent> lister(String compteDebit, @Nullable String client) {
+    verifierTitulaire(compteDebit, client);
+    return ordrePermanentRepository.findByCompteDebitOrderById(compteDebit);
+  }
+
+  /**
+   * Annule un ordre : son échéance restée dans la roue sera ignorée.
+   *
+   * @param client
+   *                                   : identifiant du client appelant, null
+   *                                   pour un gestionnaire
+   * @throws IllegalOperationException
+   *                                   : si l'ordre n'existe pas ou est déjà
+   *                                   terminé
+   * @throws AccessDeniedException
+   *                                   : si l'ordre débite le compte d'un autre
+   *                                   client
+   */
+  public void annuler(long id, @Nullable String client) throws IllegalOperationException {
+    if (client != null) {
+      String compteDebit = ordrePermanentRepository.findById(id).map(OrdrePermanent::getCompteDebit)
+          .orElseThrow(() -> new IllegalOperationException("Ordre permanent introuvable ou terminé: " + id));
+      verifierTitulaire(compteDebit, client);
+    }
+    if (jdbcTemplate.update("UPDATE OrdrePermanent SET prochaineExecution = NULL"
+        + " WHERE id = ? AND prochaineExecution IS NOT NULL", id) == 0) {
+      throw new IllegalOperationException("Ordre permanent introuvable ou terminé: " + id);
+    }
+  }
+
+  /**
+   * Nombre d'échéances planifiées dans la roue.
+   */
+  int planifiees() {
+    return roue.taille();
+  }
+}
@@ -0,0 +1,77 @@
+package com.iut.banque.util;
+
+/**
+ * Vérification du format des identifiants (numéro de compte, identifiant et
+ * numéro de client).
+ *
+ * Les formats sont vérifiés caractère par caractère plutôt qu'avec
+ * Pattern.matches, qui compile l'expression et alloue un Matcher à chaque
+ * appel : ces vérifications sont faites à chaque construction d'entité, y
+ * compris lors des chargements et imports en masse. Aucune de ces méthodes
+ * n'alloue. Une valeur nulle n'est pas au bon format.
+ */
+public final class FormatIdentifiants {
+
+  private static final int LONGUEUR_NUMERO_COMPTE = 12;
+  private static final int LONGUEUR_NUMERO_CLIENT = 10;
+
+  private FormatIdentifiants() {
+  }
+
+  /**
+   * Numéro de compte : deux lettres majuscules puis dix chiffres
+   * ({@code [A-Z]{2}[0-9]{10}}, ex. FR0123456789).
+   */
+  public static boolean isNumeroCompte(String s) {
+    if (s == null || s.length() != LONGUEUR_NUMERO_COMPTE
+        || !isMajuscule(s.charAt(0)) || !isMajuscule(s.charAt(1))) {
+      return false;
+    }
+    return isChiffres(s, 2);
+  }
+
+  /**
+   * Identifiant de client : une lettre, un point, au moins une lettre, un
+   * chiffre de 1 à 9 puis d'autres chiffres éventuels
+   * ({@code [a-z]\.[a-z]+[1-9][0-9]*}, ex. d.dupont123).
+   */
+  public static boolean isUserIdClient(String s) {
+    if (s == null || s.length() < 4 || !isMinuscule(s.charAt(0)) || s.charAt(1) != '.') {
+      return false;
+    }
+    int i = 2;
+    while (i < s.length() && isMinuscule(s.charAt(i))) {
+      i++;
+    }
+    if (i == 2 || i == s.length()) {
+      return false;
+    }
+    char premierChiffre = s.charAt(i);
+    return premierChiffre >= '1' && premierChiffre <= '9' && isChiffres(s, i + 1);
+  }
+
+  /**
+   * Numéro de client : dix chiffres ({@code [0-9]{10}}, ex. 1234567890).
+   */
+  public static boolean isNumeroClient(String s) {
+    return s != null && s.length() == LONGUEUR_NUMERO_CLIENT && isChiffres(s, 0);
+  }
+
+  private static boolean isChiffres(String s, int debut) {
+    for (int i = debut; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isMajuscule(char c) {
+    return c >= 'A' && c <= 'Z';
+  }
+
+  private static boolean isMinuscule(char c) {
+    return c >= 'a' && c <= 'z';
+  }
+}
@@ -1,14 +1,23 @@
 package com.iut.banque.web;
 
+import com.iut.banque.api.dto.AccountPage;
+import com.iut.banque.api.dto.AccountSummary;
 import com.iut.banque.constants.LoginConstants;
 import com.iut.banque.exceptions.IllegalFormatException;
 import com.iut.banque.exceptions.IllegalOperationException;
+import com.iut.banque.exceptions.TooManyAttemptsException;
 import com.iut.banque.facade.LoginManager;
 import com.iut.banque.modele.Client;
 import com.iut.banque.modele.Compte;
+import com.iut.banque.modele.Montant;
 import com.iut.banque.modele.Utilisateur;
+import com.iut.banque.security.LoginRateLimiter;
 import com.iut.banque.service.BanqueService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -22,12 +31,19 @@ import java.util.List;
 @Controller
 public class WebController {
 
+    /**
+     * Nombre de comptes par page sur la liste de tous les comptes.
+     */
+    static final int ACCOUNTS_PAGE_SIZE = 50;
+
     private final BanqueService banqueService;
     private final LoginManager loginManager;
+    private final LoginRateLimiter loginRateLimiter;
 
-    public WebController(BanqueService banqueService, LoginManager loginManager) {
+    public WebController(BanqueService banqueService, LoginManager loginManager, LoginRateLimiter loginRateLimiter) {
         this.banqueService = banqueService;
         this.loginManager = loginManager;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
     // ============ HELPERS ============
@@ -73,7 +89,18 @@ public class WebController {
             @RequestParam String userId,
             @RequestParam String password,
             HttpSession session,
+            HttpServletRequest request,
+            HttpServletResponse response,
             Model model) {
+        try {
+            loginRateLimiter.acquire(userId, request.getRemoteAddr());
+        } catch (TooManyAttemptsException e) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()));
+            model.addAttribute("error", "Trop de tentatives de connexion, réessayez dans "
+                    + e.getRetryAfterSeconds() + " secondes");
+            return "login";
+        }
         try {
             int loginCode = loginManager.tryLogin(userId, password);
             if (loginCode == LoginConstants.USER_IS_CONNECTED || loginCode == LoginConstants.MANAGER_IS_CONNECTED) {
@@ -213,6 +240,7 @@ public class WebController {
     @GetMapping("/accounts")
     public String listAccounts(
             @RequestParam(required = false) String ownerUserId,
+            @RequestParam(required = false) String after,
             HttpSession session,
             Model model) {
         String userId = requireUserId(session);
@@ -221,7 +249,7 @@ public class WebController {
 
         try {
             boolean client = isClient(session);
-            List<Compte> accounts;
+            List<?> accounts;
             String normalizedOwnerId = ownerUserId == null ? null : ownerUserId.trim();
 
             if (client) {
@@ -235,7 +263,9 @@ public class WebController {
                     model.addAttribute("warning", "Utilisateur filtré introuvable");
                 }
             } else {
-                accounts = banqueService.listAccounts();
+                AccountPage page = banqueService.listAccountsPage(after, ACCOUNTS_PAGE_SIZE);
+                accounts = page.items();
+                model.addAttribute("nextAfter", page.nextAfter());
             }
 
             model.addAttribute("accounts", accounts);
@@ -265,10 +295,10 @@ public class WebController {
             return "redirect:/login";
 
         try {
-            Compte compte = banqueService.getAccountById(accountId);
+            AccountSummary compte = banqueService.getAccountSummary(accountId);
 
             if (isClient(session)) {
-                if (compte.getOwner() == null || !userId.equals(compte.getOwner().getUserId())) {
+                if (!userId.equals(compte.ownerUserId())) {
                     model.addAttribute("error", "Accès refusé");
                     return "account-detail";
                 }
@@ -333,7 +363,7 @@ public class WebController {
             if (decouvertAutorise == null || decouvertAutorise.isBlank()) {
                 banqueService.createAccountSansDecouvert(numeroCompte, ownerId);
             } else {
-                double dec = Double.parseDouble(decouvertAutorise.replace(',', '.'));
+                Montant dec = Montant.valueOf(decouvertAutorise.trim().replace(',', '.'));
                 banqueService.createAccountAvecDecouvert(numeroCompte, ownerId, dec);
             }
 
@@ -356,7 +386,7 @@ public class WebController {
     @PostMapping("/accounts/{accountId}/deposit")
     public String deposit(
             @PathVariable String accountId,
-            @RequestParam Double amount,
+            @RequestParam Montant amount,
             HttpSession session,
             RedirectAttributes redirectAttributes) {
 
@@ -381,7 +411,7 @@ public class WebController {
     @PostMapping("/accounts/{accountId}/withdraw")
     public String withdraw(
             @PathVariable String accountId,
-            @RequestParam Double amount,
+            @RequestParam Montant amount,
             HttpSession session,
             RedirectAttributes redirectAttributes) {
 
@@ -428,7 +458,7 @@ public class WebController {
     public String transfer(
             @RequestParam String fromAccountId,
             @RequestParam String toAccountId,
-            @RequestParam Double amount,
+            @RequestParam Montant amount,
             HttpSession session,
             RedirectAttributes redirectAttributes) {
 
@@ -438,13 +468,13 @@ public class WebController {
 
         if (isClient(session)) {
             try {
-                Compte from = banqueService.getAccountById(fromAccountId);
-                Compte to = banqueService.getAccountById(toAccountId);
-                if (from.getOwner() == null || !userId.equals(from.getOwner().getUserId())) {
+                AccountSummary from = banqueService.getAccountSummary(fromAccountId);
+                AccountSummary to = banqueService.getAccountSummary(toAccountId);
+                if (!userId.equals(from.ownerUserId())) {
                     redirectAttributes.addFlashAttribute("error", "Accès refusé");
                     return "redirect:/transfer";
                 }
-                if (to.getOwner() == null || !userId.equals(to.getOwner().getUserId())) {
+                if (!userId.equals(to.ownerUserId())) {
                     redirectAttributes.addFlashAttribute("error", "Le compte destinataire doit vous appartenir");
                     return "redirect:/transfer";
                 }
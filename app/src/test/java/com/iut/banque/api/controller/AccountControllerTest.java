@@ -2,8 +2,15 @@ package com.iut.banque.api.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.iut.banque.api.dto.AmountRequest;
+import com.iut.banque.api.dto.AccountPage;
+import com.iut.banque.api.dto.AccountSummary;
+import com.iut.banque.api.dto.BalanceSnapshot;
+import com.iut.banque.api.dto.BatchTransferResult;
 import com.iut.banque.api.dto.CreateAccountRequest;
+import com.iut.banque.api.dto.SnapshotPage;
 import com.iut.banque.api.dto.TransferRequest;
+import com.iut.banque.api.idempotency.IdempotentRequests;
+import com.iut.banque.api.idempotency.InMemoryIdempotencyStore;
 import com.iut.banque.config.TestConfig;
 import com.iut.banque.exceptions.IllegalFormatException;
 import com.iut.banque.exceptions.IllegalOperationException;
@@ -12,7 +19,10 @@ import com.iut.banque.modele.Client;
 import com.iut.banque.modele.Compte;
 import com.iut.banque.modele.CompteAvecDecouvert;
 import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.modele.Montant;
 import com.iut.banque.service.BanqueService;
+import com.iut.banque.service.BatchTransferService;
+import com.iut.banque.service.SnapshotService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -21,15 +31,20 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+import static com.iut.banque.modele.Montant.euros;
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(AccountController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, IdempotentRequests.class, InMemoryIdempotencyStore.class })
 class AccountControllerTest {
 
     @Autowired
@@ -38,6 +53,12 @@ class AccountControllerTest {
     @MockBean
     BanqueService banqueService;
 
+    @MockBean
+    BatchTransferService batchTransferService;
+
+    @MockBean
+    SnapshotService snapshotService;
+
     @Autowired
     ObjectMapper objectMapper;
 
@@ -46,31 +67,68 @@ class AccountControllerTest {
     }
 
     @Test
-    void list_accounts_returns_all() throws Exception {
-        Client owner = sampleClient();
-        Compte c1 = new CompteSansDecouvert("FR1234567890", 100.0, owner);
-        Compte c2 = new CompteSansDecouvert("FR1234567891", 200.0, owner);
-        when(banqueService.listAccounts()).thenReturn(Arrays.asList(c1, c2));
+    void list_accounts_returns_first_page() throws Exception {
+        AccountPage page = new AccountPage(List.of(
+                new AccountSummary("FR1234567890", euros(100), "CompteSansDecouvert", null, "d.dupont1"),
+                new AccountSummary("FR1234567891", euros(200), "CompteAvecDecouvert", euros(50), "d.dupont1")),
+                "FR1234567891");
+        when(banqueService.listAccountsPage(null, 100)).thenReturn(page);
 
         mockMvc.perform(get("/api/accounts"))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[1].className").value("CompteAvecDecouvert"))
+                .andExpect(jsonPath("$.items[1].ownerUserId").value("d.dupont1"))
+                .andExpect(jsonPath("$.nextAfter").value("FR1234567891"));
+
+        verify(banqueService, times(1)).listAccountsPage(null, 100);
+        verify(banqueService, never()).listAccounts();
+    }
 
-        verify(banqueService, times(1)).listAccounts();
+    @Test
+    void list_accounts_passes_cursor_and_limit() throws Exception {
+        when(banqueService.listAccountsPage("FR1234567891", 10))
+                .thenReturn(new AccountPage(Collections.emptyList(), null));
+
+        mockMvc.perform(get("/api/accounts").param("after", "FR1234567891").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isEmpty())
+                .andExpect(jsonPath("$.nextAfter").doesNotExist());
+
+        verify(banqueService, times(1)).listAccountsPage("FR1234567891", 10);
     }
 
     @Test
-    void list_accounts_returns_empty() throws Exception {
-        when(banqueService.listAccounts()).thenReturn(Collections.emptyList());
+    void snapshots_returns_page_of_daily_positions() throws Exception {
+        LocalDate from = LocalDate.of(2024, 3, 1);
+        LocalDate to = LocalDate.of(2024, 3, 31);
+        when(snapshotService.listSnapshots("FR1234567891", from, to, 100)).thenReturn(new SnapshotPage(
+                List.of(new BalanceSnapshot(from, Montant.valueOf("12.50"), euros(50))), from.plusDays(1)));
+
+        mockMvc.perform(get("/api/accounts/FR1234567891/snapshots")
+                .param("from", "2024-03-01").param("to", "2024-03-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].date").value("2024-03-01"))
+                .andExpect(jsonPath("$.items[0].solde").value(12.5))
+                .andExpect(jsonPath("$.items[0].decouvertAutorise").value(50.0))
+                .andExpect(jsonPath("$.nextFrom").value("2024-03-02"));
+    }
 
-        mockMvc.perform(get("/api/accounts"))
-                .andExpect(status().isOk());
+    @Test
+    void snapshots_rejects_invalid_period() throws Exception {
+        when(snapshotService.listSnapshots(eq("FR1234567891"), any(), any(), anyInt()))
+                .thenThrow(new IllegalFormatException("La date de début est postérieure à la date de fin."));
 
-        verify(banqueService, times(1)).listAccounts();
+        mockMvc.perform(get("/api/accounts/FR1234567891/snapshots")
+                .param("from", "2024-03-31").param("to", "2024-03-01"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/accounts/FR1234567891/snapshots").param("from", "2024-03-31"))
+                .andExpect(status().is4xxClientError());
     }
 
     @Test
     void get_account_success() throws Exception {
-        Compte compte = new CompteSansDecouvert("FR1234567890", 100.0, sampleClient());
+        Compte compte = new CompteSansDecouvert("FR1234567890", euros(100), sampleClient());
         when(banqueService.getAccountById("ACC1")).thenReturn(compte);
 
         mockMvc.perform(get("/api/accounts/ACC1"))
@@ -90,7 +148,7 @@ class AccountControllerTest {
 
     @Test
     void create_account_sans_decouvert() throws Exception {
-        Compte mockCompte = new CompteSansDecouvert("FR1234567890", 0.0, sampleClient());
+        Compte mockCompte = new CompteSansDecouvert("FR1234567890", euros(0), sampleClient());
         when(banqueService.createAccountSansDecouvert("FR123", "client1"))
                 .thenReturn(mockCompte);
 
@@ -105,38 +163,38 @@ class AccountControllerTest {
 
     @Test
     void create_account_avec_decouvert() throws Exception {
-        Compte mockCompte = new CompteAvecDecouvert("FR1234567892", 0.0, 500.0, sampleClient());
-        when(banqueService.createAccountAvecDecouvert("FR456", "client2", 500.0))
+        Compte mockCompte = new CompteAvecDecouvert("FR1234567892", euros(0), euros(500), sampleClient());
+        when(banqueService.createAccountAvecDecouvert("FR456", "client2", euros(500)))
                 .thenReturn(mockCompte);
 
-        CreateAccountRequest request = new CreateAccountRequest("FR456", "client2", 500.0);
+        CreateAccountRequest request = new CreateAccountRequest("FR456", "client2", euros(500));
         mockMvc.perform(post("/api/accounts")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk());
 
-        verify(banqueService, times(1)).createAccountAvecDecouvert("FR456", "client2", 500.0);
+        verify(banqueService, times(1)).createAccountAvecDecouvert("FR456", "client2", euros(500));
     }
 
     @Test
     void deposit_success() throws Exception {
-        doNothing().when(banqueService).crediter("ACC1", 100.0);
+        doNothing().when(banqueService).crediter("ACC1", euros(100));
 
-        AmountRequest request = new AmountRequest(100.0);
+        AmountRequest request = new AmountRequest(euros(100));
         mockMvc.perform(post("/api/accounts/ACC1/deposit")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isNoContent());
 
-        verify(banqueService, times(1)).crediter("ACC1", 100.0);
+        verify(banqueService, times(1)).crediter("ACC1", euros(100));
     }
 
     @Test
     void deposit_account_not_found() throws Exception {
         doThrow(new IllegalOperationException("Account not found"))
-                .when(banqueService).crediter("NOEXIST", 100.0);
+                .when(banqueService).crediter("NOEXIST", euros(100));
 
-        AmountRequest request = new AmountRequest(100.0);
+        AmountRequest request = new AmountRequest(euros(100));
         mockMvc.perform(post("/api/accounts/NOEXIST/deposit")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
@@ -146,9 +204,9 @@ class AccountControllerTest {
     @Test
     void deposit_invalid_format() throws Exception {
         doThrow(new IllegalFormatException("Invalid format"))
-                .when(banqueService).crediter("ACC1", -100.0);
+                .when(banqueService).crediter("ACC1", euros(-100));
 
-        AmountRequest request = new AmountRequest(-100.0);
+        AmountRequest request = new AmountRequest(euros(-100));
         mockMvc.perform(post("/api/accounts/ACC1/deposit")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
@@ -157,23 +215,23 @@ class AccountControllerTest {
 
     @Test
     void withdraw_success() throws Exception {
-        doNothing().when(banqueService).debiter("ACC1", 50.0);
+        doNothing().when(banqueService).debiter("ACC1", euros(50));
 
-        AmountRequest request = new AmountRequest(50.0);
+        AmountRequest request = new AmountRequest(euros(50));
         mockMvc.perform(post("/api/accounts/ACC1/withdraw")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isNoContent());
 
-        verify(banqueService, times(1)).debiter("ACC1", 50.0);
+        verify(banqueService, times(1)).debiter("ACC1", euros(50));
     }
 
     @Test
     void withdraw_account_not_found() throws Exception {
         doThrow(new IllegalOperationException("Account not found"))
-                .when(banqueService).debiter("NOEXIST", 50.0);
+                .when(banqueService).debiter("NOEXIST", euros(50));
 
-        AmountRequest request = new AmountRequest(50.0);
+        AmountRequest request = new AmountRequest(euros(50));
         mockMvc.perform(post("/api/accounts/NOEXIST/withdraw")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
@@ -183,9 +241,9 @@ class AccountControllerTest {
     @Test
     void withdraw_insufficient_funds() throws Exception {
         doThrow(new InsufficientFundsException("Insufficient funds"))
-                .when(banqueService).debiter("ACC1", 5000.0);
+                .when(banqueService).debiter("ACC1", euros(5000));
 
-        AmountRequest request = new AmountRequest(5000.0);
+        AmountRequest request = new AmountRequest(euros(5000));
         mockMvc.perform(post("/api/accounts/ACC1/withdraw")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
@@ -195,9 +253,9 @@ class AccountControllerTest {
     @Test
     void withdraw_invalid_format() throws Exception {
         doThrow(new IllegalFormatException("Invalid format"))
-                .when(banqueService).debiter("ACC1", -50.0);
+                .when(banqueService).debiter("ACC1", euros(-50));
 
-        AmountRequest request = new AmountRequest(-50.0);
+        AmountRequest request = new AmountRequest(euros(-50));
         mockMvc.perform(post("/api/accounts/ACC1/withdraw")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
@@ -206,29 +264,141 @@ class AccountControllerTest {
 
     @Test
     void transfer_success() throws Exception {
-        doNothing().when(banqueService).transfer("FROM", "TO", 100.0);
+        doNothing().when(banqueService).transfer("FROM", "TO", euros(100));
 
-        TransferRequest request = new TransferRequest("FROM", "TO", 100.0);
+        TransferRequest request = new TransferRequest("FROM", "TO", euros(100));
         mockMvc.perform(post("/api/accounts/transfer")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isNoContent());
 
-        verify(banqueService, times(1)).transfer("FROM", "TO", 100.0);
+        verify(banqueService, times(1)).transfer("FROM", "TO", euros(100));
     }
 
     @Test
     void transfer_same_account() throws Exception {
         doThrow(new IllegalOperationException("Same account"))
-                .when(banqueService).transfer("ACC1", "ACC1", 100.0);
+                .when(banqueService).transfer("ACC1", "ACC1", euros(100));
 
-        TransferRequest request = new TransferRequest("ACC1", "ACC1", 100.0);
+        TransferRequest request = new TransferRequest("ACC1", "ACC1", euros(100));
         mockMvc.perform(post("/api/accounts/transfer")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void deposit_repeated_with_same_idempotency_key_is_applied_once() throws Exception {
+        String body = objectMapper.writeValueAsString(new AmountRequest(euros(100)));
+        mockMvc.perform(post("/api/accounts/ACC1/deposit").header("Idempotency-Key", "depot-1")
+                .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isNoContent())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+        mockMvc.perform(post("/api/accounts/ACC1/deposit").header("Idempotency-Key", "depot-1")
+                .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("Idempotent-Replayed", "true"));
+
+        verify(banqueService, times(1)).crediter("ACC1", euros(100));
+    }
+
+    @Test
+    void idempotency_key_reused_for_another_request_is_rejected() throws Exception {
+        mockMvc.perform(post("/api/accounts/ACC1/deposit").header("Idempotency-Key", "depot-2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new AmountRequest(euros(100)))))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(post("/api/accounts/ACC1/withdraw").header("Idempotency-Key", "depot-2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new AmountRequest(euros(100)))))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(banqueService, never()).debiter(anyString(), any(Montant.class));
+    }
+
+    @Test
+    void failed_request_releases_its_idempotency_key() throws Exception {
+        doThrow(new InsufficientFundsException("Insufficient funds")).doNothing()
+                .when(banqueService).debiter("ACC1", euros(50));
+        String body = objectMapper.writeValueAsString(new AmountRequest(euros(50)));
+
+        mockMvc.perform(post("/api/accounts/ACC1/withdraw").header("Idempotency-Key", "retrait-1")
+                .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isConflict());
+        mockMvc.perform(post("/api/accounts/ACC1/withdraw").header("Idempotency-Key", "retrait-1")
+                .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isNoContent())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+
+        verify(banqueService, times(2)).debiter("ACC1", euros(50));
+    }
+
+    @Test
+    void transfer_repeated_with_same_idempotency_key_is_applied_once() throws Exception {
+        String body = objectMapper.writeValueAsString(new TransferRequest("FROM", "TO", euros(100)));
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/accounts/transfer").header("Idempotency-Key", "virement-1")
+                    .contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andExpect(status().isNoContent());
+        }
+
+        verify(banqueService, times(1)).transfer("FROM", "TO", euros(100));
+    }
+
+    @Test
+    void blank_idempotency_key_is_rejected() throws Exception {
+        mockMvc.perform(post("/api/accounts/transfer").header("Idempotency-Key", " ")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new TransferRequest("FROM", "TO", euros(100)))))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(banqueService);
+    }
+
+    @Test
+    void transfer_batch_returns_per_item_results() throws Exception {
+        List<TransferRequest> requests = List.of(
+                new TransferRequest("FROM", "TO", euros(10)),
+                new TransferRequest("FROM", "TO", euros(5000)));
+        when(batchTransferService.transferAll(anyList())).thenReturn(List.of(
+                BatchTransferResult.ok(0),
+                new BatchTransferResult(1, BatchTransferResult.Status.INSUFFICIENT_FUNDS, "insuffisant")));
+
+        mockMvc.perform(post("/api/accounts/transfers/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("OK"))
+                .andExpect(jsonPath("$[1].status").value("INSUFFICIENT_FUNDS"));
+
+        verify(batchTransferService, times(1)).transferAll(requests);
+    }
+
+    @Test
+    void transfer_batch_ndjson_streams_results_per_chunk() throws Exception {
+        when(batchTransferService.getChunkSize()).thenReturn(2);
+        when(batchTransferService.transferAll(anyList(), anyInt())).thenAnswer(inv -> {
+            List<?> paquet = inv.getArgument(0);
+            int first = inv.getArgument(1);
+            return IntStream.range(0, paquet.size())
+                    .mapToObj(i -> BatchTransferResult.ok(first + i)).toList();
+        });
+
+        String body = objectMapper.writeValueAsString(new TransferRequest("A", "B", euros(1))) + "\n"
+                + objectMapper.writeValueAsString(new TransferRequest("B", "C", euros(2))) + "\n"
+                + objectMapper.writeValueAsString(new TransferRequest("C", "A", euros(3))) + "\n";
+
+        mockMvc.perform(post("/api/accounts/transfers/batch")
+                .contentType("application/x-ndjson")
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(content().string(containsString("\"index\":2")));
+
+        verify(batchTransferService, times(1)).transferAll(anyList(), eq(0));
+        verify(batchTransferService, times(1)).transferAll(anyList(), eq(2));
+    }
+
     @Test
     void delete_account_success() throws Exception {
         doNothing().when(banqueService).deleteAccount("ACC1");
@@ -4,7 +4,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.iut.banque.api.dto.LoginRequest;
 import com.iut.banque.config.TestConfig;
 import com.iut.banque.constants.LoginConstants;
+import com.iut.banque.exceptions.TooManyAttemptsException;
 import com.iut.banque.facade.LoginManager;
+import com.iut.banque.security.LoginRateLimiter;
+import com.iut.banque.security.TokenService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -13,12 +16,18 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Duration;
+
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(AuthController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, TokenService.class })
 class AuthControllerTest {
 
     @Autowired
@@ -27,9 +36,15 @@ class AuthControllerTest {
     @MockBean
     LoginManager loginManager;
 
+    @MockBean
+    LoginRateLimiter loginRateLimiter;
+
     @Autowired
     ObjectMapper objectMapper;
 
+    @Autowired
+    TokenService tokenService;
+
     @Test
     void login_client_success() throws Exception {
         when(loginManager.tryLogin("client", "password"))
@@ -41,7 +56,9 @@ class AuthControllerTest {
                 .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.code").value(LoginConstants.USER_IS_CONNECTED))
-                .andExpect(jsonPath("$.message").value("OK_CLIENT"));
+                .andExpect(jsonPath("$.message").value("OK_CLIENT"))
+                .andExpect(jsonPath("$.token").value(
+                        matchesPattern("[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+")));
 
         verify(loginManager, times(1)).tryLogin("client", "password");
     }
@@ -73,7 +90,8 @@ class AuthControllerTest {
                 .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.code").value(LoginConstants.LOGIN_FAILED))
-                .andExpect(jsonPath("$.message").value("LOGIN_FAILED"));
+                .andExpect(jsonPath("$.message").value("LOGIN_FAILED"))
+                .andExpect(jsonPath("$.token").doesNotExist());
 
         verify(loginManager, times(1)).tryLogin("baduser", "badpass");
     }
@@ -86,4 +104,34 @@ class AuthControllerTest {
                 .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void login_manager_token_carries_manager_role() throws Exception {
+        when(loginManager.tryLogin("manager", "password"))
+                .thenReturn(LoginConstants.MANAGER_IS_CONNECTED);
+
+        String body = mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new LoginRequest("manager", "password"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        TokenService.AuthenticatedUser user = tokenService.verify(objectMapper.readTree(body).get("token").asText());
+        assertEquals("manager", user.userId());
+        assertEquals("GESTIONNAIRE", user.role());
+    }
+
+    @Test
+    void login_throttled_returns_429_without_checking_password() throws Exception {
+        doThrow(new TooManyAttemptsException("Trop de tentatives", Duration.ofMillis(12_500)))
+                .when(loginRateLimiter).acquire(eq("client"), anyString());
+
+        mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new LoginRequest("client", "password"))))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "13"));
+
+        verifyNoInteractions(loginManager);
+    }
 }
@@ -0,0 +1,63 @@
+package com.iut.banque.api.controller;
+
+import com.iut.banque.config.TestConfig;
+import com.iut.banque.service.ExportService;
+import com.iut.banque.service.ExportService.Format;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ExportController.class)
+@Import(TestConfig.class)
+class ExportControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    ExportService exportService;
+
+    @Test
+    void accounts_are_exported_as_csv_by_default() throws Exception {
+        when(exportService.exportAccounts(eq(Format.CSV), any())).thenAnswer(inv -> {
+            inv.getArgument(1, OutputStream.class).write("numeroCompte\nFR0000000001\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+
+        mockMvc.perform(get("/api/export/accounts"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(header().string("Content-Disposition", containsString("comptes.csv")))
+                .andExpect(content().string("numeroCompte\nFR0000000001\n"));
+    }
+
+    @Test
+    void clients_are_exported_as_ndjson_on_request() throws Exception {
+        mockMvc.perform(get("/api/export/clients").param("format", "ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                .andExpect(header().string("Content-Disposition", containsString("clients.ndjson")));
+
+        verify(exportService).exportClients(eq(Format.NDJSON), any());
+    }
+
+    @Test
+    void unknown_format_is_rejected() throws Exception {
+        mockMvc.perform(get("/api/export/accounts").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(exportService);
+    }
+}
@@ -0,0 +1,59 @@
+package com.iut.banque.api.controller;
+
+import com.iut.banque.api.dto.ImportReport;
+import com.iut.banque.api.dto.ImportReport.Reject;
+import com.iut.banque.config.TestConfig;
+import com.iut.banque.service.ImportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ImportController.class)
+@Import(TestConfig.class)
+class ImportControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    ImportService importService;
+
+    @Test
+    void clients_csv_body_is_streamed_to_the_service_as_utf8() throws Exception {
+        when(importService.importClients(any())).thenAnswer(inv -> {
+            String premiere = new BufferedReader(inv.getArgument(0, Reader.class)).readLine();
+            return new ImportReport(1, 0, 1, 3, 0.0, List.of(new Reject(1, premiere)));
+        });
+
+        mockMvc.perform(post("/api/import/clients").contentType("text/csv")
+                        .content("é.accent1,Nom".getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lines").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.rejects[0].reason").value("é.accent1,Nom"));
+    }
+
+    @Test
+    void accounts_import_returns_report() throws Exception {
+        when(importService.importAccounts(any())).thenReturn(new ImportReport(2, 2, 0, 5, 400.0, List.of()));
+
+        mockMvc.perform(post("/api/import/accounts").contentType("text/plain").content("FR0000000001,a.b1,0,"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.rowsPerSecond").value(400.0));
+    }
+
+}
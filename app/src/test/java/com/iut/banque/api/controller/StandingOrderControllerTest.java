@@ -0,0 +1,56 @@
+package com.iut.banque.api.controller;
+
+import com.iut.banque.config.TestConfig;
+import com.iut.banque.service.StandingOrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(StandingOrderController.class)
+@Import(TestConfig.class)
+class StandingOrderControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    StandingOrderService standingOrderService;
+
+    @Test
+    void client_is_checked_against_the_account_owner() throws Exception {
+        when(standingOrderService.lister("FR0000000001", "j.dupont1")).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/standing-orders").param("accountId", "FR0000000001")
+                        .with(user("j.dupont1").roles("CLIENT")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void manager_reaches_every_order() throws Exception {
+        mockMvc.perform(delete("/api/standing-orders/7").with(user("admin").roles("GESTIONNAIRE")))
+                .andExpect(status().isNoContent());
+
+        verify(standingOrderService).annuler(7, null);
+    }
+
+    @Test
+    void order_of_another_client_is_forbidden() throws Exception {
+        doThrow(new AccessDeniedException("Compte d'un autre client: FR0000000004"))
+                .when(standingOrderService).annuler(7, "j.dupont1");
+
+        mockMvc.perform(delete("/api/standing-orders/7").with(user("j.dupont1").roles("CLIENT")))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.message").value("Compte d'un autre client: FR0000000004"));
+    }
+}
@@ -0,0 +1,141 @@
+package com.iut.banque.api.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iut.banque.api.idempotency.IdempotencyStore.StoredResponse;
+import com.iut.banque.exceptions.IdempotencyConflictException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotentRequestsTest {
+
+    private static final Principal CLIENT = () -> "c.client1";
+
+    private final AtomicLong horloge = new AtomicLong();
+
+    private IdempotentRequests requests(InMemoryIdempotencyStore store, Duration attente) {
+        return new IdempotentRequests(store, new ObjectMapper(), attente);
+    }
+
+    @Test
+    void parallel_requests_with_same_key_execute_once() throws Exception {
+        IdempotentRequests requests = requests(new InMemoryIdempotencyStore(Duration.ofHours(1), 100),
+                Duration.ofSeconds(10));
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch depart = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<ResponseEntity<?>>> reponses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            reponses.add(pool.submit(() -> {
+                depart.await();
+                return requests.execute("cle", CLIENT, "deposit:FR0000000001:10.0", () -> {
+                    executions.incrementAndGet();
+                    Thread.sleep(50);
+                    return ResponseEntity.ok("fait");
+                });
+            }));
+        }
+        depart.countDown();
+        for (Future<ResponseEntity<?>> r : reponses) {
+            assertEquals("fait", r.get(10, TimeUnit.SECONDS).getBody());
+        }
+        pool.shutdown();
+
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void keys_are_scoped_by_user() throws Exception {
+        IdempotentRequests requests = requests(new InMemoryIdempotencyStore(Duration.ofHours(1), 100),
+                Duration.ofSeconds(1));
+        AtomicInteger executions = new AtomicInteger();
+        requests.execute("cle", CLIENT, "deposit", () -> ResponseEntity.status(executions.incrementAndGet()
+                + 200).build());
+        requests.execute("cle", () -> "c.client2", "deposit", () -> ResponseEntity.status(executions
+                .incrementAndGet() + 200).build());
+
+        assertEquals(2, executions.get());
+        assertEquals(HttpStatus.CREATED, requests.execute("cle", CLIENT, "deposit", () -> fail("rejouée"))
+                .getStatusCode());
+    }
+
+    @Test
+    void request_still_running_after_wait_is_a_conflict() throws Exception {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(Duration.ofHours(1), 100);
+        IdempotentRequests requests = requests(store, Duration.ofMillis(20));
+        assertNull(store.reserve("c.client1|cle", "deposit"));
+
+        IdempotencyConflictException e = assertThrows(IdempotencyConflictException.class,
+                () -> requests.execute("cle", CLIENT, "deposit", () -> fail("exécutée deux fois")));
+        assertTrue(e.isEnCours());
+    }
+
+    @Test
+    void waiting_request_runs_when_original_fails() throws Exception {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(Duration.ofHours(1), 100);
+        IdempotentRequests requests = requests(store, Duration.ofSeconds(10));
+        assertNull(store.reserve("c.client1|cle", "deposit"));
+        Thread echec = new Thread(() -> {
+            sleep(50);
+            store.release("c.client1|cle");
+        });
+        echec.start();
+
+        assertEquals(HttpStatus.NO_CONTENT,
+                requests.execute("cle", CLIENT, "deposit", () -> ResponseEntity.noContent().build()).getStatusCode());
+        echec.join();
+    }
+
+    @Test
+    void store_is_bounded_and_keys_expire() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(Duration.ofSeconds(60), 3, horloge::get);
+        StoredResponse ok = new StoredResponse(204, null, null);
+        for (int i = 0; i < 5; i++) {
+            assertNull(store.reserve("cle" + i, "f"));
+            store.complete("cle" + i, ok);
+        }
+        assertEquals(3, store.size());
+        // les plus anciennes ont été retirées
+        assertNull(store.reserve("cle0", "f"));
+        store.complete("cle0", ok);
+        assertEquals(ok, store.reserve("cle4", "f").response());
+
+        horloge.addAndGet(Duration.ofSeconds(61).toNanos());
+        assertNull(store.reserve("cle4", "f"), "clé expirée réutilisable");
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void running_keys_are_never_evicted() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(Duration.ofSeconds(60), 2, horloge::get);
+        assertNull(store.reserve("en-cours", "f"));
+        for (int i = 0; i < 5; i++) {
+            assertNull(store.reserve("cle" + i, "f"));
+            store.complete("cle" + i, new StoredResponse(204, null, null));
+        }
+        assertNotNull(store.reserve("en-cours", "f"));
+        assertNull(store.reserve("en-cours", "f").response());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.iut.banque.api.idempotency;
+
+import com.iut.banque.api.idempotency.IdempotencyStore.Existing;
+import com.iut.banque.api.idempotency.IdempotencyStore.StoredResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clés d'idempotence partagées dans la table CleIdempotence (H2).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JdbcIdempotencyStoreTest {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private JdbcIdempotencyStore store;
+
+    @BeforeEach
+    void init() {
+        jdbcTemplate.update("DELETE FROM CleIdempotence");
+        store = new JdbcIdempotencyStore(jdbcTemplate, Duration.ofHours(1), Duration.ofMinutes(1));
+    }
+
+    @Test
+    void second_reservation_sees_running_then_completed_request() throws Exception {
+        assertNull(store.reserve("c.client1|cle", "deposit:A:10.0"));
+        Existing enCours = store.reserve("c.client1|cle", "deposit:A:10.0");
+        assertEquals("deposit:A:10.0", enCours.fingerprint());
+        assertNull(enCours.response());
+
+        StoredResponse reponse = new StoredResponse(200, "text/plain", "fait");
+        store.complete("c.client1|cle", reponse);
+        assertEquals(reponse, store.reserve("c.client1|cle", "deposit:A:10.0").response());
+        assertEquals(reponse, store.await("c.client1|cle", Duration.ofMillis(10)).response());
+    }
+
+    @Test
+    void released_key_can_be_reserved_again() throws Exception {
+        assertNull(store.reserve("cle", "f"));
+        assertNull(store.await("cle", Duration.ofMillis(20)).response(), "toujours en cours");
+        store.release("cle");
+        assertNull(store.await("cle", Duration.ofMillis(20)));
+        assertNull(store.reserve("cle", "f"));
+    }
+
+    @Test
+    void expired_completed_key_is_replaced() {
+        assertNull(store.reserve("cle", "f"));
+        store.complete("cle", new StoredResponse(204, null, null));
+        jdbcTemplate.update("UPDATE CleIdempotence SET expiration = 0 WHERE cle = ?", "cle");
+
+        assertNull(store.reserve("cle", "g"));
+        assertEquals("g", store.reserve("cle", "g").fingerprint());
+    }
+
+    @Test
+    void orphaned_reservation_is_taken_over_after_lease() {
+        assertNull(store.reserve("cle", "f"));
+        // le nœud qui a réservé s'est arrêté sans enregistrer de réponse
+        JdbcIdempotencyStore autreNoeud = new JdbcIdempotencyStore(jdbcTemplate, Duration.ofHours(1),
+                Duration.ofMinutes(2));
+        assertNull(autreNoeud.reserve("cle", "f").response(), "réservation encore valide");
+        jdbcTemplate.update("UPDATE CleIdempotence SET expiration = 0 WHERE cle = ?", "cle");
+
+        assertNull(autreNoeud.reserve("cle", "f"));
+        // la réservation expirée ne touche plus à celle qui l'a reprise
+        store.complete("cle", new StoredResponse(200, null, "ancienne"));
+        assertNull(autreNoeud.reserve("cle", "f").response());
+        autreNoeud.complete("cle", new StoredResponse(200, null, "nouvelle"));
+        assertEquals("nouvelle", store.reserve("cle", "f").response().body());
+    }
+
+    @Test
+    void purge_removes_expired_reservations() {
+        assertNull(store.reserve("orpheline", "f"));
+        jdbcTemplate.update("UPDATE CleIdempotence SET expiration = 0");
+
+        assertNull(new JdbcIdempotencyStore(jdbcTemplate, Duration.ofHours(1), Duration.ofMinutes(1))
+                .reserve("autre", "f"));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM CleIdempotence WHERE cle = 'orpheline'", Integer.class));
+    }
+}
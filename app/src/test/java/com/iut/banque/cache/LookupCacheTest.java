@@ -0,0 +1,139 @@
+package com.iut.banque.cache;
+
+import com.iut.banque.api.dto.AccountSummary;
+import com.iut.banque.modele.Montant;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.iut.banque.modele.Montant.euros;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LookupCacheTest {
+
+    private final LookupCache cache = new LookupCache(Duration.ofMinutes(5), 100, Duration.ofMinutes(1), 100);
+
+    private final AtomicInteger chargements = new AtomicInteger();
+
+    @AfterEach
+    void fin() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private AccountSummary charger(String numero, Montant solde) {
+        chargements.incrementAndGet();
+        return new AccountSummary(numero, solde, "CompteSansDecouvert", null, "j.dupont1");
+    }
+
+    @Test
+    void values_are_loaded_once_and_absences_are_not_cached() {
+        assertEquals(euros(10), cache.compte("A", n -> charger(n, euros(10))).solde());
+        assertEquals(euros(10), cache.compte("A", n -> charger(n, euros(99))).solde());
+        assertEquals(1, chargements.get());
+
+        assertNull(cache.compte("B", n -> null));
+        assertEquals(euros(5), cache.compte("B", n -> charger(n, euros(5))).solde());
+    }
+
+    @Test
+    void invalidation_in_a_transaction_is_repeated_when_it_completes() {
+        cache.compte("A", n -> charger(n, euros(10)));
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.invalidateAccount("A");
+        // relecture par un autre appel avant le commit : ancienne valeur
+        cache.compte("A", n -> charger(n, euros(10)));
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(euros(20), cache.compte("A", n -> charger(n, euros(20))).solde());
+    }
+
+    @Test
+    void invalidation_discards_a_load_in_progress() throws Exception {
+        CountDownLatch chargementCommence = new CountDownLatch(1);
+        CountDownLatch finChargement = new CountDownLatch(1);
+        CompletableFuture<AccountSummary> lecture = CompletableFuture.supplyAsync(() -> cache.compte("A", n -> {
+            chargementCommence.countDown();
+            try {
+                finChargement.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return charger(n, euros(10));
+        }));
+        assertTrue(chargementCommence.await(5, TimeUnit.SECONDS));
+
+        // l'invalidation n'attend pas le chargement en cours
+        CompletableFuture.runAsync(() -> cache.invalidateAccount("A")).get(5, TimeUnit.SECONDS);
+        finChargement.countDown();
+
+        assertEquals(euros(10), lecture.get(5, TimeUnit.SECONDS).solde());
+        assertEquals(euros(20), cache.compte("A", n -> charger(n, euros(20))).solde());
+    }
+
+    @Test
+    void concurrent_reads_share_one_load_without_blocking_carriers() throws Exception {
+        CountDownLatch finChargement = new CountDownLatch(1);
+        List<Future<AccountSummary>> lectures = new ArrayList<>();
+        try (ExecutorService fils = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                lectures.add(fils.submit(() -> cache.compte("A", n -> {
+                    try {
+                        finChargement.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return charger(n, euros(10));
+                })));
+            }
+            // fils porteurs libres : un autre fil virtuel s'exécute pendant l'attente
+            assertEquals(euros(5), fils.submit(() -> cache.compte("B", n -> charger(n, euros(5))).solde())
+                    .get(5, TimeUnit.SECONDS));
+            finChargement.countDown();
+            for (Future<AccountSummary> lecture : lectures) {
+                assertEquals(euros(10), lecture.get(5, TimeUnit.SECONDS).solde());
+            }
+        }
+        assertEquals(2, chargements.get());
+    }
+
+    @Test
+    void failed_load_is_not_cached() {
+        assertThrows(IllegalStateException.class, () -> cache.compte("A", n -> {
+            throw new IllegalStateException("base indisponible");
+        }));
+        assertEquals(euros(10), cache.compte("A", n -> charger(n, euros(10))).solde());
+    }
+
+    @Test
+    void statistics_are_published_per_cache() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.compte("A", n -> charger(n, euros(10)));
+        cache.compte("A", n -> charger(n, euros(10)));
+
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "comptes").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "comptes").tag("result", "miss")
+                .functionCounter().count());
+        assertNotNull(registry.get("cache.size").tag("cache", "utilisateurs").gauge());
+    }
+}
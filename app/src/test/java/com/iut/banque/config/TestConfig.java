@@ -1,5 +1,6 @@
 package com.iut.banque.config;
 
+import com.iut.banque.cache.LookupCache;
 import com.iut.banque.interfaces.IDao;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
@@ -7,6 +8,8 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.time.Duration;
+
 import static org.mockito.Mockito.mock;
 
 @TestConfiguration
@@ -18,6 +21,11 @@ public class TestConfig {
         return mock(IDao.class);
     }
 
+    @Bean
+    public LookupCache lookupCache() {
+        return new LookupCache(Duration.ofMinutes(5), 1000, Duration.ofMinutes(1), 1000);
+    }
+
     @Bean
     public SecurityFilterChain testSecurityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -0,0 +1,83 @@
+package com.iut.banque.cryptage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private static String reference(String password) throws Exception {
+        return HexFormat.of().formatHex(
+                MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void hash_is_lowercase_hex_sha256() throws Exception {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                PasswordHasher.hashPassword("abc"));
+        for (String p : List.of("", "Admin123!", "mot de passe accentué é", "ÿ\u0000翿")) {
+            assertEquals(reference(p), PasswordHasher.hashPassword(p));
+        }
+    }
+
+    @Test
+    void verify_accepts_any_case_and_surrounding_spaces() {
+        String hash = PasswordHasher.hashPassword("Admin123!");
+        assertTrue(PasswordHasher.verifyPassword("Admin123!", hash));
+        assertTrue(PasswordHasher.verifyPassword("Admin123!", hash.toUpperCase()));
+        assertTrue(PasswordHasher.verifyPassword("Admin123!", " " + hash + "\n"));
+    }
+
+    @Test
+    void verify_rejects_other_password_or_malformed_hash() {
+        String hash = PasswordHasher.hashPassword("Admin123!");
+        assertFalse(PasswordHasher.verifyPassword("Admin123?", hash));
+        assertFalse(PasswordHasher.verifyPassword("Admin123!", hash.substring(1)));
+        assertFalse(PasswordHasher.verifyPassword("Admin123!", "g" + hash.substring(1)));
+        assertFalse(PasswordHasher.verifyPassword("Admin123!", hash.substring(0, 63) + "-"));
+        assertFalse(PasswordHasher.verifyPassword("Admin123!", null));
+        assertFalse(PasswordHasher.verifyPassword(null, hash));
+    }
+
+    @Test
+    void concurrent_hashing_gives_the_same_results() throws Exception {
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch depart = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> erreurs = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                erreurs.add(pool.submit(() -> {
+                    depart.await();
+                    int n = 0;
+                    for (int i = 0; i < 5000; i++) {
+                        String password = "pwd-" + thread + "-" + i;
+                        String hash = PasswordHasher.hashPassword(password);
+                        if (!hash.equals(reference(password)) || !PasswordHasher.verifyPassword(password, hash)) {
+                            n++;
+                        }
+                    }
+                    return n;
+                }));
+            }
+            depart.countDown();
+            for (Future<Integer> f : erreurs) {
+                assertEquals(0, f.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.iut.banque.cryptage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class PasswordStorageTest {
+
+    private static final String BCRYPT = "$2a$10$abcdefghijklmnopqrstuvABCDEFGHIJKLMNOpqrstuvwxyz1234";
+
+    @Test
+    void format_is_detected_by_prefix() {
+        assertEquals(HashFormat.BCRYPT, HashFormat.of(BCRYPT));
+        assertEquals(HashFormat.BCRYPT, HashFormat.of("$2y$12$xxxxxxxx"));
+        assertEquals(HashFormat.SHA256, HashFormat.of(PasswordHasher.hashPassword("secret")));
+        assertEquals(HashFormat.DELEGATING, HashFormat.of("{bcrypt}" + BCRYPT));
+        assertEquals(HashFormat.UNKNOWN, HashFormat.of("Admin123!"));
+        assertEquals(HashFormat.UNKNOWN, HashFormat.of(PasswordHasher.hashPassword("secret").toUpperCase()));
+        assertEquals(HashFormat.UNKNOWN, HashFormat.of(null));
+        assertFalse(HashFormat.isEncoded("$2a$1x$abc"));
+    }
+
+    @Test
+    void legacy_hash_is_checked_without_bcrypt_and_needs_upgrade() {
+        PasswordEncoder encoder = mock(PasswordEncoder.class);
+        PasswordStorage storage = new PasswordStorage(encoder);
+        String legacy = PasswordHasher.hashPassword("Admin123!");
+
+        assertTrue(storage.matches("Admin123!", legacy));
+        assertFalse(storage.matches("Admin123?", legacy));
+        assertTrue(storage.matches("Admin123!", "{sha256}" + legacy));
+        assertTrue(storage.needsUpgrade(legacy));
+        assertTrue(storage.needsUpgrade("{sha256}" + legacy));
+        verifyNoInteractions(encoder);
+    }
+
+    @Test
+    void bcrypt_hash_is_current_format() {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(4);
+        PasswordStorage storage = new PasswordStorage(encoder);
+        String hash = storage.encode("Admin123!");
+
+        assertTrue(storage.matches("Admin123!", hash));
+        assertTrue(storage.matches("Admin123!", "{bcrypt}" + hash));
+        assertFalse(storage.matches("Admin123?", hash));
+        assertFalse(storage.needsUpgrade(hash));
+        assertFalse(storage.needsUpgrade("{bcrypt}" + hash));
+        assertFalse(storage.matches("Admin123!", "Admin123!"));
+    }
+}
@@ -0,0 +1,372 @@
+package com.iut.banque.engine;
+
+import com.iut.banque.api.dto.BatchTransferResult;
+import com.iut.banque.api.dto.BatchTransferResult.Status;
+import com.iut.banque.api.dto.TransferRequest;
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.exceptions.IllegalOperationException;
+import com.iut.banque.exceptions.InsufficientFundsException;
+import com.iut.banque.modele.Client;
+import com.iut.banque.modele.CompteAvecDecouvert;
+import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.modele.Operation;
+import com.iut.banque.modele.TypeOperation;
+import com.iut.banque.repository.ClientRepository;
+import com.iut.banque.repository.CompteRepository;
+import com.iut.banque.repository.OperationRepository;
+import com.iut.banque.repository.PointDeRepriseRepository;
+import com.iut.banque.service.BatchTransferService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static com.iut.banque.modele.Montant.euros;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Moteur de soldes à écriture différée sur une vraie base (H2) : report en
+ * base, et rejeu du journal après un arrêt brutal sans perte ni double
+ * application des opérations acquittées.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BalanceEngineTest {
+
+    private static final String COMPTE_A = "FR0000000001";
+    private static final String COMPTE_B = "FR0000000002";
+    private static final String COMPTE_DECOUVERT = "FR0000000003";
+
+    @Autowired
+    CompteRepository compteRepository;
+
+    @Autowired
+    ClientRepository clientRepository;
+
+    @Autowired
+    OperationRepository operationRepository;
+
+    @Autowired
+    PointDeRepriseRepository pointDeRepriseRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path repertoire;
+
+    private BalanceEngine engine;
+
+    @BeforeEach
+    void init() throws Exception {
+        operationRepository.deleteAll();
+        compteRepository.deleteAll();
+        clientRepository.deleteAll();
+        pointDeRepriseRepository.deleteAll();
+        Client owner = clientRepository.save(
+                new Client("Dupont", "Jean", "1 rue Test", true, "j.dupont1", "password", "1234567890"));
+        compteRepository.save(new CompteSansDecouvert(COMPTE_A, euros(100), owner));
+        compteRepository.save(new CompteSansDecouvert(COMPTE_B, euros(0), owner));
+        compteRepository.save(new CompteAvecDecouvert(COMPTE_DECOUVERT, euros(0), euros(50), owner));
+    }
+
+    @AfterEach
+    void fermer() throws Exception {
+        if (engine != null) {
+            engine.arreterSansReport();
+        }
+    }
+
+    private BalanceEngine demarrer() throws IOException {
+        // report périodique espacé : les tests reportent explicitement
+        BalanceEngine e = new BalanceEngine(compteRepository, operationRepository, pointDeRepriseRepository,
+                jdbcTemplate, transactionManager, repertoire, true, Duration.ofHours(1), DataSize.ofKilobytes(4),
+                8);
+        e.demarrer();
+        return e;
+    }
+
+    private BatchTransferService lots() {
+        return new BatchTransferService(compteRepository, operationRepository,
+                new LookupCache(Duration.ofMinutes(1), 100, Duration.ofMinutes(1), 100), transactionManager, engine, 5,
+                1000);
+    }
+
+    private Montant soldeEnBase(String numeroCompte) {
+        return compteRepository.findById(numeroCompte).orElseThrow().getSolde();
+    }
+
+    @Test
+    void operations_are_applied_in_memory_then_flushed_in_one_batch() throws Exception {
+        engine = demarrer();
+        engine.crediter(COMPTE_A, euros(50));
+        engine.debiter(COMPTE_A, euros(30));
+        engine.transfer(COMPTE_A, COMPTE_B, euros(20));
+
+        assertEquals(euros(100), engine.solde(COMPTE_A));
+        assertEquals(euros(20), engine.solde(COMPTE_B));
+        assertEquals(euros(100), soldeEnBase(COMPTE_A), "rien n'est écrit en base avant le report");
+        assertEquals(0, operationRepository.count());
+
+        assertEquals(3, engine.reporter());
+
+        assertEquals(euros(100), soldeEnBase(COMPTE_A));
+        assertEquals(euros(20), soldeEnBase(COMPTE_B));
+        List<Operation> operations = operationRepository.findAll();
+        assertEquals(4, operations.size());
+        assertEquals(2, operations.stream().filter(o -> o.getIdVirement() != null).count());
+        assertTrue(operations.stream().anyMatch(o -> o.getType() == TypeOperation.VIREMENT_RECU
+                && o.getNumeroCompte().equals(COMPTE_B) && o.getMontant().equals(euros(20))));
+        assertEquals(0, engine.reporter(), "rien de nouveau à reporter");
+    }
+
+    @Test
+    void flush_adds_to_balance_changed_by_other_writers() throws Exception {
+        engine = demarrer();
+        engine.crediter(COMPTE_A, euros(10));
+        // 5 € écrits en centimes, comme la colonne
+        jdbcTemplate.update("UPDATE Compte SET solde = solde + 500 WHERE numeroCompte = ?", COMPTE_A);
+        engine.reporter();
+        assertEquals(euros(115), soldeEnBase(COMPTE_A));
+        // le solde en mémoire est relu en base après le report
+        assertEquals(euros(115), engine.solde(COMPTE_A));
+    }
+
+    @Test
+    void debit_beyond_balance_and_overdraft_is_refused() throws Exception {
+        engine = demarrer();
+        assertThrows(InsufficientFundsException.class, () -> engine.debiter(COMPTE_A, Montant.valueOf("100.01")));
+        assertThrows(InsufficientFundsException.class, () -> engine.transfer(COMPTE_A, COMPTE_B, euros(150)));
+        engine.debiter(COMPTE_DECOUVERT, euros(50));
+        assertThrows(InsufficientFundsException.class, () -> engine.debiter(COMPTE_DECOUVERT, Montant.valueOf("0.01")));
+        assertThrows(IllegalOperationException.class, () -> engine.crediter("FR9999999999", euros(1)));
+
+        engine.reporter();
+        assertEquals(euros(100), soldeEnBase(COMPTE_A));
+        assertEquals(euros(-50), soldeEnBase(COMPTE_DECOUVERT));
+        assertEquals(1, operationRepository.count());
+    }
+
+    @Test
+    void acknowledged_operations_survive_a_crash_exactly_once() throws Exception {
+        engine = demarrer();
+        int nbThreads = 8;
+        int parThread = 250;
+        ExecutorService pool = Executors.newFixedThreadPool(nbThreads);
+        AtomicInteger acquittes = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < nbThreads; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < parThread; i++) {
+                    engine.crediter(COMPTE_B, euros(1));
+                    acquittes.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        pool.shutdown();
+
+        // arrêt brutal : aucun report, et un enregistrement à moitié écrit en
+        // fin de journal
+        engine.arreterSansReport();
+        engine = null;
+        assertEquals(euros(0), soldeEnBase(COMPTE_B));
+        try (Stream<Path> segments = Files.list(repertoire)) {
+            Path dernier = segments.sorted().reduce((a, b) -> b).orElseThrow();
+            try (FileChannel canal = FileChannel.open(dernier, StandardOpenOption.APPEND)) {
+                canal.write(ByteBuffer.wrap(new byte[WriteAheadLog.TAILLE_ENREGISTREMENT / 2]));
+            }
+        }
+
+        engine = demarrer();
+        assertEquals(euros(acquittes.get()), soldeEnBase(COMPTE_B));
+        assertEquals(acquittes.get(), operationRepository.count());
+        assertEquals(euros(acquittes.get()), engine.solde(COMPTE_B));
+
+        // nouveau redémarrage : rien n'est rejoué deux fois
+        engine.arreterSansReport();
+        engine = demarrer();
+        assertEquals(euros(acquittes.get()), soldeEnBase(COMPTE_B));
+        assertEquals(acquittes.get(), operationRepository.count());
+    }
+
+    @Test
+    void restart_replays_only_operations_after_the_checkpoint() throws Exception {
+        engine = demarrer();
+        engine.crediter(COMPTE_B, euros(10));
+        engine.reporter();
+        engine.crediter(COMPTE_B, euros(5));
+        engine.arreterSansReport();
+
+        engine = demarrer();
+        assertEquals(euros(15), soldeEnBase(COMPTE_B));
+        assertEquals(2, operationRepository.count());
+
+        engine.debiter(COMPTE_B, euros(15));
+        engine.reporter();
+        assertEquals(euros(0), soldeEnBase(COMPTE_B));
+    }
+
+    @Test
+    void batch_transfers_are_seen_by_the_engine() throws Exception {
+        engine = demarrer();
+        BatchTransferService lots = lots();
+        // solde chargé en mémoire avant le lot
+        assertEquals(euros(100), engine.solde(COMPTE_A));
+
+        assertEquals(Status.OK, lots.transferAll(List.of(new TransferRequest(COMPTE_A, COMPTE_B, euros(80))))
+                .get(0).status());
+
+        assertEquals(euros(20), engine.solde(COMPTE_A));
+        assertThrows(InsufficientFundsException.class, () -> engine.debiter(COMPTE_A, euros(50)));
+        engine.debiter(COMPTE_A, euros(20));
+        engine.reporter();
+        assertEquals(euros(0), soldeEnBase(COMPTE_A));
+        assertEquals(euros(80), soldeEnBase(COMPTE_B));
+    }
+
+    @Test
+    void batch_transfers_see_engine_movements_not_yet_flushed() throws Exception {
+        engine = demarrer();
+        BatchTransferService lots = lots();
+        engine.debiter(COMPTE_A, euros(80));
+
+        List<BatchTransferResult> resultats = lots.transferAll(List.of(
+                new TransferRequest(COMPTE_A, COMPTE_B, euros(50)),
+                new TransferRequest(COMPTE_A, COMPTE_B, euros(20))));
+
+        assertEquals(Status.INSUFFICIENT_FUNDS, resultats.get(0).status());
+        assertEquals(Status.OK, resultats.get(1).status());
+        engine.reporter();
+        assertEquals(euros(0), soldeEnBase(COMPTE_A));
+        assertEquals(euros(20), soldeEnBase(COMPTE_B));
+    }
+
+    @Test
+    void overdraft_change_is_checked_against_pending_debits() throws Exception {
+        engine = demarrer();
+        engine.debiter(COMPTE_DECOUVERT, euros(30));
+        int[] modifies = new int[1];
+
+        engine.ecrireEnBase(List.of(COMPTE_DECOUVERT),
+                () -> modifies[0] = compteRepository.changerDecouvert(COMPTE_DECOUVERT, euros(20)));
+        assertEquals(0, modifies[0], "débit en attente reporté avant la vérification");
+        engine.ecrireEnBase(List.of(COMPTE_DECOUVERT),
+                () -> modifies[0] = compteRepository.changerDecouvert(COMPTE_DECOUVERT, euros(30)));
+        assertEquals(1, modifies[0]);
+
+        assertEquals(euros(-30), soldeEnBase(COMPTE_DECOUVERT));
+        assertThrows(InsufficientFundsException.class, () -> engine.debiter(COMPTE_DECOUVERT, euros(1)),
+                "nouveau découvert vu par le moteur");
+    }
+
+    @Test
+    void deleting_an_account_flushes_pending_credits_then_refuses_new_ones() throws Exception {
+        engine = demarrer();
+        engine.crediter(COMPTE_B, euros(30));
+        engine.transfer(COMPTE_A, COMPTE_B, euros(20));
+
+        engine.supprimer(COMPTE_B, () -> compteRepository.deleteById(COMPTE_B));
+
+        assertFalse(compteRepository.existsById(COMPTE_B));
+        assertEquals(euros(80), soldeEnBase(COMPTE_A), "mouvements en attente reportés avant la suppression");
+        assertEquals(3, operationRepository.count());
+        assertThrows(IllegalOperationException.class, () -> engine.crediter(COMPTE_B, euros(10)));
+        assertThrows(IllegalOperationException.class, () -> engine.transfer(COMPTE_A, COMPTE_B, euros(10)));
+        assertEquals(euros(80), engine.solde(COMPTE_A), "le compte émetteur n'est pas débité");
+        assertEquals(0, engine.reporter());
+    }
+
+    @Test
+    void flush_keeps_entries_pending_when_an_account_is_gone() throws Exception {
+        engine = demarrer();
+        engine.crediter(COMPTE_A, euros(10));
+        engine.crediter(COMPTE_B, euros(30));
+        // suppression hors du moteur
+        jdbcTemplate.update("DELETE FROM Compte WHERE numeroCompte = ?", COMPTE_B);
+
+        assertThrows(IllegalStateException.class, engine::reporter);
+        assertEquals(euros(100), soldeEnBase(COMPTE_A), "lot entier annulé");
+        assertEquals(0, operationRepository.count());
+        assertThrows(IllegalStateException.class, engine::reporter, "toujours en attente");
+        assertEquals(euros(110), engine.solde(COMPTE_A));
+    }
+
+    @Test
+    void concurrent_batches_and_engine_debits_never_overdraw() throws Exception {
+        engine = demarrer();
+        BatchTransferService lots = lots();
+        AtomicInteger debits = new AtomicInteger();
+        AtomicInteger vires = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 60; i++) {
+                    try {
+                        engine.debiter(COMPTE_A, euros(1));
+                        debits.incrementAndGet();
+                    } catch (InsufficientFundsException e) {
+                        // provision épuisée
+                    }
+                }
+                return null;
+            }));
+            futures.add(pool.submit(() -> {
+                List<TransferRequest> lot = new ArrayList<>();
+                for (int i = 0; i < 12; i++) {
+                    lot.add(new TransferRequest(COMPTE_A, COMPTE_B, euros(1)));
+                }
+                for (int i = 0; i < 5; i++) {
+                    vires.addAndGet((int) lots.transferAll(lot).stream()
+                            .filter(r -> r.status() == Status.OK).count());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        pool.shutdown();
+
+        engine.reporter();
+        // 240 € demandés pour 100 € de provision
+        assertEquals(100, debits.get() + vires.get());
+        assertEquals(euros(0), soldeEnBase(COMPTE_A));
+        assertEquals(euros(vires.get()), soldeEnBase(COMPTE_B));
+        assertEquals(euros(0), engine.solde(COMPTE_A));
+    }
+}
@@ -0,0 +1,67 @@
+package com.iut.banque.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Roue de 8 cases de 10 ms : 80 ms au niveau 0, 640 ms au niveau 1, 5,12 s
+ * au niveau 2.
+ */
+class TimingWheelTest {
+
+    @Test
+    void elements_are_returned_at_the_end_of_their_tick_never_early() {
+        Random random = new Random(42);
+        long debut = 1_000_003;
+        TimingWheel<Long> roue = new TimingWheel<>(10, 8, debut);
+        List<Long> echeances = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            // jusqu'à trois niveaux au-dessus du premier
+            long echeance = roue.courant() + random.nextInt(40_000);
+            assertTrue(roue.ajouter(echeance, echeance));
+            echeances.add(echeance);
+        }
+        assertEquals(5_000, roue.taille());
+
+        List<Long> rendues = new ArrayList<>();
+        long maintenant = debut;
+        while (roue.taille() > 0) {
+            maintenant += random.nextInt(300);
+            long instant = maintenant;
+            roue.avancer(maintenant, echeance -> {
+                assertTrue(echeance < instant, "rendue avant son échéance");
+                assertTrue(echeance >= instant - 310, "rendue en retard");
+                rendues.add(echeance);
+            });
+        }
+        assertEquals(echeances.size(), rendues.size());
+        for (int i = 1; i < rendues.size(); i++) {
+            assertTrue(rendues.get(i - 1) / 10 <= rendues.get(i) / 10, "ticks dans l'ordre");
+        }
+        assertEquals(echeances.stream().sorted().toList(), rendues.stream().sorted().toList());
+    }
+
+    @Test
+    void tick_boundaries_and_past_deadlines() {
+        TimingWheel<String> roue = new TimingWheel<>(10, 8, 100);
+        assertFalse(roue.ajouter("passé", 99));
+        assertTrue(roue.ajouter("tick courant", 105));
+        assertTrue(roue.ajouter("niveau 1", 185));
+        List<String> rendues = new ArrayList<>();
+
+        roue.avancer(109, rendues::add);
+        assertEquals(List.of(), rendues);
+        roue.avancer(110, rendues::add);
+        assertEquals(List.of("tick courant"), rendues);
+        roue.avancer(189, rendues::add);
+        assertEquals(List.of("tick courant"), rendues);
+        roue.avancer(190, rendues::add);
+        assertEquals(List.of("tick courant", "niveau 1"), rendues);
+        assertEquals(0, roue.taille());
+    }
+}
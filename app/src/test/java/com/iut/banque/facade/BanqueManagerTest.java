@@ -0,0 +1,107 @@
+package com.iut.banque.facade;
+
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.cryptage.PasswordStorage;
+import com.iut.banque.exceptions.IllegalOperationException;
+import com.iut.banque.metrics.OperationMetrics;
+import com.iut.banque.metrics.OperationMetrics.AccountType;
+import com.iut.banque.metrics.OperationMetrics.Kind;
+import com.iut.banque.modele.Client;
+import com.iut.banque.modele.Compte;
+import com.iut.banque.modele.CompteAvecDecouvert;
+import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.modele.Operation;
+import com.iut.banque.repository.ClientRepository;
+import com.iut.banque.repository.CompteRepository;
+import com.iut.banque.repository.OperationRepository;
+import com.iut.banque.repository.UtilisateurRepository;
+import com.iut.banque.security.CredentialCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static com.iut.banque.modele.Montant.euros;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BanqueManagerTest {
+
+    @Mock
+    private ClientRepository clientRepository;
+
+    @Mock
+    private CompteRepository compteRepository;
+
+    @Mock
+    private UtilisateurRepository utilisateurRepository;
+
+    @Mock
+    private OperationRepository operationRepository;
+
+    @Mock
+    private CredentialCache credentialCache;
+
+    @Mock
+    private PasswordStorage passwordStorage;
+
+    @Mock
+    private LookupCache lookupCache;
+
+    @Mock
+    private OperationMetrics operationMetrics;
+
+    private BanqueManager banqueManager;
+
+    private Compte compte;
+
+    @BeforeEach
+    void init() throws Exception {
+        banqueManager = new BanqueManager(clientRepository, compteRepository, utilisateurRepository,
+                operationRepository, credentialCache, passwordStorage, lookupCache, operationMetrics, null);
+        Client owner = new Client("Dupont", "Jean", "1 rue Test", true, "j.dupont1", "password", "1234567890");
+        compte = new CompteSansDecouvert("FR0000000001", euros(100), owner);
+    }
+
+    @Test
+    void credit_records_operation() throws Exception {
+        when(compteRepository.crediter("FR0000000001", euros(50))).thenReturn(1);
+
+        banqueManager.crediter(compte, euros(50));
+
+        verify(operationRepository).save(any(Operation.class));
+        verify(operationMetrics).success(eq(Kind.CREDIT), eq(AccountType.SANS_DECOUVERT), anyLong());
+    }
+
+    @Test
+    void overdraft_change_does_not_rewrite_the_balance() throws Exception {
+        CompteAvecDecouvert avecDecouvert = new CompteAvecDecouvert("FR0000000002", euros(-10), euros(50),
+                compte.getOwner());
+        when(compteRepository.changerDecouvert("FR0000000002", euros(20))).thenReturn(1);
+        when(compteRepository.changerDecouvert("FR0000000002", euros(5))).thenReturn(0);
+
+        banqueManager.changeDecouvert(avecDecouvert, euros(20));
+        assertThrows(IllegalOperationException.class, () -> banqueManager.changeDecouvert(avecDecouvert, euros(5)));
+
+        verify(compteRepository, never()).save(any(Compte.class));
+    }
+
+    @Test
+    void credit_of_unknown_account_throws() {
+        when(compteRepository.crediter("FR0000000001", euros(50))).thenReturn(0);
+
+        assertThrows(IllegalOperationException.class, () -> banqueManager.crediter(compte, euros(50)));
+
+        verify(operationRepository, never()).save(any(Operation.class));
+        verify(operationMetrics).failure(eq(Kind.CREDIT), eq(AccountType.SANS_DECOUVERT), anyLong(),
+                any(IllegalOperationException.class));
+        verify(operationMetrics, never()).success(any(Kind.class), any(AccountType.class), anyLong());
+    }
+}
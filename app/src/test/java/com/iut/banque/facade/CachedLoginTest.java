@@ -0,0 +1,58 @@
+package com.iut.banque.facade;
+
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.constants.LoginConstants;
+import com.iut.banque.cryptage.PasswordStorage;
+import com.iut.banque.metrics.OperationMetrics;
+import com.iut.banque.modele.Gestionnaire;
+import com.iut.banque.repository.UtilisateurRepository;
+import com.iut.banque.security.CredentialCache;
+import com.iut.banque.service.PasswordUpgradeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Connexions répétées d'un même utilisateur, avec le vrai encodeur BCrypt,
+ * sans cache (ttl nul : chaque connexion refait la vérification complète)
+ * puis avec le cache des identifiants vérifiés. Les temps de connexion sont
+ * mesurés par ConnexionBenchmark (profil jmh).
+ */
+class CachedLoginTest {
+
+    private BCryptPasswordEncoder connexions(CredentialCache cache, int connexions) throws Exception {
+        BCryptPasswordEncoder encoder = spy(new BCryptPasswordEncoder(4));
+        Gestionnaire admin = new Gestionnaire("Smith", "Joe", "Rue 1", true, "admin", encoder.encode("Admin123!"));
+        UtilisateurRepository repository = mock(UtilisateurRepository.class);
+        when(repository.findById("admin")).thenReturn(Optional.of(admin));
+        LoginManager loginManager = new LoginManager(repository, new PasswordStorage(encoder), cache,
+                mock(PasswordUpgradeService.class), mock(LookupCache.class), mock(OperationMetrics.class));
+
+        for (int i = 0; i < connexions; i++) {
+            assertEquals(LoginConstants.MANAGER_IS_CONNECTED, loginManager.tryLogin("admin", "Admin123!"));
+        }
+        return encoder;
+    }
+
+    @Test
+    void cached_logins_skip_bcrypt() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        BCryptPasswordEncoder sansCache = connexions(new CredentialCache(Duration.ZERO, 100, registry), 30);
+        verify(sansCache, times(30)).matches(any(CharSequence.class), anyString());
+
+        // seule la première connexion avec cache vérifie le hash BCrypt
+        BCryptPasswordEncoder avecCache = connexions(new CredentialCache(Duration.ofMinutes(5), 100, registry), 1000);
+        verify(avecCache, times(1)).matches(any(CharSequence.class), anyString());
+        assertEquals(1000 - 1,
+                registry.get("banque.credentials.cache").tag("result", "hit").counter().count());
+    }
+}
@@ -1,13 +1,18 @@
 package com.iut.banque.facade;
 
+import com.iut.banque.cache.LookupCache;
 import com.iut.banque.constants.LoginConstants;
 import com.iut.banque.cryptage.PasswordHasher;
+import com.iut.banque.cryptage.PasswordStorage;
 import com.iut.banque.exceptions.IllegalOperationException;
+import com.iut.banque.metrics.OperationMetrics;
 import com.iut.banque.modele.Gestionnaire;
 import com.iut.banque.repository.UtilisateurRepository;
+import com.iut.banque.security.CredentialCache;
+import com.iut.banque.service.PasswordUpgradeService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -18,6 +23,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,26 +35,45 @@ class LoginManagerTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
-    @InjectMocks
+    @Mock
+    private CredentialCache credentialCache;
+
+    @Mock
+    private PasswordUpgradeService passwordUpgradeService;
+
+    @Mock
+    private LookupCache lookupCache;
+
+    @Mock
+    private OperationMetrics operationMetrics;
+
     private LoginManager loginManager;
 
+    @BeforeEach
+    void init() {
+        loginManager = new LoginManager(utilisateurRepository, new PasswordStorage(passwordEncoder),
+                credentialCache, passwordUpgradeService, lookupCache, operationMetrics);
+    }
+
     @Test
     void change_password_persists_and_new_password_can_login() throws Exception {
         String encodedPassword = "$2a$10$abcdefghijklmnopqrstuvABCDEFGHIJKLMNOpqrstuvwxyz1234";
         Gestionnaire user = new Gestionnaire("Smith", "Joe", "Rue 1", true, "admin",
                 PasswordHasher.hashPassword("Admin123!"));
+        String legacyHash = user.getUserPwd();
         when(utilisateurRepository.findById("admin")).thenReturn(Optional.of(user));
-        when(passwordEncoder.matches("Admin123!", user.getUserPwd())).thenReturn(false);
         when(passwordEncoder.encode("Nouveau123!")).thenReturn(encodedPassword);
         when(passwordEncoder.matches("Nouveau123!", encodedPassword)).thenReturn(true);
         when(passwordEncoder.matches("Admin123!", encodedPassword)).thenReturn(false);
 
         int before = loginManager.tryLogin("admin", "Admin123!");
         assertEquals(LoginConstants.MANAGER_IS_CONNECTED, before);
+        verify(passwordUpgradeService).upgrade("admin", legacyHash, "Admin123!");
 
         loginManager.changePassword("admin", "Admin123!", "Nouveau123!");
 
         verify(utilisateurRepository, times(1)).save(user);
+        verify(credentialCache).invalidate("admin");
         assertEquals(LoginConstants.LOGIN_FAILED, loginManager.tryLogin("admin", "Admin123!"));
         assertEquals(LoginConstants.MANAGER_IS_CONNECTED, loginManager.tryLogin("admin", "Nouveau123!"));
     }
@@ -58,9 +83,34 @@ class LoginManagerTest {
         Gestionnaire user = new Gestionnaire("Smith", "Joe", "Rue 1", true, "admin",
                 PasswordHasher.hashPassword("Admin123!"));
         when(utilisateurRepository.findById("admin")).thenReturn(Optional.of(user));
-        when(passwordEncoder.matches("MauvaisMdp", user.getUserPwd())).thenReturn(false);
 
         assertThrows(IllegalOperationException.class,
                 () -> loginManager.changePassword("admin", "MauvaisMdp", "Nouveau123!"));
     }
+
+    @Test
+    void legacy_hash_is_verified_without_bcrypt_and_upgraded() throws Exception {
+        Gestionnaire user = new Gestionnaire("Smith", "Joe", "Rue 1", true, "admin",
+                PasswordHasher.hashPassword("Admin123!"));
+        when(utilisateurRepository.findById("admin")).thenReturn(Optional.of(user));
+
+        assertEquals(LoginConstants.LOGIN_FAILED, loginManager.tryLogin("admin", "Mauvais"));
+        assertEquals(LoginConstants.MANAGER_IS_CONNECTED, loginManager.tryLogin("admin", "Admin123!"));
+
+        verifyNoInteractions(passwordEncoder);
+        verify(passwordUpgradeService, times(1)).upgrade("admin", user.getUserPwd(), "Admin123!");
+    }
+
+    @Test
+    void bcrypt_hash_is_verified_once_and_not_upgraded() throws Exception {
+        String bcrypt = "$2a$10$abcdefghijklmnopqrstuvABCDEFGHIJKLMNOpqrstuvwxyz1234";
+        Gestionnaire user = new Gestionnaire("Smith", "Joe", "Rue 1", true, "admin", bcrypt);
+        when(utilisateurRepository.findById("admin")).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches("Mauvais", bcrypt)).thenReturn(false);
+
+        assertEquals(LoginConstants.LOGIN_FAILED, loginManager.tryLogin("admin", "Mauvais"));
+
+        verify(passwordEncoder, times(1)).matches("Mauvais", bcrypt);
+        verifyNoInteractions(passwordUpgradeService);
+    }
 }
@@ -0,0 +1,115 @@
+package com.iut.banque.metrics;
+
+import com.iut.banque.exceptions.IllegalOperationException;
+import com.iut.banque.exceptions.InsufficientFundsException;
+import com.iut.banque.metrics.OperationMetrics.AccountType;
+import com.iut.banque.metrics.OperationMetrics.Kind;
+import com.iut.banque.metrics.OperationMetrics.Outcome;
+import com.iut.banque.modele.CompteAvecDecouvert;
+import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.repository.CompteRepository;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OperationMetricsTest {
+
+    private PrometheusMeterRegistry registry;
+    private CompteRepository compteRepository;
+    private OperationMetrics metrics;
+
+    @BeforeEach
+    void init() {
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        compteRepository = mock(CompteRepository.class);
+        metrics = new OperationMetrics(registry, compteRepository, 100);
+    }
+
+    private double rejets(String operation, String exception) {
+        return registry.get("banque.operations.rejected").tag("operation", operation)
+                .tag("exception", exception).counters().stream().mapToDouble(c -> c.count()).sum();
+    }
+
+    @Test
+    void scrape_exposes_histograms_tagged_by_operation_account_type_and_outcome() {
+        metrics.success(Kind.CREDIT, AccountType.SANS_DECOUVERT, System.nanoTime());
+        metrics.record(Kind.LOGIN, AccountType.NONE, System.nanoTime(), Outcome.REJECTED);
+
+        String scrape = registry.scrape();
+        assertTrue(scrape.contains("banque_operations_seconds_bucket{account_type=\"CompteSansDecouvert\","
+                + "operation=\"credit\",outcome=\"success\""), scrape);
+        assertTrue(scrape.contains("banque_operations_seconds_count{account_type=\"none\",operation=\"login\","
+                + "outcome=\"rejected\",} 1.0"));
+        assertTrue(scrape.contains("banque_operations_rejected_total{account_type=\"CompteAvecDecouvert\","
+                + "exception=\"InsufficientFundsException\",operation=\"transfer\",} 0.0"));
+    }
+
+    @Test
+    void failures_are_rejected_for_business_exceptions_and_errors_otherwise() {
+        metrics.failure(Kind.DEBIT, AccountType.SANS_DECOUVERT, System.nanoTime(), new InsufficientFundsException("x"));
+        metrics.failure(Kind.DEBIT, AccountType.SANS_DECOUVERT, System.nanoTime(), new InsufficientFundsException("x"));
+        metrics.failure(Kind.TRANSFER, AccountType.NONE, System.nanoTime(), new IllegalOperationException("x"));
+        metrics.failure(Kind.TRANSFER, AccountType.NONE, System.nanoTime(), new IllegalStateException("x"));
+
+        assertEquals(2, rejets("debit", "InsufficientFundsException"));
+        assertEquals(1, rejets("transfer", "IllegalOperationException"));
+        assertEquals(0, rejets("transfer", "InsufficientFundsException"));
+        assertEquals(2, registry.get("banque.operations").tag("operation", "debit")
+                .tag("account_type", "CompteSansDecouvert").tag("outcome", "rejected").timer().count());
+        assertEquals(1, registry.get("banque.operations").tag("operation", "transfer")
+                .tag("account_type", "none").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void account_type_is_read_once_and_unknown_accounts_are_not_cached() {
+        doReturn(Optional.of(CompteAvecDecouvert.class)).when(compteRepository).findTypeById("FR0000000001");
+        doReturn(Optional.of(CompteSansDecouvert.class)).when(compteRepository).findTypeById("FR0000000002");
+        when(compteRepository.findTypeById("FR0000000009")).thenReturn(Optional.empty());
+
+        for (int i = 0; i < 3; i++) {
+            metrics.success(Kind.CREDIT, "FR0000000001", System.nanoTime());
+            assertEquals(AccountType.SANS_DECOUVERT, metrics.accountType("FR0000000002"));
+            assertEquals(AccountType.NONE, metrics.accountType("FR0000000009"));
+        }
+
+        verify(compteRepository, times(1)).findTypeById("FR0000000001");
+        verify(compteRepository, times(1)).findTypeById("FR0000000002");
+        verify(compteRepository, times(3)).findTypeById("FR0000000009");
+        assertEquals(3, registry.get("banque.operations").tag("operation", "credit")
+                .tag("account_type", "CompteAvecDecouvert").tag("outcome", "success").timer().count());
+
+        when(compteRepository.findTypeById("FR0000000003")).thenThrow(new IllegalStateException("base"));
+        assertEquals(AccountType.NONE, metrics.accountType("FR0000000003"));
+    }
+
+    @Test
+    void recording_does_not_allocate() {
+        doReturn(Optional.of(CompteSansDecouvert.class)).when(compteRepository).findTypeById("FR0000000001");
+        IllegalOperationException refus = new IllegalOperationException("x");
+        Runnable mesures = () -> {
+            for (int i = 0; i < 10_000; i++) {
+                metrics.success(Kind.TRANSFER, "FR0000000001", System.nanoTime());
+                metrics.failure(Kind.DEBIT, AccountType.AVEC_DECOUVERT, System.nanoTime(), refus);
+            }
+        };
+        // chauffe : compilation JIT et tampons des histogrammes
+        for (int i = 0; i < 5; i++) {
+            mesures.run();
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long avant = threads.getCurrentThreadAllocatedBytes();
+        mesures.run();
+        long alloue = threads.getCurrentThreadAllocatedBytes() - avant;
+
+        // 20 000 mesures : quelques octets de bruit tolérés, pas un objet par mesure
+        assertTrue(alloue < 20_000, alloue + " octets alloués");
+    }
+}
@@ -0,0 +1,100 @@
+package com.iut.banque.modele;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MontantTest {
+
+    @Test
+    void parses_decimal_notation_exactly() {
+        assertEquals(1234, Montant.parseCentimes("12.34"));
+        assertEquals(1230, Montant.parseCentimes("12.3"));
+        assertEquals(1200, Montant.parseCentimes("12"));
+        assertEquals(1200, Montant.parseCentimes("12."));
+        assertEquals(150, Montant.parseCentimes("1.500"));
+        assertEquals(50, Montant.parseCentimes(".5"));
+        assertEquals(-5, Montant.parseCentimes("-0.05"));
+        assertEquals(10, Montant.parseCentimes("+0.10"));
+        assertEquals(150_000, Montant.parseCentimes("1.5E+3"));
+        assertEquals(Long.MAX_VALUE, Montant.parseCentimes("92233720368547758.07"));
+        // 0.1 + 0.2 != 0.3 en double, pas en centimes
+        assertEquals(Montant.valueOf("0.3"), Montant.valueOf("0.1").plus(Montant.valueOf("0.2")));
+    }
+
+    @Test
+    void rejects_invalid_or_inexact_values() {
+        for (String texte : new String[] { "", "-", ".", "1.234", "1.001", "1,5", "1.2.3", "abc", "1e", "NaN",
+                "Infinity", "1E-3", "92233720368547758.08", "1E+30" }) {
+            assertThrows(NumberFormatException.class, () -> Montant.parseCentimes(texte), texte);
+        }
+        assertThrows(NumberFormatException.class, () -> Montant.parseCentimes(null));
+        assertThrows(ArithmeticException.class, () -> Montant.valueOf(new BigDecimal("0.001")));
+    }
+
+    @Test
+    void writes_two_decimals() {
+        assertEquals("12.30", Montant.valueOf("12.3").toString());
+        assertEquals("0.00", Montant.ZERO.toString());
+        assertEquals("-0.05", Montant.deCentimes(-5).toString());
+        assertEquals("-12.05", Montant.deCentimes(-1205).toString());
+        assertEquals("92233720368547758.07", Montant.deCentimes(Long.MAX_VALUE).toString());
+        assertEquals("-92233720368547758.08", Montant.deCentimes(Long.MIN_VALUE).toString());
+    }
+
+    @Test
+    void write_then_parse_is_identity() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            long centimes = i % 2 == 0 ? random.nextLong() : random.nextInt();
+            if (centimes == Long.MIN_VALUE) {
+                continue;
+            }
+            Montant montant = Montant.deCentimes(centimes);
+            assertEquals(montant, Montant.valueOf(montant.toString()));
+            assertEquals(montant.toBigDecimal(), new BigDecimal(montant.toString()));
+        }
+    }
+
+    @Test
+    void arithmetic_is_exact_and_overflow_checked() {
+        Montant a = Montant.valueOf("10.25");
+        assertEquals(Montant.valueOf("7.75"), a.moins(Montant.valueOf("2.50")));
+        assertEquals(Montant.valueOf("-10.25"), a.oppose());
+        assertEquals(Montant.euros(3), Montant.valueOf("3.00"));
+        assertTrue(a.compareTo(Montant.valueOf("10.24")) > 0);
+        assertTrue(a.oppose().estNegatif());
+        assertEquals(0, Montant.ZERO.signum());
+        assertEquals(10.25, a.doubleValue());
+        assertEquals(10, a.longValue());
+
+        Montant max = Montant.deCentimes(Long.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> max.plus(Montant.deCentimes(1)));
+        assertThrows(ArithmeticException.class, () -> Montant.deCentimes(Long.MIN_VALUE).oppose());
+        assertThrows(ArithmeticException.class, () -> Montant.euros(Long.MAX_VALUE / 10));
+    }
+
+    @Test
+    void json_is_an_exact_decimal_number() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals("12.30", mapper.writeValueAsString(Montant.valueOf("12.3")));
+        assertEquals(Montant.deCentimes(10), mapper.readValue("0.1", Montant.class));
+        assertEquals(Montant.euros(5), mapper.readValue("5", Montant.class));
+        assertEquals(Montant.valueOf("7.5"), mapper.readValue("\"7.50\"", Montant.class));
+        assertThrows(InvalidFormatException.class, () -> mapper.readValue("0.001", Montant.class));
+    }
+
+    @Test
+    void database_column_holds_cents() {
+        MontantConverter converter = new MontantConverter();
+        assertEquals(1234L, converter.convertToDatabaseColumn(Montant.valueOf("12.34")));
+        assertEquals(Montant.valueOf("-0.01"), converter.convertToEntityAttribute(-1L));
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+}
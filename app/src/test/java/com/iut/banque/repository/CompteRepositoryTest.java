@@ -0,0 +1,104 @@
+package com.iut.banque.repository;
+
+import com.iut.banque.api.dto.AccountSummary;
+import com.iut.banque.modele.Client;
+import com.iut.banque.modele.CompteAvecDecouvert;
+import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.modele.Montant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static com.iut.banque.modele.Montant.euros;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+class CompteRepositoryTest {
+
+    @Autowired
+    CompteRepository compteRepository;
+
+    @Autowired
+    ClientRepository clientRepository;
+
+    @BeforeEach
+    void init() throws Exception {
+        Client owner = clientRepository.save(
+                new Client("Dupont", "Jean", "1 rue Test", true, "j.dupont1", "password", "1234567890"));
+        compteRepository.save(new CompteSansDecouvert("FR0000000001", euros(100), owner));
+        compteRepository.save(new CompteAvecDecouvert("FR0000000002", euros(100), euros(50), owner));
+    }
+
+    private Montant solde(String numeroCompte) {
+        return compteRepository.findById(numeroCompte).orElseThrow().getSolde();
+    }
+
+    @Test
+    void crediter_updates_balance() {
+        assertEquals(1, compteRepository.crediter("FR0000000001", Montant.valueOf("25.5")));
+        assertEquals(Montant.valueOf("125.5"), solde("FR0000000001"));
+    }
+
+    @Test
+    void crediter_unknown_account_updates_nothing() {
+        assertEquals(0, compteRepository.crediter("FR9999999999", euros(10)));
+    }
+
+    @Test
+    void debiter_sans_decouvert_stops_at_zero() {
+        assertEquals(1, compteRepository.debiter("FR0000000001", euros(100)));
+        assertEquals(0, compteRepository.debiter("FR0000000001", Montant.valueOf("0.01")));
+        assertEquals(euros(0), solde("FR0000000001"));
+    }
+
+    @Test
+    void debiter_avec_decouvert_uses_overdraft() {
+        assertEquals(1, compteRepository.debiter("FR0000000002", euros(150)));
+        assertEquals(euros(-50), solde("FR0000000002"));
+        assertEquals(0, compteRepository.debiter("FR0000000002", euros(1)));
+        assertEquals(euros(-50), solde("FR0000000002"));
+    }
+
+    @Test
+    void changerDecouvert_requires_overdraft_to_cover_balance() {
+        compteRepository.debiter("FR0000000002", euros(140));
+
+        assertEquals(0, compteRepository.changerDecouvert("FR0000000002", euros(39)));
+        assertEquals(1, compteRepository.changerDecouvert("FR0000000002", euros(40)));
+        assertEquals(euros(40), compteRepository.findSummaryById("FR0000000002").orElseThrow().decouvertAutorise());
+        assertEquals(euros(-40), solde("FR0000000002"), "solde inchangé");
+        assertEquals(0, compteRepository.changerDecouvert("FR0000000001", euros(10)), "compte sans découvert");
+    }
+
+    @Test
+    void summaries_are_paged_by_account_number() throws Exception {
+        Client other = clientRepository.save(
+                new Client("Martin", "Paul", "2 rue Test", true, "p.martin1", "password", "1234567891"));
+        compteRepository.save(new CompteSansDecouvert("FR0000000003", euros(5), other));
+
+        List<AccountSummary> first = compteRepository.findSummaries(Limit.of(2));
+        assertEquals(List.of("FR0000000001", "FR0000000002"),
+                first.stream().map(AccountSummary::numeroCompte).toList());
+        assertEquals("CompteSansDecouvert", first.get(0).className());
+        assertNull(first.get(0).decouvertAutorise());
+        assertEquals("CompteAvecDecouvert", first.get(1).className());
+        assertEquals(euros(50), first.get(1).decouvertAutorise());
+        assertEquals("j.dupont1", first.get(1).ownerUserId());
+
+        List<AccountSummary> next = compteRepository.findSummariesAfter("FR0000000002", Limit.of(2));
+        assertEquals(1, next.size());
+        assertEquals("FR0000000003", next.get(0).numeroCompte());
+        assertEquals(euros(5), next.get(0).solde());
+        assertEquals("p.martin1", next.get(0).ownerUserId());
+
+        assertTrue(compteRepository.findSummariesAfter("FR0000000003", Limit.of(2)).isEmpty());
+    }
+}
@@ -0,0 +1,111 @@
+package com.iut.banque.repository;
+
+import com.iut.banque.modele.Client;
+import com.iut.banque.modele.CompteAvecDecouvert;
+import com.iut.banque.modele.Utilisateur;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static com.iut.banque.modele.Montant.euros;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cache de second niveau des utilisateurs : ce qui le remplit et ce qui l'invalide.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest {
+
+    @Autowired
+    UtilisateurRepository utilisateurRepository;
+
+    @Autowired
+    ClientRepository clientRepository;
+
+    @Autowired
+    CompteRepository compteRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private Cache cache;
+
+    @BeforeEach
+    void init() throws Exception {
+        vider();
+        Client client = clientRepository.save(
+                new Client("Dupont", "Jean", "1 rue Test", true, "j.dupont1", "ancien", "1234567890"));
+        compteRepository.save(new CompteAvecDecouvert("FR0000000001", euros(10), euros(100), client));
+        cache = entityManagerFactory.getCache();
+        cache.evictAll();
+    }
+
+    @AfterEach
+    void vider() {
+        compteRepository.deleteAll();
+        utilisateurRepository.deleteAll();
+    }
+
+    private void enTransaction(Runnable action) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> action.run());
+    }
+
+    @Test
+    void users_are_cached_on_first_read() {
+        assertFalse(cache.contains(Utilisateur.class, "j.dupont1"));
+        utilisateurRepository.findById("j.dupont1").orElseThrow();
+        assertTrue(cache.contains(Utilisateur.class, "j.dupont1"));
+    }
+
+    @Test
+    void credits_and_debits_keep_users_cached() {
+        utilisateurRepository.findById("j.dupont1").orElseThrow();
+
+        enTransaction(() -> assertEquals(1, compteRepository.crediter("FR0000000001", euros(5))));
+        enTransaction(() -> assertEquals(1, compteRepository.debiter("FR0000000001", euros(100))));
+        // 15 - 120 dépasserait le découvert autorisé
+        enTransaction(() -> assertEquals(0, compteRepository.debiter("FR0000000001", euros(120))));
+
+        assertTrue(cache.contains(Utilisateur.class, "j.dupont1"));
+        assertEquals(euros(-85), compteRepository.findById("FR0000000001").orElseThrow().getSolde());
+    }
+
+    @Test
+    void password_upgrade_evicts_the_cached_user() {
+        utilisateurRepository.findById("j.dupont1").orElseThrow();
+
+        enTransaction(() -> assertEquals(1, utilisateurRepository.updatePasswordIfUnchanged("j.dupont1", "ancien",
+                "nouveau")));
+
+        assertFalse(cache.contains(Utilisateur.class, "j.dupont1"));
+        assertEquals("nouveau", utilisateurRepository.findById("j.dupont1").orElseThrow().getUserPwd());
+    }
+
+    @Test
+    void client_list_sees_new_and_deleted_clients() throws Exception {
+        assertEquals(1, clientRepository.findAll().size());
+
+        clientRepository.save(new Client("Martin", "Eve", "2 rue Test", false, "e.martin1", "password",
+                "1234567891"));
+        assertEquals(2, clientRepository.findAll().size());
+
+        clientRepository.deleteById("e.martin1");
+        assertEquals(1, clientRepository.findAll().size());
+    }
+}
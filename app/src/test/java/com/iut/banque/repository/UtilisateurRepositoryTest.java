@@ -0,0 +1,41 @@
+package com.iut.banque.repository;
+
+import com.iut.banque.cryptage.PasswordHasher;
+import com.iut.banque.modele.Client;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+class UtilisateurRepositoryTest {
+
+    private static final String BCRYPT = "$2a$10$abcdefghijklmnopqrstuvABCDEFGHIJKLMNOpqrstuvwxyz1234";
+
+    @Autowired
+    UtilisateurRepository utilisateurRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Test
+    void password_upgrade_applies_only_if_hash_unchanged() throws Exception {
+        String legacy = PasswordHasher.hashPassword("Admin123!");
+        utilisateurRepository.saveAndFlush(
+                new Client("Dupont", "Jean", "1 rue Test", true, "j.dupont1", legacy, "1234567890"));
+
+        assertEquals(0, utilisateurRepository.updatePasswordIfUnchanged("j.dupont1", "autre", BCRYPT));
+        assertEquals(1, utilisateurRepository.updatePasswordIfUnchanged("j.dupont1", legacy, BCRYPT));
+        // une seconde migration concurrente ne réécrit pas le nouveau hash
+        assertEquals(0, utilisateurRepository.updatePasswordIfUnchanged("j.dupont1", legacy, BCRYPT + "x"));
+
+        entityManager.clear();
+        assertEquals(BCRYPT, utilisateurRepository.findById("j.dupont1").orElseThrow().getUserPwd());
+    }
+}
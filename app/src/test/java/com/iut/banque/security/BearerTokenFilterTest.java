@@ -0,0 +1,96 @@
+package com.iut.banque.security;
+
+import com.iut.banque.api.controller.AccountController;
+import com.iut.banque.api.dto.AccountPage;
+import com.iut.banque.api.idempotency.IdempotentRequests;
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.config.SecurityConfig;
+import com.iut.banque.interfaces.IDao;
+import com.iut.banque.service.BanqueService;
+import com.iut.banque.service.BatchTransferService;
+import com.iut.banque.service.SnapshotService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Chaîne de sécurité réelle (SecurityConfig) devant l'API : l'accès dépend
+ * uniquement du jeton porté par chaque requête.
+ */
+@WebMvcTest(AccountController.class)
+@Import({ SecurityConfig.class, TokenService.class })
+class BearerTokenFilterTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    TokenService tokenService;
+
+    @MockBean
+    BanqueService banqueService;
+
+    @MockBean
+    BatchTransferService batchTransferService;
+
+    @MockBean
+    SnapshotService snapshotService;
+
+    @MockBean
+    IDao dao;
+
+    @MockBean
+    LookupCache lookupCache;
+
+    @MockBean
+    IdempotentRequests idempotentRequests;
+
+    @Test
+    void api_without_token_is_unauthorized() throws Exception {
+        mockMvc.perform(get("/api/accounts"))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(banqueService);
+    }
+
+    @Test
+    void api_with_valid_token_is_served() throws Exception {
+        when(banqueService.listAccountsPage(any(), anyInt())).thenReturn(new AccountPage(List.of(), null));
+
+        mockMvc.perform(get("/api/accounts")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenService.issue("admin", "GESTIONNAIRE")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void api_with_tampered_token_is_unauthorized() throws Exception {
+        String token = tokenService.issue("admin", "GESTIONNAIRE");
+
+        mockMvc.perform(get("/api/accounts")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token.substring(0, token.length() - 2) + "xx"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void each_request_is_authenticated_on_its_own() throws Exception {
+        when(banqueService.listAccountsPage(any(), anyInt())).thenReturn(new AccountPage(List.of(), null));
+
+        mockMvc.perform(get("/api/accounts")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenService.issue("admin", "GESTIONNAIRE")))
+                .andExpect(status().isOk());
+        // la requête précédente ne laisse aucune authentification derrière elle
+        mockMvc.perform(get("/api/accounts"))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,69 @@
+package com.iut.banque.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CredentialCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private double count(String result) {
+        return registry.get("banque.credentials.cache").tag("result", result).counter().count();
+    }
+
+    @Test
+    void verified_credentials_are_remembered() {
+        CredentialCache cache = new CredentialCache(Duration.ofMinutes(5), 100, registry);
+
+        assertFalse(cache.isVerified("j.dupont1", "secret", "$2a$hash"));
+        cache.put("j.dupont1", "secret", "$2a$hash");
+
+        assertTrue(cache.isVerified("j.dupont1", "secret", "$2a$hash"));
+        assertEquals(1.0, count("hit"));
+        assertEquals(1.0, count("miss"));
+    }
+
+    @Test
+    void other_password_or_changed_hash_is_a_miss() {
+        CredentialCache cache = new CredentialCache(Duration.ofMinutes(5), 100, registry);
+        cache.put("j.dupont1", "secret", "$2a$hash");
+
+        assertFalse(cache.isVerified("j.dupont1", "autre", "$2a$hash"));
+        assertFalse(cache.isVerified("j.dupont1", "secret", "$2a$nouveau"));
+        assertFalse(cache.isVerified("p.martin1", "secret", "$2a$hash"));
+    }
+
+    @Test
+    void invalidate_forgets_user() {
+        CredentialCache cache = new CredentialCache(Duration.ofMinutes(5), 100, registry);
+        cache.put("j.dupont1", "secret", "$2a$hash");
+
+        cache.invalidate("j.dupont1");
+
+        assertFalse(cache.isVerified("j.dupont1", "secret", "$2a$hash"));
+    }
+
+    @Test
+    void entries_expire() {
+        CredentialCache cache = new CredentialCache(Duration.ZERO, 100, registry);
+        cache.put("j.dupont1", "secret", "$2a$hash");
+
+        assertFalse(cache.isVerified("j.dupont1", "secret", "$2a$hash"));
+    }
+
+    @Test
+    void size_is_bounded() {
+        CredentialCache cache = new CredentialCache(Duration.ofMinutes(5), 10, registry);
+        for (int i = 0; i < 100; i++) {
+            cache.put("u.user" + i, "secret", "$2a$hash");
+        }
+
+        assertTrue(cache.size() <= 10);
+        assertTrue(cache.isVerified("u.user99", "secret", "$2a$hash"));
+        assertEquals(cache.size(), registry.get("banque.credentials.cache.size").gauge().value());
+    }
+}
@@ -0,0 +1,64 @@
+package com.iut.banque.security;
+
+import com.iut.banque.api.controller.ExportController;
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.config.SecurityConfig;
+import com.iut.banque.interfaces.IDao;
+import com.iut.banque.service.ExportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Les exports contiennent les données de tous les clients : ils sont réservés
+ * aux gestionnaires, comme les imports.
+ */
+@WebMvcTest(ExportController.class)
+@Import({ SecurityConfig.class, TokenService.class })
+class ExportAccessTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    TokenService tokenService;
+
+    @MockBean
+    ExportService exportService;
+
+    @MockBean
+    IDao dao;
+
+    @MockBean
+    LookupCache lookupCache;
+
+    @Test
+    void client_cannot_export() throws Exception {
+        mockMvc.perform(get("/api/export/accounts")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenService.issue("j.dupont1", "CLIENT")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/export/clients")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenService.issue("j.dupont1", "CLIENT")))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(exportService);
+    }
+
+    @Test
+    void manager_can_export() throws Exception {
+        mockMvc.perform(get("/api/export/accounts")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenService.issue("admin", "GESTIONNAIRE")))
+                .andExpect(status().isOk());
+
+        verify(exportService).exportAccounts(any(), any());
+    }
+}
@@ -0,0 +1,136 @@
+package com.iut.banque.security;
+
+import com.iut.banque.exceptions.TooManyAttemptsException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginRateLimiterTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final AtomicLong horloge = new AtomicLong(10 * MINUTE);
+
+    private LoginRateLimiter limiter(RateLimitStore store, int perUser, int perAddress) {
+        return new LoginRateLimiter(store, Duration.ofMinutes(1), perUser, perAddress);
+    }
+
+    @Test
+    void user_is_throttled_after_limit_with_retry_delay() throws Exception {
+        LoginRateLimiter limiter = limiter(new InMemoryRateLimitStore(100, horloge::get), 3, 100);
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("j.dupont1", "10.0.0.1");
+        }
+        TooManyAttemptsException e = assertThrows(TooManyAttemptsException.class,
+                () -> limiter.acquire("j.dupont1", "10.0.0.2"));
+        // la limite est atteinte dans la fenêtre courante : attendre sa fin
+        assertEquals(61, e.getRetryAfterSeconds());
+
+        // un autre identifiant depuis la même adresse n'est pas concerné
+        limiter.acquire("p.martin1", "10.0.0.1");
+    }
+
+    @Test
+    void address_is_throttled_whatever_the_user() throws Exception {
+        LoginRateLimiter limiter = limiter(new InMemoryRateLimitStore(100, horloge::get), 100, 5);
+
+        for (int i = 1; i <= 5; i++) {
+            limiter.acquire("u.user" + i, "10.0.0.1");
+        }
+        assertThrows(TooManyAttemptsException.class, () -> limiter.acquire("u.user6", "10.0.0.1"));
+        limiter.acquire("u.user6", "10.0.0.2");
+    }
+
+    @Test
+    void window_slides_instead_of_resetting() throws Exception {
+        InMemoryRateLimitStore store = new InMemoryRateLimitStore(100, horloge::get);
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0, store.tryAcquire("k", 4, MINUTE));
+        }
+        // fenêtre suivante, un huitième écoulé : 7/8 des tentatives précédentes
+        // comptent encore (3,5), une seule tentative passe
+        horloge.addAndGet(MINUTE + MINUTE / 8);
+        assertEquals(0, store.tryAcquire("k", 4, MINUTE));
+        long attente = store.tryAcquire("k", 4, MINUTE);
+        // jusqu'à ce que les tentatives précédentes ne comptent plus que pour 3
+        assertTrue(attente >= MINUTE / 8 && attente <= MINUTE / 8 + 2, "attente " + attente);
+
+        horloge.addAndGet(attente);
+        assertEquals(0, store.tryAcquire("k", 4, MINUTE));
+
+        // deux fenêtres plus tard, plus rien ne compte
+        horloge.addAndGet(2 * MINUTE);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0, store.tryAcquire("k", 4, MINUTE));
+        }
+    }
+
+    @Test
+    void shared_store_limits_across_nodes() throws Exception {
+        // deux nœuds utilisant le même stockage : la limite vaut pour l'ensemble
+        InMemoryRateLimitStore partage = new InMemoryRateLimitStore(100, horloge::get);
+        LoginRateLimiter noeud1 = limiter(partage, 4, 100);
+        LoginRateLimiter noeud2 = limiter(partage, 4, 100);
+
+        noeud1.acquire("j.dupont1", "10.0.0.1");
+        noeud2.acquire("j.dupont1", "10.0.0.2");
+        noeud1.acquire("j.dupont1", "10.0.0.3");
+        noeud2.acquire("j.dupont1", "10.0.0.4");
+        assertThrows(TooManyAttemptsException.class, () -> noeud1.acquire("j.dupont1", "10.0.0.5"));
+        assertThrows(TooManyAttemptsException.class, () -> noeud2.acquire("j.dupont1", "10.0.0.6"));
+    }
+
+    @Test
+    void concurrent_attempts_never_exceed_limit() throws Exception {
+        InMemoryRateLimitStore store = new InMemoryRateLimitStore(100, horloge::get);
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch depart = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> acceptes = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                acceptes.add(pool.submit(() -> {
+                    depart.await();
+                    int n = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        if (store.tryAcquire("k", 500, MINUTE) == 0) {
+                            n++;
+                        }
+                    }
+                    return n;
+                }));
+            }
+            depart.countDown();
+            int total = 0;
+            for (Future<Integer> f : acceptes) {
+                total += f.get(30, TimeUnit.SECONDS);
+            }
+            assertEquals(500, total);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void evicts_stale_keys_when_full() {
+        InMemoryRateLimitStore store = new InMemoryRateLimitStore(10, horloge::get);
+        for (int i = 0; i < 10; i++) {
+            store.tryAcquire("k" + i, 5, MINUTE);
+        }
+        horloge.addAndGet(3 * MINUTE);
+        store.tryAcquire("nouvelle", 5, MINUTE);
+        assertEquals(1, store.size());
+    }
+}
@@ -0,0 +1,58 @@
+package com.iut.banque.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Collecte Prometheus avec le jeton fixe banque.metrics.scrape-token, sur
+ * l'application complète (actuator compris).
+ */
+@SpringBootTest(properties = { "banque.metrics.scrape-token=jeton-collecteur",
+        "banque.standing-orders.enabled=false" })
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("h2")
+class ScrapeTokenTest {
+
+    private static final String JETON = "Bearer jeton-collecteur";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    TokenService tokenService;
+
+    @Test
+    void prometheus_is_scraped_with_the_scrape_token() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, JETON))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("banque_db_pool_saturation")));
+    }
+
+    @Test
+    void prometheus_still_accepts_a_manager_token() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenService.issue("admin", "GESTIONNAIRE")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void scrape_token_opens_nothing_else() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, "Bearer autre"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/metrics").header(HttpHeaders.AUTHORIZATION, JETON))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/accounts").header(HttpHeaders.AUTHORIZATION, JETON))
+                .andExpect(status().isUnauthorized());
+    }
+}
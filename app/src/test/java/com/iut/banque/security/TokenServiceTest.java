@@ -0,0 +1,92 @@
+package com.iut.banque.security;
+
+import com.iut.banque.security.TokenService.AuthenticatedUser;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenServiceTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final Instant NOW = Instant.parse("2026-01-01T10:00:00Z");
+
+    private final TokenService tokenService =
+            new TokenService(SECRET, Duration.ofMinutes(30), Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void issued_token_is_verified() {
+        AuthenticatedUser user = tokenService.verify(tokenService.issue("j.dupont1", "CLIENT"));
+
+        assertNotNull(user);
+        assertEquals("j.dupont1", user.userId());
+        assertEquals("CLIENT", user.role());
+    }
+
+    @Test
+    void token_is_accepted_by_another_node_with_same_secret() {
+        TokenService autreNoeud = new TokenService(SECRET, Duration.ofMinutes(30), Clock.fixed(NOW, ZoneOffset.UTC));
+
+        assertNotNull(autreNoeud.verify(tokenService.issue("admin", "GESTIONNAIRE")));
+    }
+
+    @Test
+    void token_signed_with_another_secret_is_rejected() {
+        TokenService autre = new TokenService(Base64.getEncoder().encodeToString(new byte[] { 1, 2, 3, 4 }),
+                Duration.ofMinutes(30), Clock.fixed(NOW, ZoneOffset.UTC));
+
+        assertNull(tokenService.verify(autre.issue("admin", "GESTIONNAIRE")));
+    }
+
+    @Test
+    void tampered_payload_is_rejected() {
+        String token = tokenService.issue("j.dupont1", "CLIENT");
+        String signature = token.substring(token.indexOf('.'));
+        String faux = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("j.dupont1|GESTIONNAIRE|9999999999".getBytes());
+
+        assertNull(tokenService.verify(faux + signature));
+    }
+
+    @Test
+    void expired_token_is_rejected() {
+        String token = tokenService.issue("j.dupont1", "CLIENT");
+        TokenService plusTard = new TokenService(SECRET, Duration.ofMinutes(30),
+                Clock.fixed(NOW.plus(Duration.ofMinutes(31)), ZoneOffset.UTC));
+
+        assertNull(plusTard.verify(token));
+    }
+
+    @Test
+    void malformed_tokens_are_rejected() {
+        assertNull(tokenService.verify(null));
+        assertNull(tokenService.verify(""));
+        assertNull(tokenService.verify("abc"));
+        assertNull(tokenService.verify("a.b.c"));
+        assertNull(tokenService.verify("!!!.???"));
+    }
+
+    @Test
+    void concurrent_verifications_do_not_interfere() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String userId = "u.user" + (i + 1);
+            futures.add(pool.submit(() -> userId.equals(tokenService.verify(tokenService.issue(userId, "CLIENT")).userId())));
+        }
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.get());
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,268 @@
+package com.iut.banque.service;
+
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.engine.BalanceEngine;
+import com.iut.banque.exceptions.InsufficientFundsException;
+import com.iut.banque.modele.Client;
+import com.iut.banque.modele.CompteAvecDecouvert;
+import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.modele.Operation;
+import com.iut.banque.modele.TypeOperation;
+import com.iut.banque.repository.ClientRepository;
+import com.iut.banque.repository.CompteRepository;
+import com.iut.banque.repository.OperationRepository;
+import com.iut.banque.repository.PointDeRepriseRepository;
+import com.iut.banque.repository.SoldeJournalierRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.iut.banque.modele.Montant.euros;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Arrêté par tranches de 2 comptes, calcul sur 3 fils (H2). Taux choisis pour
+ * des montants ronds : 1 centime par jour pour 100 € d'intérêts, 1 pour
+ * 1000 d'agios par jour.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({ AccrualService.class, SnapshotService.class, LookupCache.class })
+@TestPropertySource(properties = {
+        "banque.accrual.chunk-size=2",
+        "banque.accrual.parallelism=3",
+        "banque.accrual.interest-rate=0.0365",
+        "banque.accrual.overdraft-rate=0.365"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccrualServiceTest {
+
+    private static final LocalDate JOUR = LocalDate.of(2024, 3, 31);
+
+    @Autowired
+    AccrualService accrualService;
+
+    @Autowired
+    CompteRepository compteRepository;
+
+    @Autowired
+    ClientRepository clientRepository;
+
+    @Autowired
+    OperationRepository operationRepository;
+
+    @Autowired
+    SoldeJournalierRepository soldeJournalierRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PointDeRepriseRepository pointDeRepriseRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    LookupCache lookupCache;
+
+    @Autowired
+    SnapshotService snapshotService;
+
+    @TempDir
+    Path repertoire;
+
+    private BalanceEngine engine;
+
+    private AccrualService avecMoteur;
+
+    @BeforeEach
+    void init() throws Exception {
+        jdbcTemplate.update("DELETE FROM ArreteJournalier");
+        soldeJournalierRepository.deleteAllInBatch();
+        operationRepository.deleteAllInBatch();
+        compteRepository.deleteAll();
+        clientRepository.deleteAll();
+        Client owner = clientRepository.save(
+                new Client("Dupont", "Jean", "1 rue Test", true, "j.dupont1", "password", "1234567890"));
+        compteRepository.save(new CompteSansDecouvert("FR0000000001", euros(100), owner));
+        compteRepository.save(new CompteSansDecouvert("FR0000000002", euros(0), owner));
+        compteRepository.save(new CompteAvecDecouvert("FR0000000003", euros(-20), euros(50), owner));
+        compteRepository.save(new CompteSansDecouvert("FR0000000004", euros(150), owner));
+        compteRepository.save(new CompteSansDecouvert("FR0000000005", euros(50), owner));
+    }
+
+    @AfterEach
+    void fermer() throws Exception {
+        if (avecMoteur != null) {
+            avecMoteur.arreter();
+        }
+        if (engine != null) {
+            engine.arreter();
+        }
+    }
+
+    /**
+     * Moteur à écriture différée (report périodique espacé) et arrêté qui
+     * l'utilise, avec les taux de la classe.
+     */
+    private void demarrerMoteur() throws Exception {
+        engine = new BalanceEngine(compteRepository, operationRepository, pointDeRepriseRepository, jdbcTemplate,
+                transactionManager, repertoire, true, Duration.ofHours(1), DataSize.ofKilobytes(4), 8);
+        engine.demarrer();
+        // copie des positions sans le moteur : ses mouvements restent en
+        // attente jusqu'à l'écriture des tranches
+        avecMoteur = new AccrualService(jdbcTemplate, transactionManager, operationRepository, snapshotService,
+                lookupCache, engine, ZoneId.of("Europe/Paris"), 2, 3, new BigDecimal("0.0365"),
+                new BigDecimal("0.365"));
+    }
+
+    private Montant solde(String numeroCompte) {
+        return compteRepository.findById(numeroCompte).orElseThrow().getSolde();
+    }
+
+    @Test
+    void applies_interest_and_fees_once_per_date() {
+        AccrualService.Report report = accrualService.accrue(JOUR);
+
+        assertEquals(5, report.comptes());
+        assertEquals(Montant.deCentimes(3), report.interets());
+        assertEquals(Montant.deCentimes(2), report.agios());
+        assertEquals(Montant.valueOf("100.01"), solde("FR0000000001"));
+        assertEquals(Montant.ZERO, solde("FR0000000002"));
+        assertEquals(Montant.valueOf("-20.02"), solde("FR0000000003"));
+        // 1,5 centime arrondi au pair
+        assertEquals(Montant.valueOf("150.02"), solde("FR0000000004"));
+        // 0,5 centime arrondi au pair
+        assertEquals(euros(50), solde("FR0000000005"));
+        List<Operation> operations = operationRepository.findAll();
+        assertEquals(3, operations.size());
+        assertEquals(1, operations.stream().filter(o -> o.getType() == TypeOperation.AGIOS
+                && o.getMontant().equals(Montant.deCentimes(-2))).count());
+
+        assertEquals(0, accrualService.accrue(JOUR).comptes(), "déjà arrêté");
+        assertEquals(Montant.valueOf("100.01"), solde("FR0000000001"));
+        assertEquals(3, operationRepository.count());
+
+        // le lendemain, sur les soldes après arrêté
+        accrualService.accrue(JOUR.plusDays(1));
+        assertEquals(Montant.valueOf("100.02"), solde("FR0000000001"));
+        assertEquals(Montant.valueOf("-20.04"), solde("FR0000000003"));
+    }
+
+    @Test
+    void interrupted_run_resumes_after_checkpoint() {
+        // arrêté interrompu après la deuxième tranche
+        jdbcTemplate.update("INSERT INTO ArreteJournalier (dateArrete, dernierCompte, termine, comptes, interets,"
+                + " agios) VALUES (?, 'FR0000000004', FALSE, 4, 0, 0)", JOUR);
+
+        assertEquals(1, accrualService.accrue(JOUR).comptes());
+        assertEquals(euros(100), solde("FR0000000001"));
+        assertEquals(euros(150), solde("FR0000000004"));
+        assertEquals(5L, jdbcTemplate.queryForObject(
+                "SELECT comptes FROM ArreteJournalier WHERE dateArrete = ?", Long.class, JOUR));
+        assertTrue(jdbcTemplate.queryForObject(
+                "SELECT termine FROM ArreteJournalier WHERE dateArrete = ?", Boolean.class, JOUR));
+    }
+
+    @Test
+    void engine_movements_are_flushed_before_a_chunk_is_written() throws Exception {
+        demarrerMoteur();
+        engine.debiter("FR0000000001", euros(10));
+
+        avecMoteur.accrue(JOUR);
+
+        // intérêts sur la position de 100 €, débit reporté avant la tranche
+        assertEquals(Montant.valueOf("90.01"), solde("FR0000000001"));
+        assertEquals(Montant.valueOf("90.01"), engine.solde("FR0000000001"), "intérêts vus par le moteur");
+        assertEquals(1, operationRepository.findAll().stream()
+                .filter(o -> o.getType() == TypeOperation.DEBIT).count());
+    }
+
+    @Test
+    void concurrent_accruals_and_engine_debits_lose_nothing() throws Exception {
+        demarrerMoteur();
+        AtomicInteger debits = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 25; i++) {
+                    try {
+                        engine.debiter("FR0000000003", euros(1));
+                        debits.incrementAndGet();
+                    } catch (InsufficientFundsException e) {
+                        // découvert épuisé
+                    }
+                }
+                return null;
+            }));
+        }
+        futures.add(pool.submit(() -> {
+            for (int j = 0; j < 5; j++) {
+                avecMoteur.accrue(JOUR.plusDays(j));
+            }
+            return null;
+        }));
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        pool.shutdown();
+
+        engine.reporter();
+        Montant agios = operationRepository.findAll().stream()
+                .filter(o -> o.getType() == TypeOperation.AGIOS)
+                .map(Operation::getMontant)
+                .reduce(Montant.ZERO, Montant::plus);
+        Montant attendu = euros(-20 - debits.get()).plus(agios);
+        assertEquals(attendu, solde("FR0000000003"), "aucun débit ni agio perdu");
+        assertEquals(attendu, engine.solde("FR0000000003"));
+        // 50 € demandés pour 30 € de découvert restant : seuls les agios
+        // peuvent le dépasser
+        assertTrue(debits.get() <= 30);
+        assertTrue(solde("FR0000000003").getCentimes() >= euros(-50).plus(agios).getCentimes(),
+                () -> "découvert dépassé : " + solde("FR0000000003"));
+    }
+
+    @Test
+    void daily_amount_is_rounded_half_even_and_exact_for_large_balances() {
+        assertEquals(1, accrualService.montantDuJour(10_000));
+        assertEquals(0, accrualService.montantDuJour(5_000));
+        assertEquals(2, accrualService.montantDuJour(15_000));
+        assertEquals(-1, accrualService.montantDuJour(-1_000));
+        assertEquals(0, accrualService.montantDuJour(0));
+        // produit hors d'un long : calcul en BigDecimal
+        assertEquals(Long.MAX_VALUE / 10_000, accrualService.montantDuJour(Long.MAX_VALUE), 1);
+
+        assertEquals(new AccrualService.Taux(5, 36_500),
+                AccrualService.Taux.annuel(new BigDecimal("0.0500")));
+        assertThrows(IllegalArgumentException.class,
+                () -> AccrualService.Taux.annuel(new BigDecimal("-0.01")));
+    }
+}
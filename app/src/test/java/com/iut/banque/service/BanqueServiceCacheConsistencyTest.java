@@ -0,0 +1,119 @@
+package com.iut.banque.service;
+
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.metrics.OperationMetrics;
+import com.iut.banque.modele.Client;
+import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.repository.ClientRepository;
+import com.iut.banque.repository.CompteRepository;
+import com.iut.banque.repository.OperationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.iut.banque.modele.Montant.euros;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cohérence du cache des comptes sur une vraie base (H2) : des lectures
+ * concurrentes ne doivent jamais servir un solde antérieur à un crédit
+ * validé.
+ *
+ * Les connexions sont en REPEATABLE READ, le niveau par défaut de MySQL : en
+ * READ COMMITTED, H2 2.2 rend parfois, juste après un commit, la valeur
+ * d'avant ce commit, même sans passer par le cache.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@TestPropertySource(properties = "spring.datasource.hikari.transaction-isolation=TRANSACTION_REPEATABLE_READ")
+@Import({ BanqueService.class, LookupCache.class, OperationMetrics.class, SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BanqueServiceCacheConsistencyTest {
+
+    private static final String NUMERO = "FR0000000000";
+    private static final Montant SOLDE_INITIAL = euros(1000);
+
+    @Autowired
+    BanqueService banqueService;
+
+    @Autowired
+    CompteRepository compteRepository;
+
+    @Autowired
+    ClientRepository clientRepository;
+
+    @Autowired
+    OperationRepository operationRepository;
+
+    @MockBean
+    PasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void init() throws Exception {
+        vider();
+        Client owner = clientRepository.save(
+                new Client("Dupont", "Jean", "1 rue Test", true, "j.dupont1", "password", "1234567890"));
+        compteRepository.save(new CompteSansDecouvert(NUMERO, SOLDE_INITIAL, owner));
+    }
+
+    @AfterEach
+    void vider() {
+        operationRepository.deleteAll();
+        compteRepository.deleteAll();
+        clientRepository.deleteAll();
+    }
+
+    @Test
+    void cached_balance_is_never_stale_after_committed_credit() throws Exception {
+        int credits = 300;
+        AtomicInteger valides = new AtomicInteger();
+        AtomicInteger perimees = new AtomicInteger();
+        ExecutorService lecteurs = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(lecteurs.submit(() -> {
+                while (valides.get() < credits) {
+                    // tout crédit terminé avant la lecture doit y être visible
+                    int vus = valides.get();
+                    if (banqueService.getAccountSummary(NUMERO).solde().compareTo(SOLDE_INITIAL.plus(euros(vus))) < 0) {
+                        perimees.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        for (int i = 1; i <= credits; i++) {
+            banqueService.crediter(NUMERO, euros(1));
+            valides.incrementAndGet();
+            assertEquals(SOLDE_INITIAL.plus(euros(i)), banqueService.getAccountSummary(NUMERO).solde());
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        lecteurs.shutdown();
+
+        assertEquals(0, perimees.get(), "lectures d'un solde antérieur à un crédit validé");
+    }
+}
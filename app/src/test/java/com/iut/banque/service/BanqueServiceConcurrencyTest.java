@@ -0,0 +1,167 @@
+package com.iut.banque.service;
+
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.exceptions.InsufficientFundsException;
+import com.iut.banque.metrics.OperationMetrics;
+import com.iut.banque.modele.Client;
+import com.iut.banque.modele.Compte;
+import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.modele.Operation;
+import com.iut.banque.repository.ClientRepository;
+import com.iut.banque.repository.CompteRepository;
+import com.iut.banque.repository.OperationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.iut.banque.modele.Montant.euros;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test de charge des virements concurrents sur une vraie base (H2) : des
+ * milliers de virements croisés sur quelques comptes "chauds" ne doivent ni
+ * perdre de mise à jour ni créer d'argent.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({ BanqueService.class, LookupCache.class, OperationMetrics.class, SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BanqueServiceConcurrencyTest {
+
+    private static final int NB_COMPTES = 8;
+    private static final int NB_THREADS = 16;
+    private static final int NB_VIREMENTS = 4000;
+    private static final Montant SOLDE_INITIAL = euros(1000);
+
+    @Autowired
+    BanqueService banqueService;
+
+    @Autowired
+    CompteRepository compteRepository;
+
+    @Autowired
+    ClientRepository clientRepository;
+
+    @Autowired
+    OperationRepository operationRepository;
+
+    @MockBean
+    PasswordEncoder passwordEncoder;
+
+    private final List<String> numeros = new ArrayList<>();
+
+    @BeforeEach
+    void init() throws Exception {
+        operationRepository.deleteAll();
+        compteRepository.deleteAll();
+        clientRepository.deleteAll();
+        Client owner = clientRepository.save(
+                new Client("Dupont", "Jean", "1 rue Test", true, "j.dupont1", "password", "1234567890"));
+        for (int i = 0; i < NB_COMPTES; i++) {
+            String numero = String.format("FR%010d", i);
+            compteRepository.save(new CompteSansDecouvert(numero, SOLDE_INITIAL, owner));
+            numeros.add(numero);
+        }
+    }
+
+    @Test
+    void concurrent_transfers_conserve_total_money() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(NB_THREADS);
+        AtomicInteger effectues = new AtomicInteger();
+        AtomicInteger refuses = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < NB_VIREMENTS; i++) {
+            futures.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int from = random.nextInt(NB_COMPTES);
+                int to = (from + 1 + random.nextInt(NB_COMPTES - 1)) % NB_COMPTES;
+                // montants au centime près : les sommes restent exactes
+                Montant montant = Montant.deCentimes(1 + random.nextInt(20_000));
+                try {
+                    banqueService.transfer(numeros.get(from), numeros.get(to), montant);
+                    effectues.incrementAndGet();
+                } catch (InsufficientFundsException e) {
+                    refuses.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        List<Compte> comptes = compteRepository.findAll();
+        long total = comptes.stream().mapToLong(c -> c.getSolde().getCentimes()).sum();
+
+        assertEquals(NB_COMPTES * SOLDE_INITIAL.getCentimes(), total);
+        assertTrue(comptes.stream().noneMatch(c -> c.getSolde().estNegatif()));
+        assertEquals(NB_VIREMENTS, effectues.get() + refuses.get());
+        assertTrue(effectues.get() > 0);
+
+        // deux lignes de journal par virement effectué, de somme nulle
+        List<Operation> journal = operationRepository.findAll();
+        assertEquals(2L * effectues.get(), journal.size());
+        assertEquals(0L, journal.stream().mapToLong(o -> o.getMontant().getCentimes()).sum());
+    }
+
+    @Test
+    void concurrent_deposits_and_withdrawals_lose_no_update() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(NB_THREADS);
+        AtomicLong mouvementNet = new AtomicLong();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < NB_VIREMENTS; i++) {
+            futures.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                String numero = numeros.get(random.nextInt(2));
+                long centimes = 1 + random.nextInt(10_000);
+                Montant montant = Montant.deCentimes(centimes);
+                if (random.nextBoolean()) {
+                    banqueService.crediter(numero, montant);
+                    mouvementNet.addAndGet(centimes);
+                } else {
+                    try {
+                        banqueService.debiter(numero, montant);
+                        mouvementNet.addAndGet(-centimes);
+                    } catch (InsufficientFundsException e) {
+                        // refusé sans effet sur le solde
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        long total = compteRepository.findAll().stream().mapToLong(c -> c.getSolde().getCentimes()).sum();
+        assertEquals(NB_COMPTES * SOLDE_INITIAL.getCentimes() + mouvementNet.get(), total);
+        // le journal retrace exactement les mouvements appliqués
+        long journal = operationRepository.findAll().stream().mapToLong(o -> o.getMontant().getCentimes()).sum();
+        assertEquals(mouvementNet.get(), journal);
+    }
+}
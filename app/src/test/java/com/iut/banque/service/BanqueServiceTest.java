@@ -1,30 +1,44 @@
 package com.iut.banque.service;
 
+import com.iut.banque.api.dto.AccountPage;
+import com.iut.banque.api.dto.AccountSummary;
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.engine.BalanceEngine;
 import com.iut.banque.exceptions.IllegalFormatException;
 import com.iut.banque.exceptions.IllegalOperationException;
 import com.iut.banque.exceptions.InsufficientFundsException;
 import com.iut.banque.exceptions.TechnicalException;
+import com.iut.banque.metrics.OperationMetrics;
 import com.iut.banque.modele.Client;
 import com.iut.banque.modele.Compte;
 import com.iut.banque.modele.CompteSansDecouvert;
 import com.iut.banque.modele.Gestionnaire;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.modele.Operation;
+import com.iut.banque.modele.TypeOperation;
 import com.iut.banque.modele.Utilisateur;
 import com.iut.banque.repository.ClientRepository;
 import com.iut.banque.repository.CompteRepository;
 import com.iut.banque.repository.GestionnaireRepository;
+import com.iut.banque.repository.OperationRepository;
 import com.iut.banque.repository.UtilisateurRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
+import static com.iut.banque.modele.Montant.euros;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -43,9 +57,18 @@ public class BanqueServiceTest {
     @Mock
     CompteRepository compteRepository;
 
+    @Mock
+    OperationRepository operationRepository;
+
     @Mock
     PasswordEncoder passwordEncoder;
 
+    @Mock
+    OperationMetrics operationMetrics;
+
+    @Spy
+    LookupCache lookupCache = new LookupCache(Duration.ofMinutes(5), 100, Duration.ofMinutes(1), 100);
+
     @InjectMocks
     BanqueService banqueService;
 
@@ -82,94 +105,93 @@ public class BanqueServiceTest {
 
     @Test
     void crediter_success() throws Exception {
-        Compte c = mock(Compte.class);
-        when(compteRepository.findById("FRC1")).thenReturn(Optional.of(c));
+        when(compteRepository.crediter("FRC1", euros(20))).thenReturn(1);
 
-        banqueService.crediter("FRC1", 20.0);
+        banqueService.crediter("FRC1", euros(20));
 
-        verify(c, times(1)).crediter(20.0);
-        verify(compteRepository, times(1)).save(c);
+        verify(compteRepository, times(1)).crediter("FRC1", euros(20));
+        verify(compteRepository, never()).findById(anyString());
+        verify(compteRepository, never()).save(any());
+        verify(operationRepository).save(argThat(op -> op.getNumeroCompte().equals("FRC1")
+                && op.getMontant().equals(euros(20)) && op.getType() == TypeOperation.CREDIT));
     }
 
     @Test
     void debiter_success() throws Exception {
-        Compte c = mock(Compte.class);
-        when(compteRepository.findById("FR0001")).thenReturn(Optional.of(c));
+        when(compteRepository.debiter("FR0001", euros(10))).thenReturn(1);
 
-        banqueService.debiter("FR0001", 10.0);
+        banqueService.debiter("FR0001", euros(10));
 
-        verify(c, times(1)).debiter(10.0);
-        verify(compteRepository, times(1)).save(c);
+        verify(compteRepository, times(1)).debiter("FR0001", euros(10));
+        verify(compteRepository, never()).findById(anyString());
+        verify(compteRepository, never()).save(any());
+        verify(operationRepository).save(argThat(op -> op.getNumeroCompte().equals("FR0001")
+                && op.getMontant().equals(euros(-10)) && op.getType() == TypeOperation.DEBIT));
     }
 
     @Test
     void debiter_zero_amount_calls_debiter_zero() throws Exception {
-        // ton impl appelle bien debiter(0.0)
-        Compte c = mock(Compte.class);
-        when(compteRepository.findById("FRZ1")).thenReturn(Optional.of(c));
+        when(compteRepository.debiter("FRZ1", euros(0))).thenReturn(1);
 
-        banqueService.debiter("FRZ1", 0.0);
+        banqueService.debiter("FRZ1", euros(0));
 
-        verify(c, times(1)).debiter(0.0);
-        // selon ton service, il peut save ou pas; on ne force pas cette partie
+        verify(compteRepository, times(1)).debiter("FRZ1", euros(0));
     }
 
     @Test
-    void crediter_negative_amount_throws_compte_introuvable_first() {
-        // ton service va chercher le compte avant de valider le montant (d'après ta
-        // stacktrace)
-        when(compteRepository.findById("X")).thenReturn(Optional.empty());
-
-        assertThrows(IllegalOperationException.class, () -> banqueService.crediter("X", -5.0));
+    void crediter_negative_amount_throws_before_any_query() {
+        assertThrows(IllegalFormatException.class, () -> banqueService.crediter("X", euros(-5)));
+        verifyNoInteractions(compteRepository);
     }
 
     @Test
-    void debiter_negative_amount_throws_compte_introuvable_first() {
-        when(compteRepository.findById("X")).thenReturn(Optional.empty());
-
-        assertThrows(IllegalOperationException.class, () -> banqueService.debiter("X", -1.0));
+    void debiter_negative_amount_throws_before_any_query() {
+        assertThrows(IllegalFormatException.class, () -> banqueService.debiter("X", euros(-1)));
+        verifyNoInteractions(compteRepository);
     }
 
     @Test
     void find_nonexistent_compte_throws() {
         when(compteRepository.findById("NOPE")).thenReturn(Optional.empty());
 
-        assertThrows(IllegalOperationException.class, () -> banqueService.debiter("NOPE", 1.0));
+        assertThrows(IllegalOperationException.class, () -> banqueService.debiter("NOPE", euros(1)));
     }
 
     @Test
     void transfer_to_missing_account_throws() {
-        when(compteRepository.findById("FROM2")).thenReturn(Optional.of(mock(Compte.class)));
-        when(compteRepository.findById("MISSING")).thenReturn(Optional.empty());
+        Compte from = mock(Compte.class);
+        when(from.getNumeroCompte()).thenReturn("FROM2");
+        when(compteRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(from));
 
-        assertThrows(IllegalOperationException.class, () -> banqueService.transfer("FROM2", "MISSING", 5.0));
+        assertThrows(IllegalOperationException.class, () -> banqueService.transfer("FROM2", "MISSING", euros(5)));
     }
 
     @Test
     void multiple_small_debits_and_credits() throws Exception {
-        Compte c = mock(Compte.class);
-        when(compteRepository.findById("MIX1")).thenReturn(Optional.of(c));
+        when(compteRepository.crediter(eq("MIX1"), any(Montant.class))).thenReturn(1);
+        when(compteRepository.debiter(eq("MIX1"), any(Montant.class))).thenReturn(1);
 
-        banqueService.crediter("MIX1", 10.0);
-        banqueService.debiter("MIX1", 5.0);
-        banqueService.crediter("MIX1", 7.5);
+        banqueService.crediter("MIX1", euros(10));
+        banqueService.debiter("MIX1", euros(5));
+        banqueService.crediter("MIX1", Montant.valueOf("7.5"));
 
-        verify(c, times(2)).crediter(anyDouble());
-        verify(c, times(1)).debiter(5.0);
+        verify(compteRepository, times(2)).crediter(eq("MIX1"), any(Montant.class));
+        verify(compteRepository, times(1)).debiter("MIX1", euros(5));
     }
 
     @Test
     void transfer_multiple_calls_result_in_saves() throws Exception {
         Compte from = mock(Compte.class);
         Compte to = mock(Compte.class);
-        when(compteRepository.findById("S1")).thenReturn(Optional.of(from));
-        when(compteRepository.findById("S2")).thenReturn(Optional.of(to));
+        when(from.getNumeroCompte()).thenReturn("S1");
+        when(to.getNumeroCompte()).thenReturn("S2");
+        when(compteRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(from, to));
 
-        banqueService.transfer("S1", "S2", 2.0);
-        banqueService.transfer("S1", "S2", 3.0);
+        banqueService.transfer("S1", "S2", euros(2));
+        banqueService.transfer("S1", "S2", euros(3));
 
-        verify(from, times(2)).debiter(anyDouble());
-        verify(to, times(2)).crediter(anyDouble());
+        verify(from, times(2)).debiter(any(Montant.class));
+        verify(to, times(2)).crediter(any(Montant.class));
         verify(compteRepository, times(2)).save(to);
     }
 
@@ -205,40 +227,83 @@ public class BanqueServiceTest {
 
         when(compteRepository.save(any(Compte.class))).thenAnswer(inv -> inv.getArgument(0));
 
-        banqueService.createAccountAvecDecouvert(num, "u", 100.0);
+        banqueService.createAccountAvecDecouvert(num, "u", euros(100));
 
         verify(compteRepository, times(1)).save(any(Compte.class));
     }
 
     @Test
     void debiter_insufficientFunds() throws Exception {
-        Compte c = mock(Compte.class);
-        doThrow(new InsufficientFundsException("Solde insuffisant")).when(c).debiter(1000.0);
-        when(compteRepository.findById("FR0002")).thenReturn(Optional.of(c));
+        when(compteRepository.debiter("FR0002", euros(1000))).thenReturn(0);
+        when(compteRepository.existsById("FR0002")).thenReturn(true);
 
         Exception ex = assertThrows(InsufficientFundsException.class,
-                () -> banqueService.debiter("FR0002", 1000.0));
-        assertTrue(ex.getMessage().contains("Solde insuffisant"));
-        verify(compteRepository, never()).save(c);
+                () -> banqueService.debiter("FR0002", euros(1000)));
+        assertTrue(ex.getMessage().contains("insuffisant"));
+        verify(compteRepository, never()).save(any());
+        verifyNoInteractions(operationRepository);
     }
 
     @Test
     void transfer_sameAccount_throws() {
         Exception ex = assertThrows(IllegalOperationException.class,
-                () -> banqueService.transfer("A", "A", 10.0));
+                () -> banqueService.transfer("A", "A", euros(10)));
         assertTrue(ex.getMessage().toLowerCase().contains("identiques"));
     }
 
+    @Test
+    void transfer_locks_both_accounts_in_one_query() throws Exception {
+        Compte from = mock(Compte.class);
+        Compte to = mock(Compte.class);
+        when(from.getNumeroCompte()).thenReturn("ZZ0000000001");
+        when(to.getNumeroCompte()).thenReturn("AA0000000001");
+        when(compteRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(to, from));
+
+        banqueService.transfer("ZZ0000000001", "AA0000000001", euros(10));
+
+        verify(compteRepository, times(1))
+                .findAllByIdForUpdate(argThat(ids -> ids.containsAll(List.of("ZZ0000000001", "AA0000000001"))));
+        verify(from).debiter(euros(10));
+        verify(to).crediter(euros(10));
+        verify(compteRepository, never()).findById(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void transfer_writes_two_correlated_ledger_lines() throws Exception {
+        Compte from = mock(Compte.class);
+        Compte to = mock(Compte.class);
+        when(from.getNumeroCompte()).thenReturn("L1");
+        when(to.getNumeroCompte()).thenReturn("L2");
+        when(compteRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(from, to));
+
+        banqueService.transfer("L1", "L2", Montant.valueOf("12.5"));
+
+        ArgumentCaptor<List<Operation>> captor = ArgumentCaptor.forClass(List.class);
+        verify(operationRepository).saveAll(captor.capture());
+        List<Operation> ops = captor.getValue();
+        assertEquals(2, ops.size());
+        assertEquals("L1", ops.get(0).getNumeroCompte());
+        assertEquals(Montant.valueOf("-12.5"), ops.get(0).getMontant());
+        assertEquals(TypeOperation.VIREMENT_EMIS, ops.get(0).getType());
+        assertEquals("L2", ops.get(1).getNumeroCompte());
+        assertEquals(Montant.valueOf("12.5"), ops.get(1).getMontant());
+        assertEquals(TypeOperation.VIREMENT_RECU, ops.get(1).getType());
+        assertNotNull(ops.get(0).getIdVirement());
+        assertEquals(ops.get(0).getIdVirement(), ops.get(1).getIdVirement());
+    }
+
     @Test
     void transfer_insufficientFunds_propagates() throws Exception {
         Compte from = mock(Compte.class);
         Compte to = mock(Compte.class);
-        doThrow(new InsufficientFundsException("insuffisant")).when(from).debiter(500.0);
-        when(compteRepository.findById("FROM")).thenReturn(Optional.of(from));
-        when(compteRepository.findById("TO")).thenReturn(Optional.of(to));
+        doThrow(new InsufficientFundsException("insuffisant")).when(from).debiter(euros(500));
+        when(from.getNumeroCompte()).thenReturn("FROM");
+        when(to.getNumeroCompte()).thenReturn("TO");
+        when(compteRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(from, to));
 
         Exception ex = assertThrows(InsufficientFundsException.class,
-                () -> banqueService.transfer("FROM", "TO", 500.0));
+                () -> banqueService.transfer("FROM", "TO", euros(500)));
         assertTrue(ex.getMessage().contains("insuffisant"));
         verify(compteRepository, never()).save(to);
     }
@@ -388,14 +453,12 @@ public class BanqueServiceTest {
     }
 
     @Test
-    void crediter_calls_save() throws Exception {
-        Compte c = mock(Compte.class);
-        when(compteRepository.findById("ACC1")).thenReturn(Optional.of(c));
-
-        banqueService.crediter("ACC1", 100.0);
+    void crediter_unknown_account_throws() {
+        when(compteRepository.crediter("NOEXIST", euros(100))).thenReturn(0);
 
-        verify(c, times(1)).crediter(100.0);
-        verify(compteRepository, times(1)).save(c);
+        Exception ex = assertThrows(IllegalOperationException.class,
+                () -> banqueService.crediter("NOEXIST", euros(100)));
+        assertTrue(ex.getMessage().contains("Compte introuvable"));
     }
 
     @Test
@@ -403,7 +466,7 @@ public class BanqueServiceTest {
         when(compteRepository.findById("NOEXIST")).thenReturn(Optional.empty());
 
         Exception ex = assertThrows(IllegalOperationException.class,
-                () -> banqueService.debiter("NOEXIST", 50.0));
+                () -> banqueService.debiter("NOEXIST", euros(50)));
         assertTrue(ex.getMessage().contains("Compte introuvable"));
     }
 
@@ -426,4 +489,100 @@ public class BanqueServiceTest {
                 () -> banqueService.getAccountById("NOEXIST"));
         assertTrue(ex.getMessage().contains("Compte introuvable"));
     }
+
+    @Test
+    void user_lookups_are_cached_until_the_user_is_deleted() throws Exception {
+        Utilisateur user = mock(Utilisateur.class);
+        when(utilisateurRepository.findById("user1")).thenReturn(Optional.of(user));
+        when(utilisateurRepository.existsById("user1")).thenReturn(true);
+
+        assertSame(user, banqueService.getUserById("user1"));
+        assertSame(user, banqueService.getUserById("user1"));
+        verify(utilisateurRepository, times(1)).findById("user1");
+
+        banqueService.deleteUser("user1");
+        when(utilisateurRepository.findById("user1")).thenReturn(Optional.empty());
+        assertThrows(IllegalOperationException.class, () -> banqueService.getUserById("user1"));
+    }
+
+    @Test
+    void account_summary_is_reloaded_after_each_balance_change() throws Exception {
+        when(compteRepository.findSummaryById("ACC1")).thenReturn(
+                Optional.of(new AccountSummary("ACC1", euros(10), "CompteSansDecouvert", null, "u")),
+                Optional.of(new AccountSummary("ACC1", euros(15), "CompteSansDecouvert", null, "u")));
+        when(compteRepository.crediter("ACC1", euros(5))).thenReturn(1);
+
+        assertEquals(euros(10), banqueService.getAccountSummary("ACC1").solde());
+        assertEquals(euros(10), banqueService.getAccountSummary("ACC1").solde());
+        banqueService.crediter("ACC1", euros(5));
+
+        assertEquals(euros(15), banqueService.getAccountSummary("ACC1").solde());
+        verify(compteRepository, times(2)).findSummaryById("ACC1");
+        assertThrows(IllegalOperationException.class, () -> banqueService.getAccountSummary("NOEXIST"));
+    }
+
+    @Test
+    void account_summary_takes_balance_from_write_behind_engine() throws Exception {
+        BalanceEngine engine = mock(BalanceEngine.class);
+        when(engine.solde("ACC1")).thenReturn(euros(42));
+        when(compteRepository.findSummaryById("ACC1")).thenReturn(Optional.of(summary("ACC1")));
+        BanqueService service = new BanqueService(utilisateurRepository, clientRepository, gestionnaireRepository,
+                compteRepository, operationRepository, passwordEncoder, lookupCache, operationMetrics, engine);
+
+        assertEquals(euros(42), service.getAccountSummary("ACC1").solde());
+    }
+
+    private static AccountSummary summary(String numero) {
+        return new AccountSummary(numero, euros(0), "CompteSansDecouvert", null, "u");
+    }
+
+    @Test
+    void listAccountsPage_returns_cursor_when_more_rows_exist() {
+        when(compteRepository.findSummaries(Limit.of(3)))
+                .thenReturn(List.of(summary("A1"), summary("A2"), summary("A3")));
+
+        AccountPage page = banqueService.listAccountsPage(null, 2);
+
+        assertEquals(2, page.items().size());
+        assertEquals("A2", page.nextAfter());
+        verify(compteRepository, never()).findAll();
+    }
+
+    @Test
+    void listAccountsPage_last_page_has_no_cursor() {
+        when(compteRepository.findSummariesAfter("A2", Limit.of(3))).thenReturn(List.of(summary("A3")));
+
+        AccountPage page = banqueService.listAccountsPage("A2", 2);
+
+        assertEquals(1, page.items().size());
+        assertNull(page.nextAfter());
+    }
+
+    @Test
+    void listAccountsPage_clamps_limit() {
+        when(compteRepository.findSummaries(any())).thenReturn(Collections.emptyList());
+
+        banqueService.listAccountsPage(null, 1_000_000);
+        banqueService.listAccountsPage(null, 0);
+
+        verify(compteRepository).findSummaries(Limit.of(BanqueService.MAX_PAGE_SIZE + 1));
+        verify(compteRepository).findSummaries(Limit.of(2));
+    }
+
+    @Test
+    void balance_operations_go_through_write_behind_engine_when_enabled() throws Exception {
+        BalanceEngine engine = mock(BalanceEngine.class);
+        BanqueService service = new BanqueService(utilisateurRepository, clientRepository, gestionnaireRepository,
+                compteRepository, operationRepository, passwordEncoder, lookupCache, operationMetrics, engine);
+
+        service.crediter("FR0000000001", euros(10));
+        service.debiter("FR0000000001", euros(5));
+        service.transfer("FR0000000001", "FR0000000002", euros(1));
+
+        verify(engine).crediter("FR0000000001", euros(10));
+        verify(engine).debiter("FR0000000001", euros(5));
+        verify(engine).transfer("FR0000000001", "FR0000000002", euros(1));
+        assertThrows(IllegalFormatException.class, () -> service.transfer("FR0000000001", "FR0000000002", euros(-1)));
+        verifyNoInteractions(compteRepository, operationRepository);
+    }
 }
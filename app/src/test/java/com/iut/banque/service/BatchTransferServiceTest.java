@@ -0,0 +1,116 @@
+package com.iut.banque.service;
+
+import com.iut.banque.api.dto.BatchTransferResult;
+import com.iut.banque.api.dto.BatchTransferResult.Status;
+import com.iut.banque.api.dto.TransferRequest;
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.exceptions.IllegalOperationException;
+import com.iut.banque.modele.Client;
+import com.iut.banque.modele.CompteAvecDecouvert;
+import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.repository.ClientRepository;
+import com.iut.banque.repository.CompteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.iut.banque.modele.Montant.euros;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({ BatchTransferService.class, LookupCache.class })
+@TestPropertySource(properties = {
+        "banque.transfers.batch.chunk-size=3",
+        "banque.transfers.batch.max-size=1000"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BatchTransferServiceTest {
+
+    @Autowired
+    BatchTransferService batchTransferService;
+
+    @Autowired
+    CompteRepository compteRepository;
+
+    @Autowired
+    ClientRepository clientRepository;
+
+    @BeforeEach
+    void init() throws Exception {
+        compteRepository.deleteAll();
+        clientRepository.deleteAll();
+        Client owner = clientRepository.save(
+                new Client("Dupont", "Jean", "1 rue Test", true, "j.dupont1", "password", "1234567890"));
+        compteRepository.save(new CompteSansDecouvert("FR0000000001", euros(100), owner));
+        compteRepository.save(new CompteSansDecouvert("FR0000000002", euros(0), owner));
+        compteRepository.save(new CompteAvecDecouvert("FR0000000003", euros(0), euros(50), owner));
+    }
+
+    private Montant solde(String numeroCompte) {
+        return compteRepository.findById(numeroCompte).orElseThrow().getSolde();
+    }
+
+    @Test
+    void applies_valid_transfers_and_reports_each_item() throws Exception {
+        List<BatchTransferResult> results = batchTransferService.transferAll(List.of(
+                new TransferRequest("FR0000000001", "FR0000000002", euros(60)),
+                new TransferRequest("FR0000000001", "FR0000000002", euros(60)),
+                new TransferRequest("FR0000000003", "FR0000000001", euros(50)),
+                new TransferRequest("FR0000000001", "FR0000000001", euros(1)),
+                new TransferRequest("FR0000000001", "FR9999999999", euros(1)),
+                new TransferRequest("FR0000000002", "FR0000000001", euros(-5)),
+                new TransferRequest("FR0000000002", "FR0000000003", euros(10))));
+
+        assertEquals(List.of(Status.OK, Status.INSUFFICIENT_FUNDS, Status.OK, Status.INVALID,
+                Status.NOT_FOUND, Status.INVALID, Status.OK),
+                results.stream().map(BatchTransferResult::status).toList());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).index());
+        }
+        assertEquals(euros(90), solde("FR0000000001"));
+        assertEquals(euros(50), solde("FR0000000002"));
+        assertEquals(euros(-40), solde("FR0000000003"));
+    }
+
+    @Test
+    void large_batch_conserves_total_money() throws Exception {
+        List<TransferRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            requests.add(new TransferRequest("FR0000000001", "FR0000000002", euros(1)));
+            requests.add(new TransferRequest("FR0000000002", "FR0000000003", euros(1)));
+        }
+
+        List<BatchTransferResult> results = batchTransferService.transferAll(requests);
+
+        long ok = results.stream().filter(r -> r.status() == Status.OK).count();
+        // 100 allers-retours passent, puis les deux comptes en amont sont vides
+        assertEquals(200, ok);
+        assertEquals(euros(0), solde("FR0000000001"));
+        assertEquals(euros(0), solde("FR0000000002"));
+        assertEquals(euros(100), solde("FR0000000003"));
+    }
+
+    @Test
+    void rejects_batch_above_max_size() {
+        List<TransferRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            requests.add(new TransferRequest("FR0000000001", "FR0000000002", euros(1)));
+        }
+
+        assertThrows(IllegalOperationException.class, () -> batchTransferService.transferAll(requests));
+        assertEquals(euros(100), solde("FR0000000001"));
+    }
+}
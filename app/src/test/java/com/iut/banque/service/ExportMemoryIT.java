@@ -0,0 +1,122 @@
+package com.iut.banque.service;
+
+import com.iut.banque.modele.Client;
+import com.iut.banque.repository.ClientRepository;
+import com.iut.banque.service.ExportService.Format;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mémoire retenue pendant l'export d'un million de comptes (H2, exécution
+ * paresseuse des requêtes comme un curseur MySQL). Test long, GC forcés :
+ * exécuté par failsafe (mvn verify), pas avec les tests unitaires.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@TestPropertySource(properties = "spring.datasource.url="
+        + "jdbc:h2:mem:export;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=FALSE;LAZY_QUERY_EXECUTION=TRUE")
+@Import(ExportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExportMemoryIT {
+
+    private static final int NB_COMPTES = 1_000_000;
+
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    ClientRepository clientRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void vider() {
+        // en SQL : deleteAll chargerait le million de comptes
+        jdbcTemplate.update("TRUNCATE TABLE Compte");
+        jdbcTemplate.update("DELETE FROM Utilisateur");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void million_accounts_export_in_constant_heap() throws Exception {
+        clientRepository.save(
+                new Client("Dupont", "Jean", "1 rue Test, Paris", true, "j.dupont1", "password", "1234567890"));
+        jdbcTemplate.update("INSERT INTO Compte (numeroCompte, userId, solde, avecDecouvert, decouvertAutorise)"
+                + " SELECT 'FR' || LPAD(CAST(X AS VARCHAR), 10, '0'), 'j.dupont1', X,"
+                + " CASE WHEN MOD(X, 2) = 0 THEN 'AVEC' ELSE 'SANS' END,"
+                + " CASE WHEN MOD(X, 2) = 0 THEN 50000 ELSE NULL END"
+                + " FROM SYSTEM_RANGE(1, ?)", NB_COMPTES);
+        MemoryMXBean memoire = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long avant = memoire.getHeapMemoryUsage().getUsed();
+        MesureMemoire sortie = new MesureMemoire(memoire);
+
+        assertEquals(NB_COMPTES, exportService.exportAccounts(Format.CSV, sortie));
+
+        long pic = sortie.pic - avant;
+        assertTrue(sortie.mesures >= 5);
+        // la liste des comptes à elle seule occuperait plus de 100 Mo
+        assertTrue(pic < 16L << 20, "mémoire retenue pendant l'export : " + (pic >> 10) + " Ko");
+    }
+
+    /**
+     * Sortie qui jette les octets et mesure, tous les 8 Mo écrits, la mémoire
+     * encore utilisée après un GC complet.
+     */
+    private static final class MesureMemoire extends OutputStream {
+
+        private static final long PERIODE = 8L << 20;
+
+        private final MemoryMXBean memoire;
+        long octets;
+        long pic;
+        int mesures;
+
+        MesureMemoire(MemoryMXBean memoire) {
+            this.memoire = memoire;
+        }
+
+        @Override
+        public void write(int b) {
+            avancer(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            avancer(len);
+        }
+
+        private void avancer(int len) {
+            if ((octets + len) / PERIODE != octets / PERIODE) {
+                System.gc();
+                pic = Math.max(pic, memoire.getHeapMemoryUsage().getUsed());
+                mesures++;
+            }
+            octets += len;
+        }
+    }
+}
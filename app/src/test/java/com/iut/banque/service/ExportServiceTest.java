@@ -0,0 +1,116 @@
+package com.iut.banque.service;
+
+import com.iut.banque.modele.Client;
+import com.iut.banque.modele.CompteAvecDecouvert;
+import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.repository.ClientRepository;
+import com.iut.banque.repository.CompteRepository;
+import com.iut.banque.service.ExportService.Format;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static com.iut.banque.modele.Montant.euros;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Export en flux sur une vraie base (H2, exécution paresseuse des requêtes
+ * comme un curseur MySQL) : contenu des exports. La mémoire utilisée sur un
+ * million de comptes est vérifiée par ExportMemoryIT (mvn verify).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@TestPropertySource(properties = "spring.datasource.url="
+        + "jdbc:h2:mem:export;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=FALSE;LAZY_QUERY_EXECUTION=TRUE")
+@Import(ExportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExportServiceTest {
+
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    ClientRepository clientRepository;
+
+    @Autowired
+    CompteRepository compteRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void init() throws Exception {
+        vider();
+        Client client = clientRepository.save(
+                new Client("Dupont", "Jean", "1 rue Test, Paris", true, "j.dupont1", "password", "1234567890"));
+        clientRepository.save(new Client("Martin", "Eve \"la\"", "2 rue Test", false, "e.martin1", "password",
+                "1234567891"));
+        compteRepository.save(new CompteSansDecouvert("FR0000000001", Montant.valueOf("10.5"), client));
+        compteRepository.save(new CompteAvecDecouvert("FR0000000002", euros(-20), euros(100), client));
+    }
+
+    @AfterEach
+    void vider() {
+        jdbcTemplate.update("TRUNCATE TABLE Compte");
+        jdbcTemplate.update("DELETE FROM Utilisateur");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    private String export(Format format, boolean comptes) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (comptes) {
+            exportService.exportAccounts(format, out);
+        } else {
+            exportService.exportClients(format, out);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void accounts_csv() throws Exception {
+        assertEquals("numeroCompte,solde,className,decouvertAutorise,ownerUserId\n"
+                + "FR0000000001,10.50,CompteSansDecouvert,,j.dupont1\n"
+                + "FR0000000002,-20.00,CompteAvecDecouvert,100.00,j.dupont1\n", export(Format.CSV, true));
+    }
+
+    @Test
+    void clients_csv_quotes_special_characters_and_omits_password() throws Exception {
+        assertEquals("userId,nom,prenom,adresse,male,numeroClient\n"
+                + "e.martin1,Martin,\"Eve \"\"la\"\"\",2 rue Test,false,1234567891\n"
+                + "j.dupont1,Dupont,Jean,\"1 rue Test, Paris\",true,1234567890\n", export(Format.CSV, false));
+    }
+
+    @Test
+    void accounts_and_clients_ndjson() throws Exception {
+        String[] comptes = export(Format.NDJSON, true).split("\n");
+        assertEquals(2, comptes.length);
+        assertEquals("{\"numeroCompte\":\"FR0000000002\",\"solde\":-20.00,\"className\":\"CompteAvecDecouvert\","
+                + "\"decouvertAutorise\":100.00,\"ownerUserId\":\"j.dupont1\"}", comptes[1]);
+
+        String clients = export(Format.NDJSON, false);
+        assertTrue(clients.endsWith("}\n"));
+        assertEquals(2, clients.split("\n").length);
+        assertFalse(clients.contains("password"));
+    }
+}
@@ -0,0 +1,208 @@
+package com.iut.banque.service;
+
+import com.iut.banque.api.dto.ImportReport;
+import com.iut.banque.api.dto.ImportReport.Reject;
+import com.iut.banque.modele.Client;
+import com.iut.banque.modele.CompteAvecDecouvert;
+import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.repository.ClientRepository;
+import com.iut.banque.repository.CompteRepository;
+import com.iut.banque.repository.UtilisateurRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Import en masse sur une vraie base (H2) : validation, doublons, rejets et
+ * insertion par lots.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ImportServiceTest {
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    UtilisateurRepository utilisateurRepository;
+
+    @Autowired
+    ClientRepository clientRepository;
+
+    @Autowired
+    CompteRepository compteRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    /** Fils sur lesquels les mots de passe ont été hachés. */
+    private final Set<String> filsDeHachage = ConcurrentHashMap.newKeySet();
+
+    private ImportService importService;
+
+    @BeforeEach
+    void init() throws Exception {
+        vider();
+        PasswordEncoder encoder = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                filsDeHachage.add(Thread.currentThread().getName());
+                return "{test}" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encode(rawPassword).equals(encodedPassword);
+            }
+        };
+        importService = new ImportService(entityManager, transactionManager, encoder, utilisateurRepository,
+                clientRepository, compteRepository, 100, 2, 1000);
+        clientRepository.save(new Client("Existant", "Jean", "1 rue Test", true, "j.existant1", "password",
+                "9999999999"));
+    }
+
+    @AfterEach
+    void vider() {
+        if (importService != null) {
+            importService.arreter();
+        }
+        jdbcTemplate.update("DELETE FROM Compte");
+        jdbcTemplate.update("DELETE FROM Utilisateur");
+        // supprimés hors d'Hibernate : ne plus les servir depuis le cache
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    private static String raisonLigne(ImportReport rapport, long ligne) {
+        return rapport.rejects().stream().filter(r -> r.line() == ligne).map(Reject::reason).findFirst()
+                .orElse(null);
+    }
+
+    @Test
+    void clients_are_validated_deduplicated_and_hashed() throws Exception {
+        String csv = ImportService.ENTETE_CLIENTS + "\n"
+                + "a.alpha1,Alpha,Anne,\"3 rue Test, Lyon\",false,0000000001,secret\n"
+                + "b.beta1,Beta,Bob,4 rue Test,TRUE,0000000002,secret\n"
+                + "invalide,Gamma,Gus,5 rue Test,true,0000000003,secret\n"
+                + "a.alpha1,Alpha,Anne,6 rue Test,false,0000000004,secret\n"
+                + "c.gamma1,Gamma,Carl,7 rue Test,true,0000000002,secret\n"
+                + "j.existant1,Existant,Jean,8 rue Test,true,0000000005,secret\n"
+                + "d.delta1,Delta,Dan,9 rue Test,peut-etre,0000000006,secret\n"
+                + "e.epsilon1,Epsilon,Eve,10 rue Test,false,0000000007,\n"
+                + "f.phi1,Phi,Fay\n"
+                + "\n"
+                + "g.gamma1,Gamma,Gil,11 rue Test,true,9999999999,secret\n";
+
+        ImportReport rapport = importService.importClients(new StringReader(csv));
+
+        assertEquals(10, rapport.lines());
+        assertEquals(2, rapport.imported());
+        assertEquals(8, rapport.rejected());
+        assertEquals(List.of(4L, 5L, 6L, 7L, 8L, 9L, 10L, 12L), rapport.rejects().stream().map(Reject::line).toList());
+        assertTrue(raisonLigne(rapport, 5).contains("double"));
+        assertTrue(raisonLigne(rapport, 6).contains("double"));
+        assertTrue(raisonLigne(rapport, 7).contains("déjà utilisé"));
+        assertTrue(raisonLigne(rapport, 12).contains("déjà utilisé"));
+        assertTrue(rapport.rowsPerSecond() > 0);
+
+        Client alpha = clientRepository.findById("a.alpha1").orElseThrow();
+        assertEquals("3 rue Test, Lyon", alpha.getAdresse());
+        assertEquals("{test}secret", alpha.getUserPwd());
+        assertTrue(clientRepository.findById("b.beta1").orElseThrow().isMale());
+        assertTrue(filsDeHachage.stream().allMatch(nom -> nom.startsWith("import-hash-")), filsDeHachage::toString);
+    }
+
+    @Test
+    void clients_are_inserted_with_jdbc_batches() throws Exception {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 1; i <= 250; i++) {
+            csv.append("c.client").append(i).append(",Nom,Prenom,1 rue Test,true,")
+                    .append(String.format("%010d", i)).append(",password\n");
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ImportReport rapport = importService.importClients(new StringReader(csv.toString()));
+
+        assertEquals(250, rapport.imported());
+        assertEquals(0, rapport.rejected());
+        assertEquals(251, clientRepository.count());
+        assertEquals(250, statistics.getEntityInsertCount());
+        // 3 paquets : 2 requêtes de doublons chacun, INSERT par lots de 50
+        // (sans lots : une requête par client, et un SELECT de plus avec save)
+        assertTrue(statistics.getPrepareStatementCount() <= 3 * 2 + 250 / 50 + 3,
+                "requêtes préparées : " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void accounts_are_validated_against_file_and_database() throws Exception {
+        Client existant = clientRepository.findById("j.existant1").orElseThrow();
+        compteRepository.save(new CompteSansDecouvert("FR9999999999", Montant.ZERO, existant));
+        String csv = "numeroCompte,clientUserId,solde,decouvertAutorise\n"
+                + "FR0000000001,j.existant1,10.5,\n"
+                + "FR0000000002,j.existant1,-20,100\n"
+                + "FR0000000003,x.inconnu1,0,\n"
+                + "FR0000000001,j.existant1,0,\n"
+                + "FR9999999999,j.existant1,0,\n"
+                + "XX12,j.existant1,0,\n"
+                + "FR0000000004,j.existant1,dix,\n"
+                + "FR0000000005,j.existant1,0,-5\n"
+                + "FR0000000006,j.existant1,-50,10\n";
+
+        ImportReport rapport = importService.importAccounts(new StringReader(csv));
+
+        assertEquals(9, rapport.lines());
+        assertEquals(2, rapport.imported());
+        assertEquals(List.of(4L, 5L, 6L, 7L, 8L, 9L, 10L), rapport.rejects().stream().map(Reject::line).toList());
+        assertTrue(raisonLigne(rapport, 4).contains("introuvable"));
+        assertTrue(raisonLigne(rapport, 5).contains("double"));
+        assertTrue(raisonLigne(rapport, 6).contains("existe déjà"));
+        assertEquals(Montant.valueOf("10.5"), compteRepository.findById("FR0000000001").orElseThrow().getSolde());
+        CompteAvecDecouvert avecDecouvert =
+                (CompteAvecDecouvert) compteRepository.findById("FR0000000002").orElseThrow();
+        assertEquals(Montant.euros(100), avecDecouvert.getDecouvertAutorise());
+        assertEquals("j.existant1", compteRepository.findSummaryById("FR0000000002").orElseThrow().ownerUserId());
+    }
+
+    @Test
+    void csv_reader_handles_quotes_and_multiline_fields() throws Exception {
+        ImportService.LecteurCsv csv = new ImportService.LecteurCsv(new StringReader(
+                "a,\"b \"\"c\"\", d\",\n\n\"ligne 1\nligne 2\",e\r\nf\n"));
+
+        assertEquals(List.of("a", "b \"c\", d", ""), csv.suivant());
+        assertEquals(1, csv.ligne());
+        assertEquals(List.of("ligne 1\nligne 2", "e"), csv.suivant());
+        assertEquals(3, csv.ligne());
+        assertEquals(List.of("f"), csv.suivant());
+        assertEquals(5, csv.ligne());
+        assertNull(csv.suivant());
+    }
+}
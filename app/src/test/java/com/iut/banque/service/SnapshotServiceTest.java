@@ -0,0 +1,120 @@
+package com.iut.banque.service;
+
+import com.iut.banque.api.dto.BalanceSnapshot;
+import com.iut.banque.api.dto.SnapshotPage;
+import com.iut.banque.exceptions.IllegalFormatException;
+import com.iut.banque.modele.Client;
+import com.iut.banque.modele.CompteAvecDecouvert;
+import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.repository.ClientRepository;
+import com.iut.banque.repository.CompteRepository;
+import com.iut.banque.repository.SoldeJournalierRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.iut.banque.modele.Montant.euros;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Copie des positions de fin de journée par tranches de 2 comptes (H2).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import(SnapshotService.class)
+@TestPropertySource(properties = "banque.snapshots.chunk-size=2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SnapshotServiceTest {
+
+    private static final LocalDate JOUR = LocalDate.of(2024, 3, 31);
+
+    @Autowired
+    SnapshotService snapshotService;
+
+    @Autowired
+    SoldeJournalierRepository soldeJournalierRepository;
+
+    @Autowired
+    CompteRepository compteRepository;
+
+    @Autowired
+    ClientRepository clientRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void init() throws Exception {
+        soldeJournalierRepository.deleteAllInBatch();
+        compteRepository.deleteAll();
+        clientRepository.deleteAll();
+        Client owner = clientRepository.save(
+                new Client("Dupont", "Jean", "1 rue Test", true, "j.dupont1", "password", "1234567890"));
+        compteRepository.save(new CompteSansDecouvert("FR0000000001", euros(100), owner));
+        compteRepository.save(new CompteSansDecouvert("FR0000000002", euros(0), owner));
+        compteRepository.save(new CompteAvecDecouvert("FR0000000003", euros(-20), euros(50), owner));
+        compteRepository.save(new CompteSansDecouvert("FR0000000004", euros(7), owner));
+        compteRepository.save(new CompteAvecDecouvert("FR0000000005", euros(3), euros(10), owner));
+    }
+
+    private List<BalanceSnapshot> positions(String numeroCompte) throws Exception {
+        return snapshotService.listSnapshots(numeroCompte, JOUR, JOUR, 10).items();
+    }
+
+    @Test
+    void copies_every_account_in_key_range_chunks() throws Exception {
+        assertEquals(5, snapshotService.snapshot(JOUR));
+
+        assertEquals(5, soldeJournalierRepository.count());
+        assertEquals(List.of(new BalanceSnapshot(JOUR, euros(-20), euros(50))),
+                positions("FR0000000003"));
+        assertEquals(List.of(new BalanceSnapshot(JOUR, euros(100), null)),
+                positions("FR0000000001"));
+    }
+
+    @Test
+    void interrupted_copy_resumes_after_last_account() {
+        snapshotService.snapshot(JOUR);
+        // copie arrêtée après la deuxième tranche
+        jdbcTemplate.update("DELETE FROM SoldeJournalier WHERE numeroCompte > 'FR0000000004'");
+
+        assertEquals(1, snapshotService.snapshot(JOUR));
+        assertEquals(0, snapshotService.snapshot(JOUR), "copie déjà complète");
+        assertEquals(5, soldeJournalierRepository.count());
+    }
+
+    @Test
+    void snapshots_are_paged_by_date() throws Exception {
+        for (int jour = 1; jour <= 5; jour++) {
+            // 1 € par jour, en centimes
+            jdbcTemplate.update("UPDATE Compte SET solde = solde + 100 WHERE numeroCompte = 'FR0000000001'");
+            snapshotService.snapshot(JOUR.plusDays(jour));
+        }
+
+        SnapshotPage page = snapshotService.listSnapshots("FR0000000001", JOUR, JOUR.plusDays(4), 2);
+        assertEquals(List.of(JOUR.plusDays(1), JOUR.plusDays(2)),
+                page.items().stream().map(BalanceSnapshot::date).toList());
+        assertEquals(euros(101), page.items().get(0).solde());
+        assertEquals(JOUR.plusDays(3), page.nextFrom());
+
+        page = snapshotService.listSnapshots("FR0000000001", page.nextFrom(), JOUR.plusDays(4), 2);
+        assertEquals(List.of(JOUR.plusDays(3), JOUR.plusDays(4)),
+                page.items().stream().map(BalanceSnapshot::date).toList());
+        assertNull(page.nextFrom());
+
+        assertThrows(IllegalFormatException.class,
+                () -> snapshotService.listSnapshots("FR0000000001", JOUR.plusDays(1), JOUR, 10));
+    }
+}
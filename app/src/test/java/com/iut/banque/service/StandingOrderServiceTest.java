@@ -0,0 +1,249 @@
+package com.iut.banque.service;
+
+import com.iut.banque.api.dto.StandingOrderRequest;
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.engine.BalanceEngine;
+import com.iut.banque.exceptions.IllegalFormatException;
+import com.iut.banque.exceptions.IllegalOperationException;
+import com.iut.banque.exceptions.InsufficientFundsException;
+import com.iut.banque.modele.Client;
+import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.modele.OrdrePermanent;
+import com.iut.banque.modele.Periodicite;
+import com.iut.banque.repository.ClientRepository;
+import com.iut.banque.repository.CompteRepository;
+import com.iut.banque.repository.OperationRepository;
+import com.iut.banque.repository.OrdrePermanentRepository;
+import com.iut.banque.repository.PointDeRepriseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.unit.DataSize;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static com.iut.banque.modele.Montant.euros;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exécution des ordres permanents sur H2, la roue étant avancée par le test
+ * à des instants choisis (horizon de 15 minutes, tick d'une seconde).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({ StandingOrderService.class, BatchTransferService.class, LookupCache.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StandingOrderServiceTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+    private static final long SECONDE = 1_000;
+    private static final long MINUTE = 60 * SECONDE;
+
+    @Autowired
+    StandingOrderService standingOrderService;
+
+    @Autowired
+    OrdrePermanentRepository ordrePermanentRepository;
+
+    @Autowired
+    CompteRepository compteRepository;
+
+    @Autowired
+    ClientRepository clientRepository;
+
+    @Autowired
+    OperationRepository operationRepository;
+
+    @Autowired
+    BatchTransferService batchTransferService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PointDeRepriseRepository pointDeRepriseRepository;
+
+    private LocalDateTime premiere;
+    private long instant;
+
+    @BeforeEach
+    void init() throws Exception {
+        ordrePermanentRepository.deleteAllInBatch();
+        operationRepository.deleteAllInBatch();
+        compteRepository.deleteAll();
+        clientRepository.deleteAll();
+        Client owner = clientRepository.save(
+                new Client("Dupont", "Jean", "1 rue Test", true, "j.dupont1", "password", "1234567890"));
+        compteRepository.save(new CompteSansDecouvert("FR0000000001", euros(100), owner));
+        compteRepository.save(new CompteSansDecouvert("FR0000000002", euros(0), owner));
+        compteRepository.save(new CompteSansDecouvert("FR0000000003", euros(5), owner));
+        premiere = LocalDate.now(ZONE).plusDays(1).atTime(8, 0);
+        instant = premiere.atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    private Montant solde(String numeroCompte) {
+        return compteRepository.findById(numeroCompte).orElseThrow().getSolde();
+    }
+
+    private OrdrePermanent ordre(long id) {
+        return ordrePermanentRepository.findById(id).orElseThrow();
+    }
+
+    /**
+     * Un second nœud sur la même base.
+     */
+    private StandingOrderService autreNoeud() {
+        return new StandingOrderService(jdbcTemplate, transactionManager, ordrePermanentRepository,
+                compteRepository, batchTransferService, null, ZONE, false, Duration.ofSeconds(1),
+                Duration.ofMinutes(15), 500);
+    }
+
+    @Test
+    void each_occurrence_runs_once_across_nodes_and_missed_ones_catch_up() throws Exception {
+        long id = standingOrderService.creer(new StandingOrderRequest("FR0000000001", "FR0000000002", euros(10),
+                Periodicite.MENSUEL, premiere, premiere.toLocalDate().plusMonths(2)), "j.dupont1").getId();
+        StandingOrderService autre = autreNoeud();
+        standingOrderService.initialiser(instant - 60 * MINUTE);
+        autre.initialiser(instant - 60 * MINUTE);
+
+        assertEquals(0, standingOrderService.tourner(instant - 60 * MINUTE));
+        assertEquals(0, standingOrderService.planifiees(), "au-delà de l'horizon");
+        // demi-horizon consommé : plage suivante chargée sur les deux nœuds
+        standingOrderService.tourner(instant - 10 * MINUTE);
+        autre.tourner(instant - 10 * MINUTE);
+        assertEquals(1, standingOrderService.planifiees());
+        assertEquals(0, standingOrderService.tourner(instant - SECONDE));
+
+        assertEquals(1, standingOrderService.tourner(instant + SECONDE));
+        assertEquals(0, autre.tourner(instant + SECONDE), "échéance déjà exécutée");
+        assertEquals(euros(90), solde("FR0000000001"));
+        assertEquals(euros(10), solde("FR0000000002"));
+        assertEquals(1, ordre(id).getRang());
+        assertEquals("OK", ordre(id).getDernierStatut());
+        assertEquals(premiere.plusMonths(1).atZone(ZONE).toInstant(), ordre(id).getProchaineExecution());
+
+        // redémarrage trois mois plus tard : les deux échéances manquées sont
+        // exécutées, la date de fin termine l'ordre
+        standingOrderService.initialiser(instant + 90L * 24 * 60 * MINUTE);
+        assertEquals(2, standingOrderService.tourner(instant + 90L * 24 * 60 * MINUTE));
+        assertEquals(euros(70), solde("FR0000000001"));
+        assertEquals(3, ordre(id).getRang());
+        assertNull(ordre(id).getProchaineExecution());
+        assertEquals(6, operationRepository.count());
+    }
+
+    @Test
+    void refused_transfer_consumes_the_occurrence_and_cancelled_orders_stop() throws Exception {
+        long id = standingOrderService.creer(new StandingOrderRequest("FR0000000003", "FR0000000002", euros(10),
+                Periodicite.QUOTIDIEN, premiere, null), "j.dupont1").getId();
+        standingOrderService.initialiser(instant - MINUTE);
+
+        assertEquals(1, standingOrderService.tourner(instant + SECONDE));
+        assertEquals(euros(5), solde("FR0000000003"));
+        assertEquals("INSUFFICIENT_FUNDS", ordre(id).getDernierStatut());
+        assertEquals(1, ordre(id).getRang());
+
+        standingOrderService.annuler(id, "j.dupont1");
+        assertEquals(0, standingOrderService.tourner(instant + 24 * 60 * MINUTE + SECONDE));
+        assertNull(ordre(id).getProchaineExecution());
+        assertThrows(IllegalOperationException.class, () -> standingOrderService.annuler(id, "j.dupont1"));
+    }
+
+    @Test
+    void new_orders_inside_the_loaded_range_are_scheduled_directly() throws Exception {
+        long maintenant = System.currentTimeMillis();
+        standingOrderService.initialiser(maintenant);
+        standingOrderService.tourner(maintenant);
+        LocalDateTime bientot = LocalDateTime.now(ZONE).plusMinutes(5);
+        standingOrderService.creer(new StandingOrderRequest("FR0000000001", "FR0000000002", euros(1),
+                Periodicite.HEBDOMADAIRE, bientot, null), null);
+        standingOrderService.tourner(maintenant + SECONDE);
+        assertEquals(1, standingOrderService.planifiees());
+
+        assertThrows(IllegalFormatException.class, () -> standingOrderService.creer(new StandingOrderRequest(
+                "FR0000000001", "FR0000000001", euros(1), Periodicite.MENSUEL, premiere, null), null));
+        assertThrows(IllegalFormatException.class, () -> standingOrderService.creer(new StandingOrderRequest(
+                "FR0000000001", "FR0000000002", euros(1), Periodicite.MENSUEL, premiere.minusYears(1), null), null));
+        assertThrows(IllegalOperationException.class, () -> standingOrderService.creer(new StandingOrderRequest(
+                "FR0000000001", "FR9999999999", euros(1), Periodicite.MENSUEL, premiere, null), null));
+    }
+
+    @Test
+    void clients_only_reach_orders_on_their_own_accounts() throws Exception {
+        Client autre = clientRepository.save(
+                new Client("Martin", "Paul", "2 rue Test", true, "p.martin1", "password", "1234567891"));
+        compteRepository.save(new CompteSansDecouvert("FR0000000004", euros(50), autre));
+
+        // compte débité d'un autre client, ou compte crédité d'un autre titulaire
+        assertThrows(AccessDeniedException.class, () -> standingOrderService.creer(new StandingOrderRequest(
+                "FR0000000004", "FR0000000002", euros(1), Periodicite.MENSUEL, premiere, null), "j.dupont1"));
+        assertThrows(AccessDeniedException.class, () -> standingOrderService.creer(new StandingOrderRequest(
+                "FR0000000001", "FR0000000004", euros(1), Periodicite.MENSUEL, premiere, null), "j.dupont1"));
+        assertThrows(AccessDeniedException.class, () -> standingOrderService.creer(new StandingOrderRequest(
+                "FR0000000001", "FR0000000004", euros(1), Periodicite.MENSUEL, premiere, null), null));
+        assertEquals(0, ordrePermanentRepository.count());
+
+        long id = standingOrderService.creer(new StandingOrderRequest("FR0000000001", "FR0000000002", euros(1),
+                Periodicite.MENSUEL, premiere, null), "j.dupont1").getId();
+        assertThrows(AccessDeniedException.class, () -> standingOrderService.lister("FR0000000001", "p.martin1"));
+        assertThrows(AccessDeniedException.class, () -> standingOrderService.lister("FR9999999999", "p.martin1"));
+        assertThrows(AccessDeniedException.class, () -> standingOrderService.annuler(id, "p.martin1"));
+        assertNotNull(ordre(id).getProchaineExecution());
+
+        assertEquals(1, standingOrderService.lister("FR0000000001", "j.dupont1").size());
+        assertEquals(1, standingOrderService.lister("FR0000000001", null).size());
+        standingOrderService.annuler(id, null);
+        assertNull(ordre(id).getProchaineExecution());
+    }
+
+    @Test
+    void orders_run_against_engine_balances(@TempDir Path repertoire) throws Exception {
+        pointDeRepriseRepository.deleteAll();
+        BalanceEngine engine = new BalanceEngine(compteRepository, operationRepository, pointDeRepriseRepository,
+                jdbcTemplate, transactionManager, repertoire, true, Duration.ofHours(1), DataSize.ofKilobytes(4), 8);
+        engine.demarrer();
+        try {
+            StandingOrderService service = new StandingOrderService(jdbcTemplate, transactionManager,
+                    ordrePermanentRepository, compteRepository, batchTransferService, engine, ZONE, false,
+                    Duration.ofSeconds(1), Duration.ofMinutes(15), 500);
+            long refuse = service.creer(new StandingOrderRequest("FR0000000001", "FR0000000002", euros(30),
+                    Periodicite.QUOTIDIEN, premiere, null), null).getId();
+            long accepte = service.creer(new StandingOrderRequest("FR0000000001", "FR0000000002", euros(15),
+                    Periodicite.QUOTIDIEN, premiere, null), null).getId();
+            service.initialiser(instant - MINUTE);
+            // débit du moteur pas encore reporté en base : il reste 20 €
+            engine.debiter("FR0000000001", euros(80));
+
+            assertEquals(2, service.tourner(instant + SECONDE));
+            assertEquals("INSUFFICIENT_FUNDS", ordre(refuse).getDernierStatut());
+            assertEquals("OK", ordre(accepte).getDernierStatut());
+            // le moteur voit le virement de l'ordre
+            assertEquals(euros(5), engine.solde("FR0000000001"));
+            assertThrows(InsufficientFundsException.class, () -> engine.debiter("FR0000000001", euros(10)));
+            engine.reporter();
+            assertEquals(euros(5), solde("FR0000000001"));
+            assertEquals(euros(15), solde("FR0000000002"));
+        } finally {
+            engine.arreter();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.iut.banque.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iut.banque.cache.LookupCache;
+import com.iut.banque.cryptage.PasswordStorage;
+import com.iut.banque.facade.BanqueManager;
+import com.iut.banque.metrics.OperationMetrics;
+import com.iut.banque.modele.Client;
+import com.iut.banque.modele.Compte;
+import com.iut.banque.modele.CompteSansDecouvert;
+import com.iut.banque.repository.ClientRepository;
+import com.iut.banque.repository.CompteRepository;
+import com.iut.banque.repository.OperationRepository;
+import com.iut.banque.repository.UtilisateurRepository;
+import com.iut.banque.security.CredentialCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.iut.banque.modele.Montant.euros;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Nombre de requêtes SQL émises par les appels derrière les principaux
+ * écrans et points d'accès (/api/clients, /api/accounts, /accounts, connexion)
+ * : il ne doit pas dépendre du nombre de clients ni de comptes en base.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({ BanqueService.class, BanqueManager.class, PasswordStorage.class, LookupCache.class,
+        OperationMetrics.class, SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StatementCountTest {
+
+    private static final int NB_CLIENTS = 10;
+    private static final int COMPTES_PAR_CLIENT = 3;
+
+    @Autowired
+    BanqueService banqueService;
+
+    @Autowired
+    BanqueManager banqueManager;
+
+    @Autowired
+    ClientRepository clientRepository;
+
+    @Autowired
+    CompteRepository compteRepository;
+
+    @Autowired
+    UtilisateurRepository utilisateurRepository;
+
+    @Autowired
+    OperationRepository operationRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    PasswordEncoder passwordEncoder;
+
+    @MockBean
+    CredentialCache credentialCache;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void init() throws Exception {
+        operationRepository.deleteAll();
+        compteRepository.deleteAll();
+        clientRepository.deleteAll();
+        for (int i = 0; i < NB_CLIENTS; i++) {
+            Client client = clientRepository.save(new Client("Nom", "Prenom", "1 rue Test", true,
+                    "c.client" + (i + 1), "password", String.format("%010d", i)));
+            for (int j = 0; j < COMPTES_PAR_CLIENT; j++) {
+                compteRepository.save(new CompteSansDecouvert(String.format("FR%05d%05d", i, j), euros(10), client));
+            }
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // mesures à froid : les INSERT ci-dessus ont rempli le cache de second niveau
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    private <T> T counting(long attendu, Supplier<T> appel) {
+        statistics.clear();
+        T resultat = appel.get();
+        assertEquals(attendu, statistics.getPrepareStatementCount(), "requêtes SQL émises");
+        return resultat;
+    }
+
+    @Test
+    void list_clients_does_not_load_accounts() {
+        List<Client> clients = counting(1, banqueManager::getAllClients);
+        assertEquals(NB_CLIENTS, clients.size());
+    }
+
+    @Test
+    void login_lookup_loads_only_the_user() {
+        assertTrue(counting(1, () -> utilisateurRepository.findById("c.client4")).isPresent());
+    }
+
+    @Test
+    void repeated_login_lookup_is_served_from_second_level_cache() {
+        counting(1, () -> utilisateurRepository.findById("c.client4"));
+        assertTrue(counting(0, () -> utilisateurRepository.findById("c.client4")).isPresent());
+    }
+
+    @Test
+    void manager_account_list_reads_clients_from_query_cache() {
+        // WebController.listAccounts pour un gestionnaire : une page de comptes
+        // et la liste des clients du filtre
+        Supplier<Integer> listAccounts = () -> banqueService.listAccountsPage(null, 20).items().size()
+                + banqueService.listClients().size();
+
+        // sans cache (ou à froid) : 2 requêtes par affichage
+        assertEquals(20 + NB_CLIENTS, counting(2, listAccounts));
+        // ensuite, seule la page de comptes est lue en base
+        assertEquals(20 + NB_CLIENTS, counting(1, listAccounts));
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void account_page_is_a_single_query() {
+        assertEquals(20, counting(1, () -> banqueService.listAccountsPage(null, 20)).items().size());
+    }
+
+    @Test
+    void accounts_of_a_client_load_owner_in_same_query() {
+        List<Compte> comptes = counting(1, () -> banqueService.listAccountsForUser("c.client3"));
+        assertEquals(COMPTES_PAR_CLIENT, comptes.size());
+        assertEquals("c.client3", comptes.get(0).getOwner().getUserId());
+    }
+
+    @Test
+    void all_accounts_load_owners_in_same_query() {
+        assertEquals(NB_CLIENTS * COMPTES_PAR_CLIENT, counting(1, banqueService::listAccounts).size());
+    }
+
+    @Test
+    void single_account_loads_owner_without_its_accounts() {
+        Compte compte = counting(1, () -> banqueManager.getAccountById("FR0000100002"));
+        assertEquals("c.client2", compte.getOwner().getUserId());
+    }
+
+    @Test
+    void single_account_is_serialized_without_loading_owner_accounts() throws Exception {
+        // GET /api/accounts/{id} : le propriétaire est sérialisé hors transaction
+        Compte compte = banqueService.getAccountById("FR0000100002");
+        String json = counting(0, () -> {
+            try {
+                return new ObjectMapper().writeValueAsString(compte);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(json.contains("\"c.client2\""), json);
+    }
+}
@@ -0,0 +1,64 @@
+package com.iut.banque.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FormatIdentifiantsTest {
+
+    private static final Pattern NUMERO_COMPTE = Pattern.compile("[A-Z]{2}[0-9]{10}");
+    private static final Pattern USER_ID_CLIENT = Pattern.compile("^[a-z]\\.[a-z]+[1-9][0-9]*$");
+    private static final Pattern NUMERO_CLIENT = Pattern.compile("[0-9]{10}");
+
+    @Test
+    void known_values() {
+        assertTrue(FormatIdentifiants.isNumeroCompte("FR0123456789"));
+        assertFalse(FormatIdentifiants.isNumeroCompte("fr0123456789"));
+        assertFalse(FormatIdentifiants.isNumeroCompte("FR012345678"));
+        assertFalse(FormatIdentifiants.isNumeroCompte("FR01234567890"));
+
+        assertTrue(FormatIdentifiants.isUserIdClient("d.dupont123"));
+        assertTrue(FormatIdentifiants.isUserIdClient("a.b1"));
+        assertFalse(FormatIdentifiants.isUserIdClient("a.b0"));
+        assertFalse(FormatIdentifiants.isUserIdClient("a.1"));
+        assertFalse(FormatIdentifiants.isUserIdClient("ab.c1"));
+        assertFalse(FormatIdentifiants.isUserIdClient("a.bc"));
+        assertFalse(FormatIdentifiants.isUserIdClient("a.b1x"));
+
+        assertTrue(FormatIdentifiants.isNumeroClient("0123456789"));
+        assertFalse(FormatIdentifiants.isNumeroClient("012345678a"));
+
+        assertFalse(FormatIdentifiants.isNumeroCompte(null));
+        assertFalse(FormatIdentifiants.isUserIdClient(null));
+        assertFalse(FormatIdentifiants.isNumeroClient(null));
+    }
+
+    /**
+     * Même résultat que les expressions régulières d'origine, sur des valeurs
+     * proches des formats attendus.
+     */
+    @Test
+    void same_result_as_regular_expressions() {
+        Random random = new Random(42);
+        String alphabet = "aAzZ09.1-é\n";
+        List<String> valeurs = new ArrayList<>(List.of("", "FR0123456789", "d.dupont123", "0123456789", "a.b1\n"));
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int longueur = random.nextInt(14);
+            for (int j = 0; j < longueur; j++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            valeurs.add(sb.toString());
+        }
+        for (String v : valeurs) {
+            assertEquals(NUMERO_COMPTE.matcher(v).matches(), FormatIdentifiants.isNumeroCompte(v), v);
+            assertEquals(USER_ID_CLIENT.matcher(v).matches(), FormatIdentifiants.isUserIdClient(v), v);
+            assertEquals(NUMERO_CLIENT.matcher(v).matches(), FormatIdentifiants.isNumeroClient(v), v);
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.iut.banque.web;
 
+import com.iut.banque.api.dto.AccountPage;
+import com.iut.banque.api.dto.AccountSummary;
 import com.iut.banque.config.TestConfig;
 import com.iut.banque.constants.LoginConstants;
 import com.iut.banque.exceptions.IllegalOperationException;
+import com.iut.banque.exceptions.TooManyAttemptsException;
 import com.iut.banque.facade.LoginManager;
-import com.iut.banque.modele.Compte;
+import com.iut.banque.modele.Montant;
+import com.iut.banque.security.LoginRateLimiter;
 import com.iut.banque.service.BanqueService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,8 +17,11 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
 
+import static com.iut.banque.modele.Montant.euros;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -34,6 +41,13 @@ class WebControllerTest {
     @MockBean
     LoginManager loginManager;
 
+    @MockBean
+    LoginRateLimiter loginRateLimiter;
+
+    private static AccountSummary compte(String numeroCompte, String ownerUserId) {
+        return new AccountSummary(numeroCompte, Montant.ZERO, "CompteSansDecouvert", null, ownerUserId);
+    }
+
     @Test
     void get_login_page_ok() throws Exception {
         mockMvc.perform(get("/login"))
@@ -41,6 +55,20 @@ class WebControllerTest {
                 .andExpect(view().name("login"));
     }
 
+    @Test
+    void post_login_throttled_returns_429_with_retry_after() throws Exception {
+        doThrow(new TooManyAttemptsException("Trop de tentatives", Duration.ofSeconds(30)))
+                .when(loginRateLimiter).acquire(eq("a.user"), anyString());
+
+        mockMvc.perform(post("/login").param("userId", "a.user").param("password", "x"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "30"))
+                .andExpect(view().name("login"))
+                .andExpect(model().attributeExists("error"));
+
+        verifyNoInteractions(loginManager);
+    }
+
     @Test
     void accounts_requires_login_redirects_when_no_session() throws Exception {
         mockMvc.perform(get("/accounts"))
@@ -63,8 +91,10 @@ class WebControllerTest {
     }
 
     @Test
-    void listAccounts_manager_calls_service_listAccounts() throws Exception {
-        when(banqueService.listAccounts()).thenReturn(Collections.emptyList());
+    void listAccounts_manager_uses_paged_listing() throws Exception {
+        when(banqueService.listAccountsPage(null, WebController.ACCOUNTS_PAGE_SIZE)).thenReturn(new AccountPage(
+                List.of(new AccountSummary("FR0000000001", euros(10), "CompteSansDecouvert", null, "c1")),
+                "FR0000000001"));
         when(banqueService.listClients()).thenReturn(Collections.emptyList());
 
         mockMvc.perform(get("/accounts")
@@ -72,9 +102,11 @@ class WebControllerTest {
                 .sessionAttr("userType", "Manager"))
                 .andExpect(status().isOk())
                 .andExpect(model().attributeExists("accounts"))
+                .andExpect(model().attribute("nextAfter", "FR0000000001"))
                 .andExpect(view().name("accounts"));
 
-        verify(banqueService, times(1)).listAccounts();
+        verify(banqueService, times(1)).listAccountsPage(null, WebController.ACCOUNTS_PAGE_SIZE);
+        verify(banqueService, never()).listAccounts();
         verify(banqueService, times(1)).listClients();
         verify(banqueService, never()).listAccountsForUser(anyString());
     }
@@ -99,7 +131,7 @@ class WebControllerTest {
                 .andExpect(model().attributeExists("selectedFilterUser"))
                 .andExpect(view().name("accounts"));
 
-        verify(banqueService, never()).listAccounts();
+        verify(banqueService, never()).listAccountsPage(any(), anyInt());
         verify(banqueService, times(1)).listAccountsForUser("client1");
         verify(banqueService, times(1)).listClients();
         verify(banqueService, times(1)).getUserById("client1");
@@ -153,13 +185,13 @@ class WebControllerTest {
                 .andExpect(redirectedUrl("/accounts"));
 
         verify(banqueService, never()).createAccountSansDecouvert(anyString(), anyString());
-        verify(banqueService, never()).createAccountAvecDecouvert(anyString(), anyString(), anyDouble());
+        verify(banqueService, never()).createAccountAvecDecouvert(anyString(), anyString(), any(Montant.class));
     }
 
     @Test
     void deposit_redirects_when_service_throws_for_manager() throws Exception {
         doThrow(new IllegalArgumentException("Accès refusé"))
-                .when(banqueService).crediter(eq("ACC1"), eq(50.0));
+                .when(banqueService).crediter(eq("ACC1"), eq(euros(50)));
 
         mockMvc.perform(post("/accounts/ACC1/deposit")
                 .param("amount", "50")
@@ -167,7 +199,7 @@ class WebControllerTest {
                 .sessionAttr("userType", "Manager"))
                 .andExpect(status().is3xxRedirection());
 
-        verify(banqueService, times(1)).crediter("ACC1", 50.0);
+        verify(banqueService, times(1)).crediter("ACC1", euros(50));
     }
 
     @Test
@@ -179,7 +211,7 @@ class WebControllerTest {
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/accounts"));
 
-        verify(banqueService, never()).crediter(anyString(), anyDouble());
+        verify(banqueService, never()).crediter(anyString(), any(Montant.class));
     }
 
     @Test
@@ -196,15 +228,9 @@ class WebControllerTest {
 
     @Test
     void post_transfer_redirects_when_called() throws Exception {
-        Compte mockCompte = mock(Compte.class);
-        Compte mockTo = mock(Compte.class);
-        when(mockCompte.getOwner()).thenReturn(mock(com.iut.banque.modele.Client.class));
-        when(mockCompte.getOwner().getUserId()).thenReturn("client");
-        when(mockTo.getOwner()).thenReturn(mock(com.iut.banque.modele.Client.class));
-        when(mockTo.getOwner().getUserId()).thenReturn("client");
-        when(banqueService.getAccountById("A")).thenReturn(mockCompte);
-        when(banqueService.getAccountById("B")).thenReturn(mockTo);
-        doNothing().when(banqueService).transfer(anyString(), anyString(), anyDouble());
+        when(banqueService.getAccountSummary("A")).thenReturn(compte("A", "client"));
+        when(banqueService.getAccountSummary("B")).thenReturn(compte("B", "client"));
+        doNothing().when(banqueService).transfer(anyString(), anyString(), any(Montant.class));
 
         mockMvc.perform(post("/transfer")
                 .param("fromAccountId", "A")
@@ -214,12 +240,12 @@ class WebControllerTest {
                 .sessionAttr("userType", "Client"))
                 .andExpect(status().is3xxRedirection());
 
-        verify(banqueService, times(1)).transfer("A", "B", 1.0);
+        verify(banqueService, times(1)).transfer("A", "B", euros(1));
     }
 
     @Test
     void view_account_not_found_redirects_or_error() throws Exception {
-        when(banqueService.getAccountById("X"))
+        when(banqueService.getAccountSummary("X"))
                 .thenThrow(new com.iut.banque.exceptions.IllegalOperationException("not found"));
 
         mockMvc.perform(get("/accounts/X")
@@ -454,7 +480,7 @@ class WebControllerTest {
 
     @Test
     void post_create_account_with_overdraft() throws Exception {
-        when(banqueService.createAccountAvecDecouvert(anyString(), anyString(), anyDouble()))
+        when(banqueService.createAccountAvecDecouvert(anyString(), anyString(), any(Montant.class)))
                 .thenReturn(mock(com.iut.banque.modele.CompteAvecDecouvert.class));
 
         mockMvc.perform(post("/accounts/new")
@@ -468,7 +494,7 @@ class WebControllerTest {
 
     @Test
     void withdraw_from_account_success_for_manager() throws Exception {
-        doNothing().when(banqueService).debiter(eq("ACC1"), eq(50.0));
+        doNothing().when(banqueService).debiter(eq("ACC1"), eq(euros(50)));
 
         mockMvc.perform(post("/accounts/ACC1/withdraw")
                 .param("amount", "50")
@@ -476,7 +502,7 @@ class WebControllerTest {
                 .sessionAttr("userType", "Manager"))
                 .andExpect(status().is3xxRedirection());
 
-        verify(banqueService, times(1)).debiter("ACC1", 50.0);
+        verify(banqueService, times(1)).debiter("ACC1", euros(50));
     }
 
     @Test
@@ -488,7 +514,7 @@ class WebControllerTest {
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/accounts"));
 
-        verify(banqueService, never()).debiter(anyString(), anyDouble());
+        verify(banqueService, never()).debiter(anyString(), any(Montant.class));
     }
 
     @Test
@@ -509,12 +535,7 @@ class WebControllerTest {
 
     @Test
     void view_account_success() throws Exception {
-        com.iut.banque.modele.Client owner = mock(com.iut.banque.modele.Client.class);
-        when(owner.getUserId()).thenReturn("client");
-
-        Compte mockCompte = mock(Compte.class);
-        when(mockCompte.getOwner()).thenReturn(owner);
-        when(banqueService.getAccountById("ACC1")).thenReturn(mockCompte);
+        when(banqueService.getAccountSummary("ACC1")).thenReturn(compte("ACC1", "client"));
 
         mockMvc.perform(get("/accounts/ACC1")
                 .sessionAttr("userId", "client")
@@ -526,11 +547,7 @@ class WebControllerTest {
 
     @Test
     void view_account_manager_can_access() throws Exception {
-        com.iut.banque.modele.Client owner = mock(com.iut.banque.modele.Client.class);
-
-        Compte mockCompte = mock(Compte.class);
-        when(mockCompte.getOwner()).thenReturn(owner);
-        when(banqueService.getAccountById("ACC1")).thenReturn(mockCompte);
+        when(banqueService.getAccountSummary("ACC1")).thenReturn(compte("ACC1", "client"));
 
         mockMvc.perform(get("/accounts/ACC1")
                 .sessionAttr("userId", "manager")
@@ -542,12 +559,7 @@ class WebControllerTest {
 
     @Test
     void view_account_client_access_denied() throws Exception {
-        com.iut.banque.modele.Client owner = mock(com.iut.banque.modele.Client.class);
-        when(owner.getUserId()).thenReturn("other");
-
-        Compte mockCompte = mock(Compte.class);
-        when(mockCompte.getOwner()).thenReturn(owner);
-        when(banqueService.getAccountById("ACC1")).thenReturn(mockCompte);
+        when(banqueService.getAccountSummary("ACC1")).thenReturn(compte("ACC1", "other"));
 
         mockMvc.perform(get("/accounts/ACC1")
                 .sessionAttr("userId", "client")
@@ -610,15 +622,9 @@ class WebControllerTest {
 
     @Test
     void submit_transfer_success() throws Exception {
-        Compte from = mock(Compte.class);
-        Compte to = mock(Compte.class);
-        com.iut.banque.modele.Client owner = mock(com.iut.banque.modele.Client.class);
-        when(owner.getUserId()).thenReturn("client");
-        when(from.getOwner()).thenReturn(owner);
-        when(to.getOwner()).thenReturn(owner);
-        when(banqueService.getAccountById("FROM")).thenReturn(from);
-        when(banqueService.getAccountById("TO")).thenReturn(to);
-        doNothing().when(banqueService).transfer("FROM", "TO", 100.0);
+        when(banqueService.getAccountSummary("FROM")).thenReturn(compte("FROM", "client"));
+        when(banqueService.getAccountSummary("TO")).thenReturn(compte("TO", "client"));
+        doNothing().when(banqueService).transfer("FROM", "TO", euros(100));
 
         mockMvc.perform(post("/transfer")
                 .sessionAttr("userId", "client")
@@ -628,21 +634,15 @@ class WebControllerTest {
                 .param("amount", "100.0"))
                 .andExpect(status().is3xxRedirection());
 
-        verify(banqueService, times(1)).transfer("FROM", "TO", 100.0);
+        verify(banqueService, times(1)).transfer("FROM", "TO", euros(100));
     }
 
     @Test
     void submit_transfer_insufficient_funds() throws Exception {
-        Compte from = mock(Compte.class);
-        Compte to = mock(Compte.class);
-        com.iut.banque.modele.Client owner = mock(com.iut.banque.modele.Client.class);
-        when(owner.getUserId()).thenReturn("client");
-        when(from.getOwner()).thenReturn(owner);
-        when(to.getOwner()).thenReturn(owner);
-        when(banqueService.getAccountById("FROM")).thenReturn(from);
-        when(banqueService.getAccountById("TO")).thenReturn(to);
+        when(banqueService.getAccountSummary("FROM")).thenReturn(compte("FROM", "client"));
+        when(banqueService.getAccountSummary("TO")).thenReturn(compte("TO", "client"));
         doThrow(new IllegalOperationException("Insufficient funds"))
-                .when(banqueService).transfer("FROM", "TO", 10000.0);
+                .when(banqueService).transfer("FROM", "TO", euros(10000));
 
         mockMvc.perform(post("/transfer")
                 .sessionAttr("userId", "client")
@@ -655,16 +655,8 @@ class WebControllerTest {
 
     @Test
     void submit_transfer_client_destination_not_owned_is_rejected() throws Exception {
-        Compte from = mock(Compte.class);
-        Compte to = mock(Compte.class);
-        com.iut.banque.modele.Client mine = mock(com.iut.banque.modele.Client.class);
-        com.iut.banque.modele.Client other = mock(com.iut.banque.modele.Client.class);
-        when(mine.getUserId()).thenReturn("client");
-        when(other.getUserId()).thenReturn("other");
-        when(from.getOwner()).thenReturn(mine);
-        when(to.getOwner()).thenReturn(other);
-        when(banqueService.getAccountById("FROM")).thenReturn(from);
-        when(banqueService.getAccountById("TO")).thenReturn(to);
+        when(banqueService.getAccountSummary("FROM")).thenReturn(compte("FROM", "client"));
+        when(banqueService.getAccountSummary("TO")).thenReturn(compte("TO", "other"));
 
         mockMvc.perform(post("/transfer")
                 .sessionAttr("userId", "client")
@@ -675,7 +667,7 @@ class WebControllerTest {
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/transfer"));
 
-        verify(banqueService, never()).transfer(anyString(), anyString(), anyDouble());
+        verify(banqueService, never()).transfer(anyString(), anyString(), any(Montant.class));
     }
 
     @Test
@@ -0,0 +1,24 @@
+-- Journal des opérations (ajout seul).
+-- Pas de clé étrangère vers Compte ni d'index secondaire : une insertion ne
+-- verrouille pas la table des comptes et ne maintient que la clé primaire.
+-- Les identifiants sont tirés par blocs de 50 dans Operation_seq (émulation
+-- de séquence MySQL utilisée par Hibernate).
+
+DROP TABLE IF EXISTS `Operation`;
+DROP TABLE IF EXISTS `Operation_seq`;
+
+CREATE TABLE `Operation` (
+  `id` bigint NOT NULL,
+  `numeroCompte` varchar(50) NOT NULL,
+  `montant` double NOT NULL,
+  `type` varchar(20) NOT NULL,
+  `dateOperation` datetime(6) NOT NULL,
+  `idVirement` varchar(36) DEFAULT NULL,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+CREATE TABLE `Operation_seq` (
+  `next_val` bigint DEFAULT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+INSERT INTO `Operation_seq` VALUES (1);
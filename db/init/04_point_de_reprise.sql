@@ -0,0 +1,11 @@
+-- Position des journaux d'écriture anticipée (WAL) déjà reportée en base,
+-- mise à jour dans la même transaction que le report des opérations
+-- (moteur de soldes en mémoire, banque.engine.write-behind).
+
+DROP TABLE IF EXISTS `PointDeReprise`;
+
+CREATE TABLE `PointDeReprise` (
+  `nom` varchar(50) NOT NULL,
+  `sequence` bigint NOT NULL,
+  PRIMARY KEY (`nom`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
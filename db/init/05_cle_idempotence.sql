@@ -0,0 +1,16 @@
+-- Clés d'idempotence des requêtes de l'API (en-tête Idempotency-Key) et
+-- réponses associées, partagées entre les nœuds avec
+-- banque.idempotency.store=jdbc.
+
+DROP TABLE IF EXISTS `CleIdempotence`;
+
+CREATE TABLE `CleIdempotence` (
+  `cle` varchar(255) NOT NULL,
+  `empreinte` varchar(255) NOT NULL,
+  `statut` int DEFAULT NULL,
+  `typeContenu` varchar(100) DEFAULT NULL,
+  `corps` varchar(4000) DEFAULT NULL,
+  `expiration` bigint NOT NULL,
+  PRIMARY KEY (`cle`),
+  KEY `idx_cleidempotence_expiration` (`expiration`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
@@ -0,0 +1,26 @@
+-- Montants en centimes : les soldes, découverts et montants du journal
+-- passent de double (euros) à bigint (nombre entier de centimes), lus et
+-- écrits par l'application avec le type Montant.
+-- Sur une base existante, à exécuter une seule fois, application arrêtée.
+-- Avec le moteur de soldes en mémoire (banque.engine.write-behind), arrêter
+-- l'application proprement avant : son journal (WAL) doit être entièrement
+-- reporté en base, son format ayant changé lui aussi.
+--
+-- Les valeurs sont arrondies au centime le plus proche. Pour repérer
+-- auparavant celles qui ne tombent pas juste :
+--   SELECT `numeroCompte`, `solde`, `decouvertAutorise` FROM `Compte`
+--   WHERE ABS(`solde` * 100 - ROUND(`solde` * 100)) > 1e-6
+--      OR ABS(`decouvertAutorise` * 100 - ROUND(`decouvertAutorise` * 100)) > 1e-6;
+
+UPDATE `Compte` SET
+  `solde` = ROUND(`solde` * 100),
+  `decouvertAutorise` = ROUND(`decouvertAutorise` * 100);
+
+ALTER TABLE `Compte`
+  MODIFY `solde` bigint NOT NULL,
+  MODIFY `decouvertAutorise` bigint DEFAULT NULL;
+
+UPDATE `Operation` SET `montant` = ROUND(`montant` * 100);
+
+ALTER TABLE `Operation`
+  MODIFY `montant` bigint NOT NULL;
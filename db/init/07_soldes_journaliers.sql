@@ -0,0 +1,23 @@
+-- Positions de fin de journée des comptes (déclarations réglementaires),
+-- recopiées de Compte chaque nuit par l'application (banque.snapshots).
+-- Table partitionnée par mois sur la date : une requête sur une période ne
+-- lit que les partitions concernées, et l'historique ancien se purge sans
+-- DELETE par ALTER TABLE `SoldeJournalier` DROP PARTITION p202401.
+-- Seule la partition pmax est créée ici ; l'application découpe pmax pour
+-- ajouter le mois courant et le suivant (banque.snapshots.manage-partitions).
+-- Pas de clé étrangère vers Compte : les positions d'un compte clôturé sont
+-- conservées.
+
+DROP TABLE IF EXISTS `SoldeJournalier`;
+
+CREATE TABLE `SoldeJournalier` (
+  `dateSolde` date NOT NULL,
+  `numeroCompte` varchar(50) NOT NULL,
+  `solde` bigint NOT NULL,
+  `decouvertAutorise` bigint DEFAULT NULL,
+  PRIMARY KEY (`dateSolde`, `numeroCompte`),
+  KEY `idx_soldejournalier_compte` (`numeroCompte`, `dateSolde`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1
+PARTITION BY RANGE COLUMNS (`dateSolde`) (
+  PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
@@ -0,0 +1,15 @@
+-- Avancement de l'arrêté journalier des intérêts et agios, une ligne par
+-- date : le dernier compte traité (point de reprise), mis à jour dans la
+-- même transaction que les soldes (banque.accrual).
+
+DROP TABLE IF EXISTS `ArreteJournalier`;
+
+CREATE TABLE `ArreteJournalier` (
+  `dateArrete` date NOT NULL,
+  `dernierCompte` varchar(50) NOT NULL,
+  `termine` bit(1) NOT NULL,
+  `comptes` bigint NOT NULL,
+  `interets` bigint NOT NULL,
+  `agios` bigint NOT NULL,
+  PRIMARY KEY (`dateArrete`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
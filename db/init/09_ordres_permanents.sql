@@ -0,0 +1,30 @@
+-- Ordres de virement permanents (banque.standing-orders). rang et
+-- prochaineExecution (millisecondes depuis l'epoch, NULL pour un ordre
+-- terminé ou annulé) sont avancés dans la même transaction que le virement ;
+-- l'index sur prochaineExecution sert au chargement par plages des échéances
+-- à venir. Identifiants tirés par blocs de 50 dans OrdrePermanent_seq.
+
+DROP TABLE IF EXISTS `OrdrePermanent`;
+DROP TABLE IF EXISTS `OrdrePermanent_seq`;
+
+CREATE TABLE `OrdrePermanent` (
+  `id` bigint NOT NULL,
+  `compteDebit` varchar(50) NOT NULL,
+  `compteCredit` varchar(50) NOT NULL,
+  `montant` bigint NOT NULL,
+  `periodicite` varchar(20) NOT NULL,
+  `premiereExecution` datetime(6) NOT NULL,
+  `dateFin` date DEFAULT NULL,
+  `rang` bigint NOT NULL,
+  `prochaineExecution` bigint DEFAULT NULL,
+  `dernierStatut` varchar(20) DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `idx_ordrepermanent_execution` (`prochaineExecution`),
+  KEY `idx_ordrepermanent_debit` (`compteDebit`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+CREATE TABLE `OrdrePermanent_seq` (
+  `next_val` bigint DEFAULT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+INSERT INTO `OrdrePermanent_seq` VALUES (1);
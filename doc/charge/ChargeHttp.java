@@ -0,0 +1,114 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Test de charge HTTP : N connexions simultanées (un fil virtuel et une
+ * connexion keep-alive chacune) envoient des GET en boucle sur un point d'accès
+ * de l'API, avec le jeton d'un utilisateur. Affiche le débit et les latences
+ * (p50, p99, max) mesurés après la période de chauffe.
+ *
+ * Lancement (Java 21, sans compilation) :
+ *   java doc/charge/ChargeHttp.java http://localhost:8080 /api/accounts?limit=20 admin Admin123! 2000 60 15
+ * Arguments : URL de base, chemin, utilisateur, mot de passe, connexions,
+ * durée de mesure (s), chauffe (s).
+ */
+public class ChargeHttp {
+
+    private static final Pattern JETON = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+
+    public static void main(String[] args) throws Exception {
+        String base = args[0];
+        String chemin = args[1];
+        int connexions = Integer.parseInt(args[4]);
+        Duration mesure = Duration.ofSeconds(Long.parseLong(args[5]));
+        Duration chauffe = Duration.ofSeconds(Long.parseLong(args[6]));
+
+        try (ExecutorService fils = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(fils)
+                    .connectTimeout(Duration.ofSeconds(30)).build();
+            String jeton = connexion(client, base, args[2], args[3]);
+            HttpRequest requete = HttpRequest.newBuilder(URI.create(base + chemin))
+                    .header("Authorization", "Bearer " + jeton).timeout(Duration.ofSeconds(60)).GET().build();
+
+            long debutMesure = System.nanoTime() + chauffe.toNanos();
+            long fin = debutMesure + mesure.toNanos();
+            LongAdder erreurs = new LongAdder();
+            List<Future<long[]>> resultats = new ArrayList<>();
+            for (int i = 0; i < connexions; i++) {
+                resultats.add(fils.submit(() -> boucle(client, requete, debutMesure, fin, erreurs)));
+            }
+
+            long[] latences = new long[0];
+            for (Future<long[]> resultat : resultats) {
+                long[] partiel = resultat.get();
+                long[] fusion = Arrays.copyOf(latences, latences.length + partiel.length);
+                System.arraycopy(partiel, 0, fusion, latences.length, partiel.length);
+                latences = fusion;
+            }
+            Arrays.sort(latences);
+            System.out.printf("connexions=%d durée=%ds requêtes=%d erreurs=%d débit=%.0f req/s%n", connexions,
+                    mesure.toSeconds(), latences.length, erreurs.sum(), latences.length / (double) mesure.toSeconds());
+            System.out.printf("latence p50=%.1f ms p99=%.1f ms max=%.1f ms%n", centile(latences, 0.50) / 1e6,
+                    centile(latences, 0.99) / 1e6, latences.length == 0 ? 0 : latences[latences.length - 1] / 1e6);
+        }
+    }
+
+    private static String connexion(HttpClient client, String base, String userId, String motDePasse)
+            throws Exception {
+        HttpRequest requete = HttpRequest.newBuilder(URI.create(base + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"userId\":\"" + userId + "\",\"password\":\"" + motDePasse + "\"}"))
+                .build();
+        String corps = client.send(requete, HttpResponse.BodyHandlers.ofString()).body();
+        Matcher jeton = JETON.matcher(corps);
+        if (!jeton.find()) {
+            throw new IllegalStateException("Connexion refusée : " + corps);
+        }
+        return jeton.group(1);
+    }
+
+    /** Latences (ns) des requêtes commencées pendant la mesure. */
+    private static long[] boucle(HttpClient client, HttpRequest requete, long debutMesure, long fin,
+            LongAdder erreurs) {
+        long[] latences = new long[1024];
+        int n = 0;
+        long debut;
+        while ((debut = System.nanoTime()) < fin) {
+            boolean ok;
+            try {
+                ok = client.send(requete, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+            } catch (Exception e) {
+                ok = false;
+            }
+            if (debut < debutMesure) {
+                continue;
+            }
+            if (!ok) {
+                erreurs.increment();
+            } else {
+                if (n == latences.length) {
+                    latences = Arrays.copyOf(latences, 2 * n);
+                }
+                latences[n++] = System.nanoTime() - debut;
+            }
+        }
+        return Arrays.copyOf(latences, n);
+    }
+
+    private static long centile(long[] tries, double p) {
+        return tries.length == 0 ? 0 : tries[Math.max(0, (int) Math.ceil(p * tries.length) - 1)];
+    }
+}
@@ -0,0 +1,157 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Test de charge des virements : N connexions simultanées envoient en boucle
+ * soit des virements unitaires (POST /api/accounts/transfer), soit des lots
+ * de virements (POST /api/accounts/transfers/batch). Affiche le nombre de
+ * virements appliqués par seconde après la période de chauffe.
+ *
+ * Les virements de 0,01 € font tourner l'argent sur un anneau de comptes
+ * (chaque compte verse au suivant) : les soldes restent stables quelle que
+ * soit la durée de la mesure.
+ *
+ * Lancement (Java 21, sans compilation) :
+ *   java doc/charge/ChargeVirements.java http://localhost:8080 admin Admin123! lot 500 20 60 20
+ * Arguments : URL de base, utilisateur, mot de passe, mode (unitaire ou lot),
+ * taille du lot (ignorée en mode unitaire), connexions, durée de mesure (s),
+ * chauffe (s).
+ */
+public class ChargeVirements {
+
+    private static final Pattern JETON = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern SUCCES = Pattern.compile("\"status\"\\s*:\\s*\"OK\"");
+
+    /** Comptes créditeurs de doc/charge/donnees-h2.sql (et de db/init/02_test_data.sql). */
+    private static final String[] ANNEAU = { "IO1010010001", "AB7328887341", "MD8694030938", "LA1021931215",
+            "BD4242424242" };
+
+    public static void main(String[] args) throws Exception {
+        String base = args[0];
+        boolean lot = "lot".equals(args[3]);
+        int taille = lot ? Integer.parseInt(args[4]) : 1;
+        int connexions = Integer.parseInt(args[5]);
+        Duration mesure = Duration.ofSeconds(Long.parseLong(args[6]));
+        Duration chauffe = Duration.ofSeconds(Long.parseLong(args[7]));
+
+        try (ExecutorService fils = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(fils)
+                    .connectTimeout(Duration.ofSeconds(30)).build();
+            String jeton = connexion(client, base, args[1], args[2]);
+
+            long debutMesure = System.nanoTime() + chauffe.toNanos();
+            long fin = debutMesure + mesure.toNanos();
+            LongAdder virements = new LongAdder();
+            LongAdder appels = new LongAdder();
+            LongAdder erreurs = new LongAdder();
+            List<Future<?>> boucles = new ArrayList<>();
+            for (int i = 0; i < connexions; i++) {
+                // chaque connexion part d'un compte différent de l'anneau
+                int depart = i % ANNEAU.length;
+                HttpRequest requete = lot ? requeteLot(base, jeton, depart, taille)
+                        : requeteUnitaire(base, jeton, depart);
+                boucles.add(fils.submit(
+                        () -> boucle(client, requete, lot, debutMesure, fin, virements, appels, erreurs)));
+            }
+            for (Future<?> boucle : boucles) {
+                boucle.get();
+            }
+            double secondes = mesure.toSeconds();
+            System.out.printf("mode=%s lot=%d connexions=%d durée=%ds appels=%d erreurs=%d%n", args[3], taille,
+                    connexions, mesure.toSeconds(), appels.sum(), erreurs.sum());
+            System.out.printf("débit=%.0f virements/s (%.1f appels/s)%n", virements.sum() / secondes,
+                    appels.sum() / secondes);
+        }
+    }
+
+    private static HttpRequest requeteUnitaire(String base, String jeton, int depart) {
+        return HttpRequest.newBuilder(URI.create(base + "/api/accounts/transfer"))
+                .header("Authorization", "Bearer " + jeton).header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(virement(depart))).build();
+    }
+
+    /**
+     * Lot qui fait plusieurs fois le tour de l'anneau : chaque compte est
+     * débité autant que crédité.
+     */
+    private static HttpRequest requeteLot(String base, String jeton, int depart, int taille) {
+        StringBuilder corps = new StringBuilder(taille * 80).append('[');
+        for (int i = 0; i < taille; i++) {
+            if (i > 0) {
+                corps.append(',');
+            }
+            corps.append(virement((depart + i) % ANNEAU.length));
+        }
+        corps.append(']');
+        return HttpRequest.newBuilder(URI.create(base + "/api/accounts/transfers/batch"))
+                .header("Authorization", "Bearer " + jeton).header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(corps.toString())).build();
+    }
+
+    private static String virement(int source) {
+        return "{\"fromAccountId\":\"" + ANNEAU[source] + "\",\"toAccountId\":\""
+                + ANNEAU[(source + 1) % ANNEAU.length] + "\",\"amount\":0.01}";
+    }
+
+    private static String connexion(HttpClient client, String base, String userId, String motDePasse)
+            throws Exception {
+        HttpRequest requete = HttpRequest.newBuilder(URI.create(base + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"userId\":\"" + userId + "\",\"password\":\"" + motDePasse + "\"}"))
+                .build();
+        String corps = client.send(requete, HttpResponse.BodyHandlers.ofString()).body();
+        Matcher jeton = JETON.matcher(corps);
+        if (!jeton.find()) {
+            throw new IllegalStateException("Connexion refusée : " + corps);
+        }
+        return jeton.group(1);
+    }
+
+    /** Compte les virements appliqués par les appels commencés pendant la mesure. */
+    private static Void boucle(HttpClient client, HttpRequest requete, boolean lot, long debutMesure, long fin,
+            LongAdder virements, LongAdder appels, LongAdder erreurs) {
+        long debut;
+        while ((debut = System.nanoTime()) < fin) {
+            int appliques;
+            try {
+                HttpResponse<String> reponse = client.send(requete, HttpResponse.BodyHandlers.ofString());
+                appliques = reponse.statusCode() / 100 != 2 ? -1 : lot ? succes(reponse.body()) : 1;
+            } catch (Exception e) {
+                appliques = -1;
+            }
+            if (debut < debutMesure) {
+                continue;
+            }
+            if (appliques < 0) {
+                erreurs.increment();
+            } else {
+                appels.increment();
+                virements.add(appliques);
+            }
+        }
+        return null;
+    }
+
+    private static int succes(String corps) {
+        Matcher ok = SUCCES.matcher(corps);
+        int n = 0;
+        while (ok.find()) {
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,23 @@
+-- Données du test de charge sur H2 (profil h2) : extrait de
+-- db/init/02_test_data.sql, réécrit sans les fonctions propres à MySQL.
+-- Montants en centimes (db/init/06_montants_en_centimes.sql).
+INSERT INTO Utilisateur (userId, nom, prenom, adresse, userPwd, male, type, numClient) VALUES
+    ('admin', 'Smith', 'Joe', '123, grande rue, Metz', LOWER(RAWTOHEX(HASH('SHA-256', 'Admin123!'))), TRUE,
+        'MANAGER', NULL),
+    ('j.doe1', 'Doe', 'Jane', '456, grand boulevard, Brest', LOWER(RAWTOHEX(HASH('SHA-256', 'UserBan123!'))),
+        TRUE, 'CLIENT', '1234567890'),
+    ('j.doe2', 'Doe', 'John', '457, grand boulevard, Perpignan', LOWER(RAWTOHEX(HASH('SHA-256', 'toto'))), TRUE,
+        'CLIENT', '0000000001');
+
+INSERT INTO Compte (numeroCompte, userId, solde, avecDecouvert, decouvertAutorise) VALUES
+    ('AB7328887341', 'j.doe2', 424200, 'AVEC', 12300),
+    ('BD4242424242', 'j.doe1', 10000, 'SANS', NULL),
+    ('CADNV00000', 'j.doe1', 4200, 'AVEC', 4200),
+    ('CADV000000', 'j.doe1', 0, 'AVEC', 4200),
+    ('CSDNV00000', 'j.doe1', 4200, 'SANS', NULL),
+    ('CSDV000000', 'j.doe1', 0, 'SANS', NULL),
+    ('IO1010010001', 'j.doe2', 686800, 'SANS', NULL),
+    ('LA1021931215', 'j.doe1', 10000, 'SANS', NULL),
+    ('MD8694030938', 'j.doe1', 50000, 'SANS', NULL),
+    ('TD0398455576', 'j.doe1', 2300, 'AVEC', 50000),
+    ('XD1829451029', 'j.doe1', -4800, 'AVEC', 10000);